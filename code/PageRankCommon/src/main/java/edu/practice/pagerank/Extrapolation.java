@@ -0,0 +1,166 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Aitken 外推加速（MapReduce 与 Giraph 共用的调度、安全检查与外推公式）。
+ *
+ * 每隔 period 轮，用最近三个迭代值 x0, x1, x2 对每个分量做 Aitken Δ² 外推：
+ *   r = (x2 - x1) / (x1 - x0)，x* = x2 + (x2 - x1) * r / (1 - r)
+ * 仅当 |r| < 阻尼系数（幂迭代误差的收缩率上界）且结果非负时采用，否则保留 x2。
+ * 各分量独立外推后 PR 总和发生变化，下一轮先缩放回外推前的总和（MapReduce 由 Mapper 乘以
+ * rankScale = 1 / 外推后总和；Giraph 由 Master 广播 普通幂迭代步总和 / 外推后总和）。
+ *
+ * 调度：外推后至少还要有 SAFEGUARD_LAG 轮普通迭代，既用于安全检查，也让外推引入的误差被后续迭代平滑，
+ * 因此最后 SAFEGUARD_LAG 轮（含最后一轮）不外推；外推当轮也不作为收敛停止的轮次。
+ * 安全检查：外推当轮的残差仍来自普通幂迭代步，按它与上一轮残差之比（收缩率）推算不外推时
+ * 第 SAFEGUARD_LAG 轮后的残差；外推后该轮的实际残差高于推算值，说明外推没有带来加速，随即关闭外推。
+ *
+ * MapReduce 的迭代记录额外携带上一轮的 PR：NodeID\tPR;PrevPR|Outlinks。
+ *
+ *   pagerank.extrapolation.enabled  是否启用，默认 false
+ *   pagerank.extrapolation.period   外推间隔（轮），默认 10，最小 3
+ */
+public class Extrapolation {
+
+    public static final String CONF_ENABLED = "pagerank.extrapolation.enabled";
+    public static final String CONF_PERIOD = "pagerank.extrapolation.period";
+    // MapReduce：由 Driver 按轮设置，本轮 Reducer 是否执行外推
+    public static final String CONF_APPLY = "pagerank.extrapolation.apply";
+    // MapReduce：由 Driver 按轮设置，Mapper 读入的 PR 乘以该系数（上一轮外推后为 1 / PR 总和，其余轮次为 1）
+    public static final String CONF_RANK_SCALE = "pagerank.extrapolation.rankScale";
+
+    public static final int DEFAULT_PERIOD = 10;
+    // 外推后隔几轮比较残差（外推后第一轮的残差常常持平）
+    public static final int SAFEGUARD_LAG = 2;
+    // PR 字段内当前值与历史值的分隔符
+    public static final char HISTORY_SEPARATOR = ';';
+
+    private final boolean enabled;
+    private final int period;
+    private final int lastIteration;
+    private boolean disabledBySafeguard;
+    private int lastApplied = -1;
+    private double previousResidual = Double.NaN;
+    // 不外推时外推后第 SAFEGUARD_LAG 轮的推算残差
+    private double projectedResidual;
+    private final List<Integer> appliedIterations = new ArrayList<>();
+    private int rejectedAt = -1;
+    // 轮次 -> 该轮普通幂迭代步的残差，从检查点恢复时据此回退
+    private final TreeMap<Integer, Double> residuals = new TreeMap<>();
+
+    /**
+     * lastIteration 为本次运行最后一个会执行的迭代轮次。
+     */
+    public Extrapolation(Configuration conf, int lastIteration) {
+        this.enabled = isEnabled(conf);
+        this.period = Math.max(3, conf.getInt(CONF_PERIOD, DEFAULT_PERIOD));
+        this.lastIteration = lastIteration;
+    }
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getBoolean(CONF_ENABLED, false);
+    }
+
+    /**
+     * 第 iteration 轮是否外推：需要至少两轮历史，之后还有 SAFEGUARD_LAG 轮普通迭代，且未被安全检查关闭。
+     */
+    public boolean shouldApply(int iteration) {
+        return enabled && !disabledBySafeguard && iteration >= 3 && iteration % period == 0
+                && iteration + SAFEGUARD_LAG <= lastIteration
+                && (lastApplied < 0 || iteration > lastApplied + SAFEGUARD_LAG);
+    }
+
+    /**
+     * 每轮结束后调用，residual 为本轮普通幂迭代步的平均 PR 变化，applied 为本轮是否外推。
+     * 外推后第 SAFEGUARD_LAG 轮的残差高于按外推前收缩率推算的残差时，关闭后续外推。
+     */
+    public void onIterationFinished(int iteration, double residual, boolean applied) {
+        if (applied) {
+            lastApplied = iteration;
+            projectedResidual = project(previousResidual, residual, SAFEGUARD_LAG);
+            appliedIterations.add(iteration);
+        } else if (lastApplied >= 0 && iteration == lastApplied + SAFEGUARD_LAG && residual > projectedResidual
+                && !disabledBySafeguard) {
+            disabledBySafeguard = true;
+            rejectedAt = iteration;
+            System.out.printf("   > 外推后残差 %.12e 高于不外推时的推算值 %.12e，关闭外推，退回普通幂迭代\n",
+                    residual, projectedResidual);
+        }
+        previousResidual = residual;
+        residuals.put(iteration, residual);
+    }
+
+    /**
+     * 回退到第 iteration 轮之后（从该轮的检查点恢复时调用）：撤销之后各轮的外推与安全检查记录，
+     * 重新计算的轮次按首次运行时的调度外推，安全检查使用回退后仍有效的残差。
+     */
+    public void rewind(int iteration) {
+        residuals.tailMap(iteration, false).clear();
+        appliedIterations.removeIf(applied -> applied > iteration);
+        lastApplied = appliedIterations.isEmpty() ? -1 : appliedIterations.get(appliedIterations.size() - 1);
+        if (lastApplied >= 0) {
+            projectedResidual = project(residual(lastApplied - 1), residual(lastApplied), SAFEGUARD_LAG);
+        }
+        if (rejectedAt > iteration) {
+            disabledBySafeguard = false;
+            rejectedAt = -1;
+        }
+        previousResidual = residual(iteration);
+    }
+
+    private double residual(int iteration) {
+        Double residual = residuals.get(iteration);
+        return residual == null ? Double.NaN : residual;
+    }
+
+    public String describe() {
+        if (!enabled) return "disabled";
+        return "period=" + period + ", applied=" + appliedIterations
+                + (rejectedAt >= 0 ? ", disabledAt=" + rejectedAt : "");
+    }
+
+    /**
+     * 按最近两轮残差之比（截断到 [0, 1]）推算 steps 轮后的残差；没有上一轮残差时按不下降推算。
+     */
+    static double project(double previous, double current, int steps) {
+        double rate = previous > 0 ? current / previous : 1.0;
+        if (Double.isNaN(rate) || rate > 1.0) rate = 1.0;
+        if (rate < 0.0) rate = 0.0;
+        return current * Math.pow(rate, steps);
+    }
+
+    /**
+     * 单分量 Aitken Δ² 外推；不满足安全条件时返回 x2。
+     */
+    public static double aitken(double x0, double x1, double x2, double damping) {
+        double d0 = x1 - x0;
+        double d1 = x2 - x1;
+        if (d0 == 0.0 || d1 == 0.0) return x2;
+        double ratio = d1 / d0;
+        if (Double.isNaN(ratio) || Math.abs(ratio) >= damping) return x2;
+        double extrapolated = x2 + d1 * ratio / (1.0 - ratio);
+        return extrapolated >= 0.0 ? extrapolated : x2;
+    }
+
+    // 取 PR 字段中的当前值（去掉可能携带的历史值）
+    public static String currentValue(String prField) {
+        int idx = prField.indexOf(HISTORY_SEPARATOR);
+        return idx < 0 ? prField : prField.substring(0, idx);
+    }
+
+    // 取 PR 字段中的历史值，不存在时返回 NaN
+    public static double previousValue(String prField) {
+        int idx = prField.indexOf(HISTORY_SEPARATOR);
+        if (idx < 0) return Double.NaN;
+        try {
+            return Double.parseDouble(prField.substring(idx + 1).trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.BZip2Codec;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 压缩输入的重分块工具：把不可切分的压缩文件（SNAP 发布的 .txt.gz 等）解压一次，
+ * 按行边界切成若干个约 chunkBytes（解压后大小）的压缩块文件。
+ * 每个块文件对应一个 InputSplit，预处理 Job 与 Giraph 文本加载都能按块数并行解析，
+ * 不再受限于“一个 .gz 文件一个 Mapper”。
+ *
+ * 解压是单流顺序的，块的压缩与写出在线程池中并行进行；在途块数受信号量限制，
+ * 内存占用约为 (线程数 + 1) * chunkBytes。
+ * Hadoop 可切分的编码（bzip2）与未压缩文件保持原样，直接作为 Job 输入。
+ *
+ * 分块目录下的 _ingest 标记记录源文件的长度与修改时间，源文件不变时直接复用已有的块。
+ *
+ * 用法: InputRechunker <原始输入路径> <分块目录> [块大小MB，默认 128]
+ */
+public class InputRechunker implements Tool {
+
+    // Driver 是否在读取输入前自动重分块（MapReduce 预处理 Job 与 Giraph 加载均支持）
+    public static final String CONF_ENABLED = "pagerank.ingest.rechunk";
+    // 分块目录，默认 <原始输入>_chunks
+    public static final String CONF_DIR = "pagerank.ingest.dir";
+    // 每块解压后的字节数
+    public static final String CONF_CHUNK_BYTES = "pagerank.ingest.chunkBytes";
+    // 块文件的压缩编码：gzip / deflate / bzip2 / none
+    public static final String CONF_CODEC = "pagerank.ingest.codec";
+    // 并行压缩线程数
+    public static final String CONF_THREADS = "pagerank.ingest.threads";
+
+    public static final long DEFAULT_CHUNK_BYTES = 128L << 20;
+    public static final String MARKER_FILE = "_ingest";
+    public static final String CHUNK_PREFIX = "chunk-";
+
+    private static final int READ_BUFFER = 1 << 20;
+
+    private Configuration conf;
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("用法: InputRechunker <原始输入路径> <分块目录> [块大小MB]");
+            return 1;
+        }
+        Path inputPath = new Path(args[0]);
+        Path chunkDir = new Path(args[1]);
+        if (args.length > 2) {
+            getConf().setLong(CONF_CHUNK_BYTES, Long.parseLong(args[2]) << 20);
+        }
+        List<Path> sources = listInputFiles(getConf(), inputPath);
+        if (sources.isEmpty()) {
+            System.err.println("错误: 原始输入路径不存在或为空: " + inputPath);
+            return 1;
+        }
+        Result result = rechunk(getConf(), sources, chunkDir);
+        System.out.println(result.describe());
+        return 0;
+    }
+
+    /**
+     * Driver 入口：返回预处理 Job（MapReduce）或顶点输入（Giraph）应使用的输入路径列表。
+     * 输入中没有不可切分的压缩文件时原样返回输入路径；
+     * 否则这些文件被替换为分块目录，其余文件仍直接作为输入。
+     */
+    public static List<Path> prepare(Configuration conf, Path input) throws IOException {
+        List<Path> sources = new ArrayList<>();
+        List<Path> direct = new ArrayList<>();
+        CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+        for (Path file : listInputFiles(conf, input)) {
+            if (needsRechunk(codecs.getCodec(file))) {
+                sources.add(file);
+            } else {
+                direct.add(file);
+            }
+        }
+        List<Path> inputs = new ArrayList<>();
+        if (sources.isEmpty()) {
+            System.out.println("输入均可切分，无需重分块: " + input);
+            inputs.add(input);
+            return inputs;
+        }
+        String dir = conf.get(CONF_DIR);
+        Path chunkDir = dir != null ? new Path(dir) : new Path(input.getParent(), input.getName() + "_chunks");
+        Result result = rechunk(conf, sources, chunkDir);
+        System.out.println(result.describe());
+        inputs.add(chunkDir);
+        inputs.addAll(direct);
+        return inputs;
+    }
+
+    // 只有不可切分的压缩文件需要重分块
+    static boolean needsRechunk(CompressionCodec codec) {
+        return codec != null && !(codec instanceof SplittableCompressionCodec);
+    }
+
+    /**
+     * 把 sources 依次解压并切成块写入 chunkDir；标记与当前源文件一致时跳过。
+     */
+    public static Result rechunk(Configuration conf, List<Path> sources, Path chunkDir) throws IOException {
+        long chunkBytes = conf.getLong(CONF_CHUNK_BYTES, DEFAULT_CHUNK_BYTES);
+        if (chunkBytes <= 0 || chunkBytes > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("块大小必须在 (0, 2GB) 之间: " + chunkBytes);
+        }
+        String codecName = conf.get(CONF_CODEC, "gzip");
+        Class<? extends CompressionCodec> codecClass = resolveCodec(conf, codecName);
+        CompressionCodec outputCodec = codecClass == null ? null : ReflectionUtils.newInstance(codecClass, conf);
+        int threads = Math.max(1, conf.getInt(CONF_THREADS, Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+        String header = markerHeader(conf, sources, codecName, chunkBytes);
+        FileSystem outFs = chunkDir.getFileSystem(conf);
+        Result reused = readMarker(outFs, new Path(chunkDir, MARKER_FILE), header);
+        if (reused != null) {
+            return reused;
+        }
+        if (outFs.exists(chunkDir)) {
+            outFs.delete(chunkDir, true);
+        }
+        outFs.mkdirs(chunkDir);
+
+        long start = System.currentTimeMillis();
+        String extension = outputCodec == null ? ".txt" : outputCodec.getDefaultExtension();
+        CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Semaphore inFlight = new Semaphore(threads + 1);
+        List<Future<Long>> writes = new ArrayList<>();
+        Result result = new Result(chunkDir);
+        result.sources = sources.size();
+        try {
+            for (Path source : sources) {
+                FileSystem fs = source.getFileSystem(conf);
+                CompressionCodec codec = codecs.getCodec(source);
+                result.compressedBytes += fs.getFileStatus(source).getLen();
+                InputStream in = fs.open(source);
+                if (codec != null) in = codec.createInputStream(in);
+                try (InputStream stream = in) {
+                    byte[] chunk = acquire(inFlight, (int) chunkBytes);
+                    int filled = 0;
+                    while (true) {
+                        if (filled == chunk.length) {
+                            // 单行比整块还长时扩容，保证不在行中间切开
+                            chunk = Arrays.copyOf(chunk, (int) Math.min((long) chunk.length << 1, Integer.MAX_VALUE - 8));
+                        }
+                        int read = stream.read(chunk, filled, Math.min(READ_BUFFER, chunk.length - filled));
+                        if (read < 0) break;
+                        filled += read;
+                        if (filled < chunkBytes) continue;
+
+                        int cut = lastNewline(chunk, filled);
+                        if (cut < 0) continue;
+                        byte[] next = acquire(inFlight, (int) chunkBytes);
+                        int carry = filled - cut - 1;
+                        System.arraycopy(chunk, cut + 1, next, 0, carry);
+                        writes.add(submit(pool, inFlight, outFs, chunkPath(chunkDir, result.chunks++, extension),
+                                outputCodec, chunk, cut + 1));
+                        chunk = next;
+                        filled = carry;
+                    }
+                    // 文件末尾：不足一块的剩余部分单独成块，缺少的行尾补上
+                    if (filled > 0) {
+                        if (chunk[filled - 1] != '\n') {
+                            if (filled == chunk.length) chunk = Arrays.copyOf(chunk, filled + 1);
+                            chunk[filled++] = '\n';
+                        }
+                        writes.add(submit(pool, inFlight, outFs, chunkPath(chunkDir, result.chunks++, extension),
+                                outputCodec, chunk, filled));
+                    } else {
+                        inFlight.release();
+                    }
+                }
+            }
+            for (Future<Long> write : writes) {
+                result.uncompressedBytes += write.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("重分块被中断", e);
+        } catch (ExecutionException e) {
+            throw new IOException("写出分块失败", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        for (Path chunk : listChunks(outFs, chunkDir)) {
+            result.chunkedBytes += outFs.getFileStatus(chunk).getLen();
+        }
+        result.elapsedMs = System.currentTimeMillis() - start;
+
+        // 标记最后写出，中途失败的目录不会被复用
+        try (FSDataOutputStream out = outFs.create(new Path(chunkDir, MARKER_FILE), true)) {
+            out.write((header + result.toMarker()).getBytes(StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    /**
+     * 将编码名称解析为编码器类；none / 空值返回 null。
+     */
+    public static Class<? extends CompressionCodec> resolveCodec(Configuration conf, String name) {
+        if (name == null || name.trim().isEmpty() || "none".equalsIgnoreCase(name.trim())) {
+            return null;
+        }
+        switch (name.trim().toLowerCase()) {
+            case "deflate":
+                return DefaultCodec.class;
+            case "gzip":
+                return GzipCodec.class;
+            case "bzip2":
+                return BZip2Codec.class;
+            default:
+                try {
+                    return conf.getClassByName(name.trim()).asSubclass(CompressionCodec.class);
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalArgumentException("未知的压缩编码: " + name, e);
+                }
+        }
+    }
+
+    private static byte[] acquire(Semaphore inFlight, int size) throws IOException {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("重分块被中断", e);
+        }
+        return new byte[size];
+    }
+
+    private static Future<Long> submit(ExecutorService pool, Semaphore inFlight, FileSystem fs, Path path,
+                                       CompressionCodec codec, byte[] data, int length) {
+        return pool.submit(() -> {
+            try {
+                OutputStream out = fs.create(path, true);
+                if (codec != null) out = codec.createOutputStream(out);
+                try (OutputStream stream = out) {
+                    stream.write(data, 0, length);
+                }
+                return (long) length;
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private static int lastNewline(byte[] data, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (data[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static Path chunkPath(Path dir, int index, String extension) {
+        return new Path(dir, String.format("%s%05d%s", CHUNK_PREFIX, index, extension));
+    }
+
+    private static List<Path> listChunks(FileSystem fs, Path dir) throws IOException {
+        List<Path> chunks = new ArrayList<>();
+        for (FileStatus status : fs.listStatus(dir)) {
+            if (status.isFile() && status.getPath().getName().startsWith(CHUNK_PREFIX)) {
+                chunks.add(status.getPath());
+            }
+        }
+        return chunks;
+    }
+
+    // 标记头：源文件（路径、长度、修改时间）与分块参数，任一变化都会触发重新分块
+    private static String markerHeader(Configuration conf, List<Path> sources, String codecName, long chunkBytes)
+            throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("#codec\t").append(codecName).append('\n');
+        sb.append("#chunkBytes\t").append(chunkBytes).append('\n');
+        for (Path source : sources) {
+            FileStatus status = source.getFileSystem(conf).getFileStatus(source);
+            sb.append(status.getPath()).append('\t').append(status.getLen())
+                    .append('\t').append(status.getModificationTime()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static Result readMarker(FileSystem fs, Path marker, String header) throws IOException {
+        if (!fs.exists(marker)) return null;
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(marker), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line).append('\n');
+            }
+        }
+        String content = sb.toString();
+        if (!content.startsWith(header)) return null;
+        Result result = Result.fromMarker(marker.getParent(), content.substring(header.length()));
+        result.reused = true;
+        return result;
+    }
+
+    static List<Path> listInputFiles(Configuration conf, Path input) throws IOException {
+        List<Path> files = new ArrayList<>();
+        FileSystem fs = input.getFileSystem(conf);
+        if (!fs.exists(input)) return files;
+        if (fs.isFile(input)) {
+            files.add(input);
+            return files;
+        }
+        for (FileStatus status : fs.listStatus(input)) {
+            String name = status.getPath().getName();
+            if (status.isFile() && !name.startsWith("_") && !name.startsWith(".")) {
+                files.add(status.getPath());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 一次重分块（或复用）的统计。
+     */
+    public static class Result {
+        public final Path chunkDir;
+        public int sources;
+        public int chunks;
+        public long compressedBytes;
+        public long uncompressedBytes;
+        public long chunkedBytes;
+        public long elapsedMs;
+        public boolean reused;
+
+        Result(Path chunkDir) {
+            this.chunkDir = chunkDir;
+        }
+
+        public String describe() {
+            if (reused) {
+                return String.format("复用已有分块: %s (%d 个块, 解压后 %d 字节)", chunkDir, chunks, uncompressedBytes);
+            }
+            double seconds = elapsedMs / 1000.0;
+            return String.format("重分块完成: %d 个源文件 (%d 字节) -> %s, %d 个块 (解压后 %d 字节, 块文件共 %d 字节), 耗时 %.2f 秒, 解压吞吐 %.1f MB/s",
+                    sources, compressedBytes, chunkDir, chunks, uncompressedBytes, chunkedBytes, seconds,
+                    seconds > 0 ? uncompressedBytes / 1048576.0 / seconds : 0.0);
+        }
+
+        String toMarker() {
+            return "#chunks\t" + chunks + "\n#uncompressedBytes\t" + uncompressedBytes + "\n";
+        }
+
+        static Result fromMarker(Path chunkDir, String content) {
+            Result result = new Result(chunkDir);
+            for (String line : content.split("\n")) {
+                String[] kv = line.split("\t");
+                if (kv.length != 2) continue;
+                if ("#chunks".equals(kv[0])) result.chunks = Integer.parseInt(kv[1]);
+                if ("#uncompressedBytes".equals(kv[0])) result.uncompressedBytes = Long.parseLong(kv[1]);
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public Configuration getConf() { return conf; }
+
+    @Override
+    public void setConf(Configuration conf) { this.conf = conf; }
+
+    public static void main(String[] args) throws Exception {
+        Configuration conf = new Configuration();
+        int exitCode = ToolRunner.run(conf, new InputRechunker(), args);
+        System.exit(exitCode);
+    }
+}
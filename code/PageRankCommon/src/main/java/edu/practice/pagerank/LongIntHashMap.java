@@ -0,0 +1,108 @@
+package edu.practice.pagerank;
+
+import java.util.Arrays;
+
+/**
+ * 基于开放寻址的 long -> int 哈希表，用于在单个 JVM 内保存数百万个节点的分区号或 ID 到下标的映射，
+ * 避免 HashMap&lt;Long, Integer&gt; 每个条目数十字节的装箱开销。
+ */
+public class LongIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int threshold;
+    private final int missingValue;
+
+    public LongIntHashMap(int expectedSize, int missingValue) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+        this.missingValue = missingValue;
+    }
+
+    public int get(long key) {
+        int mask = keys.length - 1;
+        int idx = mix(key) & mask;
+        while (keys[idx] != EMPTY_KEY) {
+            if (keys[idx] == key) return values[idx];
+            idx = (idx + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    public boolean containsKey(long key) {
+        int mask = keys.length - 1;
+        int idx = mix(key) & mask;
+        while (keys[idx] != EMPTY_KEY) {
+            if (keys[idx] == key) return true;
+            idx = (idx + 1) & mask;
+        }
+        return false;
+    }
+
+    public void put(long key, int value) {
+        if (key == EMPTY_KEY) {
+            throw new IllegalArgumentException("不支持的键: " + key);
+        }
+        int mask = keys.length - 1;
+        int idx = mix(key) & mask;
+        while (keys[idx] != EMPTY_KEY) {
+            if (keys[idx] == key) {
+                values[idx] = value;
+                return;
+            }
+            idx = (idx + 1) & mask;
+        }
+        keys[idx] = key;
+        values[idx] = value;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 遍历所有条目。
+     */
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY_KEY) visitor.visit(keys[i], values[i]);
+        }
+    }
+
+    public interface Visitor {
+        void visit(long key, int value);
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[newCapacity];
+        values = new int[newCapacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        threshold = (int) (newCapacity * LOAD_FACTOR);
+        int mask = newCapacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY_KEY) continue;
+            int idx = mix(oldKeys[i]) & mask;
+            while (keys[idx] != EMPTY_KEY) idx = (idx + 1) & mask;
+            keys[idx] = oldKeys[i];
+            values[idx] = oldValues[i];
+        }
+    }
+
+    // 打散连续的节点 ID，避免线性探测聚集
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
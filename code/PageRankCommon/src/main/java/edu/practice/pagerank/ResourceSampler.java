@@ -0,0 +1,349 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 节点资源采样器：在任务（MapReduce 的 Map/Reduce 任务，Giraph 的 Worker）内的后台线程中按固定间隔读取
+ * /proc/stat、/proc/meminfo、/proc/diskstats、/proc/net/dev，计算 CPU 使用率、iowait、内存占用、
+ * 磁盘写入速率与网络发送速率，每个样本带上当前阶段（预处理 / 第几轮迭代 / 第几个超步）。
+ *
+ * 任务结束时把时间序列写到 <采样目录>/<任务名>.csv；Driver 在作业结束后调用 summarize，
+ * 按节点汇总为一个 CSV（列与 img/*_Figure/summary.csv 相同，内存单位为真正的 GB），
+ * 按 阶段 x 节点 汇总为另一个 CSV，文件名由各引擎的 Driver 决定。
+ * 同一节点上多个任务的采样值相同（/proc 为整机数据），汇总时一并平均。
+ * 非 Linux 环境（没有 /proc/stat）下不启动。
+ */
+public class ResourceSampler implements Runnable {
+
+    // 是否在任务中采样
+    public static final String CONF_ENABLED = "pagerank.sampler.enabled";
+    // 采样间隔（毫秒）
+    public static final String CONF_INTERVAL_MS = "pagerank.sampler.intervalMs";
+    // 时间序列输出目录，Driver 默认设置为 <输出目录>/_resources
+    public static final String CONF_DIR = "pagerank.sampler.dir";
+    // 当前阶段标签：MapReduce 由 Driver 写入每个 Job 的配置，Giraph 由 PageRankWorkerContext 按超步更新
+    public static final String CONF_PHASE = "pagerank.sampler.phase";
+
+    public static final long DEFAULT_INTERVAL_MS = 1000L;
+    public static final String SAMPLE_HEADER =
+            "Timestamp_ms,Node,Phase,CPU_Usage(%),CPU_IOWait(%),Memory_Used(GB),Memory_Usage(%),Disk_Write(MB/s),Network_Send(MB/s)";
+    public static final String SUMMARY_HEADER =
+            "Node,Duration (s),CPU_Usage_avg(%),CPU_IOWait_avg(%),Memory_Used_avg(GB),Memory_Usage_avg(%),Disk_Write_peak(MB/s),Network_Send_peak(MB/s)";
+
+    private static final double GB = 1024.0 * 1024.0 * 1024.0;
+    private static final double MB = 1024.0 * 1024.0;
+
+    private final String node;
+    private final long intervalMs;
+    private final Set<String> disks;
+    private final StringBuilder rows = new StringBuilder();
+    private volatile String phase;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    // 上一次读数，用于计算区间速率
+    private long lastTime;
+    private long lastCpuTotal;
+    private long lastCpuIdle;
+    private long lastCpuIowait;
+    private long lastSectorsWritten;
+    private long lastBytesSent;
+
+    private ResourceSampler(String phase, long intervalMs) {
+        this.phase = phase;
+        this.intervalMs = intervalMs;
+        this.node = hostName();
+        this.disks = wholeDisks();
+    }
+
+    /**
+     * 未开启或不在 Linux 上时返回 null。
+     */
+    public static ResourceSampler start(Configuration conf) {
+        if (!conf.getBoolean(CONF_ENABLED, false) || conf.get(CONF_DIR) == null
+                || !new File("/proc/stat").canRead()) {
+            return null;
+        }
+        long interval = Math.max(50L, conf.getLong(CONF_INTERVAL_MS, DEFAULT_INTERVAL_MS));
+        ResourceSampler sampler = new ResourceSampler(conf.get(CONF_PHASE, "unknown"), interval);
+        sampler.sample(false);
+        sampler.thread = new Thread(sampler, "pagerank-resource-sampler");
+        sampler.thread.setDaemon(true);
+        sampler.thread.start();
+        return sampler;
+    }
+
+    /**
+     * 停止采样并写出时间序列；sampler 为 null 时不做任何事。
+     */
+    public static void stop(ResourceSampler sampler, Configuration conf, String name) {
+        if (sampler == null) return;
+        sampler.running = false;
+        sampler.thread.interrupt();
+        try {
+            sampler.thread.join(sampler.intervalMs * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sampler.sample(true);
+        Path file = new Path(conf.get(CONF_DIR), name + ".csv");
+        try {
+            FileSystem fs = file.getFileSystem(conf);
+            try (FSDataOutputStream out = fs.create(file, true);
+                 BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                writer.write(SAMPLE_HEADER);
+                writer.newLine();
+                synchronized (sampler.rows) {
+                    writer.write(sampler.rows.toString());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("警告: 无法写出资源采样 " + file + ": " + e.getMessage());
+        }
+    }
+
+    public void setPhase(String phase) {
+        this.phase = phase;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                Thread.sleep(intervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            sample(true);
+        }
+    }
+
+    // 读取一次 /proc，record 为 false 时只记录基准读数
+    private synchronized void sample(boolean record) {
+        long now = System.currentTimeMillis();
+        long[] cpu = readCpu();
+        long[] memory = readMemory();
+        long sectors = readSectorsWritten();
+        long sent = readBytesSent();
+
+        if (record && now > lastTime) {
+            double seconds = (now - lastTime) / 1000.0;
+            long total = cpu[0] - lastCpuTotal;
+            double cpuUsage = total > 0 ? 100.0 * (total - (cpu[1] - lastCpuIdle) - (cpu[2] - lastCpuIowait)) / total : 0.0;
+            double iowait = total > 0 ? 100.0 * (cpu[2] - lastCpuIowait) / total : 0.0;
+            double memoryUsed = memory[0] - memory[1];
+            double memoryUsage = memory[0] > 0 ? 100.0 * memoryUsed / memory[0] : 0.0;
+            double diskWrite = (sectors - lastSectorsWritten) * 512.0 / MB / seconds;
+            double networkSend = (sent - lastBytesSent) / MB / seconds;
+            synchronized (rows) {
+                rows.append(now).append(',').append(node).append(',').append(phase).append(',')
+                        .append(String.format(Locale.ROOT, "%.2f,%.2f,%.3f,%.2f,%.2f,%.2f", cpuUsage, iowait,
+                                memoryUsed / GB, memoryUsage, diskWrite, networkSend))
+                        .append('\n');
+            }
+        }
+        lastTime = now;
+        lastCpuTotal = cpu[0];
+        lastCpuIdle = cpu[1];
+        lastCpuIowait = cpu[2];
+        lastSectorsWritten = sectors;
+        lastBytesSent = sent;
+    }
+
+    // /proc/stat 第一行：{总 jiffies, idle, iowait}（guest 已计入 user，不重复累加）
+    private static long[] readCpu() {
+        long[] result = new long[3];
+        String line = firstLine("/proc/stat");
+        if (line == null || !line.startsWith("cpu ")) return result;
+        String[] fields = line.trim().split("\\s+");
+        for (int i = 1; i < fields.length && i <= 8; i++) {
+            result[0] += Long.parseLong(fields[i]);
+        }
+        if (fields.length > 5) {
+            result[1] = Long.parseLong(fields[4]);
+            result[2] = Long.parseLong(fields[5]);
+        }
+        return result;
+    }
+
+    // /proc/meminfo：{MemTotal, MemAvailable}，单位字节
+    private static long[] readMemory() {
+        long[] result = new long[2];
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/meminfo"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("MemTotal:")) {
+                    result[0] = parseKb(line);
+                } else if (line.startsWith("MemAvailable:")) {
+                    result[1] = parseKb(line);
+                }
+            }
+        } catch (IOException ignored) {}
+        return result;
+    }
+
+    private static long parseKb(String line) {
+        String[] fields = line.trim().split("\\s+");
+        return fields.length > 1 ? Long.parseLong(fields[1]) * 1024L : 0L;
+    }
+
+    // /proc/diskstats 第 10 列为写入扇区数（512 字节），只统计整盘以免分区重复计算
+    private long readSectorsWritten() {
+        long sectors = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/diskstats"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length > 9 && disks.contains(fields[2])) {
+                    sectors += Long.parseLong(fields[9]);
+                }
+            }
+        } catch (IOException ignored) {}
+        return sectors;
+    }
+
+    // /proc/net/dev 冒号后第 9 个字段为发送字节数，忽略回环接口
+    private static long readBytesSent() {
+        long bytes = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/net/dev"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int colon = line.indexOf(':');
+                if (colon < 0) continue;
+                if ("lo".equals(line.substring(0, colon).trim())) continue;
+                String[] fields = line.substring(colon + 1).trim().split("\\s+");
+                if (fields.length > 8) {
+                    bytes += Long.parseLong(fields[8]);
+                }
+            }
+        } catch (IOException ignored) {}
+        return bytes;
+    }
+
+    private static Set<String> wholeDisks() {
+        Set<String> disks = new HashSet<>();
+        String[] names = new File("/sys/block").list();
+        if (names != null) {
+            for (String name : names) {
+                if (!name.startsWith("loop") && !name.startsWith("ram")) {
+                    disks.add(name);
+                }
+            }
+        }
+        return disks;
+    }
+
+    private static String firstLine(String file) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            return reader.readLine();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * 读取采样目录下的全部时间序列，写出按节点与按 阶段 x 节点 的汇总，返回样本数。
+     */
+    public static int summarize(Configuration conf, Path sampleDir, Path summaryFile, Path phaseFile) throws IOException {
+        FileSystem fs = sampleDir.getFileSystem(conf);
+        if (!fs.exists(sampleDir)) return 0;
+        List<String[]> samples = new ArrayList<>();
+        for (FileStatus status : fs.listStatus(sampleDir)) {
+            if (!status.isFile() || !status.getPath().getName().endsWith(".csv")) continue;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(status.getPath()), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split(",");
+                    if (fields.length == 9 && !line.startsWith("Timestamp")) {
+                        samples.add(fields);
+                    }
+                }
+            }
+        }
+        samples.sort((a, b) -> Long.compare(Long.parseLong(a[0]), Long.parseLong(b[0])));
+
+        Map<String, Summary> byNode = new LinkedHashMap<>();
+        Map<String, Summary> byPhase = new LinkedHashMap<>();
+        for (String[] sample : samples) {
+            byNode.computeIfAbsent(sample[1], k -> new Summary()).add(sample);
+            byPhase.computeIfAbsent(sample[2] + "," + sample[1], k -> new Summary()).add(sample);
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(fs.create(summaryFile, true), StandardCharsets.UTF_8))) {
+            writer.write(SUMMARY_HEADER);
+            writer.newLine();
+            for (Map.Entry<String, Summary> entry : byNode.entrySet()) {
+                writer.write(entry.getKey() + "," + entry.getValue().toCsv());
+                writer.newLine();
+            }
+        }
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(fs.create(phaseFile, true), StandardCharsets.UTF_8))) {
+            writer.write("Phase," + SUMMARY_HEADER + ",Samples");
+            writer.newLine();
+            for (Map.Entry<String, Summary> entry : byPhase.entrySet()) {
+                writer.write(entry.getKey() + "," + entry.getValue().toCsv() + "," + entry.getValue().count);
+                writer.newLine();
+            }
+        }
+        return samples.size();
+    }
+
+    private static class Summary {
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        int count;
+        double cpu;
+        double iowait;
+        double memory;
+        double memoryUsage;
+        double diskPeak;
+        double networkPeak;
+
+        void add(String[] sample) {
+            long time = Long.parseLong(sample[0]);
+            first = Math.min(first, time);
+            last = Math.max(last, time);
+            count++;
+            cpu += Double.parseDouble(sample[3]);
+            iowait += Double.parseDouble(sample[4]);
+            memory += Double.parseDouble(sample[5]);
+            memoryUsage += Double.parseDouble(sample[6]);
+            diskPeak = Math.max(diskPeak, Double.parseDouble(sample[7]));
+            networkPeak = Math.max(networkPeak, Double.parseDouble(sample[8]));
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%.2f,%.2f,%.2f,%.3f,%.2f,%.2f,%.2f", (last - first) / 1000.0,
+                    cpu / count, iowait / count, memory / count, memoryUsage / count, diskPeak, networkPeak);
+        }
+    }
+}
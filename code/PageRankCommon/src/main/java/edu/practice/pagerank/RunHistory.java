@@ -0,0 +1,216 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 运行历史记录：每次运行结束后把耗时写成一个不可变的小文件，放在 <历史目录>/<引擎>/ 下，
+ * 目录本身即追加式数据集（本地或 HDFS 均可，并发运行互不覆盖），不会随输出目录一起被清理。
+ *
+ * 每条记录以 引擎、数据集、参数、代码版本 标识，指标为毫秒样本列表：
+ *   setup      预处理（MapReduce）/ 加载与初始化（Giraph）
+ *   iteration  每轮迭代（MapReduce）/ 每个超步（Giraph）
+ *   total      Driver 墙钟总耗时
+ * 两个引擎共用同一格式；MapReduce 模块的 RegressionDetector 读取该目录，对同一 引擎+数据集+参数 的不同版本做显著性比较。
+ *
+ * 文件格式（制表符分隔，一行一项）：
+ *   engine / dataset / revision / timestamp / host 各一行
+ *   param   名称  值
+ *   metric  名称  逗号分隔的毫秒样本
+ */
+public class RunHistory {
+
+    // 历史目录，设置后 Driver 在运行结束时写入记录
+    public static final String CONF_DIR = "pagerank.history.dir";
+    // 数据集名称，默认取输入路径的文件名
+    public static final String CONF_DATASET = "pagerank.history.dataset";
+    // 代码版本，默认依次尝试环境变量 GIT_COMMIT 与 git rev-parse
+    public static final String CONF_REVISION = "pagerank.history.revision";
+
+    public static final String METRIC_SETUP = "setup";
+    public static final String METRIC_ITERATION = "iteration";
+    public static final String METRIC_TOTAL = "total";
+
+    public static final String FILE_SUFFIX = ".run";
+
+    public String engine;
+    public String dataset;
+    public String revision;
+    public long timestamp;
+    public String host;
+    public final Map<String, String> params = new LinkedHashMap<>();
+    public final Map<String, List<Long>> metrics = new LinkedHashMap<>();
+
+    private RunHistory() {}
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf.get(CONF_DIR) != null;
+    }
+
+    /**
+     * 创建一条记录，dataset 与 revision 按配置或自动探测填写。
+     */
+    public static RunHistory create(Configuration conf, String engine, Path input) {
+        RunHistory run = new RunHistory();
+        run.engine = engine;
+        run.dataset = conf.get(CONF_DATASET, input.getName());
+        run.revision = conf.get(CONF_REVISION, detectRevision());
+        run.timestamp = System.currentTimeMillis();
+        run.host = hostName();
+        return run;
+    }
+
+    public RunHistory param(String name, Object value) {
+        params.put(name, String.valueOf(value));
+        return this;
+    }
+
+    public RunHistory add(String metric, long ms) {
+        metrics.computeIfAbsent(metric, k -> new ArrayList<>()).add(ms);
+        return this;
+    }
+
+    /**
+     * 引擎 + 数据集 + 参数，只有该键相同的运行之间才可比。
+     */
+    public String key() {
+        StringBuilder sb = new StringBuilder(engine).append(' ').append(dataset);
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            sb.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 写入 <历史目录>/<引擎>/<时间>_<主机>.run，返回文件路径；未配置历史目录时返回 null。
+     */
+    public Path save(Configuration conf) throws IOException {
+        String dir = conf.get(CONF_DIR);
+        if (dir == null) return null;
+        String name = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date(timestamp)) + "_" + host + FILE_SUFFIX;
+        Path file = new Path(new Path(dir, engine), name);
+        FileSystem fs = file.getFileSystem(conf);
+        try (FSDataOutputStream out = fs.create(file, false);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.write("engine\t" + engine + "\n");
+            writer.write("dataset\t" + dataset + "\n");
+            writer.write("revision\t" + revision + "\n");
+            writer.write("timestamp\t" + timestamp + "\n");
+            writer.write("host\t" + host + "\n");
+            for (Map.Entry<String, String> entry : params.entrySet()) {
+                writer.write("param\t" + entry.getKey() + "\t" + entry.getValue() + "\n");
+            }
+            for (Map.Entry<String, List<Long>> entry : metrics.entrySet()) {
+                StringBuilder samples = new StringBuilder();
+                for (long ms : entry.getValue()) {
+                    if (samples.length() > 0) samples.append(',');
+                    samples.append(ms);
+                }
+                writer.write("metric\t" + entry.getKey() + "\t" + samples + "\n");
+            }
+        }
+        return file;
+    }
+
+    /**
+     * 读取历史目录（含各引擎子目录）下的全部记录，按时间升序。
+     */
+    public static List<RunHistory> load(Configuration conf, Path dir) throws IOException {
+        List<RunHistory> runs = new ArrayList<>();
+        FileSystem fs = dir.getFileSystem(conf);
+        if (!fs.exists(dir)) return runs;
+        collect(fs, dir, runs);
+        runs.sort((a, b) -> Long.compare(a.timestamp, b.timestamp));
+        return runs;
+    }
+
+    private static void collect(FileSystem fs, Path dir, List<RunHistory> runs) throws IOException {
+        for (FileStatus status : fs.listStatus(dir)) {
+            if (status.isDirectory()) {
+                collect(fs, status.getPath(), runs);
+            } else if (status.getPath().getName().endsWith(FILE_SUFFIX)) {
+                RunHistory run = read(fs, status.getPath());
+                // 缺少标识字段的文件（写入中断等）不参与比较
+                if (run.engine != null && run.dataset != null && run.revision != null) {
+                    runs.add(run);
+                }
+            }
+        }
+    }
+
+    private static RunHistory read(FileSystem fs, Path file) throws IOException {
+        RunHistory run = new RunHistory();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length < 2) continue;
+                switch (fields[0]) {
+                    case "engine": run.engine = fields[1]; break;
+                    case "dataset": run.dataset = fields[1]; break;
+                    case "revision": run.revision = fields[1]; break;
+                    case "timestamp": run.timestamp = Long.parseLong(fields[1]); break;
+                    case "host": run.host = fields[1]; break;
+                    case "param":
+                        if (fields.length > 2) run.params.put(fields[1], fields[2]);
+                        break;
+                    case "metric":
+                        if (fields.length > 2) {
+                            for (String ms : fields[2].split(",")) {
+                                if (!ms.isEmpty()) run.add(fields[1], Long.parseLong(ms));
+                            }
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return run;
+    }
+
+    private static String detectRevision() {
+        String env = System.getenv("GIT_COMMIT");
+        if (env != null && !env.isEmpty()) return env;
+        try {
+            Process process = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                if (process.waitFor(2, TimeUnit.SECONDS) && process.exitValue() == 0 && line != null) {
+                    return line.trim();
+                }
+            }
+        } catch (IOException e) {
+            // 没有 git 命令
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "unknown";
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+}
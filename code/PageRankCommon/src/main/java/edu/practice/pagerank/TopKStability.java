@@ -0,0 +1,171 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Top-K 排名稳定性停止判据：只关心前 K 名时，不必等整条长尾的平均 PR 变化降到阈值以下。
+ *
+ * 每轮（Giraph 为每个超步）结束后由引擎合并出全局 Top-K，按名次排列后交给 observe，与上一轮比较：
+ *   重合率 = |本轮 ∩ 上轮| / K
+ *   Kendall tau = 公共节点两两之间 (同序对 - 逆序对) / 总对数
+ * 候选的收集方式见 MapReduce 的 TopKCandidates 与 Giraph 的 TopKRanksWritable。
+ * 两者都不低于阈值（默认 1.0，即集合与顺序完全不变）的轮次连续达到 stableIterations 次即停止。
+ * 停止时按最近两轮的残差比值外推平均 PR 变化降到阈值所需的轮数，报告相对残差判据节省的迭代数。
+ */
+public class TopKStability {
+
+    // 跟踪的名次数，0 表示不启用
+    public static final String CONF_TOP_K = "pagerank.topk.k";
+    // 连续稳定多少轮后停止
+    public static final String CONF_STABLE_ITERATIONS = "pagerank.topk.stableIterations";
+    // 判为稳定的最低重合率与最低 Kendall tau
+    public static final String CONF_MIN_OVERLAP = "pagerank.topk.minOverlap";
+    public static final String CONF_MIN_TAU = "pagerank.topk.minTau";
+
+    public static final int DEFAULT_STABLE_ITERATIONS = 3;
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getInt(CONF_TOP_K, 0) > 0;
+    }
+
+    private final int k;
+    private final int requiredRuns;
+    private final double minOverlap;
+    private final double minTau;
+    // 日志中的计数单位："轮" 或 "个超步"
+    private final String unit;
+
+    private List<?> previous;
+    private int stableRuns;
+    private double lastOverlap = -1;
+    private double lastTau = -1;
+    private double previousAvgDiff = Double.NaN;
+    private double lastRatio = Double.NaN;
+    private int stopIteration = -1;
+
+    public TopKStability(Configuration conf, String unit) {
+        this.unit = unit;
+        this.k = conf.getInt(CONF_TOP_K, 0);
+        this.requiredRuns = Math.max(1, conf.getInt(CONF_STABLE_ITERATIONS, DEFAULT_STABLE_ITERATIONS));
+        this.minOverlap = conf.getDouble(CONF_MIN_OVERLAP, 1.0);
+        this.minTau = conf.getDouble(CONF_MIN_TAU, 1.0);
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * 与上一轮的 Top-K 比较，current 为按名次排列的节点 ID。
+     * 返回 Top-K 是否已连续 stableIterations 轮不变。
+     */
+    public boolean observe(List<?> current, double avgDiff) {
+        if (previousAvgDiff > 0) lastRatio = avgDiff / previousAvgDiff;
+        previousAvgDiff = avgDiff;
+
+        if (previous == null) {
+            previous = current;
+            return false;
+        }
+        lastOverlap = overlap(previous, current, k);
+        lastTau = kendallTau(previous, current);
+        stableRuns = (lastOverlap >= minOverlap && lastTau >= minTau) ? stableRuns + 1 : 0;
+        previous = current;
+        return stableRuns >= requiredRuns;
+    }
+
+    /**
+     * 从检查点恢复时调用：之后各轮的 Top-K 与残差已被回滚，丢弃比较历史，重新开始计数。
+     */
+    public void reset() {
+        previous = null;
+        stableRuns = 0;
+        lastOverlap = -1;
+        lastTau = -1;
+        previousAvgDiff = Double.NaN;
+        lastRatio = Double.NaN;
+    }
+
+    public void markStopped(int iteration) {
+        stopIteration = iteration;
+    }
+
+    public String describeLast() {
+        if (lastOverlap < 0) return String.format("Top-%d 已记录，下一%s开始比较", k, unit);
+        return String.format("Top-%d 重合率 %.4f, Kendall tau %.4f, 连续稳定 %d/%d %s",
+                k, lastOverlap, lastTau, stableRuns, requiredRuns, unit);
+    }
+
+    /**
+     * 残差判据下所需的迭代数：本次运行已达到阈值时取实际轮次，
+     * 否则按最近的残差比值几何外推，不超过最大迭代次数；无法外推时为 -1。
+     */
+    public int iterationsForDiffCriterion(int iterationsToThreshold, double threshold, int minIterations, int maxIterations) {
+        if (iterationsToThreshold > 0) return Math.max(iterationsToThreshold, minIterations);
+        if (stopIteration < 0 || !(lastRatio > 0 && lastRatio < 1) || !(previousAvgDiff > 0)) return -1;
+        double remaining = Math.log(threshold / previousAvgDiff) / Math.log(lastRatio);
+        long estimate = stopIteration + (long) Math.ceil(Math.max(0.0, remaining));
+        return (int) Math.min(maxIterations, Math.max(estimate, minIterations));
+    }
+
+    /**
+     * 相对残差判据节省的迭代数；未因 Top-K 稳定而停止或无法估计时为 -1。
+     */
+    public int savedIterations(int iterationsToThreshold, double threshold, int minIterations, int maxIterations) {
+        int diffIterations = iterationsForDiffCriterion(iterationsToThreshold, threshold, minIterations, maxIterations);
+        return (stopIteration > 0 && diffIterations > 0) ? Math.max(0, diffIterations - stopIteration) : -1;
+    }
+
+    public String describe(int iterationsToThreshold, double threshold, int minIterations, int maxIterations) {
+        int diffIterations = iterationsForDiffCriterion(iterationsToThreshold, threshold, minIterations, maxIterations);
+        int savedIterations = savedIterations(iterationsToThreshold, threshold, minIterations, maxIterations);
+        String saved = savedIterations >= 0 ? String.valueOf(savedIterations) : "n/a";
+        return String.format("k=%d, stableIterations=%d, minOverlap=%.4f, minTau=%.4f, stopIteration=%s, "
+                        + "diffCriterionIterations=%s%s, savedIterations=%s, lastOverlap=%.4f, lastTau=%.4f",
+                k, requiredRuns, minOverlap, minTau, stopIteration > 0 ? String.valueOf(stopIteration) : "not stopped",
+                diffIterations > 0 ? String.valueOf(diffIterations) : "n/a",
+                iterationsToThreshold > 0 || diffIterations <= 0 ? "" : " (estimated)",
+                saved, lastOverlap, lastTau);
+    }
+
+    static double overlap(List<?> previous, List<?> current, int k) {
+        Map<Object, Integer> positions = positions(previous);
+        int common = 0;
+        for (Object node : current) {
+            if (positions.containsKey(node)) common++;
+        }
+        return (double) common / Math.max(1, Math.min(k, Math.max(previous.size(), current.size())));
+    }
+
+    /**
+     * 公共节点上的 Kendall tau；公共节点少于两个时为 1（没有可比较的顺序）。
+     */
+    static double kendallTau(List<?> previous, List<?> current) {
+        Map<Object, Integer> positions = positions(previous);
+        int[] order = new int[current.size()];
+        int n = 0;
+        for (Object node : current) {
+            Integer position = positions.get(node);
+            if (position != null) order[n++] = position;
+        }
+        if (n < 2) return 1.0;
+        long concordant = 0;
+        long discordant = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (order[i] < order[j]) concordant++; else discordant++;
+            }
+        }
+        return (double) (concordant - discordant) / ((long) n * (n - 1) / 2);
+    }
+
+    private static Map<Object, Integer> positions(List<?> nodes) {
+        Map<Object, Integer> positions = new HashMap<>(nodes.size() * 2);
+        for (int i = 0; i < nodes.size(); i++) positions.put(nodes.get(i), i);
+        return positions;
+    }
+}
@@ -0,0 +1,208 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行时间线：记录带起止时间的区间，导出为 Chrome trace-event JSON（chrome://tracing 或 Perfetto 打开）。
+ *
+ * 区间按 进程（pid）/ 行（tid）分组，进程与行的名称由调用方登记；各引擎的分组方式见
+ * MapReduce 的 JobTraceRecorder 与 Giraph 的 PageRankMasterCompute / PageRankDriver。
+ * 时间戳以构造时给定的零点为准，未给定时以最早区间的开始为零点。
+ * 同一行内开始时间相同的区间先写较长的，查看器据此把较短的嵌套在其中。
+ */
+public class TraceRecorder {
+
+    public static final String CONF_ENABLED = "pagerank.trace.enabled";
+
+    // 客户端主线程所在的进程，两个引擎相同
+    public static final int PID_DRIVER = 1;
+
+    private static final String HEADER = "{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n";
+    private static final String FOOTER = "\n]}\n";
+
+    // 一个完整区间（Chrome trace 的 "X" 事件）
+    private static class Event {
+        final String name;
+        final String category;
+        final int pid;
+        final int tid;
+        final long startMs;
+        final long endMs;
+        final Map<String, Object> args;
+
+        Event(String name, String category, int pid, int tid, long startMs, long endMs, Map<String, Object> args) {
+            this.name = name;
+            this.category = category;
+            this.pid = pid;
+            this.tid = tid;
+            this.startMs = startMs;
+            this.endMs = endMs;
+            this.args = args;
+        }
+    }
+
+    // 零点，-1 表示取最早区间的开始
+    private final long origin;
+    private final List<Event> events = new ArrayList<>();
+    // 进程名与行名（"M" 事件），按登记顺序写出
+    private final Map<String, String> metadata = new LinkedHashMap<>();
+
+    public TraceRecorder() {
+        this(-1);
+    }
+
+    public TraceRecorder(long origin) {
+        this.origin = origin;
+    }
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getBoolean(CONF_ENABLED, true);
+    }
+
+    public void processName(int pid, String name) {
+        metadata.put(pid + ":0:process_name", metadata("process_name", pid, 0, name));
+    }
+
+    public void threadName(int pid, int tid, String name) {
+        metadata.put(pid + ":" + tid + ":thread_name", metadata("thread_name", pid, tid, name));
+    }
+
+    /**
+     * 一个区间；结束时间早于开始时间（未完成）的区间忽略。args 为 null 时不带参数。
+     */
+    public void span(String name, String category, int pid, int tid, long startMs, long endMs, Map<String, Object> args) {
+        if (startMs <= 0 || endMs < startMs) return;
+        events.add(new Event(name, category, pid, tid, startMs, endMs, args));
+    }
+
+    /**
+     * 写出全部区间，覆盖已有文件。
+     */
+    public void save(Configuration conf, Path file) throws IOException {
+        write(conf, file, null);
+    }
+
+    /**
+     * 追加到已有的时间线文件（须使用同一零点）；文件不存在或格式不符时与 save 相同。
+     */
+    public void append(Configuration conf, Path file) throws IOException {
+        FileSystem fs = file.getFileSystem(conf);
+        String existing = null;
+        if (fs.exists(file)) {
+            existing = read(fs, file);
+            if (!existing.startsWith(HEADER) || !existing.endsWith(FOOTER)) {
+                System.err.println("警告: 时间线文件格式不符，重新写出: " + file);
+                existing = null;
+            }
+        }
+        write(conf, file, existing);
+    }
+
+    private void write(Configuration conf, Path file, String existing) throws IOException {
+        List<String> all = new ArrayList<>(metadata.values());
+        long zero = origin;
+        if (zero < 0) {
+            zero = Long.MAX_VALUE;
+            for (Event event : events) {
+                zero = Math.min(zero, event.startMs);
+            }
+        }
+        List<Event> sorted = new ArrayList<>(events);
+        sorted.sort((a, b) -> a.startMs != b.startMs ? Long.compare(a.startMs, b.startMs) : Long.compare(b.endMs, a.endMs));
+        for (Event event : sorted) {
+            all.add(toJson(event, zero));
+        }
+
+        StringBuilder sb = new StringBuilder();
+        if (existing == null) {
+            sb.append(HEADER);
+        } else {
+            sb.append(existing, 0, existing.length() - FOOTER.length());
+            if (!all.isEmpty() && existing.length() > HEADER.length() + FOOTER.length()) sb.append(",\n");
+        }
+        sb.append(String.join(",\n", all)).append(FOOTER);
+        FileSystem fs = file.getFileSystem(conf);
+        try (FSDataOutputStream out = fs.create(file, true)) {
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        System.out.printf("时间线已写入: %s （用 chrome://tracing 或 ui.perfetto.dev 打开）\n", file);
+    }
+
+    private static String read(FileSystem fs, Path file) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (FSDataInputStream in = fs.open(file)) {
+            IOUtils.copyBytes(in, buffer, 4096, false);
+        }
+        return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String toJson(Event event, long origin) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"name\":\"").append(escapeJson(event.name)).append("\",\"cat\":\"").append(escapeJson(event.category))
+                .append("\",\"ph\":\"X\",\"ts\":").append((event.startMs - origin) * 1000L)
+                .append(",\"dur\":").append((event.endMs - event.startMs) * 1000L)
+                .append(",\"pid\":").append(event.pid).append(",\"tid\":").append(event.tid);
+        if (event.args != null && !event.args.isEmpty()) {
+            sb.append(",\"args\":{");
+            boolean first = true;
+            for (Map.Entry<String, Object> arg : event.args.entrySet()) {
+                if (!first) sb.append(',');
+                first = false;
+                sb.append('"').append(escapeJson(arg.getKey())).append("\":");
+                Object value = arg.getValue();
+                if (value instanceof Number) {
+                    sb.append(value);
+                } else {
+                    sb.append('"').append(escapeJson(String.valueOf(value))).append('"');
+                }
+            }
+            sb.append('}');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String metadata(String kind, int pid, int tid, String name) {
+        return "{\"name\":\"" + kind + "\",\"ph\":\"M\",\"pid\":" + pid + ",\"tid\":" + tid
+                + ",\"args\":{\"name\":\"" + escapeJson(name) + "\"}}";
+    }
+
+    /**
+     * JSON 字符串转义：引号、反斜杠、控制字符，以及 JavaScript 中视为换行的 U+2028 / U+2029。
+     */
+    public static String escapeJson(String value) {
+        if (value == null) return "";
+        StringBuilder sb = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\f': sb.append("\\f"); break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+}
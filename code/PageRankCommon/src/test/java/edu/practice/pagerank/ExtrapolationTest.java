@@ -0,0 +1,165 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExtrapolationTest {
+
+    private static final double DAMPING = 0.85;
+
+    @Test
+    public void aitkenRecoversLimitOfGeometricSequence() {
+        // x_k = 0.3 + 0.2 * 0.5^k
+        double x0 = 0.3 + 0.2;
+        double x1 = 0.3 + 0.1;
+        double x2 = 0.3 + 0.05;
+        assertEquals(0.3, Extrapolation.aitken(x0, x1, x2, DAMPING), 1e-15);
+    }
+
+    @Test
+    public void aitkenKeepsLatestValueWhenUnsafe() {
+        // 收缩率不小于阻尼系数
+        assertEquals(0.2, Extrapolation.aitken(0.4, 0.3, 0.2, DAMPING), 0.0);
+        // 振荡但 |r| 过大
+        assertEquals(0.25, Extrapolation.aitken(0.2, 0.3, 0.25, 0.4), 0.0);
+        // 外推结果为负
+        assertEquals(0.05, Extrapolation.aitken(0.35, 0.15, 0.05, DAMPING), 0.0);
+        // 没有变化
+        assertEquals(0.1, Extrapolation.aitken(0.1, 0.1, 0.1, DAMPING), 0.0);
+    }
+
+    @Test
+    public void neverAppliesInFinalIterations() {
+        Extrapolation extrapolation = new Extrapolation(enabledConf(10), 20);
+        assertEquals(listOf(10), appliedIterations(extrapolation, 20));
+
+        // 最后一轮恰好是外推间隔的倍数，且之后没有足够的普通迭代
+        extrapolation = new Extrapolation(enabledConf(10), 11);
+        assertEquals(new ArrayList<Integer>(), appliedIterations(extrapolation, 11));
+
+        extrapolation = new Extrapolation(enabledConf(3), 10);
+        assertEquals(listOf(3, 6), appliedIterations(extrapolation, 10));
+    }
+
+    @Test
+    public void disabledByDefault() {
+        Extrapolation extrapolation = new Extrapolation(new Configuration(false), 100);
+        assertFalse(extrapolation.shouldApply(10));
+        assertEquals("disabled", extrapolation.describe());
+    }
+
+    @Test
+    public void safeguardDisablesWhenResidualExceedsProjection() {
+        Extrapolation extrapolation = new Extrapolation(enabledConf(3), 30);
+        extrapolation.onIterationFinished(1, 1e-2, false);
+        extrapolation.onIterationFinished(2, 5e-3, false);
+        assertTrue(extrapolation.shouldApply(3));
+        // 外推当轮收缩率 0.5，推算第 5 轮残差为 2.5e-3 * 0.25
+        extrapolation.onIterationFinished(3, 2.5e-3, true);
+        extrapolation.onIterationFinished(4, 2e-3, false);
+        // 残差仍在下降，但慢于不外推时的趋势
+        extrapolation.onIterationFinished(5, 1e-3, false);
+        assertFalse(extrapolation.shouldApply(6));
+        assertTrue(extrapolation.describe().contains("disabledAt=5"));
+    }
+
+    @Test
+    public void safeguardKeepsExtrapolationWhenResidualBeatsProjection() {
+        Extrapolation extrapolation = new Extrapolation(enabledConf(3), 30);
+        extrapolation.onIterationFinished(1, 1e-2, false);
+        extrapolation.onIterationFinished(2, 5e-3, false);
+        extrapolation.onIterationFinished(3, 2.5e-3, true);
+        extrapolation.onIterationFinished(4, 1e-4, false);
+        extrapolation.onIterationFinished(5, 5e-5, false);
+        assertTrue(extrapolation.shouldApply(6));
+    }
+
+    @Test
+    public void rewindRestoresScheduleAfterCheckpointRecovery() {
+        Extrapolation extrapolation = new Extrapolation(enabledConf(10), 30);
+        assertEquals(listOf(10), run(extrapolation, 1, 11));
+        // 从第 5 轮的检查点恢复：第 10 轮重新外推，安全检查不受被回滚轮次的影响
+        extrapolation.rewind(5);
+        assertEquals(listOf(10, 20), run(extrapolation, 6, 30));
+        assertEquals("period=10, applied=[10, 20]", extrapolation.describe());
+    }
+
+    @Test
+    public void rewindUndoesSafeguardOfRolledBackIterations() {
+        Extrapolation extrapolation = new Extrapolation(enabledConf(3), 30);
+        extrapolation.onIterationFinished(1, 1e-2, false);
+        extrapolation.onIterationFinished(2, 5e-3, false);
+        extrapolation.onIterationFinished(3, 2.5e-3, true);
+        extrapolation.onIterationFinished(4, 2e-3, false);
+        extrapolation.onIterationFinished(5, 1e-3, false);
+        assertFalse(extrapolation.shouldApply(6));
+
+        // 回退到第 4 轮之后：第 3 轮的外推与推算残差仍然有效，第 5 轮的关闭被撤销
+        extrapolation.rewind(4);
+        assertFalse(extrapolation.describe().contains("disabledAt"));
+        extrapolation.onIterationFinished(5, 1e-4, false);
+        assertTrue(extrapolation.shouldApply(6));
+
+        // 回退到外推之前：第 3 轮可以重新外推
+        extrapolation.rewind(2);
+        assertTrue(extrapolation.shouldApply(3));
+        assertEquals("period=3, applied=[]", extrapolation.describe());
+    }
+
+    @Test
+    public void projectionClampsContractionRate() {
+        assertEquals(0.25, Extrapolation.project(2.0, 1.0, 2), 1e-15);
+        // 残差上升或没有上一轮时按不下降推算
+        assertEquals(3.0, Extrapolation.project(1.0, 3.0, 2), 0.0);
+        assertEquals(3.0, Extrapolation.project(Double.NaN, 3.0, 2), 0.0);
+        assertEquals(3.0, Extrapolation.project(0.0, 3.0, 2), 0.0);
+    }
+
+    @Test
+    public void splitsCurrentAndPreviousValue() {
+        assertEquals("0.25", Extrapolation.currentValue("0.25;0.5"));
+        assertEquals(0.5, Extrapolation.previousValue("0.25;0.5"), 0.0);
+        assertEquals("0.25", Extrapolation.currentValue("0.25"));
+        assertTrue(Double.isNaN(Extrapolation.previousValue("0.25")));
+        assertTrue(Double.isNaN(Extrapolation.previousValue("0.25;x")));
+    }
+
+    private static Configuration enabledConf(int period) {
+        Configuration conf = new Configuration(false);
+        conf.setBoolean(Extrapolation.CONF_ENABLED, true);
+        conf.setInt(Extrapolation.CONF_PERIOD, period);
+        return conf;
+    }
+
+    private static List<Integer> appliedIterations(Extrapolation extrapolation, int lastIteration) {
+        return run(extrapolation, 1, lastIteration);
+    }
+
+    // 模拟运行第 first..last 轮：普通迭代第 i 轮残差为 2^-i，外推后的下一轮残差额外降为八分之一；返回外推的轮次
+    private static List<Integer> run(Extrapolation extrapolation, int first, int last) {
+        List<Integer> applied = new ArrayList<>();
+        double residual = Math.pow(0.5, first - 1);
+        boolean previousApplied = false;
+        for (int i = first; i <= last; i++) {
+            boolean apply = extrapolation.shouldApply(i);
+            if (apply) applied.add(i);
+            residual /= previousApplied ? 8 : 2;
+            extrapolation.onIterationFinished(i, residual, apply);
+            previousApplied = apply;
+        }
+        return applied;
+    }
+
+    private static List<Integer> listOf(Integer... values) {
+        List<Integer> list = new ArrayList<>();
+        for (Integer value : values) list.add(value);
+        return list;
+    }
+}
@@ -0,0 +1,71 @@
+package edu.practice.pagerank;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void putGetAndOverwrite() {
+        LongIntHashMap map = new LongIntHashMap(4, -1);
+        map.put(10L, 1);
+        map.put(-3L, 2);
+        map.put(0L, 3);
+        map.put(Long.MAX_VALUE, 4);
+        assertEquals(1, map.get(10L));
+        assertEquals(2, map.get(-3L));
+        assertEquals(3, map.get(0L));
+        assertEquals(4, map.get(Long.MAX_VALUE));
+        assertEquals(-1, map.get(11L));
+        assertFalse(map.containsKey(11L));
+
+        map.put(10L, 7);
+        assertEquals(7, map.get(10L));
+        assertEquals(4, map.size());
+    }
+
+    @Test
+    public void growsBeyondExpectedSize() {
+        LongIntHashMap map = new LongIntHashMap(1, Integer.MIN_VALUE);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            // 连续 ID 与随机 ID 混合，覆盖线性探测与扩容
+            long key = (i % 2 == 0) ? i : random.nextLong();
+            if (key == Long.MIN_VALUE) continue;
+            map.put(key, i);
+            expected.put(key, i);
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertTrue(map.containsKey(entry.getKey()));
+            assertEquals((int) entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void forEachVisitsEveryEntryOnce() {
+        LongIntHashMap map = new LongIntHashMap(16, -1);
+        for (int i = 1; i <= 50; i++) {
+            map.put(i * 31L, i);
+        }
+        Map<Long, Integer> visited = new HashMap<>();
+        map.forEach((key, value) -> assertEquals(null, visited.put(key, value)));
+        assertEquals(50, visited.size());
+        for (int i = 1; i <= 50; i++) {
+            assertEquals(Integer.valueOf(i), visited.get(i * 31L));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsReservedKey() {
+        new LongIntHashMap(4, -1).put(Long.MIN_VALUE, 1);
+    }
+}
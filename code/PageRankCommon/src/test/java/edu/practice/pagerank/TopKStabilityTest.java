@@ -0,0 +1,100 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TopKStabilityTest {
+
+    @Test
+    public void overlapCountsCommonNodes() {
+        assertEquals(1.0, TopKStability.overlap(ids(1, 2, 3, 4), ids(4, 3, 2, 1), 4), 0.0);
+        assertEquals(0.5, TopKStability.overlap(ids(1, 2, 3, 4), ids(1, 2, 5, 6), 4), 0.0);
+        assertEquals(0.0, TopKStability.overlap(ids(1, 2), ids(3, 4), 2), 0.0);
+        // 节点数不足 K 时按实际长度计算
+        assertEquals(1.0, TopKStability.overlap(ids(1, 2), ids(2, 1), 10), 0.0);
+        assertEquals(0.0, TopKStability.overlap(ids(), ids(), 5), 0.0);
+    }
+
+    @Test
+    public void kendallTauOfIdenticalAndReversedOrder() {
+        assertEquals(1.0, TopKStability.kendallTau(ids(1, 2, 3, 4), ids(1, 2, 3, 4)), 0.0);
+        assertEquals(-1.0, TopKStability.kendallTau(ids(1, 2, 3, 4), ids(4, 3, 2, 1)), 0.0);
+    }
+
+    @Test
+    public void kendallTauOfOneSwap() {
+        // 6 对中 1 对逆序：(5 - 1) / 6
+        assertEquals(4.0 / 6.0, TopKStability.kendallTau(ids(1, 2, 3, 4), ids(1, 3, 2, 4)), 1e-12);
+    }
+
+    @Test
+    public void kendallTauUsesCommonNodesOnly() {
+        // 公共节点 1, 3 顺序相反
+        assertEquals(-1.0, TopKStability.kendallTau(ids(1, 2, 3), ids(3, 9, 1)), 0.0);
+        // 公共节点少于两个
+        assertEquals(1.0, TopKStability.kendallTau(ids(1, 2), ids(2, 7)), 0.0);
+    }
+
+    @Test
+    public void stopsAfterStableIterations() {
+        Configuration conf = new Configuration(false);
+        conf.setInt(TopKStability.CONF_TOP_K, 3);
+        conf.setInt(TopKStability.CONF_STABLE_ITERATIONS, 2);
+        TopKStability stability = new TopKStability(conf, "轮");
+
+        assertFalse(stability.observe(ids(1, 2, 3), 1e-3));
+        assertFalse(stability.observe(ids(1, 3, 2), 5e-4));
+        assertFalse(stability.observe(ids(1, 3, 2), 2.5e-4));
+        assertTrue(stability.observe(ids(1, 3, 2), 1.25e-4));
+    }
+
+    @Test
+    public void resetStartsCountingAgain() {
+        Configuration conf = new Configuration(false);
+        conf.setInt(TopKStability.CONF_TOP_K, 3);
+        conf.setInt(TopKStability.CONF_STABLE_ITERATIONS, 2);
+        TopKStability stability = new TopKStability(conf, "轮");
+        stability.observe(ids(1, 2, 3), 1e-3);
+        stability.observe(ids(1, 2, 3), 5e-4);
+
+        // 回滚后第一轮只记录，不与被回滚的轮次比较
+        stability.reset();
+        assertFalse(stability.observe(ids(1, 2, 3), 1e-3));
+        assertTrue(stability.describeLast().contains("下一轮开始比较"));
+        assertFalse(stability.observe(ids(1, 2, 3), 5e-4));
+        assertTrue(stability.observe(ids(1, 2, 3), 2.5e-4));
+    }
+
+    @Test
+    public void estimatesIterationsForDiffCriterion() {
+        Configuration conf = new Configuration(false);
+        conf.setInt(TopKStability.CONF_TOP_K, 2);
+        conf.setInt(TopKStability.CONF_STABLE_ITERATIONS, 1);
+        TopKStability stability = new TopKStability(conf, "轮");
+        stability.observe(ids(1, 2), 1e-2);
+        assertTrue(stability.observe(ids(1, 2), 1e-3));
+        stability.markStopped(2);
+
+        // 残差每轮缩小为十分之一，从 1e-3 到 1e-6 还需 3 轮
+        assertEquals(5, stability.iterationsForDiffCriterion(-1, 1e-6, 1, 100));
+        assertEquals(3, stability.savedIterations(-1, 1e-6, 1, 100));
+        // 不超过最大迭代次数；已达到阈值时取实际轮次
+        assertEquals(4, stability.iterationsForDiffCriterion(-1, 1e-6, 1, 4));
+        assertEquals(7, stability.iterationsForDiffCriterion(7, 1e-6, 1, 100));
+    }
+
+    private static List<Long> ids(long... values) {
+        if (values.length == 0) return Collections.emptyList();
+        Long[] boxed = new Long[values.length];
+        for (int i = 0; i < values.length; i++) boxed[i] = values[i];
+        return Arrays.asList(boxed);
+    }
+}
@@ -6,7 +6,10 @@ USER_NAME=${USER}
 INPUT_PATH="/user/${USER_NAME}/pagerank/input/web-Google-clean.txt"
 OUTPUT_PATH="/user/${USER_NAME}/pagerank/output"
 JAR_FILE="target/pagerank-comparison-1.0.jar"
-WORKERS=4
+# 单个 worker 可用的最大堆（MB），worker 数与计算线程数由内存预估自动确定
+MAX_HEAP_MB=4096
+# 输入为 .gz 等不可切分的压缩文件时设为 true：先重分块，Worker 按块并行加载
+INGEST_RECHUNK=false
 
 # 颜色输出
 RED='\033[0;31m'
@@ -19,7 +22,7 @@ echo -e "${GREEN}=== Giraph PageRank 运行脚本 ===${NC}"
 # 检查 JAR 文件是否存在
 if [ ! -f "$JAR_FILE" ]; then
     echo -e "${RED}错误: JAR 文件不存在: $JAR_FILE${NC}"
-    echo -e "${YELLOW}请先运行: mvn clean package${NC}"
+    echo -e "${YELLOW}请先在 code/ 目录运行: mvn clean package${NC}"
     exit 1
 fi
 
@@ -40,7 +43,8 @@ hdfs dfs -rm -r -f "$OUTPUT_PATH" 2>/dev/null
 echo -e "${GREEN}配置信息:${NC}"
 echo "  输入路径: $INPUT_PATH"
 echo "  输出路径: $OUTPUT_PATH"
-echo "  工作节点数: $WORKERS"
+echo "  单 worker 最大堆: ${MAX_HEAP_MB} MB（worker 数自动预估）"
+echo "  输入重分块: ${INGEST_RECHUNK}"
 echo "  JAR 文件: $JAR_FILE"
 echo ""
 
@@ -48,13 +52,16 @@ echo ""
 echo -e "${GREEN}开始运行 PageRank 作业...${NC}"
 echo ""
 
+# -D 选项必须位于位置参数之前，否则 GenericOptionsParser 不会解析
 hadoop jar "$JAR_FILE" \
   edu.practice.pagerank.PageRankDriver \
-  "$INPUT_PATH" \
-  "$OUTPUT_PATH" \
-  -Dgiraph.numComputeThreads=16 \
+  -Dpagerank.memory.autoSize=true \
+  -Dpagerank.memory.maxHeapMB=${MAX_HEAP_MB} \
+  -Dpagerank.ingest.rechunk=${INGEST_RECHUNK} \
   -Dgiraph.numInputThreads=4 \
-  -Dgiraph.numOutputThreads=4
+  -Dgiraph.numOutputThreads=4 \
+  "$INPUT_PATH" \
+  "$OUTPUT_PATH"
 
 # 检查运行结果
 if [ $? -eq 0 ]; then
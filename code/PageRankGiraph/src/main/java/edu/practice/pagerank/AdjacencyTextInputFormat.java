@@ -0,0 +1,60 @@
+package edu.practice.pagerank;
+
+import org.apache.giraph.edge.Edge;
+import org.apache.giraph.edge.EdgeFactory;
+import org.apache.giraph.io.formats.TextVertexInputFormat;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 与 LongLongNullTextInputFormat 相同的邻接表文本格式（"顶点 邻居1 邻居2 ..."），
+ * 但顶点值由配置的 VertexValueFactory 创建。
+ * 顶点值类型不是 8 字节的 LongWritable 时（外推模式的 RankHistoryWritable、单精度模式的 FloatWritable），
+ * 加载阶段的序列化长度必须与真实值类型一致，不能沿用 LongWritable 作为初始值。
+ */
+public class AdjacencyTextInputFormat<V extends Writable> extends TextVertexInputFormat<LongWritable, V, NullWritable> {
+
+    private static final Pattern SEPARATOR = Pattern.compile("[\t ]");
+
+    @Override
+    public TextVertexReader createVertexReader(InputSplit split, TaskAttemptContext context) throws IOException {
+        return new AdjacencyVertexReader();
+    }
+
+    public class AdjacencyVertexReader extends TextVertexReaderFromEachLineProcessed<String[]> {
+
+        @Override
+        protected String[] preprocessLine(Text line) throws IOException {
+            return SEPARATOR.split(line.toString());
+        }
+
+        @Override
+        protected LongWritable getId(String[] tokens) throws IOException {
+            return new LongWritable(Long.parseLong(tokens[0]));
+        }
+
+        @Override
+        protected V getValue(String[] tokens) throws IOException {
+            return getConf().createVertexValue();
+        }
+
+        @Override
+        protected Iterable<Edge<LongWritable, NullWritable>> getEdges(String[] tokens) throws IOException {
+            List<Edge<LongWritable, NullWritable>> edges = new ArrayList<>(tokens.length - 1);
+            for (int i = 1; i < tokens.length; i++) {
+                if (tokens[i].isEmpty()) continue;
+                edges.add(EdgeFactory.create(new LongWritable(Long.parseLong(tokens[i]))));
+            }
+            return edges;
+        }
+    }
+}
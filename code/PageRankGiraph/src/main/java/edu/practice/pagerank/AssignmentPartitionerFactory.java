@@ -0,0 +1,98 @@
+package edu.practice.pagerank;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import org.apache.giraph.conf.ImmutableClassesGiraphConfiguration;
+import org.apache.giraph.partition.GraphPartitionerFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 按预先计算的 节点 -> 分区 映射（由 MapReduce 模块的 GraphPartitionTool 生成）放置顶点，
+ * 使相邻顶点尽量落在同一分区/同一 Worker，减少跨 Worker 的 PageRank 消息。
+ * 映射中不存在的顶点退回与 HashPartitionerFactory 相同的哈希划分。
+ */
+public class AssignmentPartitionerFactory<V extends Writable, E extends Writable>
+        extends GraphPartitionerFactory<LongWritable, V, E> {
+
+    // 同一 JVM 中分区器会被多次创建，映射只加载一次
+    private static Long2IntOpenHashMap cachedAssignment;
+    private static String cachedPath;
+
+    private Long2IntOpenHashMap assignment;
+
+    @Override
+    public void setConf(ImmutableClassesGiraphConfiguration<LongWritable, V, E> conf) {
+        super.setConf(conf);
+        String path = conf.get(PageRankMasterCompute.CONF_PARTITION_ASSIGNMENT);
+        if (path == null) return;
+        try {
+            assignment = load(conf, path);
+        } catch (IOException e) {
+            throw new IllegalStateException("无法加载分区映射: " + path, e);
+        }
+    }
+
+    @Override
+    public int getPartition(LongWritable id, int partitionCount, int workerCount) {
+        if (assignment != null) {
+            int part = assignment.get(id.get());
+            if (part >= 0) return part % partitionCount;
+        }
+        return Math.abs(id.hashCode() % partitionCount);
+    }
+
+    @Override
+    public int getWorker(int partition, int partitionCount, int workerCount) {
+        return partition % workerCount;
+    }
+
+    private static synchronized Long2IntOpenHashMap load(ImmutableClassesGiraphConfiguration<?, ?, ?> conf,
+                                                          String path) throws IOException {
+        if (cachedAssignment != null && path.equals(cachedPath)) {
+            return cachedAssignment;
+        }
+        Long2IntOpenHashMap map = new Long2IntOpenHashMap();
+        map.defaultReturnValue(-1);
+        Path file = new Path(path);
+        FileSystem fs = file.getFileSystem(conf);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // 以 # 开头的是头部统计信息
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                int tab = line.indexOf('\t');
+                if (tab <= 0) continue;
+                try {
+                    map.put(Long.parseLong(line.substring(0, tab)), Integer.parseInt(line.substring(tab + 1).trim()));
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+        cachedAssignment = map;
+        cachedPath = path;
+        return map;
+    }
+
+    /**
+     * 读取映射文件头部的某一项统计（如 #parts、#edgeCut），不存在时返回 null。
+     */
+    public static String readHeader(Configuration conf, String path, String header) throws IOException {
+        Path file = new Path(path);
+        FileSystem fs = file.getFileSystem(conf);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null && line.startsWith("#")) {
+                String[] parts = line.split("\t", 2);
+                if (parts.length == 2 && parts[0].equals(header)) return parts[1].trim();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,36 @@
+package edu.practice.pagerank;
+
+import org.apache.giraph.aggregators.DoubleSumAggregator;
+import org.apache.hadoop.io.DoubleWritable;
+
+/**
+ * 带 Kahan 补偿的 double 求和聚合器。
+ * 单精度模式下每个顶点上报的是 float 精度的值，数量巨大时普通累加的舍入误差会累积，
+ * 补偿项记录每次加法丢失的低位并在下一次加法中补回。
+ * 补偿项只在单个聚合器实例内有效，跨线程/跨 Worker 合并时退化为普通加法，误差仍限制在合并次数量级。
+ */
+public class KahanSumAggregator extends DoubleSumAggregator {
+
+    private double compensation;
+
+    @Override
+    public void aggregate(DoubleWritable value) {
+        DoubleWritable sum = getAggregatedValue();
+        double y = value.get() - compensation;
+        double t = sum.get() + y;
+        compensation = (t - sum.get()) - y;
+        sum.set(t);
+    }
+
+    @Override
+    public void setAggregatedValue(DoubleWritable value) {
+        super.setAggregatedValue(value);
+        compensation = 0.0;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        compensation = 0.0;
+    }
+}
@@ -0,0 +1,343 @@
+package edu.practice.pagerank;
+
+import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.GiraphConstants;
+import org.apache.giraph.edge.ByteArrayEdges;
+import org.apache.giraph.edge.LongNullArrayEdges;
+import org.apache.giraph.edge.LongNullHashSetEdges;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 运行前的内存预估：抽样读取邻接表输入的开头部分，按抽样字节占比推算全图的顶点数与边数，
+ * 并记录抽样中的最大出度（度数倾斜），再按当前配置的顶点值、出边与消息类型估算每个 Worker 的堆占用：
+ *
+ *   顶点   每顶点对象开销（Vertex + ID + 分区 Map 条目）+ 顶点值对象
+ *   出边   出边容器的每顶点固定开销 + 每条边字节（按 OutEdges 实现类区分）
+ *   消息   没有 Combiner，每条边每超步一条消息；收与发两个消息存储同时存在
+ *   固定   Netty 缓冲区、框架对象等，与图规模无关
+ *
+ * 最重的 Worker 按 平均负载 + 最大出度顶点 计算。堆中只按 USABLE_HEAP_SHARE 的比例用于数据，
+ * 其余留给 GC。
+ *
+ * pagerank.memory.autoSize=true 且未在命令行指定 Worker 数时，选择能放下图的最少 Worker 数，
+ * 并设置计算线程数与堆大小；最大 Worker 数也放不下时拒绝运行并建议开启 out-of-core
+ * （已开启 giraph.useOutOfCoreGraph 时只给出警告）。
+ * 预测值写入配置，作业结束时由 Master 与实测峰值并列写入 _timings.csv。
+ */
+public class MemoryPlanner {
+
+    // 是否做运行前预估（默认开启，只读取抽样字节）
+    public static final String CONF_ENABLED = "pagerank.memory.plan";
+    // 按预估自动选择 Worker 数、计算线程数与堆大小
+    public static final String CONF_AUTO_SIZE = "pagerank.memory.autoSize";
+    // 抽样字节数
+    public static final String CONF_SAMPLE_BYTES = "pagerank.memory.sampleBytes";
+    // 自动选择时可用的最大 Worker 数与单个 Worker 的最大堆（MB）
+    public static final String CONF_MAX_WORKERS = "pagerank.memory.maxWorkers";
+    public static final String CONF_MAX_HEAP_MB = "pagerank.memory.maxHeapMB";
+    // 每个 Worker 与图规模无关的固定开销（MB）
+    public static final String CONF_FIXED_MB = "pagerank.memory.fixedMB";
+    // 由 Driver 写入，Master 在 _timings.csv 中与实测值并列输出
+    public static final String CONF_PREDICTED_BYTES = "pagerank.memory.predictedBytes";
+
+    public static final long DEFAULT_SAMPLE_BYTES = 16L << 20;
+    public static final int DEFAULT_MAX_WORKERS = 64;
+    public static final int DEFAULT_FIXED_MB = 300;
+    public static final double USABLE_HEAP_SHARE = 0.7;
+    // 容器内存中堆所占比例
+    private static final double HEAP_SHARE_OF_CONTAINER = 0.8;
+    private static final long MB = 1L << 20;
+
+    // 每顶点对象开销：DefaultVertex + LongWritable ID + 分区 ConcurrentHashMap 条目
+    private static final int VERTEX_OBJECT_BYTES = 80;
+    // 顶点值对象：DoubleWritable / FloatWritable / RankHistoryWritable
+    private static final int DOUBLE_VALUE_BYTES = 16;
+    private static final int FLOAT_VALUE_BYTES = 16;
+    private static final int HISTORY_VALUE_BYTES = 32;
+
+    private static final Pattern XMX = Pattern.compile("-Xmx(\\d+)([kKmMgG]?)");
+
+    /**
+     * 抽样得到的图规模推算值。
+     */
+    public static class Sample {
+        public long totalBytes;
+        public long sampledBytes;
+        public long sampledVertices;
+        public long sampledEdges;
+        public long maxDegree;
+        public long vertices;
+        public long edges;
+
+        public double meanDegree() {
+            return sampledVertices > 0 ? (double) sampledEdges / sampledVertices : 0.0;
+        }
+
+        // 最大出度 / 平均出度
+        public double skew() {
+            double mean = meanDegree();
+            return mean > 0 ? maxDegree / mean : 1.0;
+        }
+
+        public String describe() {
+            return String.format("顶点 ~%d, 边 ~%d, 平均出度 %.2f, 最大出度 %d (倾斜 %.1f), 抽样 %d/%d 字节",
+                    vertices, edges, meanDegree(), maxDegree, skew(), sampledBytes, totalBytes);
+        }
+    }
+
+    /**
+     * 给定 Worker 数时最重 Worker 的内存预估（字节）。
+     */
+    public static class Estimate {
+        public int workers;
+        public long vertexBytes;
+        public long edgeBytes;
+        public long messageBytes;
+        public long fixedBytes;
+
+        public long total() {
+            return vertexBytes + edgeBytes + messageBytes + fixedBytes;
+        }
+
+        // 放下该预估所需的堆大小（MB）
+        public long requiredHeapMB() {
+            return (long) Math.ceil(total() / USABLE_HEAP_SHARE / MB);
+        }
+
+        public String describe() {
+            return String.format("%d workers: 顶点 %d MB + 出边 %d MB + 消息 %d MB + 固定 %d MB = %d MB/worker (需堆 %d MB)",
+                    workers, vertexBytes / MB, edgeBytes / MB, messageBytes / MB, fixedBytes / MB, total() / MB, requiredHeapMB());
+        }
+    }
+
+    private final GiraphConfiguration conf;
+
+    public MemoryPlanner(GiraphConfiguration conf) {
+        this.conf = conf;
+    }
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getBoolean(CONF_ENABLED, true);
+    }
+
+    /**
+     * 顺序读取输入开头的 sampleBytes 字节（邻接表：顶点 邻居1 邻居2 ...），按已消耗的文件字节推算全图规模。
+     */
+    public Sample sample(Path input) throws IOException {
+        Sample sample = new Sample();
+        long limit = conf.getLong(CONF_SAMPLE_BYTES, DEFAULT_SAMPLE_BYTES);
+        FileSystem fs = input.getFileSystem(conf);
+        List<FileStatus> files = new ArrayList<>();
+        for (FileStatus status : fs.globStatus(input)) {
+            if (status.isDirectory()) {
+                for (FileStatus child : fs.listStatus(status.getPath())) {
+                    String name = child.getPath().getName();
+                    if (child.isFile() && !name.startsWith("_") && !name.startsWith(".")) files.add(child);
+                }
+            } else {
+                files.add(status);
+            }
+        }
+        CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+        for (FileStatus file : files) {
+            sample.totalBytes += file.getLen();
+        }
+        for (FileStatus file : files) {
+            if (sample.sampledBytes >= limit) break;
+            // 压缩输入按已消耗的压缩字节计算占比
+            CountingInputStream counting = new CountingInputStream(fs.open(file.getPath()));
+            CompressionCodec codec = codecs.getCodec(file.getPath());
+            InputStream in = codec != null ? codec.createInputStream(counting) : counting;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                long fileStart = sample.sampledBytes;
+                String line = null;
+                while (fileStart + counting.count < limit && (line = reader.readLine()) != null) {
+                    long degree = countNeighbours(line);
+                    if (degree >= 0) {
+                        sample.sampledVertices++;
+                        sample.sampledEdges += degree;
+                        sample.maxDegree = Math.max(sample.maxDegree, degree);
+                    }
+                }
+                // 读到文件末尾时以文件长度为准，否则为已消耗的字节（含读取缓冲区的预读，相对抽样量可忽略）
+                sample.sampledBytes = fileStart + (line == null ? file.getLen() : counting.count);
+            }
+        }
+        double scale = sample.sampledBytes > 0 ? (double) sample.totalBytes / sample.sampledBytes : 1.0;
+        sample.vertices = Math.round(sample.sampledVertices * Math.max(1.0, scale));
+        sample.edges = Math.round(sample.sampledEdges * Math.max(1.0, scale));
+        return sample;
+    }
+
+    /**
+     * 按当前配置的顶点值、出边与消息类型估算 workers 个 Worker 时最重 Worker 的内存。
+     */
+    public Estimate estimate(Sample sample, int workers) {
+        Estimate estimate = new Estimate();
+        estimate.workers = Math.max(1, workers);
+        long verticesPerWorker = ceilDiv(sample.vertices, estimate.workers);
+        // 哈希分区下顶点数均匀，边数受最大出度顶点影响
+        long edgesPerWorker = ceilDiv(sample.edges, estimate.workers) + sample.maxDegree;
+        estimate.vertexBytes = verticesPerWorker * (VERTEX_OBJECT_BYTES + valueBytes());
+        estimate.edgeBytes = verticesPerWorker * edgeContainerBytes() + edgesPerWorker * bytesPerEdge();
+        estimate.messageBytes = 2 * edgesPerWorker * messageBytes();
+        estimate.fixedBytes = conf.getLong(CONF_FIXED_MB, DEFAULT_FIXED_MB) * MB;
+        return estimate;
+    }
+
+    /**
+     * 在 [minWorkers, maxWorkers] 中选择能放进 maxHeapMB 的最少 Worker 数；都放不下时返回 null。
+     */
+    public Estimate fit(Sample sample, int minWorkers, int maxWorkers, long maxHeapMB) {
+        for (int workers = Math.max(1, minWorkers); workers <= Math.max(minWorkers, maxWorkers); workers++) {
+            Estimate estimate = estimate(sample, workers);
+            if (estimate.requiredHeapMB() <= maxHeapMB) return estimate;
+        }
+        return null;
+    }
+
+    /**
+     * 把选定的计算线程数与堆大小写入配置，堆不超过 maxHeapMB；Worker 数由 Driver 设置。
+     */
+    public void apply(Estimate estimate, long maxHeapMB) {
+        // 每个容器的 vcore 数即计算线程数
+        int threads = Math.max(1, conf.getInt("mapreduce.map.cpu.vcores", 1));
+        GiraphConstants.NUM_COMPUTE_THREADS.set(conf, threads);
+        long heapMB = Math.min(maxHeapMB, roundUp(estimate.requiredHeapMB(), 256));
+        conf.set("mapreduce.map.java.opts", replaceXmx(conf.get("mapreduce.map.java.opts", ""), heapMB));
+        conf.setLong("mapreduce.map.memory.mb", roundUp((long) Math.ceil(heapMB / HEAP_SHARE_OF_CONTAINER), 256));
+    }
+
+    /**
+     * 单个 Worker 可用的最大堆（MB）：配置值，否则取 mapreduce.map.java.opts 中的 -Xmx，
+     * 再否则按容器内存的 80%。
+     */
+    public long maxHeapMB() {
+        long configured = conf.getLong(CONF_MAX_HEAP_MB, -1);
+        if (configured > 0) return configured;
+        long xmx = parseXmxMB(conf.get("mapreduce.map.java.opts", ""));
+        if (xmx > 0) return xmx;
+        return (long) (conf.getInt("mapreduce.map.memory.mb", 1024) * HEAP_SHARE_OF_CONTAINER);
+    }
+
+    private int valueBytes() {
+        if (PageRankMasterCompute.isFloatPrecision(conf)) return FLOAT_VALUE_BYTES;
+        if (conf.getBoolean(PageRankMasterCompute.CONF_EXTRAPOLATION, false)) return HISTORY_VALUE_BYTES;
+        return DOUBLE_VALUE_BYTES;
+    }
+
+    private long messageBytes() {
+        return PageRankMasterCompute.isFloatPrecision(conf)
+                ? PageRankMasterCompute.FLOAT_MESSAGE_BYTES : PageRankMasterCompute.MESSAGE_BYTES;
+    }
+
+    // 出边容器的每顶点固定开销与每条边字节
+    private int edgeContainerBytes() {
+        Class<?> edges = outEdgesClass();
+        if (edges == LongNullHashSetEdges.class) return 64;
+        if (edges == LongNullArrayEdges.class || edges == ByteArrayEdges.class) return 40;
+        return 48;
+    }
+
+    private int bytesPerEdge() {
+        Class<?> edges = outEdgesClass();
+        // 开放寻址哈希表：8 字节槽位，装载因子 0.75 且容量取 2 的幂，平均约一半空槽
+        if (edges == LongNullHashSetEdges.class) return 16;
+        if (edges == LongNullArrayEdges.class) return 8;
+        if (edges == ByteArrayEdges.class) return 9;
+        // 其他实现按每条边一个 Edge 对象与 ID 对象估算
+        return 40;
+    }
+
+    // GiraphConfiguration 以原始类型返回 OutEdges 实现类，这里只与已知实现比较类对象，不需要类型参数
+    private Class<?> outEdgesClass() {
+        return conf.getOutEdgesClass();
+    }
+
+    // 行中的邻居数；空行返回 -1
+    private static long countNeighbours(String line) {
+        long tokens = 0;
+        boolean inToken = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            boolean separator = c == ' ' || c == '\t';
+            if (!separator && !inToken) tokens++;
+            inToken = !separator;
+        }
+        return tokens == 0 ? -1 : tokens - 1;
+    }
+
+    static long parseXmxMB(String javaOpts) {
+        Matcher matcher = XMX.matcher(javaOpts == null ? "" : javaOpts);
+        long mb = -1;
+        while (matcher.find()) {
+            long value = Long.parseLong(matcher.group(1));
+            switch (matcher.group(2).toLowerCase()) {
+                case "g": mb = value * 1024; break;
+                case "m": mb = value; break;
+                case "k": mb = value / 1024; break;
+                default: mb = value / MB; break;
+            }
+        }
+        return mb;
+    }
+
+    private static String replaceXmx(String javaOpts, long heapMB) {
+        String stripped = XMX.matcher(javaOpts == null ? "" : javaOpts).replaceAll("").trim();
+        return (stripped.isEmpty() ? "" : stripped + " ") + "-Xmx" + heapMB + "m";
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    private static long roundUp(long value, long unit) {
+        return ceilDiv(value, unit) * unit;
+    }
+
+    // 统计从底层流读取的字节数
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package edu.practice.pagerank;
+
+import java.util.List;
+
+/**
+ * 块模式下一个 Giraph 分区在 Worker 内存中的子图：分区内顶点的 PR、出度，
+ * 以及分区内部入边（CSR）和需要通过消息发送的边界出边。
+ *
+ * Superstep 0 各顶点登记后（见 PartitionBlock），build() 把目标在本分区且已登记的边划为内部边，
+ * 其余为边界边。之后每个超步，顶点 compute 把收到的边界消息之和写入 remoteIn，
+ * 分区内最后一个顶点处理完后 sweep() 在内部边上按顶点顺序做若干遍 Gauss-Seidel 更新
+ * （新值立即被后续顶点使用），随后由计算类把边界贡献以消息发出。
+ */
+public class PageRankBlock extends PartitionBlock {
+
+    private double[] rank;
+    private double[] contribution;
+    private double[] previous;
+    private double[] remoteIn;
+    private int[] outDegree;
+    // 内部入边：顶点 i 的入邻居为 inSources[inStart[i] .. inStart[i + 1])
+    private int[] inStart;
+    private int[] inSources;
+    // 边界出边：顶点 i 需要发消息的目标为 boundaryTargets[boundaryStart[i] .. boundaryStart[i + 1])
+    private int[] boundaryStart;
+    private long[] boundaryTargets;
+
+    // 最近一次 sweep 的统计
+    private double lastDiff;
+    private double lastTotal;
+    private double lastDangling;
+
+    public PageRankBlock(int partitionId, long expectedVertices) {
+        super(partitionId, expectedVertices);
+    }
+
+    /**
+     * 划分内部边与边界边并建立数组，所有顶点以 initialValue 为初值。
+     */
+    public void build(double initialValue) {
+        List<long[]> registeredTargets = takeRegistration();
+        rank = new double[size];
+        contribution = new double[size];
+        previous = new double[size];
+        remoteIn = new double[size];
+        outDegree = new int[size];
+        inStart = new int[size + 1];
+        boundaryStart = new int[size + 1];
+
+        // 第一遍：计数
+        int boundary = 0;
+        for (int i = 0; i < size; i++) {
+            long[] targets = registeredTargets.get(i);
+            outDegree[i] = targets.length;
+            for (long target : targets) {
+                int t = indexOf(target);
+                if (t >= 0) {
+                    inStart[t + 1]++;
+                } else {
+                    boundary++;
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            inStart[i + 1] += inStart[i];
+        }
+
+        // 第二遍：填充
+        inSources = new int[inStart[size]];
+        boundaryTargets = new long[boundary];
+        int[] fill = new int[size];
+        int b = 0;
+        for (int i = 0; i < size; i++) {
+            boundaryStart[i] = b;
+            for (long target : registeredTargets.get(i)) {
+                int t = indexOf(target);
+                if (t >= 0) {
+                    inSources[inStart[t] + fill[t]++] = i;
+                } else {
+                    boundaryTargets[b++] = target;
+                }
+            }
+            rank[i] = initialValue;
+            contribution[i] = outDegree[i] > 0 ? initialValue / outDegree[i] : 0.0;
+        }
+        boundaryStart[size] = b;
+    }
+
+    public double getRank(int i) {
+        return rank[i];
+    }
+
+    public int getOutDegree(int i) {
+        return outDegree[i];
+    }
+
+    public double getContribution(int i) {
+        return contribution[i];
+    }
+
+    public void setRemoteIn(int i, double sum) {
+        remoteIn[i] = sum;
+    }
+
+    public int boundaryStart(int i) {
+        return boundaryStart[i];
+    }
+
+    public int boundaryEnd(int i) {
+        return boundaryStart[i + 1];
+    }
+
+    public long boundaryTarget(int k) {
+        return boundaryTargets[k];
+    }
+
+    public long getInternalEdges() {
+        return inSources == null ? 0 : inSources.length;
+    }
+
+    public long getBoundaryEdges() {
+        return boundaryTargets == null ? 0 : boundaryTargets.length;
+    }
+
+    /**
+     * 在内部边上做 sweeps 遍 Gauss-Seidel 更新：
+     *   x_i = (1-d)/N + d * (remoteIn_i + Σ_{j→i 内部} x_j / deg_j + danglingTerm)
+     * 边界贡献 remoteIn 与悬挂项在本超步内保持不变。
+     * 统计本超步内 PR 的总变化、PR 总和与悬挂质量。
+     */
+    public void sweep(int sweeps, double teleport, double damping, double danglingTerm) {
+        System.arraycopy(rank, 0, previous, 0, size);
+        for (int s = 0; s < sweeps; s++) {
+            for (int i = 0; i < size; i++) {
+                double sum = remoteIn[i];
+                for (int k = inStart[i]; k < inStart[i + 1]; k++) {
+                    sum += contribution[inSources[k]];
+                }
+                double value = teleport + damping * (sum + danglingTerm);
+                rank[i] = value;
+                if (outDegree[i] > 0) {
+                    contribution[i] = value / outDegree[i];
+                }
+            }
+        }
+
+        double diff = 0.0;
+        double total = 0.0;
+        double dangling = 0.0;
+        for (int i = 0; i < size; i++) {
+            diff += Math.abs(rank[i] - previous[i]);
+            total += rank[i];
+            if (outDegree[i] == 0) {
+                dangling += rank[i];
+            }
+        }
+        lastDiff = diff;
+        lastTotal = total;
+        lastDangling = dangling;
+    }
+
+    public double getLastDiff() {
+        return lastDiff;
+    }
+
+    public double getLastTotal() {
+        return lastTotal;
+    }
+
+    public double getLastDangling() {
+        return lastDangling;
+    }
+}
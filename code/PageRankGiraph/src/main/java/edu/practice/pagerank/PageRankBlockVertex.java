@@ -0,0 +1,229 @@
+package edu.practice.pagerank;
+
+import org.apache.giraph.bsp.CentralizedServiceWorker;
+import org.apache.giraph.comm.WorkerClientRequestProcessor;
+import org.apache.giraph.edge.Edge;
+import org.apache.giraph.graph.BasicComputation;
+import org.apache.giraph.graph.GraphState;
+import org.apache.giraph.graph.Vertex;
+import org.apache.giraph.worker.WorkerGlobalCommUsage;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+
+import java.io.IOException;
+
+/**
+ * 块模式（以 Giraph 分区为块）的 PageRank 计算。
+ *
+ * 一个超步内同一分区的顶点由同一个计算线程依次处理：
+ *   1. 每个顶点把收到的边界消息之和写入所在块的 remoteIn；
+ *   2. 分区内最后一个顶点处理完时，在分区内部边上做 sweeps 遍 Gauss-Seidel，
+ *      然后把边界出边的贡献以消息发出（下一超步到达）。
+ * 内部边的传播不经过消息与全局同步，Master 仍按全图残差判断收敛。
+ * 块内顶点保持活跃（不 voteToHalt）以便每个超步写回顶点值；写回的是上一次块内迭代的结果，
+ * 因此 Master 决定停止后再执行一个写回超步：块内顶点写回最后一次块内迭代的 PR，不再 sweep 也不发消息。
+ * 输入中不存在、由消息创建的顶点不属于任何块，按普通顶点中心方式计算。
+ */
+public class PageRankBlockVertex extends BasicComputation<LongWritable, DoubleWritable, NullWritable, DoubleWritable> {
+
+    private CentralizedServiceWorker<LongWritable, DoubleWritable, NullWritable> serviceWorker;
+
+    // 超步常量
+    private long totalVertices;
+    private double damping;
+    private double teleport;
+    private double danglingTerm;
+    private int sweeps;
+    private boolean sendMessages;
+    // Master 决定停止后的写回超步
+    private boolean finalizing;
+    private PageRankWorkerContext workerContext;
+    // 本线程顶点中的前 K 名（未启用 Top-K 稳定性判据或 Superstep 0 时为 null）
+    private TopKRanksWritable topK;
+    // 度数诊断：Superstep 0 按出度收集度数最大的顶点，其余超步为 null
+    private TopKRanksWritable outDegrees;
+
+    // 线程内累加，postSuperstep 时一次性聚合
+    private double diffSum;
+    private double totalPR;
+    private double danglingSum;
+    private long vertices;
+    private long edges;
+    private long messagesSent;
+    private long messagesReceived;
+    private long internalEdges;
+    private long boundaryEdges;
+
+    // 复用的消息与目标 ID 对象（发送时即被序列化）
+    private final DoubleWritable message = new DoubleWritable();
+    private final LongWritable targetId = new LongWritable();
+
+    @Override
+    public void initialize(GraphState graphState,
+                           WorkerClientRequestProcessor<LongWritable, DoubleWritable, NullWritable> workerClientRequestProcessor,
+                           CentralizedServiceWorker<LongWritable, DoubleWritable, NullWritable> serviceWorker,
+                           WorkerGlobalCommUsage workerGlobalCommUsage) {
+        super.initialize(graphState, workerClientRequestProcessor, serviceWorker, workerGlobalCommUsage);
+        this.serviceWorker = serviceWorker;
+    }
+
+    @Override
+    public void preSuperstep() {
+        totalVertices = getTotalNumVertices();
+        damping = getConf().getDouble(PageRankMasterCompute.CONF_DAMPING, 0.85);
+        sweeps = Math.max(1, getConf().getInt(PageRankMasterCompute.CONF_BLOCK_SWEEPS, 3));
+        int maxIterations = getConf().getInt(PageRankMasterCompute.CONF_MAX_ITER, 10);
+        sendMessages = getSuperstep() < maxIterations;
+
+        teleport = (1.0 - damping) / totalVertices;
+        if (getSuperstep() > 0) {
+            double previousDangling = ((DoubleWritable) getAggregatedValue(PageRankMasterCompute.AGG_DANGLING_SUM)).get();
+            danglingTerm = previousDangling / totalVertices;
+        }
+
+        BooleanWritable finalize = getBroadcast(PageRankMasterCompute.BCAST_BLOCK_FINALIZE);
+        finalizing = finalize != null && finalize.get();
+
+        workerContext = getWorkerContext();
+        topK = getSuperstep() > 0 && TopKStability.isEnabled(getConf())
+                ? new TopKRanksWritable(getConf().getInt(TopKStability.CONF_TOP_K, 0)) : null;
+        outDegrees = getSuperstep() == 0 ? workerContext.newDegreeList() : null;
+    }
+
+    @Override
+    public void compute(Vertex<LongWritable, DoubleWritable, NullWritable> vertex,
+            Iterable<DoubleWritable> messages) throws IOException {
+
+        int outDegree = vertex.getNumEdges();
+        int partitionId = serviceWorker.getPartitionId(vertex.getId());
+        vertices++;
+        edges += outDegree;
+        if (outDegrees != null) {
+            outDegrees.offer(vertex.getId().get(), outDegree);
+        }
+
+        if (getSuperstep() == 0) {
+            // 初始化为均匀分布 1/N，登记到所在分区的块
+            double initialValue = 1.0 / (double) totalVertices;
+            vertex.setValue(new DoubleWritable(initialValue));
+            totalPR += initialValue;
+            if (outDegree == 0) {
+                danglingSum += initialValue;
+            }
+
+            long[] targets = new long[outDegree];
+            int t = 0;
+            for (Edge<LongWritable, NullWritable> edge : vertex.getEdges()) {
+                targets[t++] = edge.getTargetVertexId().get();
+            }
+            long expected = serviceWorker.getPartitionStore().getPartitionVertexCount(partitionId);
+            PageRankBlock block = workerContext.blockFor(partitionId, expected);
+            if (block.register(vertex.getId().get(), targets)) {
+                block.build(initialValue);
+                internalEdges += block.getInternalEdges();
+                boundaryEdges += block.getBoundaryEdges();
+                sendBoundaryContributions(block);
+            }
+            return;
+        }
+
+        PageRankBlock block = workerContext.getBlock(partitionId);
+        int index = block == null ? -1 : block.indexOf(vertex.getId().get());
+
+        // 写回超步：块外顶点的值已是最新，忽略上一超步发出的消息
+        if (finalizing) {
+            if (index >= 0) {
+                vertex.getValue().set(block.getRank(index));
+            }
+            vertex.voteToHalt();
+            return;
+        }
+
+        double sum = 0.0;
+        long received = 0;
+        for (DoubleWritable message : messages) {
+            sum += message.get();
+            received++;
+        }
+        messagesReceived += received;
+
+        if (index < 0) {
+            computeOutsideBlock(vertex, sum, outDegree);
+            return;
+        }
+
+        block.setRemoteIn(index, sum);
+        vertex.getValue().set(block.getRank(index));
+
+        if (block.markProcessed()) {
+            block.sweep(sweeps, teleport, damping, danglingTerm);
+            diffSum += block.getLastDiff();
+            totalPR += block.getLastTotal();
+            danglingSum += block.getLastDangling();
+            if (topK != null) {
+                for (int i = 0; i < block.size(); i++) {
+                    topK.offer(block.getId(i), block.getRank(i));
+                }
+            }
+            sendBoundaryContributions(block);
+        }
+    }
+
+    // 把块内每个顶点当前的贡献发往其边界出边的目标
+    private void sendBoundaryContributions(PageRankBlock block) {
+        if (!sendMessages) return;
+        for (int i = 0; i < block.size(); i++) {
+            int start = block.boundaryStart(i);
+            int end = block.boundaryEnd(i);
+            if (start == end) continue;
+            message.set(block.getContribution(i));
+            for (int k = start; k < end; k++) {
+                targetId.set(block.boundaryTarget(k));
+                sendMessage(targetId, message);
+            }
+            messagesSent += end - start;
+        }
+    }
+
+    // 块外顶点：与 PageRankVertex 相同的单步更新
+    private void computeOutsideBlock(Vertex<LongWritable, DoubleWritable, NullWritable> vertex,
+                                     double sum, int outDegree) {
+        DoubleWritable value = vertex.getValue();
+        double newPageRank = teleport + damping * (sum + danglingTerm);
+        diffSum += Math.abs(newPageRank - value.get());
+        value.set(newPageRank);
+        totalPR += newPageRank;
+        if (topK != null) {
+            topK.offer(vertex.getId().get(), newPageRank);
+        }
+
+        if (sendMessages) {
+            if (outDegree > 0) {
+                message.set(newPageRank / outDegree);
+                sendMessageToAllEdges(vertex, message);
+                messagesSent += outDegree;
+            } else {
+                danglingSum += newPageRank;
+            }
+        }
+        vertex.voteToHalt();
+    }
+
+    @Override
+    public void postSuperstep() {
+        aggregate(PageRankMasterCompute.AGG_PR_DIFF_SUM, new DoubleWritable(diffSum));
+        aggregate(PageRankMasterCompute.AGG_TOTAL_PR, new DoubleWritable(totalPR));
+        aggregate(PageRankMasterCompute.AGG_DANGLING_SUM, new DoubleWritable(danglingSum));
+        if (topK != null) {
+            aggregate(PageRankMasterCompute.AGG_TOP_K, topK);
+        }
+        if (getSuperstep() == 0) {
+            aggregate(PageRankMasterCompute.AGG_BLOCK_INTERNAL_EDGES, new LongWritable(internalEdges));
+            aggregate(PageRankMasterCompute.AGG_BLOCK_BOUNDARY_EDGES, new LongWritable(boundaryEdges));
+        }
+        workerContext.recordDegrees(outDegrees, null);
+        workerContext.recordComputation(vertices, edges, messagesSent, messagesReceived, 0, -1);
+    }
+}
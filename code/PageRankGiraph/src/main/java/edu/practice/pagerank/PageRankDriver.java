@@ -1,11 +1,13 @@
 package edu.practice.pagerank;
 
 import org.apache.giraph.conf.GiraphConfiguration;
+import org.apache.giraph.conf.GiraphConstants;
 import org.apache.giraph.edge.LongNullHashSetEdges;
 import org.apache.giraph.io.formats.GiraphFileInputFormat;
 import org.apache.giraph.io.formats.IdWithValueTextOutputFormat;
 import org.apache.giraph.io.formats.LongLongNullTextInputFormat;
 import org.apache.giraph.job.GiraphJob;
+import org.apache.giraph.partition.PartitionBalancer;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
@@ -18,8 +20,10 @@ import org.apache.hadoop.util.ToolRunner;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -27,6 +31,9 @@ import java.util.PriorityQueue;
 
 public class PageRankDriver implements Tool {
 
+    // Monte Carlo 模式下依次运行的 R 列表（逗号分隔），需配合参考输出
+    public static final String CONF_MONTE_CARLO_SWEEP = "pagerank.montecarlo.sweep";
+
     private Configuration conf;
 
     @Override
@@ -36,12 +43,22 @@ public class PageRankDriver implements Tool {
             return 1;
         }
 
-        // 1. 捕获作业启动时间（用于计算 Setup Time）
-        long jobStartTime = System.currentTimeMillis();
-
         String inputPath = args[0];
         String outputPath = args[1];
 
+        // 可选：不可切分的压缩输入（.gz）先重分块，每个块是一个输入分片，由各 Worker 的输入线程并行解析；
+        // 在 Setup 计时之前完成，单独报告耗时
+        List<Path> inputs = new ArrayList<>();
+        inputs.add(new Path(inputPath));
+        if (getConf().getBoolean(InputRechunker.CONF_ENABLED, false)) {
+            long ingestStart = System.currentTimeMillis();
+            inputs = InputRechunker.prepare(getConf(), new Path(inputPath));
+            System.out.printf("输入重分块耗时: %d ms, 输入: %s\n", System.currentTimeMillis() - ingestStart, inputs);
+        }
+
+        // 1. 捕获作业启动时间（用于计算 Setup Time）
+        long jobStartTime = System.currentTimeMillis();
+
         // 处理参数
         int defaultMaxIter = getConf().getInt(PageRankMasterCompute.CONF_MAX_ITER, 10);
         int maxIter = args.length > 2 ? Integer.parseInt(args[2]) : defaultMaxIter;
@@ -71,23 +88,179 @@ public class PageRankDriver implements Tool {
         getConf().setLong(PageRankMasterCompute.CONF_JOB_START_TIME, jobStartTime);
         // 统计文件将保存在输出目录下的 _timings.csv 文件中
         getConf().set(PageRankMasterCompute.CONF_TIMING_OUTPUT_PATH, outputPath + "/_timings.csv");
+        // 每个超步各 Worker 的边数/消息数不均衡度
+        getConf().set(PageRankMasterCompute.CONF_BALANCE_OUTPUT_PATH, outputPath + "/_balance.csv");
+        // 每个超步的残差与外推记录，用于对比开启外推前后达到阈值所需的超步数
+        getConf().set(PageRankMasterCompute.CONF_CONVERGENCE_OUTPUT_PATH, outputPath + "/_convergence.csv");
+        // 负载倾斜诊断：各 Worker 每个超步的明细、度数最大的顶点、各指标不均衡度的汇总
+        getConf().set(PageRankMasterCompute.CONF_WORKERS_OUTPUT_PATH, outputPath + "/_workers.csv");
+        getConf().set(PageRankMasterCompute.CONF_HOT_VERTICES_OUTPUT_PATH, outputPath + "/_hot_vertices.csv");
+        getConf().set(PageRankMasterCompute.CONF_SKEW_OUTPUT_PATH, outputPath + "/_skew_summary.csv");
+        // 运行时间线：Master 写出超步与各 Worker 的区间，Job 结束后追加客户端的区间
+        boolean traceEnabled = TraceRecorder.isEnabled(getConf());
+        if (traceEnabled) {
+            getConf().set(PageRankMasterCompute.CONF_TRACE_OUTPUT_PATH, outputPath + "/_trace.json");
+        }
+        // 可选：每个 Worker 的节点资源采样，时间序列写到 <输出目录>/_resources
+        boolean sampleResources = getConf().getBoolean(ResourceSampler.CONF_ENABLED, false);
+        if (sampleResources) {
+            if (getConf().get(ResourceSampler.CONF_DIR) == null) {
+                getConf().set(ResourceSampler.CONF_DIR, outputPath + "/_resources");
+            }
+            getConf().set(ResourceSampler.CONF_PHASE, "setup");
+        }
 
         GiraphConfiguration giraphConf = new GiraphConfiguration(getConf());
 
         giraphConf.setComputationClass(PageRankVertex.class);
         giraphConf.setMasterComputeClass(PageRankMasterCompute.class);
+        giraphConf.setWorkerContextClass(PageRankWorkerContext.class);
         giraphConf.setVertexInputFormatClass(LongLongNullTextInputFormat.class);
         giraphConf.setVertexOutputFormatClass(IdWithValueTextOutputFormat.class);
         // 使用 HashSet 去重出边，避免重复边导致贡献重复，语义与 NetworkX 一致
         giraphConf.setOutEdgesClass(LongNullHashSetEdges.class);
+        // 外推模式下顶点值额外保存上一超步的 PR
+        if (getConf().getBoolean(PageRankMasterCompute.CONF_EXTRAPOLATION, false)) {
+            giraphConf.setVertexValueFactoryClass(RankHistoryWritable.Factory.class);
+            giraphConf.setVertexInputFormatClass(AdjacencyTextInputFormat.class);
+            System.out.printf("Aitken 外推已启用 (间隔 %d 超步)\n", getConf().getInt(PageRankMasterCompute.CONF_EXTRAPOLATION_PERIOD, Extrapolation.DEFAULT_PERIOD));
+        }
+        // 单精度模式：顶点值与消息为 float，消息体积与顶点值内存减半；聚合仍为 double（Kahan 补偿）
+        boolean floatPrecision = PageRankMasterCompute.isFloatPrecision(getConf());
+        if (floatPrecision) {
+            if (getConf().getBoolean(PageRankMasterCompute.CONF_EXTRAPOLATION, false)) {
+                System.out.printf("警告: 单精度模式不支持 Aitken 外推，已忽略外推设置\n");
+                giraphConf.setBoolean(PageRankMasterCompute.CONF_EXTRAPOLATION, false);
+                giraphConf.unset(GiraphConstants.VERTEX_VALUE_FACTORY_CLASS.getKey());
+            }
+            giraphConf.setComputationClass(PageRankFloatVertex.class);
+            giraphConf.setVertexInputFormatClass(AdjacencyTextInputFormat.class);
+            System.out.printf("单精度模式已启用 (float 顶点值与消息)\n");
+        }
+        // 块模式：分区内部边在 Worker 内存中做 Gauss-Seidel 迭代，只交换边界贡献；
+        // 块状态保存在 Worker 上，因此不能与按边数迁移分区同时使用
+        boolean blockMode = getConf().getBoolean(PageRankMasterCompute.CONF_BLOCK_ENABLED, false);
+        if (blockMode) {
+            if (floatPrecision || getConf().getBoolean(PageRankMasterCompute.CONF_EXTRAPOLATION, false)) {
+                System.out.printf("警告: 块模式仅支持 double 精度且不支持外推，已忽略相应设置\n");
+                giraphConf.set(PageRankMasterCompute.CONF_PRECISION, "double");
+                giraphConf.setBoolean(PageRankMasterCompute.CONF_EXTRAPOLATION, false);
+                giraphConf.unset(GiraphConstants.VERTEX_VALUE_FACTORY_CLASS.getKey());
+                giraphConf.setVertexInputFormatClass(LongLongNullTextInputFormat.class);
+                floatPrecision = false;
+            }
+            giraphConf.setComputationClass(PageRankBlockVertex.class);
+            System.out.printf("块模式已启用 (每超步块内迭代 %d 遍)\n",
+                    Math.max(1, getConf().getInt(PageRankMasterCompute.CONF_BLOCK_SWEEPS, 3)));
+        }
+
+        // Monte Carlo 模式：随机游走估计 PR，消息为游走者计数；游走状态按分区保存在 Worker 上，不能迁移分区
+        boolean monteCarlo = getConf().getBoolean(PageRankMasterCompute.CONF_MONTE_CARLO, false);
+        if (monteCarlo) {
+            if (floatPrecision || blockMode || getConf().getBoolean(PageRankMasterCompute.CONF_EXTRAPOLATION, false)) {
+                System.out.printf("警告: Monte Carlo 模式不支持单精度、块模式与外推，已忽略相应设置\n");
+                giraphConf.set(PageRankMasterCompute.CONF_PRECISION, "double");
+                giraphConf.setBoolean(PageRankMasterCompute.CONF_EXTRAPOLATION, false);
+                giraphConf.setBoolean(PageRankMasterCompute.CONF_BLOCK_ENABLED, false);
+                giraphConf.unset(GiraphConstants.VERTEX_VALUE_FACTORY_CLASS.getKey());
+                giraphConf.setVertexInputFormatClass(LongLongNullTextInputFormat.class);
+                floatPrecision = false;
+                blockMode = false;
+            }
+            giraphConf.setComputationClass(PageRankMonteCarloVertex.class);
+            giraphConf.setMessageCombinerClass(PageRankMonteCarloVertex.WalkerCountCombiner.class);
+            System.out.printf("Monte Carlo 模式已启用 (每顶点 %d 个游走者, 每超步块内 %d 步)\n",
+                    getConf().getInt(PageRankMonteCarloVertex.CONF_WALKS, PageRankMonteCarloVertex.DEFAULT_WALKS),
+                    getConf().getInt(PageRankMonteCarloVertex.CONF_STEPS_PER_ROUND, PageRankMonteCarloVertex.DEFAULT_STEPS_PER_ROUND));
+        }
+
+        // 运行前内存预估：抽样输入推算图规模，按顶点值、出边与消息类型估算每个 Worker 的堆占用；
+        // 开启 autoSize 且命令行未指定 Worker 数时据此选择 Worker 数、计算线程数与堆大小
+        if (MemoryPlanner.isEnabled(getConf())) {
+            MemoryPlanner planner = new MemoryPlanner(giraphConf);
+            MemoryPlanner.Sample sample = planner.sample(new Path(inputPath));
+            long maxHeapMB = planner.maxHeapMB();
+            System.out.printf("内存预估抽样: %s\n", sample.describe());
+            MemoryPlanner.Estimate estimate;
+            if (getConf().getBoolean(MemoryPlanner.CONF_AUTO_SIZE, false) && args.length <= 6) {
+                int maxWorkers = getConf().getInt(MemoryPlanner.CONF_MAX_WORKERS, MemoryPlanner.DEFAULT_MAX_WORKERS);
+                estimate = planner.fit(sample, minWorkersArg, maxWorkers, maxHeapMB);
+                if (estimate == null) {
+                    estimate = planner.estimate(sample, maxWorkers);
+                    System.err.printf("错误: %d 个 Worker、每个 %d MB 堆仍放不下该图 (%s)\n", maxWorkers, maxHeapMB, estimate.describe());
+                    if (!giraphConf.getBoolean("giraph.useOutOfCoreGraph", false)) {
+                        System.err.printf("建议: 开启 out-of-core (-Dgiraph.useOutOfCoreGraph=true)，或增大 -D%s / -D%s\n",
+                                MemoryPlanner.CONF_MAX_WORKERS, MemoryPlanner.CONF_MAX_HEAP_MB);
+                        return 5;
+                    }
+                    System.out.printf("警告: 已开启 out-of-core，按 %d 个 Worker 运行\n", maxWorkers);
+                }
+                planner.apply(estimate, maxHeapMB);
+                minWorkersArg = estimate.workers;
+                maxWorkersArg = estimate.workers;
+                System.out.printf("自动规模: %d workers, %d 计算线程, %s\n", estimate.workers,
+                        GiraphConstants.NUM_COMPUTE_THREADS.get(giraphConf), giraphConf.get("mapreduce.map.java.opts"));
+            } else {
+                // Worker 数最少时单个 Worker 最重
+                estimate = planner.estimate(sample, minWorkersArg);
+                if (estimate.requiredHeapMB() > maxHeapMB) {
+                    System.out.printf("警告: 预估单个 Worker 需堆 %d MB，超过当前 %d MB，可能 OOM；可开启 -D%s=true\n",
+                            estimate.requiredHeapMB(), maxHeapMB, MemoryPlanner.CONF_AUTO_SIZE);
+                }
+            }
+            System.out.printf("内存预估: %s\n", estimate.describe());
+            giraphConf.setLong(MemoryPlanner.CONF_PREDICTED_BYTES, estimate.total());
+        }
 
         // Worker 设置
         giraphConf.setInt("giraph.minWorkers", minWorkersArg);
         giraphConf.setInt("giraph.maxWorkers", maxWorkersArg);
 
+        // 分区均衡：edges 模式下将图切成更多分区，由 Master 依据加载阶段统计的每分区边数
+        // 在 Worker 之间迁移整块分区，使各 Worker 的边数（即消息量与计算量）接近
+        String balance = getConf().get(PageRankMasterCompute.CONF_PARTITION_BALANCE, "hash");
+        if ("edges".equalsIgnoreCase(balance) && (blockMode || monteCarlo)) {
+            System.out.printf("警告: 块模式与 Monte Carlo 模式下不迁移分区，忽略分区均衡策略 edges\n");
+        } else if ("edges".equalsIgnoreCase(balance)) {
+            giraphConf.set(PartitionBalancer.PARTITION_BALANCE_ALGORITHM, PartitionBalancer.EGDE_BALANCE_ALGORITHM);
+            if (giraphConf.get(GiraphConstants.USER_PARTITION_COUNT.getKey()) == null) {
+                int perWorker = getConf().getInt(PageRankMasterCompute.CONF_PARTITIONS_PER_WORKER, 8);
+                GiraphConstants.USER_PARTITION_COUNT.set(giraphConf, maxWorkersArg * perWorker);
+            }
+            System.out.printf("分区均衡策略: edges (分区数 %d)\n", GiraphConstants.USER_PARTITION_COUNT.get(giraphConf));
+        }
+
+        // 局部性分区：按 GraphPartitionTool 预先计算的映射放置顶点，分区数与映射保持一致
+        String assignmentPath = getConf().get(PageRankMasterCompute.CONF_PARTITION_ASSIGNMENT);
+        if (assignmentPath != null) {
+            giraphConf.setGraphPartitionerFactoryClass(AssignmentPartitionerFactory.class);
+            String parts = AssignmentPartitionerFactory.readHeader(getConf(), assignmentPath, "#parts");
+            String edgeCut = AssignmentPartitionerFactory.readHeader(getConf(), assignmentPath, "#edgeCut");
+            String hashEdgeCut = AssignmentPartitionerFactory.readHeader(getConf(), assignmentPath, "#hashEdgeCut");
+            if (parts != null) {
+                GiraphConstants.USER_PARTITION_COUNT.set(giraphConf, Integer.parseInt(parts));
+            }
+            // 默认开启跨 Worker 消息统计，用于对比网络流量
+            if (getConf().get(PageRankMasterCompute.CONF_COUNT_REMOTE) == null) {
+                giraphConf.setBoolean(PageRankMasterCompute.CONF_COUNT_REMOTE, true);
+            }
+            System.out.printf("使用分区映射: %s (分区数 %s, 跨分区边比例 %s, 哈希对照 %s)\n",
+                    assignmentPath, parts, edgeCut, hashEdgeCut);
+        }
+
+        // Monte Carlo 误差随 R 的变化：依次以各个 R 运行并与参考输出比较
+        String sweep = getConf().get(CONF_MONTE_CARLO_SWEEP);
+        if (monteCarlo && sweep != null) {
+            return runMonteCarloSweep(giraphConf, inputs, outputPath, sweep);
+        }
+
+        long submitTime = System.currentTimeMillis();
+        giraphConf.setLong(PageRankMasterCompute.CONF_TRACE_SUBMIT_TIME, submitTime);
         GiraphJob job = new GiraphJob(giraphConf, "PageRank Giraph Timing Experiment");
 
-        GiraphFileInputFormat.addVertexInputPath(job.getConfiguration(), new Path(inputPath));
+        for (Path input : inputs) {
+            GiraphFileInputFormat.addVertexInputPath(job.getConfiguration(), input);
+        }
         FileOutputFormat.setOutputPath(job.getInternalJob(), new Path(outputPath));
 
         boolean success = job.run(true);
@@ -110,6 +283,60 @@ public class PageRankDriver implements Tool {
             } catch (Exception e) {
                 // System.err.printf("警告: 生成 Top50 失败: " + e.getMessage()+"\n");
             }
+
+            // 资源采样汇总：按节点与按 超步 x 节点，与 _timings.csv 放在同一目录
+            if (sampleResources) {
+                try {
+                    int samples = ResourceSampler.summarize(getConf(), new Path(getConf().get(ResourceSampler.CONF_DIR)),
+                            new Path(outputPath, "_resources_summary.csv"), new Path(outputPath, "_resources_phases.csv"));
+                    System.out.printf("资源采样汇总已生成: %s/_resources_summary.csv (%d 个样本)\n", outputPath, samples);
+                } catch (IOException e) {
+                    System.err.println("警告: 无法汇总资源采样: " + e.getMessage());
+                }
+            }
+
+            // 追加运行历史，供 MapReduce 模块的 RegressionDetector 跨版本比较
+            if (RunHistory.isEnabled(getConf())) {
+                try {
+                    RunHistory history = RunHistory.create(getConf(), "giraph", new Path(inputPath))
+                            .param("maxIterations", maxIter)
+                            .param("damping", damping)
+                            .param("threshold", convergenceThreshold)
+                            .param("workers", minWorkersArg + "-" + maxWorkersArg)
+                            .param("mode", monteCarlo ? "montecarlo" : blockMode ? "block" : floatPrecision ? "float" : "double")
+                            .param("extrapolation", getConf().getBoolean(PageRankMasterCompute.CONF_EXTRAPOLATION, false))
+                            .add(RunHistory.METRIC_TOTAL, jobEndTime - jobStartTime);
+                    readTimings(new Path(outputPath, "_timings.csv"), history);
+                    System.out.printf("运行历史已追加: %s\n", history.save(getConf()));
+                } catch (IOException e) {
+                    System.err.println("警告: 无法写入运行历史: " + e.getMessage());
+                }
+            }
+
+            // 单精度 / Monte Carlo 结果与参考（double）输出的排名一致性
+            String reference = getConf().get(PageRankMasterCompute.CONF_PRECISION_REFERENCE);
+            if ((floatPrecision || monteCarlo) && reference != null) {
+                int k = getConf().getInt(PageRankMasterCompute.CONF_AGREEMENT_TOP_K, RankAgreement.DEFAULT_TOP_K);
+                RankAgreement agreement = RankAgreement.compare(getConf(), new Path(reference), new Path(outputPath), k);
+                agreement.writeTo(getConf(), new Path(outputPath, "_agreement.csv"));
+                System.out.printf("排名一致性 (对照 %s): %s\n", reference, agreement.describe());
+            }
+
+            if (traceEnabled) {
+                long finishTime = System.currentTimeMillis();
+                TraceRecorder trace = new TraceRecorder(jobStartTime);
+                trace.span("PageRank Run", "run", TraceRecorder.PID_DRIVER, 1, jobStartTime, finishTime, null);
+                // 提交前：参数解析、内存预估与分区映射
+                trace.span("Client Prepare", "setup", TraceRecorder.PID_DRIVER, 1, jobStartTime, submitTime, null);
+                trace.span("Giraph Job", "job", TraceRecorder.PID_DRIVER, 1, submitTime, jobEndTime, null);
+                // Job 结束后：Top50、资源采样汇总、运行历史与排名一致性
+                trace.span("Post-process", "finalize", TraceRecorder.PID_DRIVER, 1, jobEndTime, finishTime, null);
+                try {
+                    trace.append(getConf(), new Path(outputPath, "_trace.json"));
+                } catch (IOException e) {
+                    System.err.println("警告: 无法写入时间线: " + e.getMessage());
+                }
+            }
             return 0;
         } else {
             // System.err.printf("PageRank 计算失败\n");
@@ -117,6 +344,77 @@ public class PageRankDriver implements Tool {
         }
     }
 
+    /**
+     * 依次以 sweep 中的每个 R 运行 Monte Carlo（输出到 <output>/walks_R），与参考输出比较，
+     * 耗时与误差汇总写到 <output>/_montecarlo_sweep.csv。
+     */
+    private int runMonteCarloSweep(GiraphConfiguration baseConf, List<Path> inputs, String outputPath, String sweep) throws Exception {
+        String reference = getConf().get(PageRankMasterCompute.CONF_PRECISION_REFERENCE);
+        if (reference == null) {
+            System.err.printf("错误: -D%s 需要同时指定参考输出 -D%s\n", CONF_MONTE_CARLO_SWEEP, PageRankMasterCompute.CONF_PRECISION_REFERENCE);
+            return 1;
+        }
+        int k = getConf().getInt(PageRankMasterCompute.CONF_AGREEMENT_TOP_K, RankAgreement.DEFAULT_TOP_K);
+        StringBuilder rows = new StringBuilder("Walks,Duration_ms,TopK,TopK_overlap_ratio,L1_error,Mean_relative_error,Max_relative_error\n");
+        for (String token : sweep.split(",")) {
+            int walks = Integer.parseInt(token.trim());
+            String runOutput = outputPath + "/walks_" + walks;
+            GiraphConfiguration runConf = new GiraphConfiguration(baseConf);
+            runConf.setInt(PageRankMonteCarloVertex.CONF_WALKS, walks);
+            runConf.set(PageRankMasterCompute.CONF_TIMING_OUTPUT_PATH, runOutput + "/_timings.csv");
+            runConf.set(PageRankMasterCompute.CONF_BALANCE_OUTPUT_PATH, runOutput + "/_balance.csv");
+            runConf.set(PageRankMasterCompute.CONF_CONVERGENCE_OUTPUT_PATH, runOutput + "/_convergence.csv");
+            runConf.set(PageRankMasterCompute.CONF_WORKERS_OUTPUT_PATH, runOutput + "/_workers.csv");
+            runConf.set(PageRankMasterCompute.CONF_HOT_VERTICES_OUTPUT_PATH, runOutput + "/_hot_vertices.csv");
+            runConf.set(PageRankMasterCompute.CONF_SKEW_OUTPUT_PATH, runOutput + "/_skew_summary.csv");
+            if (TraceRecorder.isEnabled(runConf)) {
+                runConf.set(PageRankMasterCompute.CONF_TRACE_OUTPUT_PATH, runOutput + "/_trace.json");
+            }
+
+            long start = System.currentTimeMillis();
+            // Setup 耗时与时间线零点按本次运行计算
+            runConf.setLong(PageRankMasterCompute.CONF_JOB_START_TIME, start);
+            runConf.setLong(PageRankMasterCompute.CONF_TRACE_SUBMIT_TIME, start);
+            GiraphJob job = new GiraphJob(runConf, "PageRank Monte Carlo R=" + walks);
+            for (Path input : inputs) {
+                GiraphFileInputFormat.addVertexInputPath(job.getConfiguration(), input);
+            }
+            FileOutputFormat.setOutputPath(job.getInternalJob(), new Path(runOutput));
+            if (!job.run(true)) return 1;
+            long duration = System.currentTimeMillis() - start;
+
+            RankAgreement agreement = RankAgreement.compare(getConf(), new Path(reference), new Path(runOutput), k);
+            agreement.writeTo(getConf(), new Path(runOutput, "_agreement.csv"));
+            System.out.printf("Monte Carlo R=%d: 耗时 %d ms, %s\n", walks, duration, agreement.describe());
+            rows.append(String.format("%d,%d,%d,%.6f,%.6e,%.6e,%.6e\n", walks, duration, k, agreement.topKOverlapRatio(),
+                    agreement.l1Error, agreement.meanRelativeError, agreement.maxRelativeError));
+        }
+        Path summary = new Path(outputPath, "_montecarlo_sweep.csv");
+        try (FSDataOutputStream out = summary.getFileSystem(getConf()).create(summary, true)) {
+            out.write(rows.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        System.out.printf("Monte Carlo 误差随 R 的变化已写入: %s\n", summary);
+        return 0;
+    }
+
+    // 从 _timings.csv 读取 Setup 与各超步耗时
+    private void readTimings(Path timings, RunHistory history) throws IOException {
+        FileSystem fs = timings.getFileSystem(getConf());
+        if (!fs.exists(timings)) return;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(timings), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length != 2) continue;
+                if ("Setup".equals(fields[0])) {
+                    history.add(RunHistory.METRIC_SETUP, Long.parseLong(fields[1].trim()));
+                } else if (fields[0].startsWith("Superstep_")) {
+                    history.add(RunHistory.METRIC_ITERATION, Long.parseLong(fields[1].trim()));
+                }
+            }
+        }
+    }
+
     @Override
     public Configuration getConf() { return conf; }
     @Override
@@ -141,7 +439,7 @@ public class PageRankDriver implements Tool {
             String name = status.getPath().getName();
             if (!name.startsWith("part")) continue;
 
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(status.getPath()), java.nio.charset.StandardCharsets.UTF_8))) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(status.getPath()), StandardCharsets.UTF_8))) {
                 String line;
                 while ((line = reader.readLine()) != null) {
                     String[] parts = line.split("\t", 2);
@@ -162,7 +460,7 @@ public class PageRankDriver implements Tool {
         List<NodeScore> top = new ArrayList<>(pq);
         top.sort((a, b) -> Double.compare(b.score, a.score));
 
-        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(fs.create(dstFile, true), java.nio.charset.StandardCharsets.UTF_8))) {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(fs.create(dstFile, true), StandardCharsets.UTF_8))) {
             for (NodeScore ns : top) {
                 writer.write(ns.nodeId + "\t" + ns.score);
                 writer.newLine();
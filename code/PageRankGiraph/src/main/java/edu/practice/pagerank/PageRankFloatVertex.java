@@ -0,0 +1,182 @@
+package edu.practice.pagerank;
+
+import org.apache.giraph.edge.Edge;
+import org.apache.giraph.graph.BasicComputation;
+import org.apache.giraph.graph.Vertex;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+
+import java.io.IOException;
+
+/**
+ * 单精度模式的 PageRank 计算：顶点值与消息均为 FloatWritable，消息体积减半。
+ * 顶点内对收到的消息用 Kahan 补偿在 double 中求和，新 PR 在 double 中计算后再截断为 float 保存；
+ * 残差、悬挂质量与 PR 总和在线程内以 Kahan 补偿累加，超步结束时以 double 上报给 KahanSumAggregator。
+ * 与 PageRankVertex 相同，超步常量在 preSuperstep 中解析，消息对象复用，compute 不分配对象。
+ */
+public class PageRankFloatVertex extends BasicComputation<LongWritable, FloatWritable, NullWritable, FloatWritable> {
+
+    // 超步常量
+    private long totalVertices;
+    private double damping;
+    private double teleport;
+    private double danglingTerm;
+    private boolean sendMessages;
+    private boolean countRemote;
+    private PageRankWorkerContext workerContext;
+    private AllocationProbe allocationProbe;
+    // 本线程顶点中的前 K 名（未启用 Top-K 稳定性判据或 Superstep 0 时为 null）
+    private TopKRanksWritable topK;
+    // 度数诊断：Superstep 0 按出度、Superstep 1 按收到的消息数（即入度）收集度数最大的顶点，其余超步为 null
+    private TopKRanksWritable outDegrees;
+    private TopKRanksWritable inDegrees;
+
+    // 线程内补偿累加，postSuperstep 时一次性聚合
+    private final CompensatedSum diffSum = new CompensatedSum();
+    private final CompensatedSum totalPR = new CompensatedSum();
+    private final CompensatedSum danglingSum = new CompensatedSum();
+    private long vertices;
+    private long edges;
+    private long messagesSent;
+    private long messagesReceived;
+    private long remoteMessages;
+
+    // 复用的消息对象
+    private final FloatWritable message = new FloatWritable();
+
+    @Override
+    public void preSuperstep() {
+        totalVertices = getTotalNumVertices();
+        damping = getConf().getDouble(PageRankMasterCompute.CONF_DAMPING, 0.85);
+        int maxIterations = getConf().getInt(PageRankMasterCompute.CONF_MAX_ITER, 10);
+        sendMessages = getSuperstep() < maxIterations;
+        countRemote = getConf().getBoolean(PageRankMasterCompute.CONF_COUNT_REMOTE, false);
+
+        teleport = (1.0 - damping) / totalVertices;
+        if (getSuperstep() > 0) {
+            double previousDangling = ((DoubleWritable) getAggregatedValue(PageRankMasterCompute.AGG_DANGLING_SUM)).get();
+            danglingTerm = previousDangling / totalVertices;
+        }
+
+        workerContext = getWorkerContext();
+        allocationProbe = AllocationProbe.start(getConf());
+        topK = getSuperstep() > 0 && TopKStability.isEnabled(getConf())
+                ? new TopKRanksWritable(getConf().getInt(TopKStability.CONF_TOP_K, 0)) : null;
+        outDegrees = getSuperstep() == 0 ? workerContext.newDegreeList() : null;
+        inDegrees = getSuperstep() == 1 ? workerContext.newDegreeList() : null;
+    }
+
+    @Override
+    public void compute(Vertex<LongWritable, FloatWritable, NullWritable> vertex,
+            Iterable<FloatWritable> messages) throws IOException {
+
+        long received = 0;
+        int outDegree = vertex.getNumEdges();
+        FloatWritable value = vertex.getValue();
+
+        if (getSuperstep() == 0) {
+            // 初始化为均匀分布 1/N，与 NetworkX 对齐（值对象由 AdjacencyTextInputFormat 经工厂创建）
+            float initialValue = (float) (1.0 / (double) totalVertices);
+
+            value.set(initialValue);
+
+            totalPR.add(initialValue);
+
+        } else {
+            // Kahan 补偿求和
+            double sum = 0.0;
+            double compensation = 0.0;
+            for (FloatWritable message : messages) {
+                double y = message.get() - compensation;
+                double t = sum + y;
+                compensation = (t - sum) - y;
+                sum = t;
+                received++;
+            }
+
+            double oldPageRank = value.get();
+
+            float newPageRank = (float) (teleport + damping * (sum + danglingTerm));
+
+            value.set(newPageRank);
+
+            diffSum.add(Math.abs((double) newPageRank - oldPageRank));
+
+            // 聚合每一轮的 PR 总和
+            totalPR.add(newPageRank);
+            if (topK != null) {
+                topK.offer(vertex.getId().get(), newPageRank);
+            }
+        }
+
+        if (sendMessages) {
+            float pageRank = value.get();
+
+            if (outDegree > 0) {
+                message.set((float) ((double) pageRank / outDegree));
+                sendMessageToAllEdges(vertex, message);
+                messagesSent += outDegree;
+                if (countRemote) {
+                    countRemoteMessages(vertex);
+                }
+            } else {
+                danglingSum.add(pageRank);
+            }
+        }
+
+        // 本顶点的工作量，用于统计各 Worker 的负载
+        vertices++;
+        edges += outDegree;
+        messagesReceived += received;
+        if (outDegrees != null) {
+            outDegrees.offer(vertex.getId().get(), outDegree);
+        }
+        if (inDegrees != null) {
+            inDegrees.offer(vertex.getId().get(), received);
+        }
+
+        vertex.voteToHalt();
+    }
+
+    @Override
+    public void postSuperstep() {
+        aggregate(PageRankMasterCompute.AGG_PR_DIFF_SUM, new DoubleWritable(diffSum.get()));
+        aggregate(PageRankMasterCompute.AGG_TOTAL_PR, new DoubleWritable(totalPR.get()));
+        aggregate(PageRankMasterCompute.AGG_DANGLING_SUM, new DoubleWritable(danglingSum.get()));
+        if (topK != null) {
+            aggregate(PageRankMasterCompute.AGG_TOP_K, topK);
+        }
+        workerContext.recordDegrees(outDegrees, inDegrees);
+        workerContext.recordComputation(vertices, edges, messagesSent, messagesReceived, remoteMessages,
+                allocationProbe.stop());
+    }
+
+    // 统计目标顶点不在本 Worker 的消息数
+    private void countRemoteMessages(Vertex<LongWritable, FloatWritable, NullWritable> vertex) {
+        int myWorker = getMyWorkerIndex();
+        for (Edge<LongWritable, NullWritable> edge : vertex.getEdges()) {
+            if (getWorkerForVertex(edge.getTargetVertexId()) != myWorker) {
+                remoteMessages++;
+            }
+        }
+    }
+
+    // 线程内的 Kahan 补偿累加器
+    private static final class CompensatedSum {
+        private double sum;
+        private double compensation;
+
+        void add(double value) {
+            double y = value - compensation;
+            double t = sum + y;
+            compensation = (t - sum) - y;
+            sum = t;
+        }
+
+        double get() {
+            return sum;
+        }
+    }
+}
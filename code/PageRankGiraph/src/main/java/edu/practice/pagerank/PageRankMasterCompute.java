@@ -2,14 +2,22 @@ package edu.practice.pagerank;
 
 import org.apache.giraph.master.DefaultMasterCompute;
 import org.apache.giraph.aggregators.DoubleSumAggregator;
+import org.apache.giraph.aggregators.LongMaxAggregator;
+import org.apache.giraph.aggregators.LongSumAggregator;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BooleanWritable;
 import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class PageRankMasterCompute extends DefaultMasterCompute {
 
@@ -27,28 +35,192 @@ public class PageRankMasterCompute extends DefaultMasterCompute {
     public static final String CONF_TIMING_OUTPUT_PATH = "pagerank.timing.path";
     public static final String CONF_JOB_START_TIME = "pagerank.job.start.time";
 
+    // 分区均衡策略: hash（默认，按顶点哈希）或 edges（按边数在 Worker 间迁移分区）
+    public static final String CONF_PARTITION_BALANCE = "pagerank.partition.balance";
+    // edges 策略下每个 Worker 的分区数，分区越多迁移粒度越细
+    public static final String CONF_PARTITIONS_PER_WORKER = "pagerank.partition.perWorker";
+    public static final String CONF_BALANCE_OUTPUT_PATH = "pagerank.balance.path";
+    // 局部性分区映射文件（GraphPartitionTool 生成），设置后使用 AssignmentPartitionerFactory
+    public static final String CONF_PARTITION_ASSIGNMENT = "pagerank.partition.assignment";
+    // 是否统计跨 Worker 消息数（每条边多一次分区查找）
+    public static final String CONF_COUNT_REMOTE = "pagerank.partition.countRemote";
+    // Aitken 外推加速：调度与安全检查见 Extrapolation
+    public static final String CONF_EXTRAPOLATION = Extrapolation.CONF_ENABLED;
+    public static final String CONF_EXTRAPOLATION_PERIOD = Extrapolation.CONF_PERIOD;
+    public static final String CONF_CONVERGENCE_OUTPUT_PATH = "pagerank.convergence.path";
+    // 计算精度: double（默认）或 float（顶点值与消息为单精度，聚合器仍为 double 并使用 Kahan 补偿）
+    public static final String CONF_PRECISION = "pagerank.precision";
+    // float 模式下对照的 double 运行输出目录，设置后作业结束时报告排名一致性
+    public static final String CONF_PRECISION_REFERENCE = "pagerank.precision.reference";
+    public static final String CONF_AGREEMENT_TOP_K = "pagerank.precision.topK";
+    // 块模式：每个分区作为一个块，超步内在分区内部边上做 sweeps 遍 Gauss-Seidel，只交换边界贡献
+    public static final String CONF_BLOCK_ENABLED = "pagerank.block.enabled";
+    public static final String CONF_BLOCK_SWEEPS = "pagerank.block.sweeps";
+    // 单条消息的估算字节数：目标顶点 ID (long) + 消息值 (double / float)
+    public static final long MESSAGE_BYTES = 16;
+    public static final long FLOAT_MESSAGE_BYTES = 12;
+
+    // 每个 Worker 在一个超步内的负载（由 PageRankWorkerContext 上报）
+    public static final String AGG_WORKER_COUNT = "pagerank.agg.workerCount";
+    public static final String AGG_WORKER_VERTICES_MAX = "pagerank.agg.workerVerticesMax";
+    public static final String AGG_WORKER_VERTICES_SUM = "pagerank.agg.workerVerticesSum";
+    public static final String AGG_WORKER_EDGES_MAX = "pagerank.agg.workerEdgesMax";
+    public static final String AGG_WORKER_EDGES_SUM = "pagerank.agg.workerEdgesSum";
+    public static final String AGG_WORKER_MSG_SENT_MAX = "pagerank.agg.workerMsgSentMax";
+    public static final String AGG_WORKER_MSG_SENT_SUM = "pagerank.agg.workerMsgSentSum";
+    public static final String AGG_WORKER_MSG_RECV_MAX = "pagerank.agg.workerMsgRecvMax";
+    public static final String AGG_WORKER_MSG_RECV_SUM = "pagerank.agg.workerMsgRecvSum";
+    public static final String AGG_REMOTE_MESSAGES = "pagerank.agg.remoteMessages";
+    // 各 Worker 超步结束时的堆存活字节数（最大值），与 MemoryPlanner 的预测并列写入 _timings.csv
+    public static final String AGG_WORKER_HEAP_MAX = "pagerank.agg.workerHeapMax";
+    // 计算线程在超步内分配的字节数（仅开启 AllocationProbe 时统计）
+    public static final String AGG_ALLOCATED_BYTES = "pagerank.agg.allocatedBytes";
+    // 块模式下各块的内部边与边界边总数（Superstep 0 结束时上报一次）
+    public static final String AGG_BLOCK_INTERNAL_EDGES = "pagerank.agg.blockInternalEdges";
+    public static final String AGG_BLOCK_BOUNDARY_EDGES = "pagerank.agg.blockBoundaryEdges";
+    // 本超步实际被外推的顶点数
+    public static final String AGG_EXTRAPOLATED = "pagerank.agg.extrapolated";
+    // 外推超步中不外推时（普通幂迭代步）的 PR 总和，下一超步按它与外推后总和之比缩放
+    public static final String AGG_PLAIN_PR = "pagerank.agg.plainPR";
+    // 全图 Top-K（TopKStability 启用时由各计算线程上报）
+    public static final String AGG_TOP_K = "pagerank.agg.topK";
+    // 各 Worker 每个超步的明细（WorkerStatsWritable），以及度数最大的顶点（出度来自 Superstep 0，入度来自精确模式的 Superstep 1）
+    public static final String AGG_WORKER_STATS = "pagerank.agg.workerStats";
+    public static final String AGG_HOT_OUT_DEGREE = "pagerank.agg.hotOutDegree";
+    public static final String AGG_HOT_IN_DEGREE = "pagerank.agg.hotInDegree";
+    // 度数诊断列出的顶点数，0 为关闭
+    public static final String CONF_HOT_VERTICES = "pagerank.diagnostics.hotVertices";
+    public static final int DEFAULT_HOT_VERTICES = 20;
+    public static final String CONF_WORKERS_OUTPUT_PATH = "pagerank.workers.path";
+    public static final String CONF_HOT_VERTICES_OUTPUT_PATH = "pagerank.hotVertices.path";
+    public static final String CONF_SKEW_OUTPUT_PATH = "pagerank.skew.path";
+    // 运行时间线（Chrome trace JSON），见 TraceRecorder
+    public static final String CONF_TRACE_OUTPUT_PATH = "pagerank.trace.path";
+    // 客户端提交 Job 的时间，由 PageRankDriver 写入配置
+    public static final String CONF_TRACE_SUBMIT_TIME = "pagerank.trace.submitTime";
+    // 时间线中的三个进程：driver 为客户端（由 PageRankDriver 在 Job 结束后追加），
+    // master 为 Job 启动、各超步与结束写出，workers 每个 Worker 一行（计算 → 收尾 → 屏障等待）
+    public static final int TRACE_PID_MASTER = 2;
+    public static final int TRACE_PID_WORKERS = 3;
+    // 负载倾斜汇总的各项指标，顺序与 recordWorkerStats 的 imbalances 参数一致
+    private static final String[] SKEW_METRICS = {"Vertices", "Edges", "MsgSent", "MsgRecv", "Compute_ms"};
+    // Monte Carlo 模式（PageRankMonteCarloVertex）：本超步的访问次数与仍在游走的游走者数；
+    // 悬挂顶点上继续的游走者数复用 AGG_DANGLING_SUM
+    public static final String CONF_MONTE_CARLO = "pagerank.montecarlo.enabled";
+    public static final String AGG_MC_VISITS = "pagerank.agg.mcVisits";
+    public static final String AGG_MC_LIVE = "pagerank.agg.mcLive";
+    // Master 广播：每个顶点期望接收的重启游走者数；游走结束后的全图总访问次数（之前为 0）
+    public static final String BCAST_MC_RESTART = "pagerank.bcast.mcRestart";
+    public static final String BCAST_MC_TOTAL_VISITS = "pagerank.bcast.mcTotalVisits";
+    // Master 广播：块模式停止前的写回超步，块内顶点写回最后一次块内迭代的 PR，不再迭代
+    public static final String BCAST_BLOCK_FINALIZE = "pagerank.bcast.blockFinalize";
+    // Master 广播：本超步是否执行外推；顶点读入的 PR 与收到的贡献乘以的系数
+    // （上一超步外推后为 普通幂迭代步的 PR 总和 / 外推后的 PR 总和，其余为 1）。
+    // 没有入边的顶点在 Superstep 1 之后不再被唤醒，不计入 PR 总和，因此不按总和为 1 归一化
+    public static final String BCAST_EXTRAPOLATE = "pagerank.bcast.extrapolate";
+    public static final String BCAST_RANK_SCALE = "pagerank.bcast.rankScale";
+
     private List<String> timeRecords;
+    private List<String> balanceRecords;
     private long lastSuperstepTime;
+    private List<String> convergenceRecords;
+    // 未启用外推时为 null
+    private Extrapolation extrapolation;
+    private long lastExtrapolated = -1;
+    private long firstBelowThreshold = -1;
+    private long peakWorkerHeap;
+    private TopKStability topKStability;
+    private int topKSavedSupersteps = -1;
+    private long mcTotalVisits;
+    private long mcFinalizeSuperstep = -1;
+    private long blockFinalizeSuperstep = -1;
+    // 负载倾斜诊断
+    private List<String> workerRecords;
+    private TopKRanksWritable hotOutDegrees;
+    private TopKRanksWritable hotInDegrees;
+    private final double[] imbalanceSum = new double[SKEW_METRICS.length];
+    private final double[] imbalanceWorst = new double[SKEW_METRICS.length];
+    private final long[] imbalanceWorstSuperstep = new long[SKEW_METRICS.length];
+    private int imbalanceSamples;
+    private final Map<Integer, Integer> stragglerCounts = new TreeMap<>();
+    private long totalBusyMs;
+    private long totalWaitMs;
+    // 运行时间线，未开启时为 null
+    private TraceRecorder trace;
+    private long initializeTime;
+
+    public static boolean isFloatPrecision(Configuration conf) {
+        return "float".equalsIgnoreCase(conf.get(CONF_PRECISION, "double"));
+    }
 
     @Override
     public void initialize() throws InstantiationException, IllegalAccessException {
-        registerAggregator(AGG_PR_DIFF_SUM, DoubleSumAggregator.class);
-        registerAggregator(AGG_DANGLING_SUM, DoubleSumAggregator.class);
+        // 单精度模式下每个顶点上报的值精度较低，全图求和使用补偿求和限制漂移
+        Class<? extends DoubleSumAggregator> sumAggregator =
+                isFloatPrecision(getConf()) ? KahanSumAggregator.class : DoubleSumAggregator.class;
+        registerAggregator(AGG_PR_DIFF_SUM, sumAggregator);
+        registerAggregator(AGG_DANGLING_SUM, sumAggregator);
 
         // 注册 Total PR 聚合器
-        registerAggregator(AGG_TOTAL_PR, DoubleSumAggregator.class);
+        registerAggregator(AGG_TOTAL_PR, sumAggregator);
 
         // 初始化聚合器
         setAggregatedValue(AGG_PR_DIFF_SUM, new DoubleWritable(0.0));
         setAggregatedValue(AGG_DANGLING_SUM, new DoubleWritable(0.0));
         // 注意：TotalPR 不需要手动 set 0，DoubleSum 默认就是 0，但显式设置也没问题
 
+        // 注册 Worker 负载聚合器
+        registerAggregator(AGG_WORKER_COUNT, LongSumAggregator.class);
+        registerAggregator(AGG_WORKER_VERTICES_MAX, LongMaxAggregator.class);
+        registerAggregator(AGG_WORKER_VERTICES_SUM, LongSumAggregator.class);
+        registerAggregator(AGG_WORKER_EDGES_MAX, LongMaxAggregator.class);
+        registerAggregator(AGG_WORKER_EDGES_SUM, LongSumAggregator.class);
+        registerAggregator(AGG_WORKER_MSG_SENT_MAX, LongMaxAggregator.class);
+        registerAggregator(AGG_WORKER_MSG_SENT_SUM, LongSumAggregator.class);
+        registerAggregator(AGG_WORKER_MSG_RECV_MAX, LongMaxAggregator.class);
+        registerAggregator(AGG_WORKER_MSG_RECV_SUM, LongSumAggregator.class);
+        registerAggregator(AGG_REMOTE_MESSAGES, LongSumAggregator.class);
+        registerAggregator(AGG_ALLOCATED_BYTES, LongSumAggregator.class);
+        registerAggregator(AGG_WORKER_HEAP_MAX, LongMaxAggregator.class);
+        registerAggregator(AGG_EXTRAPOLATED, LongSumAggregator.class);
+        registerAggregator(AGG_PLAIN_PR, sumAggregator);
+        registerAggregator(AGG_BLOCK_INTERNAL_EDGES, LongSumAggregator.class);
+        registerAggregator(AGG_BLOCK_BOUNDARY_EDGES, LongSumAggregator.class);
+        registerAggregator(AGG_MC_VISITS, LongSumAggregator.class);
+        registerAggregator(AGG_MC_LIVE, LongSumAggregator.class);
+        registerAggregator(AGG_WORKER_STATS, WorkerStatsAggregator.class);
+        registerAggregator(AGG_HOT_OUT_DEGREE, TopKRanksAggregator.class);
+        registerAggregator(AGG_HOT_IN_DEGREE, TopKRanksAggregator.class);
+        if (Extrapolation.isEnabled(getConf())) {
+            // 最后一个执行计算的超步为 maxIter - 1（第 maxIter 个超步开始时 Master 停止）
+            extrapolation = new Extrapolation(getConf(), getConf().getInt(CONF_MAX_ITER, 10) - 1);
+        }
+        if (TopKStability.isEnabled(getConf())) {
+            registerAggregator(AGG_TOP_K, TopKRanksAggregator.class);
+            topKStability = new TopKStability(getConf(), "个超步");
+        }
+
         timeRecords = new ArrayList<>();
+        balanceRecords = new ArrayList<>();
+        workerRecords = new ArrayList<>();
+        convergenceRecords = new ArrayList<>();
         lastSuperstepTime = System.currentTimeMillis();
 
         long jobStartTime = getConf().getLong(CONF_JOB_START_TIME, lastSuperstepTime);
         long setupTime = lastSuperstepTime - jobStartTime;
         timeRecords.add("Setup," + setupTime);
+
+        if (TraceRecorder.isEnabled(getConf()) && getConf().get(CONF_TRACE_OUTPUT_PATH) != null) {
+            // 时间戳统一以客户端启动时间为零点；各节点时钟与客户端存在偏差时，master / workers 的区间会整体错位
+            trace = new TraceRecorder(jobStartTime);
+            trace.processName(TraceRecorder.PID_DRIVER, "driver");
+            trace.processName(TRACE_PID_MASTER, "master");
+            trace.processName(TRACE_PID_WORKERS, "workers");
+            initializeTime = lastSuperstepTime;
+            // 客户端提交 Job 到 Master 初始化完成：容器申请、ZooKeeper 与 Master 启动
+            long submitTime = getConf().getLong(CONF_TRACE_SUBMIT_TIME, -1);
+            trace.span("Job Launch", "setup", TRACE_PID_MASTER, 1, submitTime, lastSuperstepTime, null);
+        }
     }
 
     @Override
@@ -76,6 +248,52 @@ public class PageRankMasterCompute extends DefaultMasterCompute {
         // 计算平均误差
         double avgDiff = diffSum / totalVertices;
 
+        if (trace != null && getSuperstep() == 0) {
+            // Master 初始化完成到 Superstep 0 开始：各 Worker 读入输入分片、建立分区
+            trace.span("Load Input", "input", TRACE_PID_MASTER, 1, initializeTime, currentTime, null);
+        } else if (trace != null) {
+            Map<String, Object> args = new LinkedHashMap<>();
+            if (getSuperstep() > 1) args.put("avgDiff", avgDiff);
+            args.put("danglingSum", danglingSum);
+            trace.span("Superstep " + (getSuperstep() - 1), "superstep", TRACE_PID_MASTER, 1,
+                    currentTime - duration, currentTime, args);
+        }
+
+        // 上一超步各 Worker 的负载不均衡度（最大值 / 平均值）
+        if (getSuperstep() > 0) {
+            recordWorkerBalance(getSuperstep() - 1, duration);
+            recordHotVertices(getSuperstep() - 1);
+            peakWorkerHeap = Math.max(peakWorkerHeap, ((LongWritable) getAggregatedValue(AGG_WORKER_HEAP_MAX)).get());
+        }
+        if (getConf().getBoolean(CONF_MONTE_CARLO, false)) {
+            computeMonteCarlo(maxIter, totalVertices, danglingSum, duration);
+            return;
+        }
+        // 块模式写回超步已完成，顶点值为最后一次块内迭代的结果
+        if (blockFinalizeSuperstep >= 0) {
+            System.out.printf(">>> 块模式: 已写回 Superstep %d 的块内迭代结果\n", blockFinalizeSuperstep - 1);
+            haltComputation();
+            writeOutputs();
+            return;
+        }
+        // 块模式：内部边在块内迭代中传播，只有边界边需要消息
+        if (getSuperstep() == 1 && getConf().getBoolean(CONF_BLOCK_ENABLED, false)) {
+            long internal = ((LongWritable) getAggregatedValue(AGG_BLOCK_INTERNAL_EDGES)).get();
+            long boundary = ((LongWritable) getAggregatedValue(AGG_BLOCK_BOUNDARY_EDGES)).get();
+            long total = internal + boundary;
+            System.out.printf(">>> 块模式: 内部边 %d, 边界边 %d (边界占比 %.4f), 每超步块内迭代 %d 遍\n",
+                    internal, boundary, total > 0 ? (double) boundary / total : 0.0,
+                    Math.max(1, getConf().getInt(CONF_BLOCK_SWEEPS, 3)));
+        }
+        // 上一超步的残差（Superstep 0 只做初始化，没有残差）
+        boolean topKStable = false;
+        if (getSuperstep() > 1) {
+            recordConvergence(getSuperstep() - 1, avgDiff, threshold);
+            if (topKStability != null) {
+                topKStable = topKStability.observe(((TopKRanksWritable) getAggregatedValue(AGG_TOP_K)).rankedIds(), avgDiff);
+            }
+        }
+
         // ============================================================
         // 打印详细监控日志 (Standard Output)
         // 这些日志会出现在 YARN Container 的 stdout 中
@@ -91,6 +309,9 @@ public class PageRankMasterCompute extends DefaultMasterCompute {
             System.out.printf(">>> 全图 PR 总和 (Total PR): %.6f (理论值应接近 %.1f)\n", totalPR, 1.0); // 假设是Sum-to-1模型
             System.out.printf(">>> 悬挂能量 (Dangling Sum): %.6f\n", danglingSum);
 
+            if (topKStability != null && getSuperstep() > 1) {
+                System.out.printf(">>> %s\n", topKStability.describeLast());
+            }
             if (avgDiff <= threshold) {
                 System.out.printf(">>> [状态]：已收敛 (Converged)！\n");
             } else {
@@ -104,9 +325,15 @@ public class PageRankMasterCompute extends DefaultMasterCompute {
 
         // 2. 收敛逻辑判断 (从第2轮开始判断第1轮的结果)
         boolean shouldHalt = false;
-        if (getSuperstep() >= minIter) {
+        // 上一超步执行过外推时顶点值尚未归一化，不在此停止
+        if (getSuperstep() >= minIter && lastExtrapolated != getSuperstep() - 1) {
             if (avgDiff <= threshold) {
                 shouldHalt = true;
+            } else if (topKStable) {
+                // Top-K 排名已连续稳定，不再等待长尾收敛
+                System.out.printf(">>> [状态]：Top-K 排名已连续稳定，提前停止\n");
+                topKStability.markStopped((int) getSuperstep());
+                shouldHalt = true;
             }
         }
 
@@ -117,8 +344,346 @@ public class PageRankMasterCompute extends DefaultMasterCompute {
 
         // 3. 停止与写入
         if (shouldHalt) {
+            System.out.printf(">>> 平均误差首次低于阈值的超步: %s (外推: %s)\n",
+                    firstBelowThreshold >= 0 ? String.valueOf(firstBelowThreshold) : "未达到",
+                    getConf().getBoolean(CONF_EXTRAPOLATION, false) ? "on" : "off");
+            if (topKStability != null) {
+                // 残差判据在平均误差低于阈值后的下一个超步停止
+                int diffStop = firstBelowThreshold >= 0 ? (int) firstBelowThreshold + 1 : -1;
+                topKSavedSupersteps = topKStability.savedIterations(diffStop, threshold, minIter, maxIter);
+                System.out.printf(">>> Top-K 稳定性判据: %s\n", topKStability.describe(diffStop, threshold, minIter, maxIter));
+            }
+            if (getConf().getBoolean(CONF_BLOCK_ENABLED, false)) {
+                // 块内顶点的值在 sweep 之前写回，比上一超步报告的残差落后一次块内迭代：再执行一个写回超步
+                blockFinalizeSuperstep = getSuperstep();
+                broadcast(BCAST_BLOCK_FINALIZE, new BooleanWritable(true));
+            } else {
+                haltComputation();
+                writeOutputs();
+            }
+        } else if (extrapolation != null) {
+            double plainPR = ((DoubleWritable) getAggregatedValue(AGG_PLAIN_PR)).get();
+            double rankScale = lastExtrapolated == getSuperstep() - 1 && totalPR > 0 ? plainPR / totalPR : 1.0;
+            broadcast(BCAST_RANK_SCALE, new DoubleWritable(rankScale));
+            boolean apply = extrapolation.shouldApply((int) getSuperstep());
+            if (apply) {
+                lastExtrapolated = getSuperstep();
+            }
+            broadcast(BCAST_EXTRAPOLATE, new BooleanWritable(apply));
+        }
+    }
+
+    private void writeOutputs() {
+        writeTimingsToHDFS();
+        writeBalanceToHDFS();
+        writeSkewDiagnostics();
+        writeConvergenceToHDFS("Superstep,AvgDiff,Extrapolated,ExtrapolatedVertices,BelowThreshold");
+        writeTrace();
+    }
+
+    /**
+     * Monte Carlo 模式的超步控制：累计访问次数，把悬挂顶点上继续的游走者均匀分给下一超步的各顶点；
+     * 游走者全部结束或达到最大超步数时广播总访问次数，各顶点在下一个超步写回估计值，之后停止。
+     */
+    private void computeMonteCarlo(int maxRounds, long totalVertices, double danglingWalkers, long duration) {
+        long live = 0;
+        if (getSuperstep() > 0) {
+            long visits = ((LongWritable) getAggregatedValue(AGG_MC_VISITS)).get();
+            live = ((LongWritable) getAggregatedValue(AGG_MC_LIVE)).get();
+            mcTotalVisits += visits;
+            convergenceRecords.add(String.format("%d,%d,%d,%d", getSuperstep() - 1, visits, live, (long) danglingWalkers));
+            System.out.printf(">>> Monte Carlo Superstep %d: 耗时 %d ms, 访问 %d, 仍在游走 %d (悬挂重启 %d), 累计访问 %d\n",
+                    getSuperstep() - 1, duration, visits, live, (long) danglingWalkers, mcTotalVisits);
+        }
+
+        if (mcFinalizeSuperstep >= 0) {
             haltComputation();
             writeTimingsToHDFS();
+            writeBalanceToHDFS();
+            writeSkewDiagnostics();
+            writeConvergenceToHDFS("Superstep,Visits,LiveWalkers,DanglingRestarts");
+            writeTrace();
+            return;
+        }
+
+        boolean finished = getSuperstep() > 0 && live == 0;
+        if (finished || getSuperstep() >= maxRounds) {
+            mcFinalizeSuperstep = getSuperstep();
+            if (!finished) {
+                System.out.printf(">>> 达到最大超步数 %d，丢弃仍在游走的 %d 个游走者\n", maxRounds, live);
+            }
+            System.out.printf(">>> 游走结束于 Superstep %d，总访问次数 %d，写回估计值\n", getSuperstep() - 1, mcTotalVisits);
+            broadcast(BCAST_MC_TOTAL_VISITS, new LongWritable(Math.max(1, mcTotalVisits)));
+            broadcast(BCAST_MC_RESTART, new DoubleWritable(0.0));
+        } else {
+            broadcast(BCAST_MC_TOTAL_VISITS, new LongWritable(0));
+            broadcast(BCAST_MC_RESTART, new DoubleWritable(danglingWalkers / totalVertices));
+        }
+    }
+
+    /**
+     * 记录一个超步的残差，外推启用时交给 Extrapolation 做安全检查。
+     */
+    private void recordConvergence(long superstep, double avgDiff, double threshold) {
+        boolean extrapolated = superstep == lastExtrapolated;
+        long extrapolatedVertices = ((LongWritable) getAggregatedValue(AGG_EXTRAPOLATED)).get();
+        if (firstBelowThreshold < 0 && avgDiff <= threshold) {
+            firstBelowThreshold = superstep;
+        }
+        if (extrapolation != null) {
+            extrapolation.onIterationFinished((int) superstep, avgDiff, extrapolated);
+        }
+        if (extrapolated) {
+            System.out.printf(">>> Superstep %d 已执行 Aitken 外推，外推顶点数: %d，下一超步缩放回外推前的 PR 总和\n", superstep, extrapolatedVertices);
+        }
+        convergenceRecords.add(String.format("%d,%.12e,%d,%d,%d", superstep, avgDiff,
+                extrapolated ? 1 : 0, extrapolatedVertices, avgDiff <= threshold ? 1 : 0));
+    }
+
+    private void writeConvergenceToHDFS(String header) {
+        String outputPath = getConf().get(CONF_CONVERGENCE_OUTPUT_PATH);
+        if (outputPath == null || convergenceRecords.isEmpty()) return;
+        try {
+            FileSystem fs = FileSystem.get(getConf());
+            Path path = new Path(outputPath);
+            FSDataOutputStream out = fs.create(path, true);
+            out.writeBytes(header + "\n");
+            for (String record : convergenceRecords) {
+                out.writeBytes(record + "\n");
+            }
+            out.close();
+            System.out.printf("收敛统计文件已写入: " + outputPath + "\n");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void recordWorkerBalance(long superstep, long duration) {
+        long workers = ((LongWritable) getAggregatedValue(AGG_WORKER_COUNT)).get();
+        if (workers <= 0) return;
+        long verticesMax = ((LongWritable) getAggregatedValue(AGG_WORKER_VERTICES_MAX)).get();
+        long verticesSum = ((LongWritable) getAggregatedValue(AGG_WORKER_VERTICES_SUM)).get();
+        long edgesMax = ((LongWritable) getAggregatedValue(AGG_WORKER_EDGES_MAX)).get();
+        long edgesSum = ((LongWritable) getAggregatedValue(AGG_WORKER_EDGES_SUM)).get();
+        long sentMax = ((LongWritable) getAggregatedValue(AGG_WORKER_MSG_SENT_MAX)).get();
+        long sentSum = ((LongWritable) getAggregatedValue(AGG_WORKER_MSG_SENT_SUM)).get();
+        long recvMax = ((LongWritable) getAggregatedValue(AGG_WORKER_MSG_RECV_MAX)).get();
+        long recvSum = ((LongWritable) getAggregatedValue(AGG_WORKER_MSG_RECV_SUM)).get();
+
+        double vertexImbalance = imbalance(verticesMax, verticesSum, workers);
+        double edgeImbalance = imbalance(edgesMax, edgesSum, workers);
+        double sentImbalance = imbalance(sentMax, sentSum, workers);
+        double recvImbalance = imbalance(recvMax, recvSum, workers);
+
+        // 跨 Worker 消息（未开启统计时为 -1）
+        long remote = getConf().getBoolean(CONF_COUNT_REMOTE, false)
+                ? ((LongWritable) getAggregatedValue(AGG_REMOTE_MESSAGES)).get() : -1;
+        double remoteRatio = (remote >= 0 && sentSum > 0) ? (double) remote / sentSum : -1;
+        long remoteBytes = remote >= 0 ? remote * (isFloatPrecision(getConf()) ? FLOAT_MESSAGE_BYTES : MESSAGE_BYTES) : -1;
+
+        // 计算线程每处理一个顶点分配的字节数（未开启统计时为 -1）
+        long allocated = getConf().getBoolean(AllocationProbe.CONF_MEASURE, false)
+                ? ((LongWritable) getAggregatedValue(AGG_ALLOCATED_BYTES)).get() : -1;
+        double allocatedPerVertex = (allocated >= 0 && verticesSum > 0) ? (double) allocated / verticesSum : -1;
+
+        System.out.printf(">>> Worker 负载不均衡度 (max/mean, %d workers): 顶点 %.3f, 边 %.3f, 发送消息 %.3f, 接收消息 %.3f\n",
+                workers, vertexImbalance, edgeImbalance, sentImbalance, recvImbalance);
+        if (remote >= 0) {
+            System.out.printf(">>> 跨 Worker 消息: %d (占比 %.4f, 估算网络字节 %d)\n", remote, remoteRatio, remoteBytes);
+        }
+        if (allocated >= 0) {
+            System.out.printf(">>> 计算线程分配: %d 字节 (每顶点 %.2f 字节)\n", allocated, allocatedPerVertex);
+        }
+        String stragglerColumns = recordWorkerStats(superstep, duration,
+                new double[] {vertexImbalance, edgeImbalance, sentImbalance, recvImbalance});
+        balanceRecords.add(String.format("%d,%d,%d,%d,%.4f,%d,%d,%.4f,%d,%d,%.4f,%d,%d,%.4f,%d,%.4f,%d,%d,%.2f,%s",
+                superstep, workers,
+                verticesMax, verticesSum, vertexImbalance,
+                edgesMax, edgesSum, edgeImbalance,
+                sentMax, sentSum, sentImbalance,
+                recvMax, recvSum, recvImbalance,
+                remote, remoteRatio, remoteBytes, allocated, allocatedPerVertex, stragglerColumns));
+    }
+
+    /**
+     * 各 Worker 的明细：忙碌时间（计算 + 收尾）最长的 Worker 决定超步耗时，其余 Worker 在屏障处等待它，
+     * 等待时间 = 最慢 Worker 的忙碌时间 - 自身忙碌时间；超步耗时中超出最慢 Worker 的部分是屏障同步、
+     * 聚合器汇总与 Master 计算的开销。imbalances 为顶点 / 边 / 发送 / 接收的 max/mean，
+     * 返回追加到 _balance.csv 的列。
+     */
+    private String recordWorkerStats(long superstep, long duration, double[] imbalances) {
+        List<WorkerStatsWritable.Row> rows = ((WorkerStatsWritable) getAggregatedValue(AGG_WORKER_STATS)).sortedRows();
+        if (rows.isEmpty()) return "-1,-1,-1,-1,-1";
+        WorkerStatsWritable.Row straggler = rows.get(0);
+        long computeMax = 0;
+        long computeSum = 0;
+        for (WorkerStatsWritable.Row row : rows) {
+            if (row.busyMs() > straggler.busyMs()) straggler = row;
+            computeMax = Math.max(computeMax, row.computeMs);
+            computeSum += row.computeMs;
+        }
+        long waitSum = 0;
+        for (WorkerStatsWritable.Row row : rows) {
+            long wait = straggler.busyMs() - row.busyMs();
+            waitSum += wait;
+            totalBusyMs += row.busyMs();
+            workerRecords.add(String.format("%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d",
+                    superstep, row.worker, row.vertices, row.edges, row.messagesSent, row.messagesReceived,
+                    row.computeMs, row.flushMs, wait, row.maxDegreeVertex, row.maxDegree));
+            if (trace != null) {
+                traceWorker(superstep, row, wait);
+            }
+        }
+        totalWaitMs += waitSum;
+        double computeImbalance = imbalance(computeMax, computeSum, rows.size());
+        long overhead = Math.max(0, duration - straggler.busyMs());
+
+        // 累计各指标的不均衡度，作业结束时汇总
+        for (int i = 0; i < SKEW_METRICS.length; i++) {
+            double value = i < imbalances.length ? imbalances[i] : computeImbalance;
+            imbalanceSum[i] += value;
+            if (value > imbalanceWorst[i]) {
+                imbalanceWorst[i] = value;
+                imbalanceWorstSuperstep[i] = superstep;
+            }
+        }
+        imbalanceSamples++;
+        stragglerCounts.merge(straggler.worker, 1, Integer::sum);
+
+        System.out.printf(">>> 最慢 Worker: %d (计算 %d ms + 收尾 %d ms, 顶点 %d, 边 %d, 接收消息 %d), 计算时间不均衡度 %.3f, "
+                        + "其余 Worker 屏障等待合计 %d ms, 同步开销 %d ms\n",
+                straggler.worker, straggler.computeMs, straggler.flushMs, straggler.vertices, straggler.edges,
+                straggler.messagesReceived, computeImbalance, waitSum, overhead);
+        return String.format("%d,%.4f,%d,%d,%d", computeMax, computeImbalance, straggler.worker, waitSum, overhead);
+    }
+
+    // 一个 Worker 在一个超步中的时间线：计算 → 收尾 → 屏障等待，嵌套在该超步的区间内
+    private void traceWorker(long superstep, WorkerStatsWritable.Row row, long wait) {
+        int tid = row.worker + 1;
+        long computeEnd = row.startMs + row.computeMs;
+        long busyEnd = computeEnd + row.flushMs;
+        Map<String, Object> args = new LinkedHashMap<>();
+        args.put("vertices", row.vertices);
+        args.put("edges", row.edges);
+        args.put("messagesSent", row.messagesSent);
+        args.put("messagesReceived", row.messagesReceived);
+        trace.threadName(TRACE_PID_WORKERS, tid, "worker " + row.worker);
+        trace.span("Superstep " + superstep, "superstep", TRACE_PID_WORKERS, tid, row.startMs, busyEnd + wait, args);
+        trace.span("compute", "compute", TRACE_PID_WORKERS, tid, row.startMs, computeEnd, null);
+        trace.span("flush", "flush", TRACE_PID_WORKERS, tid, computeEnd, busyEnd, null);
+        if (wait > 0) {
+            trace.span("barrier wait", "wait", TRACE_PID_WORKERS, tid, busyEnd, busyEnd + wait, null);
+        }
+    }
+
+    // 度数最大的顶点：出度列表由 Superstep 0 聚合，入度列表由 Superstep 1 聚合（只有精确模式上报）
+    private void recordHotVertices(long superstep) {
+        if (superstep > 1) return;
+        TopKRanksWritable hot = (TopKRanksWritable) getAggregatedValue(superstep == 0 ? AGG_HOT_OUT_DEGREE : AGG_HOT_IN_DEGREE);
+        if (hot == null || hot.size() == 0) return;
+        if (superstep == 0) {
+            hotOutDegrees = hot;
+        } else {
+            hotInDegrees = hot;
+        }
+        List<Long> ids = hot.rankedIds();
+        double[] degrees = hot.rankedValues();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Math.min(5, ids.size()); i++) {
+            sb.append(String.format(" %d(%d, %.2f%%)", ids.get(i), (long) degrees[i], 100.0 * degrees[i] / Math.max(1, getTotalNumEdges())));
+        }
+        System.out.printf(">>> %s度最大的顶点 (度数, 占总边数):%s\n", superstep == 0 ? "出" : "入", sb);
+    }
+
+    // 作业结束时的负载倾斜汇总与明细文件
+    private void writeSkewDiagnostics() {
+        if (imbalanceSamples > 0) {
+            List<String> summary = new ArrayList<>();
+            System.out.printf(">>> 负载倾斜汇总 (%d 个超步, max/mean):\n", imbalanceSamples);
+            for (int i = 0; i < SKEW_METRICS.length; i++) {
+                double mean = imbalanceSum[i] / imbalanceSamples;
+                System.out.printf(">>>   %-10s 平均 %.3f, 最差 %.3f (Superstep %d)\n",
+                        SKEW_METRICS[i], mean, imbalanceWorst[i], imbalanceWorstSuperstep[i]);
+                summary.add(String.format("%s,%.4f,%.4f,%d", SKEW_METRICS[i], mean, imbalanceWorst[i], imbalanceWorstSuperstep[i]));
+            }
+            Map.Entry<Integer, Integer> top = null;
+            for (Map.Entry<Integer, Integer> entry : stragglerCounts.entrySet()) {
+                if (top == null || entry.getValue() > top.getValue()) top = entry;
+            }
+            System.out.printf(">>>   最常成为最慢的 Worker: %d (%d/%d 个超步), 屏障等待占 Worker 时间 %.1f%%\n",
+                    top.getKey(), top.getValue(), imbalanceSamples,
+                    100.0 * totalWaitMs / Math.max(1, totalBusyMs + totalWaitMs));
+            writeLines(getConf().get(CONF_SKEW_OUTPUT_PATH), "Metric,Mean_imbalance,Worst_imbalance,Worst_superstep", summary);
+        }
+        writeLines(getConf().get(CONF_WORKERS_OUTPUT_PATH),
+                "Superstep,Worker,Vertices,Edges,MsgSent,MsgRecv,Compute_ms,Flush_ms,Wait_ms,MaxDegree_vertex,MaxDegree", workerRecords);
+
+        List<String> hotRecords = new ArrayList<>();
+        addHotRecords(hotRecords, "out", hotOutDegrees);
+        addHotRecords(hotRecords, "in", hotInDegrees);
+        writeLines(getConf().get(CONF_HOT_VERTICES_OUTPUT_PATH), "Direction,Rank,Vertex,Degree,Edge_share", hotRecords);
+    }
+
+    private void addHotRecords(List<String> records, String direction, TopKRanksWritable hot) {
+        if (hot == null) return;
+        List<Long> ids = hot.rankedIds();
+        double[] degrees = hot.rankedValues();
+        for (int i = 0; i < ids.size(); i++) {
+            records.add(String.format("%s,%d,%d,%d,%.6f", direction, i + 1, ids.get(i), (long) degrees[i],
+                    degrees[i] / Math.max(1, getTotalNumEdges())));
+        }
+    }
+
+    private void writeLines(String outputPath, String header, List<String> records) {
+        if (outputPath == null || records.isEmpty()) return;
+        try {
+            FileSystem fs = FileSystem.get(getConf());
+            FSDataOutputStream out = fs.create(new Path(outputPath), true);
+            out.writeBytes(header + "\n");
+            for (String record : records) {
+                out.writeBytes(record + "\n");
+            }
+            out.close();
+            System.out.printf("负载倾斜诊断文件已写入: " + outputPath + "\n");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static double imbalance(long max, long sum, long workers) {
+        if (sum <= 0) return 1.0;
+        return max / ((double) sum / workers);
+    }
+
+    private void writeBalanceToHDFS() {
+        String outputPath = getConf().get(CONF_BALANCE_OUTPUT_PATH);
+        if (outputPath == null || balanceRecords.isEmpty()) return;
+        try {
+            FileSystem fs = FileSystem.get(getConf());
+            Path path = new Path(outputPath);
+            FSDataOutputStream out = fs.create(path, true);
+            out.writeBytes("Superstep,Workers,Vertices_max,Vertices_sum,Vertices_imbalance,"
+                    + "Edges_max,Edges_sum,Edges_imbalance,MsgSent_max,MsgSent_sum,MsgSent_imbalance,"
+                    + "MsgRecv_max,MsgRecv_sum,MsgRecv_imbalance,MsgRemote,MsgRemote_ratio,MsgRemote_bytes_est,Alloc_bytes,Alloc_bytes_per_vertex,"
+                    + "Compute_max_ms,Compute_imbalance,Straggler_worker,Wait_ms_sum,Sync_overhead_ms\n");
+            for (String record : balanceRecords) {
+                out.writeBytes(record + "\n");
+            }
+            out.close();
+            System.out.printf("负载均衡统计文件已写入: " + outputPath + "\n");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // 停止时写出 master 与 workers 的时间线，driver 的区间由 PageRankDriver 在 Job 结束后追加
+    private void writeTrace() {
+        if (trace == null) return;
+        trace.span("Cleanup_And_Write", "cleanup", TRACE_PID_MASTER, 1, lastSuperstepTime, System.currentTimeMillis(), null);
+        try {
+            trace.save(getConf(), new Path(getConf().get(CONF_TRACE_OUTPUT_PATH)));
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
@@ -135,6 +700,17 @@ public class PageRankMasterCompute extends DefaultMasterCompute {
             }
             long closingTime = System.currentTimeMillis();
             out.writeBytes("Cleanup_And_Write," + (closingTime - lastSuperstepTime) + "\n");
+            // 单个 Worker 的内存：运行前预测与实测峰值并列（MB），未做预测时为 -1
+            long predicted = getConf().getLong(MemoryPlanner.CONF_PREDICTED_BYTES, -1);
+            out.writeBytes("Memory_Predicted_Worker_MB," + (predicted >= 0 ? predicted >> 20 : -1) + "\n");
+            out.writeBytes("Memory_Observed_Worker_MB," + (peakWorkerHeap >> 20) + "\n");
+            // 图规模，供 PageRankLauncher 按历史运行校准代价模型
+            out.writeBytes("Graph_Vertices," + getTotalNumVertices() + "\n");
+            out.writeBytes("Graph_Edges," + getTotalNumEdges() + "\n");
+            if (topKStability != null) {
+                // Top-K 稳定性判据相对残差判据节省的超步数（未提前停止或无法估计时为 -1）
+                out.writeBytes("TopK_Saved_Supersteps," + topKSavedSupersteps + "\n");
+            }
             out.close();
             System.out.printf("统计文件已写入: " + outputPath+ "\n");
         } catch (IOException e) {
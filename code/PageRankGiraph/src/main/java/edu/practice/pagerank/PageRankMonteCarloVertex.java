@@ -0,0 +1,225 @@
+package edu.practice.pagerank;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import org.apache.giraph.bsp.CentralizedServiceWorker;
+import org.apache.giraph.combiner.SumMessageCombiner;
+import org.apache.giraph.comm.WorkerClientRequestProcessor;
+import org.apache.giraph.edge.Edge;
+import org.apache.giraph.graph.BasicComputation;
+import org.apache.giraph.graph.GraphState;
+import org.apache.giraph.graph.Vertex;
+import org.apache.giraph.types.ops.LongTypeOps;
+import org.apache.giraph.worker.WorkerGlobalCommUsage;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Monte Carlo PageRank：每个顶点出发 R 个随机游走者，每一步以 1 - damping 的概率结束，
+ * 悬挂顶点上继续的游走者均匀跳到全图任意顶点；顶点的 PR 估计为 访问次数 / 全图总访问次数。
+ *
+ * 消息是游走者计数（LongWritable，WalkerCountCombiner 求和；大图上一个目标收到的游走者数可能超出 int），只有跨分区的一步需要消息：
+ * 每个分区的游走状态保存在 Worker 上的 RandomWalkBlock 中，分区内最后一个顶点处理完时在块内连续走
+ * pagerank.montecarlo.stepsPerRound 步，因此所需的全局超步数远少于游走长度。
+ * 游走者全部结束（或达到最大超步数）后，Master 广播总访问次数，最后一个超步各顶点写回估计值。
+ *
+ * 输入中不存在、由消息创建的顶点不属于任何块，顶点值暂存访问次数，逐步单独处理；
+ * 它们的随机数按 (种子, 超步, 顶点 ID) 重新播种，与顶点被哪个计算线程处理无关，固定种子的运行可以复现。
+ */
+public class PageRankMonteCarloVertex extends BasicComputation<LongWritable, DoubleWritable, NullWritable, LongWritable> {
+
+    // 每个顶点出发的游走者数 R
+    public static final String CONF_WALKS = "pagerank.montecarlo.walks";
+    public static final int DEFAULT_WALKS = 16;
+    // 每个超步在块内连续走的步数
+    public static final String CONF_STEPS_PER_ROUND = "pagerank.montecarlo.stepsPerRound";
+    public static final int DEFAULT_STEPS_PER_ROUND = 8;
+    public static final String CONF_SEED = "pagerank.montecarlo.seed";
+
+    /**
+     * 游走者计数的 Combiner（setMessageCombinerClass 需要无参构造）。
+     */
+    public static class WalkerCountCombiner extends SumMessageCombiner<LongWritable> {
+        public WalkerCountCombiner() {
+            super(LongTypeOps.INSTANCE);
+        }
+    }
+
+    private CentralizedServiceWorker<LongWritable, DoubleWritable, NullWritable> serviceWorker;
+
+    // 超步常量
+    private double damping;
+    private int walks;
+    private int steps;
+    private double restartPerVertex;
+    private double totalVisits;
+    private long seed;
+    // 块外顶点的随机数（每个计算线程一个，处理每个顶点前重新播种）
+    private final Random random = new Random();
+    private PageRankWorkerContext workerContext;
+    // 度数诊断：Superstep 0 按出度收集度数最大的顶点，其余超步为 null
+    private TopKRanksWritable outDegrees;
+
+    // 线程内累加，postSuperstep 时一次性聚合
+    private long visits;
+    private long liveWalkers;
+    private long danglingWalkers;
+    private double totalPR;
+    private long vertices;
+    private long edges;
+    private long messagesSent;
+    private long messagesReceived;
+
+    // 复用的消息与目标 ID 对象（发送时即被序列化）
+    private final LongWritable message = new LongWritable();
+    private final LongWritable targetId = new LongWritable();
+
+    @Override
+    public void initialize(GraphState graphState,
+                           WorkerClientRequestProcessor<LongWritable, DoubleWritable, NullWritable> workerClientRequestProcessor,
+                           CentralizedServiceWorker<LongWritable, DoubleWritable, NullWritable> serviceWorker,
+                           WorkerGlobalCommUsage workerGlobalCommUsage) {
+        super.initialize(graphState, workerClientRequestProcessor, serviceWorker, workerGlobalCommUsage);
+        this.serviceWorker = serviceWorker;
+    }
+
+    @Override
+    public void preSuperstep() {
+        damping = getConf().getDouble(PageRankMasterCompute.CONF_DAMPING, 0.85);
+        walks = Math.max(1, getConf().getInt(CONF_WALKS, DEFAULT_WALKS));
+        steps = Math.max(1, getConf().getInt(CONF_STEPS_PER_ROUND, DEFAULT_STEPS_PER_ROUND));
+        seed = getConf().getLong(CONF_SEED, 42L) ^ (getSuperstep() * 0x9E3779B97F4A7C15L);
+
+        DoubleWritable restart = getBroadcast(PageRankMasterCompute.BCAST_MC_RESTART);
+        restartPerVertex = restart == null ? 0.0 : restart.get();
+        LongWritable finalVisits = getBroadcast(PageRankMasterCompute.BCAST_MC_TOTAL_VISITS);
+        totalVisits = finalVisits == null ? 0 : finalVisits.get();
+
+        workerContext = getWorkerContext();
+        outDegrees = getSuperstep() == 0 ? workerContext.newDegreeList() : null;
+    }
+
+    @Override
+    public void compute(Vertex<LongWritable, DoubleWritable, NullWritable> vertex,
+            Iterable<LongWritable> messages) throws IOException {
+
+        int outDegree = vertex.getNumEdges();
+        int partitionId = serviceWorker.getPartitionId(vertex.getId());
+        vertices++;
+        edges += outDegree;
+        if (outDegrees != null) {
+            outDegrees.offer(vertex.getId().get(), outDegree);
+        }
+
+        if (getSuperstep() == 0) {
+            long[] targets = new long[outDegree];
+            int t = 0;
+            for (Edge<LongWritable, NullWritable> edge : vertex.getEdges()) {
+                targets[t++] = edge.getTargetVertexId().get();
+            }
+            long expected = serviceWorker.getPartitionStore().getPartitionVertexCount(partitionId);
+            RandomWalkBlock block = workerContext.walkBlockFor(partitionId, expected);
+            if (block.register(vertex.getId().get(), targets)) {
+                block.build(walks);
+                walkAndSend(block);
+            }
+            return;
+        }
+
+        RandomWalkBlock block = workerContext.getWalkBlock(partitionId);
+        int index = block == null ? -1 : block.indexOf(vertex.getId().get());
+
+        // 游走已结束：写回 PR 估计值
+        if (totalVisits > 0) {
+            double count = index >= 0 ? block.getVisits(index) : vertex.getValue().get();
+            double estimate = count / totalVisits;
+            vertex.getValue().set(estimate);
+            totalPR += estimate;
+            vertex.voteToHalt();
+            return;
+        }
+
+        long arrived = 0;
+        for (LongWritable message : messages) {
+            arrived += message.get();
+            messagesReceived++;
+        }
+
+        if (index < 0) {
+            random.setSeed(seed ^ (vertex.getId().get() * 0xC2B2AE3D27D4EB4FL));
+            walkOutsideBlock(vertex, arrived + sampleShare(random.nextDouble()));
+            return;
+        }
+
+        block.addWalkers(index, arrived + block.sampleShare(restartPerVertex));
+        if (block.markProcessed()) {
+            walkAndSend(block);
+        }
+    }
+
+    // 块内连续走 steps 步，跨分区的游走者按目标合并成一条消息
+    private void walkAndSend(RandomWalkBlock block) {
+        block.walk(steps, damping);
+        for (Long2LongMap.Entry entry : block.getOutbound().long2LongEntrySet()) {
+            targetId.set(entry.getLongKey());
+            message.set(entry.getLongValue());
+            sendMessage(targetId, message);
+            messagesSent++;
+            liveWalkers += entry.getLongValue();
+        }
+        visits += block.getLastVisits();
+        danglingWalkers += block.getLastDangling();
+        liveWalkers += block.pendingWalkers() + block.getLastDangling();
+    }
+
+    // 块外顶点：顶点值暂存访问次数，每超步只走一步
+    private void walkOutsideBlock(Vertex<LongWritable, DoubleWritable, NullWritable> vertex, long walkers) {
+        if (walkers == 0) return;
+        vertex.getValue().set(vertex.getValue().get() + walkers);
+        visits += walkers;
+        long survivors = 0;
+        for (long w = 0; w < walkers; w++) {
+            if (random.nextDouble() < damping) survivors++;
+        }
+        if (survivors == 0) return;
+        int outDegree = vertex.getNumEdges();
+        if (outDegree == 0) {
+            danglingWalkers += survivors;
+            liveWalkers += survivors;
+            return;
+        }
+        // 先按出边计数再逐边发送一条消息，代价为 O(survivors + degree)
+        long[] counts = new long[outDegree];
+        for (long w = 0; w < survivors; w++) {
+            counts[random.nextInt(outDegree)]++;
+        }
+        int k = 0;
+        for (Edge<LongWritable, NullWritable> edge : vertex.getEdges()) {
+            long count = counts[k++];
+            if (count == 0) continue;
+            message.set(count);
+            sendMessage(edge.getTargetVertexId(), message);
+            messagesSent++;
+        }
+        liveWalkers += survivors;
+    }
+
+    // 块外顶点的悬挂质量份额，小数部分按概率取整
+    private long sampleShare(double uniform) {
+        long whole = (long) restartPerVertex;
+        return whole + (uniform < restartPerVertex - whole ? 1 : 0);
+    }
+
+    @Override
+    public void postSuperstep() {
+        aggregate(PageRankMasterCompute.AGG_MC_VISITS, new LongWritable(visits));
+        aggregate(PageRankMasterCompute.AGG_MC_LIVE, new LongWritable(liveWalkers));
+        aggregate(PageRankMasterCompute.AGG_DANGLING_SUM, new DoubleWritable(danglingWalkers));
+        aggregate(PageRankMasterCompute.AGG_TOTAL_PR, new DoubleWritable(totalPR));
+        workerContext.recordDegrees(outDegrees, null);
+        workerContext.recordComputation(vertices, edges, messagesSent, messagesReceived, 0, -1);
+    }
+}
@@ -1,66 +1,209 @@
 package edu.practice.pagerank;
 
+import org.apache.giraph.edge.Edge;
 import org.apache.giraph.graph.BasicComputation;
 import org.apache.giraph.graph.Vertex;
+import org.apache.hadoop.io.BooleanWritable;
 import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 
 import java.io.IOException;
 
+/**
+ * 每个计算线程在每个超步持有一个实例（由 Giraph 创建），因此实例字段天然是线程私有的：
+ * 超步常量在 preSuperstep 中一次性解析，消息对象复用（发送时即被序列化），
+ * 残差 / PR 总和 / 悬挂质量等先在线程内累加，postSuperstep 时各聚合一次。
+ * 除 Superstep 0 创建顶点值外，compute 不再分配对象。
+ */
 public class PageRankVertex extends BasicComputation<LongWritable, DoubleWritable, NullWritable, DoubleWritable> {
 
+    // 超步常量
+    private long totalVertices;
+    private double damping;
+    private double teleport;
+    private double danglingTerm;
+    private boolean sendMessages;
+    private boolean extrapolation;
+    private boolean applyExtrapolation;
+    // 上一超步外推后的归一化系数，其余超步为 1
+    private double rankScale = 1.0;
+    private boolean countRemote;
+    private PageRankWorkerContext workerContext;
+    private AllocationProbe allocationProbe;
+    // 本线程顶点中的前 K 名（未启用 Top-K 稳定性判据或 Superstep 0 时为 null）
+    private TopKRanksWritable topK;
+    // 度数诊断：Superstep 0 按出度、Superstep 1 按收到的消息数（即入度）收集度数最大的顶点，其余超步为 null
+    private TopKRanksWritable outDegrees;
+    private TopKRanksWritable inDegrees;
+
+    // 线程内累加，postSuperstep 时一次性聚合
+    private double diffSum;
+    private double totalPR;
+    private double plainPR;
+    private double danglingSum;
+    private long extrapolatedVertices;
+    private long vertices;
+    private long edges;
+    private long messagesSent;
+    private long messagesReceived;
+    private long remoteMessages;
+
+    // 复用的消息对象
+    private final DoubleWritable message = new DoubleWritable();
+
+    @Override
+    public void preSuperstep() {
+        totalVertices = getTotalNumVertices();
+        damping = getConf().getDouble(PageRankMasterCompute.CONF_DAMPING, 0.85);
+        int maxIterations = getConf().getInt(PageRankMasterCompute.CONF_MAX_ITER, 10);
+        sendMessages = getSuperstep() < maxIterations;
+        extrapolation = getConf().getBoolean(PageRankMasterCompute.CONF_EXTRAPOLATION, false);
+        countRemote = getConf().getBoolean(PageRankMasterCompute.CONF_COUNT_REMOTE, false);
+
+        teleport = (1.0 - damping) / totalVertices;
+        if (getSuperstep() > 0) {
+            double previousDangling = ((DoubleWritable) getAggregatedValue(PageRankMasterCompute.AGG_DANGLING_SUM)).get();
+            danglingTerm = previousDangling / totalVertices;
+        }
+        if (extrapolation && getSuperstep() > 0) {
+            BooleanWritable apply = getBroadcast(PageRankMasterCompute.BCAST_EXTRAPOLATE);
+            applyExtrapolation = apply != null && apply.get();
+            DoubleWritable scale = getBroadcast(PageRankMasterCompute.BCAST_RANK_SCALE);
+            rankScale = scale != null ? scale.get() : 1.0;
+        }
+
+        workerContext = getWorkerContext();
+        allocationProbe = AllocationProbe.start(getConf());
+        topK = getSuperstep() > 0 && TopKStability.isEnabled(getConf())
+                ? new TopKRanksWritable(getConf().getInt(TopKStability.CONF_TOP_K, 0)) : null;
+        outDegrees = getSuperstep() == 0 ? workerContext.newDegreeList() : null;
+        inDegrees = getSuperstep() == 1 ? workerContext.newDegreeList() : null;
+    }
+
     @Override
     public void compute(Vertex<LongWritable, DoubleWritable, NullWritable> vertex,
             Iterable<DoubleWritable> messages) throws IOException {
 
-        long totalVertices = getTotalNumVertices();
-        final double damping = getConf().getDouble(PageRankMasterCompute.CONF_DAMPING, 0.85);
-        final int maxIterations = getConf().getInt(PageRankMasterCompute.CONF_MAX_ITER, 10);
+        long received = 0;
+        int outDegree = vertex.getNumEdges();
 
         if (getSuperstep() == 0) {
             // 初始化为均匀分布 1/N，与 NetworkX 对齐
+            // 输入格式给出的值对象类型与 DoubleWritable 不一定一致，此处创建一次，之后各超步原地更新
             double initialValue = 1.0 / (double) totalVertices;
 
-            vertex.setValue(new DoubleWritable(initialValue));
+            vertex.setValue(extrapolation ? new RankHistoryWritable(initialValue) : new DoubleWritable(initialValue));
 
-            aggregate(PageRankMasterCompute.AGG_TOTAL_PR, new DoubleWritable(initialValue));
+            totalPR += initialValue;
 
         } else {
             double sum = 0.0;
             for (DoubleWritable message : messages) {
                 sum += message.get();
+                received++;
             }
 
-            double danglingSum = ((DoubleWritable) getAggregatedValue(PageRankMasterCompute.AGG_DANGLING_SUM)).get();
-            double danglingTerm = danglingSum / totalVertices;
-
-            double oldPageRank = vertex.getValue().get();
+            DoubleWritable value = vertex.getValue();
+            double oldPageRank = value.get() * rankScale;
 
-            double newPageRank = (1.0 - damping) / totalVertices +
-                    damping * (sum + danglingTerm);
+            double newPageRank = teleport + damping * rankScale * (sum + danglingTerm);
 
-            vertex.setValue(new DoubleWritable(newPageRank));
+            // 收敛判定始终使用普通幂迭代的残差
+            diffSum += Math.abs(newPageRank - oldPageRank);
 
-            double delta = Math.abs(newPageRank - oldPageRank);
-            aggregate(PageRankMasterCompute.AGG_PR_DIFF_SUM, new DoubleWritable(delta));
+            if (applyExtrapolation) {
+                plainPR += newPageRank;
+            }
+            if (extrapolation) {
+                newPageRank = updateWithHistory((RankHistoryWritable) value, oldPageRank, newPageRank);
+            } else {
+                value.set(newPageRank);
+            }
 
             // 聚合每一轮的 PR 总和
-            aggregate(PageRankMasterCompute.AGG_TOTAL_PR, new DoubleWritable(newPageRank));
+            totalPR += newPageRank;
+            if (topK != null) {
+                topK.offer(vertex.getId().get(), newPageRank);
+            }
         }
 
-        if (getSuperstep() < maxIterations) {
+        if (sendMessages) {
             double pageRank = vertex.getValue().get();
-            int outDegree = vertex.getNumEdges();
 
             if (outDegree > 0) {
-                double contribution = pageRank / outDegree;
-                sendMessageToAllEdges(vertex, new DoubleWritable(contribution));
+                message.set(pageRank / outDegree);
+                sendMessageToAllEdges(vertex, message);
+                messagesSent += outDegree;
+                if (countRemote) {
+                    countRemoteMessages(vertex);
+                }
             } else {
-                aggregate(PageRankMasterCompute.AGG_DANGLING_SUM, new DoubleWritable(pageRank));
+                danglingSum += pageRank;
             }
         }
 
+        // 本顶点的工作量，用于统计各 Worker 的负载
+        vertices++;
+        edges += outDegree;
+        messagesReceived += received;
+        if (outDegrees != null) {
+            outDegrees.offer(vertex.getId().get(), outDegree);
+        }
+        if (inDegrees != null) {
+            inDegrees.offer(vertex.getId().get(), received);
+        }
+
         vertex.voteToHalt();
     }
-}
\ No newline at end of file
+
+    @Override
+    public void postSuperstep() {
+        aggregate(PageRankMasterCompute.AGG_PR_DIFF_SUM, new DoubleWritable(diffSum));
+        aggregate(PageRankMasterCompute.AGG_TOTAL_PR, new DoubleWritable(totalPR));
+        aggregate(PageRankMasterCompute.AGG_DANGLING_SUM, new DoubleWritable(danglingSum));
+        if (topK != null) {
+            aggregate(PageRankMasterCompute.AGG_TOP_K, topK);
+        }
+        if (extrapolatedVertices > 0) {
+            aggregate(PageRankMasterCompute.AGG_EXTRAPOLATED, new LongWritable(extrapolatedVertices));
+        }
+        if (applyExtrapolation) {
+            aggregate(PageRankMasterCompute.AGG_PLAIN_PR, new DoubleWritable(plainPR));
+        }
+        workerContext.recordDegrees(outDegrees, inDegrees);
+        workerContext.recordComputation(vertices, edges, messagesSent, messagesReceived, remoteMessages,
+                allocationProbe.stop());
+    }
+
+    /**
+     * 外推模式下更新顶点值：Master 广播本超步需要外推时，用上上超步、上超步与本超步的值做 Aitken 外推，
+     * 外推后清空历史（外推值与之前的迭代值不再构成幂迭代序列）；否则记录上一超步的值作为历史。
+     * 返回顶点的新值。
+     */
+    private double updateWithHistory(RankHistoryWritable value, double oldPageRank, double newPageRank) {
+        double older = value.getPrevious();
+        if (applyExtrapolation && !Double.isNaN(older)) {
+            double extrapolated = Extrapolation.aitken(older, oldPageRank, newPageRank, damping);
+            if (extrapolated != newPageRank) {
+                extrapolatedVertices++;
+            }
+            value.set(extrapolated);
+            value.setPrevious(Double.NaN);
+            return extrapolated;
+        }
+        value.set(newPageRank);
+        value.setPrevious(oldPageRank);
+        return newPageRank;
+    }
+
+    // 统计目标顶点不在本 Worker 的消息数
+    private void countRemoteMessages(Vertex<LongWritable, DoubleWritable, NullWritable> vertex) {
+        int myWorker = getMyWorkerIndex();
+        for (Edge<LongWritable, NullWritable> edge : vertex.getEdges()) {
+            if (getWorkerForVertex(edge.getTargetVertexId()) != myWorker) {
+                remoteMessages++;
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package edu.practice.pagerank;
+
+import org.apache.giraph.worker.WorkerContext;
+import org.apache.hadoop.io.LongWritable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 每个 Worker 一份的上下文：统计本 Worker 在当前超步处理的顶点数、边数和收发消息数，
+ * 超步结束时通过 max / sum 聚合器上报，Master 据此计算各 Worker 之间的负载不均衡度；
+ * 同时以 WorkerStatsWritable 上报本 Worker 的明细与计算耗时，Master 据此找出拖慢超步的 Worker。
+ * 度数诊断：Superstep 0 收集本 Worker 出度最大的顶点，精确模式下 Superstep 1 按收到的消息数收集入度最大的顶点。
+ * 块模式下还持有本 Worker 上各分区的 PageRankBlock，Monte Carlo 模式下持有各分区的 RandomWalkBlock；开启资源采样时持有本 Worker 的 ResourceSampler。
+ */
+public class PageRankWorkerContext extends WorkerContext {
+
+    // 多个计算线程并发累加
+    private final LongAdder vertices = new LongAdder();
+    private final LongAdder edges = new LongAdder();
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder messagesReceived = new LongAdder();
+    private final LongAdder remoteMessages = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    // 最后一个计算线程上报的时间
+    private final LongAccumulator lastComputationEnd = new LongAccumulator(Long::max, 0);
+    private long superstepStart;
+
+    // 度数诊断：本超步各线程合并后的列表（不收集时为 null），以及本 Worker 出度最大的顶点
+    private TopKRanksWritable outDegrees;
+    private TopKRanksWritable inDegrees;
+    private long maxDegreeVertex = -1;
+    private long maxDegree = -1;
+
+    // 块模式：分区 ID -> 块
+    private final ConcurrentHashMap<Integer, PageRankBlock> blocks = new ConcurrentHashMap<>();
+    // Monte Carlo 模式：分区 ID -> 游走状态
+    private final ConcurrentHashMap<Integer, RandomWalkBlock> walkBlocks = new ConcurrentHashMap<>();
+
+    // 节点资源采样（未开启时为 null）
+    private ResourceSampler sampler;
+
+    @Override
+    public void preApplication() {
+        sampler = ResourceSampler.start(getContext().getConfiguration());
+    }
+
+    @Override
+    public void postApplication() {
+        ResourceSampler.stop(sampler, getContext().getConfiguration(), "worker_" + getMyWorkerIndex());
+    }
+
+    @Override
+    public void preSuperstep() {
+        if (sampler != null) {
+            sampler.setPhase("superstep_" + getSuperstep());
+        }
+        vertices.reset();
+        edges.reset();
+        messagesSent.reset();
+        messagesReceived.reset();
+        remoteMessages.reset();
+        allocatedBytes.reset();
+        lastComputationEnd.reset();
+        outDegrees = null;
+        inDegrees = null;
+        superstepStart = System.currentTimeMillis();
+    }
+
+    @Override
+    public void postSuperstep() {
+        report(PageRankMasterCompute.AGG_WORKER_VERTICES_MAX, PageRankMasterCompute.AGG_WORKER_VERTICES_SUM, vertices.sum());
+        report(PageRankMasterCompute.AGG_WORKER_EDGES_MAX, PageRankMasterCompute.AGG_WORKER_EDGES_SUM, edges.sum());
+        report(PageRankMasterCompute.AGG_WORKER_MSG_SENT_MAX, PageRankMasterCompute.AGG_WORKER_MSG_SENT_SUM, messagesSent.sum());
+        report(PageRankMasterCompute.AGG_WORKER_MSG_RECV_MAX, PageRankMasterCompute.AGG_WORKER_MSG_RECV_SUM, messagesReceived.sum());
+        aggregate(PageRankMasterCompute.AGG_REMOTE_MESSAGES, new LongWritable(remoteMessages.sum()));
+        aggregate(PageRankMasterCompute.AGG_ALLOCATED_BYTES, new LongWritable(allocatedBytes.sum()));
+        aggregate(PageRankMasterCompute.AGG_WORKER_COUNT, new LongWritable(1));
+        aggregate(PageRankMasterCompute.AGG_WORKER_HEAP_MAX, new LongWritable(liveHeapBytes()));
+        reportDegrees();
+        reportWorkerStats();
+    }
+
+    private void reportWorkerStats() {
+        long now = System.currentTimeMillis();
+        // 本 Worker 没有分区时没有计算线程上报
+        long computeEnd = Math.max(superstepStart, lastComputationEnd.get());
+        WorkerStatsWritable.Row row = new WorkerStatsWritable.Row();
+        row.worker = getMyWorkerIndex();
+        row.vertices = vertices.sum();
+        row.edges = edges.sum();
+        row.messagesSent = messagesSent.sum();
+        row.messagesReceived = messagesReceived.sum();
+        row.startMs = superstepStart;
+        row.computeMs = computeEnd - superstepStart;
+        row.flushMs = now - computeEnd;
+        row.maxDegreeVertex = maxDegreeVertex;
+        row.maxDegree = maxDegree;
+        WorkerStatsWritable stats = new WorkerStatsWritable();
+        stats.add(row);
+        aggregate(PageRankMasterCompute.AGG_WORKER_STATS, stats);
+    }
+
+    private void reportDegrees() {
+        if (outDegrees != null && outDegrees.size() > 0) {
+            maxDegreeVertex = outDegrees.rankedIds().get(0);
+            maxDegree = (long) outDegrees.rankedValues()[0];
+            aggregate(PageRankMasterCompute.AGG_HOT_OUT_DEGREE, outDegrees);
+        }
+        if (inDegrees != null && inDegrees.size() > 0) {
+            aggregate(PageRankMasterCompute.AGG_HOT_IN_DEGREE, inDegrees);
+        }
+    }
+
+    // 堆中存活数据量：各堆内存池最近一次 GC 后的占用之和；尚未发生 GC 时取当前占用
+    private static long liveHeapBytes() {
+        long live = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) continue;
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            if (afterGc != null) live += afterGc.getUsed();
+        }
+        if (live > 0) return live;
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // 块模式：取得（必要时创建）分区对应的块，expectedVertices 为分区的顶点数
+    public PageRankBlock blockFor(int partitionId, long expectedVertices) {
+        return blocks.computeIfAbsent(partitionId, id -> new PageRankBlock(id, expectedVertices));
+    }
+
+    // 未登记的分区返回 null
+    public PageRankBlock getBlock(int partitionId) {
+        return blocks.get(partitionId);
+    }
+
+    // Monte Carlo 模式：取得（必要时创建）分区对应的游走状态，各分区的随机数种子由分区 ID 区分
+    public RandomWalkBlock walkBlockFor(int partitionId, long expectedVertices) {
+        long seed = getContext().getConfiguration().getLong(PageRankMonteCarloVertex.CONF_SEED, 42L);
+        return walkBlocks.computeIfAbsent(partitionId, id -> new RandomWalkBlock(id, expectedVertices, seed));
+    }
+
+    public RandomWalkBlock getWalkBlock(int partitionId) {
+        return walkBlocks.get(partitionId);
+    }
+
+    // 由计算线程在超步结束时调用一次，上报本线程处理的全部顶点的工作量并记下结束时间；allocated 未统计时为 -1
+    public void recordComputation(long numVertices, long numEdges, long sent, long received, long remote, long allocated) {
+        vertices.add(numVertices);
+        edges.add(numEdges);
+        messagesSent.add(sent);
+        messagesReceived.add(received);
+        remoteMessages.add(remote);
+        if (allocated >= 0) {
+            allocatedBytes.add(allocated);
+        }
+        lastComputationEnd.accumulate(System.currentTimeMillis());
+    }
+
+    /**
+     * 度数诊断用的空列表，容量为 pagerank.diagnostics.hotVertices；关闭时返回 null。
+     */
+    public TopKRanksWritable newDegreeList() {
+        int capacity = getContext().getConfiguration().getInt(PageRankMasterCompute.CONF_HOT_VERTICES,
+                PageRankMasterCompute.DEFAULT_HOT_VERTICES);
+        return capacity > 0 ? new TopKRanksWritable(capacity) : null;
+    }
+
+    // 由计算线程在超步结束时调用，合并本线程按出度 / 入度收集的列表（未收集的为 null）
+    public synchronized void recordDegrees(TopKRanksWritable threadOutDegrees, TopKRanksWritable threadInDegrees) {
+        if (threadOutDegrees != null) {
+            if (outDegrees == null) outDegrees = new TopKRanksWritable();
+            outDegrees.merge(threadOutDegrees);
+        }
+        if (threadInDegrees != null) {
+            if (inDegrees == null) inDegrees = new TopKRanksWritable();
+            inDegrees.merge(threadInDegrees);
+        }
+    }
+
+    private void report(String maxAggregator, String sumAggregator, long value) {
+        LongWritable writable = new LongWritable(value);
+        aggregate(maxAggregator, writable);
+        aggregate(sumAggregator, writable);
+    }
+}
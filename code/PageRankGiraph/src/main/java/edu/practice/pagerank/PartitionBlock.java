@@ -0,0 +1,84 @@
+package edu.practice.pagerank;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 以一个 Giraph 分区为块、保存在 Worker 内存中的子图的公共部分（PageRankBlock 与 RandomWalkBlock）。
+ *
+ * Giraph 在一个超步内由同一个计算线程依次处理一个分区的全部顶点，因此块不需要加锁：
+ * Superstep 0 各顶点登记自身与出边，最后一个顶点登记后由子类的 build 取出登记结果建立自己的数组；
+ * 之后每个超步各块内顶点处理完时调用 markProcessed，最后一个顶点处理完后由计算类在整个块上计算。
+ */
+public abstract class PartitionBlock {
+
+    private final int partitionId;
+    private final long expectedVertices;
+    private final Long2IntOpenHashMap index = new Long2IntOpenHashMap();
+    // 本超步已处理的块内顶点数
+    private int processed;
+
+    // Superstep 0 登记的顶点与出边，build 后释放
+    private LongArrayList registeredIds = new LongArrayList();
+    private List<long[]> registeredTargets = new ArrayList<>();
+
+    protected int size;
+    protected long[] ids;
+
+    protected PartitionBlock(int partitionId, long expectedVertices) {
+        this.partitionId = partitionId;
+        this.expectedVertices = expectedVertices;
+        index.defaultReturnValue(-1);
+    }
+
+    public int getPartitionId() {
+        return partitionId;
+    }
+
+    /**
+     * 登记一个顶点，返回是否为分区内最后一个顶点（此时应调用 build）。
+     */
+    public boolean register(long id, long[] targets) {
+        index.put(id, registeredIds.size());
+        registeredIds.add(id);
+        registeredTargets.add(targets);
+        return registeredIds.size() >= expectedVertices;
+    }
+
+    /**
+     * 由子类的 build 调用一次：确定块内顶点的顺序（size、ids），返回各顶点登记的出边并释放登记列表。
+     */
+    protected List<long[]> takeRegistration() {
+        List<long[]> targets = registeredTargets;
+        size = registeredIds.size();
+        ids = registeredIds.toLongArray();
+        registeredIds = null;
+        registeredTargets = null;
+        return targets;
+    }
+
+    /**
+     * 记录一个块内顶点已在本超步处理，返回是否为最后一个（此时应在整个块上计算）。
+     */
+    public boolean markProcessed() {
+        if (++processed < size) return false;
+        processed = 0;
+        return true;
+    }
+
+    // 不在块内的顶点返回 -1
+    public int indexOf(long id) {
+        return index.get(id);
+    }
+
+    public long getId(int i) {
+        return ids[i];
+    }
+
+    public int size() {
+        return size;
+    }
+}
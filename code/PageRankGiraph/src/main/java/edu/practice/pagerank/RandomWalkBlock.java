@@ -0,0 +1,159 @@
+package edu.practice.pagerank;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Monte Carlo 模式下一个 Giraph 分区的随机游走状态：分区内顶点的出边（CSR，目标为块内下标或边界顶点 ID）、
+ * 停在各顶点等待下一步的游走者数与累计访问次数。
+ *
+ * Superstep 0 各顶点登记后（见 PartitionBlock）build()；
+ * 之后每个超步，顶点 compute 把收到的游走者（消息）加到 pending，分区内最后一个顶点处理完后
+ * walk() 在块内连续走 steps 步：每个游走者先计一次访问，以 1 - damping 的概率结束，
+ * 否则沿随机一条出边前进——目标在块内则留在块内继续走，目标在块外则记入 outbound 由计算类以消息发出，
+ * 悬挂顶点上继续的游走者交给 Master，下一超步均匀地重新分配到全图。
+ * 走完 steps 步仍在块内的游走者留在 pending，下一超步继续，不产生消息。
+ */
+public class RandomWalkBlock extends PartitionBlock {
+
+    private final Random random;
+
+    // 出边：顶点 i 的出边为 outTargets[outStart[i] .. outStart[i + 1])，非负为块内下标，负数 -(k + 1) 为 boundaryTargets[k]
+    private int[] outStart;
+    private int[] outTargets;
+    private long[] boundaryTargets;
+
+    private long[] visits;
+    private long[] pending;
+    private long[] next;
+
+    // 本超步发往块外顶点的游走者：目标顶点 ID -> 数量
+    private final Long2LongOpenHashMap outbound = new Long2LongOpenHashMap();
+    // 最近一次 walk 的统计
+    private long lastVisits;
+    private long lastDangling;
+
+    public RandomWalkBlock(int partitionId, long expectedVertices, long seed) {
+        super(partitionId, expectedVertices);
+        this.random = new Random(seed ^ (partitionId * 0x9E3779B97F4A7C15L));
+    }
+
+    /**
+     * 建立出边 CSR，每个顶点放入 walksPerVertex 个游走者。
+     */
+    public void build(int walksPerVertex) {
+        List<long[]> registeredTargets = takeRegistration();
+        outStart = new int[size + 1];
+        visits = new long[size];
+        pending = new long[size];
+        next = new long[size];
+
+        int boundary = 0;
+        for (int i = 0; i < size; i++) {
+            long[] targets = registeredTargets.get(i);
+            outStart[i + 1] = outStart[i] + targets.length;
+            for (long target : targets) {
+                if (indexOf(target) < 0) boundary++;
+            }
+        }
+        outTargets = new int[outStart[size]];
+        boundaryTargets = new long[boundary];
+        int e = 0;
+        int b = 0;
+        for (int i = 0; i < size; i++) {
+            for (long target : registeredTargets.get(i)) {
+                int t = indexOf(target);
+                if (t >= 0) {
+                    outTargets[e++] = t;
+                } else {
+                    boundaryTargets[b] = target;
+                    outTargets[e++] = -(b + 1);
+                    b++;
+                }
+            }
+            pending[i] = walksPerVertex;
+        }
+    }
+
+    public void addWalkers(int i, long count) {
+        pending[i] += count;
+    }
+
+    public long getVisits(int i) {
+        return visits[i];
+    }
+
+    /**
+     * 悬挂质量的重新分配：期望 expected 个游走者，整数部分直接放入，小数部分按概率取整。
+     */
+    public long sampleShare(double expected) {
+        long whole = (long) expected;
+        return whole + (random.nextDouble() < expected - whole ? 1 : 0);
+    }
+
+    /**
+     * 在块内连续走 steps 步。
+     */
+    public void walk(int steps, double damping) {
+        outbound.clear();
+        long visited = 0;
+        long dangling = 0;
+        for (int s = 0; s < steps; s++) {
+            boolean moved = false;
+            for (int i = 0; i < size; i++) {
+                long walkers = pending[i];
+                if (walkers == 0) continue;
+                pending[i] = 0;
+                visits[i] += walkers;
+                visited += walkers;
+                long survivors = 0;
+                for (long w = 0; w < walkers; w++) {
+                    if (random.nextDouble() < damping) survivors++;
+                }
+                if (survivors == 0) continue;
+                int start = outStart[i];
+                int degree = outStart[i + 1] - start;
+                if (degree == 0) {
+                    dangling += survivors;
+                    continue;
+                }
+                for (long w = 0; w < survivors; w++) {
+                    int target = outTargets[start + random.nextInt(degree)];
+                    if (target >= 0) {
+                        next[target]++;
+                        moved = true;
+                    } else {
+                        outbound.addTo(boundaryTargets[-target - 1], 1);
+                    }
+                }
+            }
+            long[] swap = pending;
+            pending = next;
+            next = swap;
+            if (!moved) break;
+        }
+        lastVisits = visited;
+        lastDangling = dangling;
+    }
+
+    public Long2LongOpenHashMap getOutbound() {
+        return outbound;
+    }
+
+    // 仍停在块内、下一超步继续走的游走者
+    public long pendingWalkers() {
+        long total = 0;
+        for (int i = 0; i < size; i++) total += pending[i];
+        return total;
+    }
+
+    public long getLastVisits() {
+        return lastVisits;
+    }
+
+    public long getLastDangling() {
+        return lastDangling;
+    }
+}
@@ -0,0 +1,159 @@
+package edu.practice.pagerank;
+
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 比较两次运行输出（part* 文件，每行 "顶点\tPR"）的排名一致性，
+ * 用于评估单精度模式、Monte Carlo 模式相对 double 运行的误差：Top-K 重合率、最大/平均相对误差、L1 误差。
+ *
+ * 用法: RankAgreement <参考输出目录> <待比较输出目录> [K] [报告文件]
+ */
+public class RankAgreement extends Configured implements Tool {
+
+    public static final int DEFAULT_TOP_K = 50;
+
+    public int topK;
+    public long compared;
+    public long missing;
+    public int topKOverlap;
+    public double maxRelativeError;
+    public long maxRelativeErrorVertex = -1;
+    public double meanRelativeError;
+    // 所有公共顶点的绝对误差之和（两侧 PR 之和均为 1 时介于 0 与 2 之间）
+    public double l1Error;
+
+    /**
+     * 逐顶点比较 candidate 与 reference；reference 中存在而 candidate 中缺失的顶点计入 missing。
+     */
+    public static RankAgreement compare(Configuration conf, Path reference, Path candidate, int k) throws IOException {
+        RankAgreement result = new RankAgreement();
+        result.topK = k;
+
+        Long2DoubleOpenHashMap referenceRanks = readRanks(conf, reference);
+        Long2DoubleOpenHashMap candidateRanks = readRanks(conf, candidate);
+
+        double relativeErrorSum = 0.0;
+        for (Long2DoubleOpenHashMap.Entry entry : referenceRanks.long2DoubleEntrySet()) {
+            long vertex = entry.getLongKey();
+            if (!candidateRanks.containsKey(vertex)) {
+                result.missing++;
+                continue;
+            }
+            double expected = entry.getDoubleValue();
+            result.l1Error += Math.abs(candidateRanks.get(vertex) - expected);
+            if (expected == 0.0) continue;
+            double relative = Math.abs(candidateRanks.get(vertex) - expected) / Math.abs(expected);
+            relativeErrorSum += relative;
+            result.compared++;
+            if (relative > result.maxRelativeError) {
+                result.maxRelativeError = relative;
+                result.maxRelativeErrorVertex = vertex;
+            }
+        }
+        result.meanRelativeError = result.compared > 0 ? relativeErrorSum / result.compared : 0.0;
+
+        Set<Long> referenceTop = topK(referenceRanks, k);
+        Set<Long> candidateTop = topK(candidateRanks, k);
+        for (Long vertex : candidateTop) {
+            if (referenceTop.contains(vertex)) result.topKOverlap++;
+        }
+        return result;
+    }
+
+    public double topKOverlapRatio() {
+        return topK > 0 ? (double) topKOverlap / topK : 0.0;
+    }
+
+    public String describe() {
+        return String.format("Top-%d 重合: %d/%d (%.4f), 最大相对误差: %.6e (顶点 %d), 平均相对误差: %.6e, L1 误差: %.6e, 比较顶点数: %d, 缺失: %d",
+                topK, topKOverlap, topK, topKOverlapRatio(), maxRelativeError, maxRelativeErrorVertex,
+                meanRelativeError, l1Error, compared, missing);
+    }
+
+    public void writeTo(Configuration conf, Path file) throws IOException {
+        FileSystem fs = file.getFileSystem(conf);
+        try (FSDataOutputStream out = fs.create(file, true)) {
+            out.write(("Metric,Value\n"
+                    + "TopK," + topK + "\n"
+                    + "TopK_overlap," + topKOverlap + "\n"
+                    + "TopK_overlap_ratio," + String.format("%.6f", topKOverlapRatio()) + "\n"
+                    + "Max_relative_error," + String.format("%.6e", maxRelativeError) + "\n"
+                    + "Max_relative_error_vertex," + maxRelativeErrorVertex + "\n"
+                    + "Mean_relative_error," + String.format("%.6e", meanRelativeError) + "\n"
+                    + "L1_error," + String.format("%.6e", l1Error) + "\n"
+                    + "Compared_vertices," + compared + "\n"
+                    + "Missing_vertices," + missing + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Long2DoubleOpenHashMap readRanks(Configuration conf, Path dir) throws IOException {
+        Long2DoubleOpenHashMap ranks = new Long2DoubleOpenHashMap();
+        FileSystem fs = dir.getFileSystem(conf);
+        for (FileStatus status : fs.listStatus(dir)) {
+            if (!status.isFile() || !status.getPath().getName().startsWith("part")) continue;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(status.getPath()), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split("\t", 2);
+                    if (parts.length < 2) continue;
+                    try {
+                        ranks.put(Long.parseLong(parts[0].trim()), Double.parseDouble(parts[1].trim()));
+                    } catch (NumberFormatException ignored) {}
+                }
+            }
+        }
+        return ranks;
+    }
+
+    private static Set<Long> topK(Long2DoubleOpenHashMap ranks, int k) {
+        PriorityQueue<long[]> heap = new PriorityQueue<>(Math.max(1, k),
+                Comparator.comparingDouble(entry -> ranks.get(entry[0])));
+        for (long vertex : ranks.keySet()) {
+            if (heap.size() < k) {
+                heap.offer(new long[]{vertex});
+            } else if (ranks.get(vertex) > ranks.get(heap.peek()[0])) {
+                heap.poll();
+                heap.offer(new long[]{vertex});
+            }
+        }
+        Set<Long> top = new HashSet<>();
+        for (long[] entry : heap) top.add(entry[0]);
+        return top;
+    }
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.printf("用法: RankAgreement <参考输出目录> <待比较输出目录> [K] [报告文件]\n");
+            return 1;
+        }
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_TOP_K;
+        RankAgreement agreement = compare(getConf(), new Path(args[0]), new Path(args[1]), k);
+        System.out.printf("排名一致性: %s\n", agreement.describe());
+        if (args.length > 3) {
+            agreement.writeTo(getConf(), new Path(args[3]));
+        }
+        return 0;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.exit(ToolRunner.run(new Configuration(), new RankAgreement(), args));
+    }
+}
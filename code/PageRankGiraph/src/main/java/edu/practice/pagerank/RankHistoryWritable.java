@@ -0,0 +1,58 @@
+package edu.practice.pagerank;
+
+import org.apache.giraph.factories.VertexValueFactory;
+import org.apache.hadoop.io.DoubleWritable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 外推模式下的顶点值：当前 PR 之外再保存上一超步的 PR，供 Aitken 外推（Extrapolation.aitken）使用。
+ * 继承 DoubleWritable，计算类与输出格式（toString 只输出当前 PR）无需改变；
+ * 加载（AdjacencyTextInputFormat）与序列化（分区迁移、检查点）时都通过 Factory 创建实例，保证历史值不丢失。
+ */
+public class RankHistoryWritable extends DoubleWritable {
+
+    // 上一超步的 PR，NaN 表示没有可用历史（初始化或刚外推过）
+    private double previous = Double.NaN;
+
+    public RankHistoryWritable() {
+    }
+
+    public RankHistoryWritable(double value) {
+        super(value);
+    }
+
+    public double getPrevious() {
+        return previous;
+    }
+
+    public void setPrevious(double previous) {
+        this.previous = previous;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        super.write(out);
+        out.writeDouble(previous);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        super.readFields(in);
+        previous = in.readDouble();
+    }
+
+    /**
+     * 由 Driver 通过 giraph.vertexValueFactoryClass 设置，反序列化顶点时创建带历史的值。
+     */
+    public static class Factory implements VertexValueFactory<DoubleWritable> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public DoubleWritable newInstance() {
+            return new RankHistoryWritable();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package edu.practice.pagerank;
+
+import org.apache.giraph.aggregators.BasicAggregator;
+
+/**
+ * 合并各计算线程上报的 Top-K 集合，Master 得到全图 Top-K。
+ */
+public class TopKRanksAggregator extends BasicAggregator<TopKRanksWritable> {
+
+    @Override
+    public void aggregate(TopKRanksWritable value) {
+        getAggregatedValue().merge(value);
+    }
+
+    @Override
+    public TopKRanksWritable createInitialValue() {
+        return new TopKRanksWritable();
+    }
+}
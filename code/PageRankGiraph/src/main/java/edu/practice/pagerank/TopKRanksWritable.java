@@ -0,0 +1,145 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 有界 Top-K 集合：(顶点, PR) 存在两个并行数组组成的小顶堆里，堆顶为当前第 K 名。
+ * 计算线程在 compute 中逐个 offer（低于第 K 名时只做一次比较），postSuperstep 时聚合；
+ * 合并时容量取两者较大值，因此聚合器的初始值（容量 0）不需要知道 K。
+ * 度数诊断也用它按度数收集最热的顶点（值为度数）。
+ */
+public class TopKRanksWritable implements Writable {
+
+    private int capacity;
+    private int size;
+    private long[] ids;
+    private double[] ranks;
+
+    public TopKRanksWritable() {
+        this(0);
+    }
+
+    public TopKRanksWritable(int capacity) {
+        this.capacity = capacity;
+        this.ids = new long[capacity];
+        this.ranks = new double[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void offer(long id, double rank) {
+        if (size < capacity) {
+            ids[size] = id;
+            ranks[size] = rank;
+            siftUp(size++);
+        } else if (capacity > 0 && worse(ids[0], ranks[0], id, rank)) {
+            ids[0] = id;
+            ranks[0] = rank;
+            siftDown(0);
+        }
+    }
+
+    public void merge(TopKRanksWritable other) {
+        if (other.capacity > capacity) {
+            capacity = other.capacity;
+            ids = Arrays.copyOf(ids, capacity);
+            ranks = Arrays.copyOf(ranks, capacity);
+        }
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.ranks[i]);
+        }
+    }
+
+    /**
+     * 按名次（PR 降序，PR 相同时顶点 ID 升序）返回顶点 ID。
+     */
+    public List<Long> rankedIds() {
+        List<Long> result = new ArrayList<>(size);
+        for (Integer i : order()) result.add(ids[i]);
+        return result;
+    }
+
+    /**
+     * 与 rankedIds() 顺序一致的 PR 值（用于度数诊断时为度数）。
+     */
+    public double[] rankedValues() {
+        Integer[] order = order();
+        double[] result = new double[size];
+        for (int i = 0; i < size; i++) result[i] = ranks[order[i]];
+        return result;
+    }
+
+    private Integer[] order() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> -ranks[i]).thenComparingLong(i -> ids[i]));
+        return order;
+    }
+
+    // (id, rank) 的名次是否在 (otherId, otherRank) 之后
+    private static boolean worse(long id, double rank, long otherId, double otherRank) {
+        int c = Double.compare(rank, otherRank);
+        return c != 0 ? c < 0 : id > otherId;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(ids[i], ranks[i], ids[parent], ranks[parent])) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && worse(ids[child + 1], ranks[child + 1], ids[child], ranks[child])) child++;
+            if (!worse(ids[child], ranks[child], ids[i], ranks[i])) break;
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double rank = ranks[a];
+        ranks[a] = ranks[b];
+        ranks[b] = rank;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(capacity);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(ids[i]);
+            out.writeDouble(ranks[i]);
+        }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        capacity = in.readInt();
+        size = in.readInt();
+        ids = new long[capacity];
+        ranks = new double[capacity];
+        for (int i = 0; i < size; i++) {
+            ids[i] = in.readLong();
+            ranks[i] = in.readDouble();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package edu.practice.pagerank;
+
+import org.apache.giraph.aggregators.BasicAggregator;
+
+/**
+ * 拼接各 Worker 上报的统计行，Master 得到本超步全部 Worker 的明细。
+ */
+public class WorkerStatsAggregator extends BasicAggregator<WorkerStatsWritable> {
+
+    @Override
+    public void aggregate(WorkerStatsWritable value) {
+        getAggregatedValue().merge(value);
+    }
+
+    @Override
+    public WorkerStatsWritable createInitialValue() {
+        return new WorkerStatsWritable();
+    }
+}
@@ -0,0 +1,97 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 各 Worker 在一个超步中的工作量与耗时，每个 Worker 一行。
+ * Worker 在 postSuperstep 中聚合只含自己一行的实例，合并时按行拼接，Master 得到全部 Worker 的明细。
+ */
+public class WorkerStatsWritable implements Writable {
+
+    /**
+     * 一个 Worker 的一行统计。
+     */
+    public static class Row {
+        public int worker;
+        public long vertices;
+        public long edges;
+        public long messagesSent;
+        public long messagesReceived;
+        // 本 Worker 上超步开始的时间（绝对时间，用于时间线）
+        public long startMs;
+        // 超步开始到最后一个计算线程结束
+        public long computeMs;
+        // 最后一个计算线程结束到 Worker 上报（等待发出的消息送达等收尾工作）
+        public long flushMs;
+        // 本 Worker 上出度最大的顶点（Superstep 0 统计，未统计时为 -1）
+        public long maxDegreeVertex = -1;
+        public long maxDegree = -1;
+
+        public long busyMs() {
+            return computeMs + flushMs;
+        }
+    }
+
+    private final List<Row> rows = new ArrayList<>();
+
+    public void add(Row row) {
+        rows.add(row);
+    }
+
+    public void merge(WorkerStatsWritable other) {
+        rows.addAll(other.rows);
+    }
+
+    /**
+     * 按 Worker 编号排序的各行。
+     */
+    public List<Row> sortedRows() {
+        List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingInt(row -> row.worker));
+        return sorted;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(rows.size());
+        for (Row row : rows) {
+            out.writeInt(row.worker);
+            out.writeLong(row.vertices);
+            out.writeLong(row.edges);
+            out.writeLong(row.messagesSent);
+            out.writeLong(row.messagesReceived);
+            out.writeLong(row.startMs);
+            out.writeLong(row.computeMs);
+            out.writeLong(row.flushMs);
+            out.writeLong(row.maxDegreeVertex);
+            out.writeLong(row.maxDegree);
+        }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        rows.clear();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            Row row = new Row();
+            row.worker = in.readInt();
+            row.vertices = in.readLong();
+            row.edges = in.readLong();
+            row.messagesSent = in.readLong();
+            row.messagesReceived = in.readLong();
+            row.startMs = in.readLong();
+            row.computeMs = in.readLong();
+            row.flushMs = in.readLong();
+            row.maxDegreeVertex = in.readLong();
+            row.maxDegree = in.readLong();
+            rows.add(row);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package edu.practice.pagerank;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PageRankBlockTest {
+
+    private static final double DAMPING = 0.85;
+    // 全图 6 个顶点：0..4 在块内，5 在块外；3 只有边界出边，4 为悬挂顶点
+    private static final long[][] GRAPH = {
+            {1, 2},
+            {2, 3},
+            {0, 5},
+            {5},
+            {},
+            {0, 4},
+    };
+    private static final int N = GRAPH.length;
+    private static final int OUTSIDE = 5;
+
+    @Test
+    public void buildSplitsInternalAndBoundaryEdges() {
+        PageRankBlock block = newBlock();
+        assertEquals(5, block.size());
+        assertEquals(5, block.getInternalEdges());
+        assertEquals(2, block.getBoundaryEdges());
+        assertEquals(-1, block.indexOf(OUTSIDE));
+
+        for (int v = 0; v < OUTSIDE; v++) {
+            int i = block.indexOf(v);
+            assertEquals(v, block.getId(i));
+            assertEquals(GRAPH[v].length, block.getOutDegree(i));
+            int boundary = block.boundaryEnd(i) - block.boundaryStart(i);
+            if (v == 2 || v == 3) {
+                assertEquals(1, boundary);
+                assertEquals(OUTSIDE, block.boundaryTarget(block.boundaryStart(i)));
+            } else {
+                assertEquals(0, boundary);
+            }
+            assertEquals(GRAPH[v].length > 0 ? 1.0 / N / GRAPH[v].length : 0.0, block.getContribution(i), 0.0);
+        }
+    }
+
+    @Test
+    public void sweepIsGaussSeidelOverInternalEdges() {
+        PageRankBlock block = newBlock();
+        double teleport = (1.0 - DAMPING) / N;
+        double danglingTerm = 0.01;
+        block.sweep(1, teleport, DAMPING, danglingTerm);
+
+        // 0 的入邻居 2 排在其后，仍用初值；1 使用 0 本遍更新后的贡献
+        double rank0 = teleport + DAMPING * (1.0 / N / 2 + danglingTerm);
+        assertEquals(rank0, block.getRank(block.indexOf(0)), 1e-15);
+        assertEquals(teleport + DAMPING * (rank0 / 2 + danglingTerm), block.getRank(block.indexOf(1)), 1e-15);
+
+        double total = 0.0;
+        double diff = 0.0;
+        for (int i = 0; i < block.size(); i++) {
+            total += block.getRank(i);
+            diff += Math.abs(block.getRank(i) - 1.0 / N);
+        }
+        assertEquals(total, block.getLastTotal(), 1e-15);
+        assertEquals(diff, block.getLastDiff(), 1e-15);
+        assertEquals(block.getRank(block.indexOf(4)), block.getLastDangling(), 0.0);
+    }
+
+    @Test
+    public void blockFixedPointMatchesPowerIteration() {
+        PageRankBlock block = newBlock();
+        double teleport = (1.0 - DAMPING) / N;
+        int target0 = block.indexOf(0);
+        int target4 = block.indexOf(4);
+
+        // 按超步模拟：块外顶点 5 的贡献经消息进入块，块的边界贡献经消息到达 5
+        double outsideRank = 1.0 / N;
+        double dangling = 1.0 / N;
+        for (int superstep = 0; superstep < 200; superstep++) {
+            double toOutside = 0.0;
+            for (int i = 0; i < block.size(); i++) {
+                toOutside += block.getContribution(i) * (block.boundaryEnd(i) - block.boundaryStart(i));
+            }
+            block.setRemoteIn(target0, outsideRank / 2);
+            block.setRemoteIn(target4, outsideRank / 2);
+            double danglingTerm = dangling / N;
+            block.sweep(3, teleport, DAMPING, danglingTerm);
+            outsideRank = teleport + DAMPING * (toOutside + danglingTerm);
+            dangling = block.getLastDangling();
+        }
+
+        double[] expected = powerIteration(500);
+        for (int v = 0; v < OUTSIDE; v++) {
+            assertEquals("vertex " + v, expected[v], block.getRank(block.indexOf(v)), 1e-12);
+        }
+        assertEquals(expected[OUTSIDE], outsideRank, 1e-12);
+        assertEquals(1.0, block.getLastTotal() + outsideRank, 1e-12);
+        assertTrue(block.getLastDiff() < 1e-12);
+    }
+
+    private static PageRankBlock newBlock() {
+        PageRankBlock block = new PageRankBlock(0, OUTSIDE);
+        for (int v = 0; v < OUTSIDE; v++) {
+            boolean last = block.register(v, GRAPH[v]);
+            assertEquals(v == OUTSIDE - 1, last);
+        }
+        block.build(1.0 / N);
+        return block;
+    }
+
+    // 全图上的普通幂迭代，悬挂质量均匀分配
+    private static double[] powerIteration(int iterations) {
+        double[] rank = new double[N];
+        Arrays.fill(rank, 1.0 / N);
+        for (int it = 0; it < iterations; it++) {
+            double dangling = 0.0;
+            double[] next = new double[N];
+            for (int v = 0; v < N; v++) {
+                if (GRAPH[v].length == 0) {
+                    dangling += rank[v];
+                    continue;
+                }
+                for (long target : GRAPH[v]) {
+                    next[(int) target] += rank[v] / GRAPH[v].length;
+                }
+            }
+            for (int v = 0; v < N; v++) {
+                next[v] = (1.0 - DAMPING) / N + DAMPING * (next[v] + dangling / N);
+            }
+            rank = next;
+        }
+        return rank;
+    }
+}
@@ -0,0 +1,121 @@
+package edu.practice.pagerank;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RandomWalkBlockTest {
+
+    // 块内 4 个顶点：2 有一条出边到块外顶点 99，3 为悬挂顶点
+    private static final long[][] GRAPH = {
+            {1},
+            {2, 3},
+            {0, 99},
+            {},
+    };
+    private static final int WALKS = 10;
+    private static final long SEED = 7L;
+
+    @Test
+    public void registrationAndProcessing() {
+        RandomWalkBlock block = new RandomWalkBlock(0, GRAPH.length, SEED);
+        for (int v = 0; v < GRAPH.length; v++) {
+            assertEquals(v == GRAPH.length - 1, block.register(v, GRAPH[v]));
+        }
+        block.build(WALKS);
+        assertEquals(GRAPH.length, block.size());
+        assertEquals(-1, block.indexOf(99));
+        assertEquals(2, block.getId(block.indexOf(2)));
+        assertEquals(GRAPH.length * WALKS, block.pendingWalkers());
+
+        for (int v = 0; v < GRAPH.length - 1; v++) {
+            assertFalse(block.markProcessed());
+        }
+        assertTrue(block.markProcessed());
+        // 计数在每个超步的最后一个顶点后归零
+        assertFalse(block.markProcessed());
+    }
+
+    @Test
+    public void singleStepVisitsEveryPendingWalkerOnce() {
+        RandomWalkBlock block = newBlock(0);
+        block.walk(1, 1.0);
+        assertEquals(GRAPH.length * WALKS, block.getLastVisits());
+        assertEquals(block.getLastVisits(), totalVisits(block));
+        // 不结束游走时每个游走者恰好去往一处：块内（下一超步继续）、块外或悬挂重启
+        assertEquals(WALKS, block.getLastDangling());
+        assertEquals(GRAPH.length * WALKS, block.pendingWalkers() + outboundWalkers(block) + block.getLastDangling());
+    }
+
+    @Test
+    public void walkersAreConservedAcrossSteps() {
+        RandomWalkBlock block = newBlock(0);
+        block.walk(20, 1.0);
+        assertEquals(GRAPH.length * WALKS, block.pendingWalkers() + outboundWalkers(block) + block.getLastDangling());
+        assertEquals(block.getLastVisits(), totalVisits(block));
+
+        // 下一超步：加入到达的游走者，访问次数累计
+        long before = totalVisits(block);
+        long pending = block.pendingWalkers();
+        block.addWalkers(block.indexOf(0), 5);
+        block.walk(20, 1.0);
+        assertEquals(before + block.getLastVisits(), totalVisits(block));
+        assertEquals(pending + 5, block.pendingWalkers() + outboundWalkers(block) + block.getLastDangling());
+    }
+
+    @Test
+    public void terminatedWalkersAreNeverCountedTwice() {
+        RandomWalkBlock block = newBlock(0);
+        block.walk(3, 0.85);
+        long remaining = block.pendingWalkers() + outboundWalkers(block) + block.getLastDangling();
+        assertTrue(remaining <= GRAPH.length * WALKS);
+        assertTrue(block.getLastVisits() >= GRAPH.length * WALKS);
+        assertEquals(block.getLastVisits(), totalVisits(block));
+    }
+
+    @Test
+    public void sameSeedGivesSameWalks() {
+        RandomWalkBlock first = newBlock(3);
+        RandomWalkBlock second = newBlock(3);
+        for (int round = 0; round < 3; round++) {
+            first.addWalkers(0, first.sampleShare(2.5));
+            second.addWalkers(0, second.sampleShare(2.5));
+            first.walk(4, 0.85);
+            second.walk(4, 0.85);
+            assertArrayEquals(visits(first), visits(second));
+            assertEquals(new Long2LongOpenHashMap(first.getOutbound()), new Long2LongOpenHashMap(second.getOutbound()));
+            assertEquals(first.getLastDangling(), second.getLastDangling());
+        }
+    }
+
+    private static RandomWalkBlock newBlock(int partitionId) {
+        RandomWalkBlock block = new RandomWalkBlock(partitionId, GRAPH.length, SEED);
+        for (int v = 0; v < GRAPH.length; v++) {
+            block.register(v, GRAPH[v]);
+        }
+        block.build(WALKS);
+        return block;
+    }
+
+    private static long outboundWalkers(RandomWalkBlock block) {
+        long total = 0;
+        for (long count : block.getOutbound().values()) total += count;
+        return total;
+    }
+
+    private static long[] visits(RandomWalkBlock block) {
+        long[] visits = new long[block.size()];
+        for (int i = 0; i < visits.length; i++) visits[i] = block.getVisits(i);
+        return visits;
+    }
+
+    private static long totalVisits(RandomWalkBlock block) {
+        long total = 0;
+        for (long count : visits(block)) total += count;
+        return total;
+    }
+}
@@ -0,0 +1,59 @@
+#!/bin/bash
+# PageRank 统一启动脚本 (Linux/Mac)：按输入规模与可用内存自动选择 MapReduce / Giraph / 内存引擎
+
+# 配置变量（根据你的环境修改）
+USER_NAME=${USER}
+INPUT_PATH="/user/${USER_NAME}/pagerank/input/web-Google.txt"
+OUTPUT_PATH="/user/${USER_NAME}/pagerank/output"
+JAR_FILE="target/pagerank-launcher-1.0.jar"
+MAPREDUCE_JAR="../PageRankMapReduce/target/pagerank-mapreduce-comparison-1.0.jar"
+GIRAPH_JAR="../PageRankGiraph/target/pagerank-giraph-comparison-1.0.jar"
+# 历史输出目录（逗号分隔），用于校准代价模型；为空时使用默认模型
+CALIBRATION_DIRS=""
+# auto / mapreduce / giraph / memory
+ENGINE=auto
+
+# 颜色输出
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+YELLOW='\033[1;33m'
+NC='\033[0m' # No Color
+
+echo -e "${GREEN}=== PageRank 统一启动脚本 ===${NC}"
+
+for jar in "$JAR_FILE" "$MAPREDUCE_JAR" "$GIRAPH_JAR"; do
+    if [ ! -f "$jar" ]; then
+        echo -e "${RED}错误: JAR 文件不存在: $jar${NC}"
+        echo -e "${YELLOW}请先在 code/ 目录运行: mvn clean package${NC}"
+        exit 1
+    fi
+done
+
+# 删除旧输出（如果存在）
+echo -e "${YELLOW}删除旧输出目录（如果存在）...${NC}"
+hdfs dfs -rm -r -f "$OUTPUT_PATH" 2>/dev/null
+
+# 内存引擎在本进程内运行，堆大小即其可处理的图规模上限
+export HADOOP_CLIENT_OPTS="${HADOOP_CLIENT_OPTS} -Xmx8g"
+
+# -D 选项必须位于位置参数之前，否则 GenericOptionsParser 不会解析
+hadoop jar "$JAR_FILE" \
+  edu.practice.pagerank.EngineLauncher \
+  -Dpagerank.launcher.engine=${ENGINE} \
+  -Dpagerank.launcher.mapreduceJar=${MAPREDUCE_JAR} \
+  -Dpagerank.launcher.giraphJar=${GIRAPH_JAR} \
+  -Dpagerank.launcher.calibrationDirs=${CALIBRATION_DIRS} \
+  "$INPUT_PATH" \
+  "$OUTPUT_PATH" \
+  "$@"
+
+if [ $? -eq 0 ]; then
+    echo ""
+    echo -e "${GREEN}=== 作业运行成功！ ===${NC}"
+    echo -e "${YELLOW}查看引擎选择理由:${NC}"
+    echo "  hdfs dfs -cat $OUTPUT_PATH/_engine_choice.txt"
+else
+    echo ""
+    echo -e "${RED}=== 作业运行失败！ ===${NC}"
+    exit 1
+fi
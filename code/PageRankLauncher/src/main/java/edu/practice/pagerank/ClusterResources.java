@@ -0,0 +1,133 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.yarn.api.records.NodeReport;
+import org.apache.hadoop.yarn.api.records.NodeState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * 可用内存：集群（Giraph 的全部 Worker 与 Master 容器）与本进程（内存引擎）。
+ *
+ * YARN 模式下从 ResourceManager 的节点报告读取运行中节点的总内存与空闲内存，单个容器上限取
+ * yarn.scheduler.maximum-allocation-mb；本地模式（mapreduce.framework.name=local）不连接 ResourceManager，
+ * 以本机物理内存代替集群内存，容器上限取空闲内存的一半。pagerank.launcher.clusterMemoryMB / containerMB 可直接指定。
+ */
+public class ClusterResources {
+
+    public static final String CONF_CLUSTER_MEMORY_MB = "pagerank.launcher.clusterMemoryMB";
+    public static final String CONF_CONTAINER_MB = "pagerank.launcher.containerMB";
+
+    private static final long MB = 1L << 20;
+
+    public int nodes;
+    public long totalMemoryMB;
+    public long availableMemoryMB;
+    public long containerMB;
+    // 本进程可用的最大堆
+    public long localHeapMB;
+    public String source;
+
+    public String describe() {
+        return String.format("节点 %d, 集群内存 %d MB (空闲 %d MB), 单容器上限 %d MB, 本进程堆 %d MB (%s)",
+                nodes, totalMemoryMB, availableMemoryMB, containerMB, localHeapMB, source);
+    }
+
+    public static ClusterResources detect(Configuration conf) {
+        ClusterResources resources = new ClusterResources();
+        resources.localHeapMB = Runtime.getRuntime().maxMemory() / MB;
+        resources.containerMB = conf.getLong(YarnConfiguration.RM_SCHEDULER_MAXIMUM_ALLOCATION_MB,
+                YarnConfiguration.DEFAULT_RM_SCHEDULER_MAXIMUM_ALLOCATION_MB);
+
+        long configured = conf.getLong(CONF_CLUSTER_MEMORY_MB, -1);
+        if (configured > 0) {
+            resources.nodes = 1;
+            resources.totalMemoryMB = configured;
+            resources.availableMemoryMB = configured;
+            resources.source = "configured";
+        } else if ("yarn".equals(conf.get("mapreduce.framework.name", "local"))) {
+            readNodeReports(conf, resources);
+        } else {
+            readLocalMachine(resources);
+        }
+
+        long container = conf.getLong(CONF_CONTAINER_MB, -1);
+        if (container > 0) {
+            resources.containerMB = container;
+        }
+        resources.containerMB = Math.max(1, Math.min(resources.containerMB, Math.max(1, resources.totalMemoryMB)));
+        return resources;
+    }
+
+    private static void readNodeReports(Configuration conf, ClusterResources resources) {
+        // ResourceManager 不可达时不要按默认策略重试数分钟
+        Configuration yarnConf = new YarnConfiguration(conf);
+        yarnConf.setLong(YarnConfiguration.RESOURCEMANAGER_CONNECT_MAX_WAIT_MS, 10000);
+        yarnConf.setLong(YarnConfiguration.RESOURCEMANAGER_CONNECT_RETRY_INTERVAL_MS, 1000);
+        YarnClient client = YarnClient.createYarnClient();
+        try {
+            client.init(yarnConf);
+            client.start();
+            long largestNode = 0;
+            for (NodeReport node : client.getNodeReports(NodeState.RUNNING)) {
+                long capability = node.getCapability().getMemorySize();
+                long used = node.getUsed() == null ? 0 : node.getUsed().getMemorySize();
+                resources.nodes++;
+                resources.totalMemoryMB += capability;
+                resources.availableMemoryMB += Math.max(0, capability - used);
+                largestNode = Math.max(largestNode, capability);
+            }
+            if (largestNode > 0) {
+                resources.containerMB = Math.min(resources.containerMB, largestNode);
+            }
+            resources.source = "yarn";
+        } catch (Exception e) {
+            System.err.println("警告: 无法读取 YARN 节点报告，按本机内存估计: " + e.getMessage());
+            readLocalMachine(resources);
+        } finally {
+            client.stop();
+        }
+    }
+
+    private static void readLocalMachine(ClusterResources resources) {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        long total = memoryMB(os, "getTotalMemorySize", "getTotalPhysicalMemorySize");
+        long free = memoryMB(os, "getFreeMemorySize", "getFreePhysicalMemorySize");
+        if (total <= 0 || free < 0) {
+            total = resources.localHeapMB;
+            free = resources.localHeapMB;
+        }
+        resources.nodes = 1;
+        resources.totalMemoryMB = total;
+        resources.availableMemoryMB = free;
+        // 本地模式下 Master 与 Worker 在同一台机器上，空闲内存平分给两者
+        resources.containerMB = Math.min(resources.containerMB, Math.max(1, free / 2));
+        resources.source = "local";
+    }
+
+    /**
+     * 按名称依次调用 com.sun.management.OperatingSystemMXBean 的内存方法，返回第一个可用的结果（MB），都不可用时为 -1。
+     * JDK 14 起 getTotalMemorySize / getFreeMemorySize 取代了已弃用的 get*PhysicalMemorySize（容器内返回 cgroup 限制），
+     * 构建目标为 Java 8 无法直接调用新方法，故反射调用，旧 JDK 上退回旧方法。
+     */
+    private static long memoryMB(OperatingSystemMXBean os, String... methods) {
+        Class<?> extended;
+        try {
+            extended = Class.forName("com.sun.management.OperatingSystemMXBean");
+        } catch (ClassNotFoundException e) {
+            return -1;
+        }
+        if (!extended.isInstance(os)) return -1;
+        for (String method : methods) {
+            try {
+                return ((Number) extended.getMethod(method).invoke(os)).longValue() / MB;
+            } catch (ReflectiveOperationException | RuntimeException ignored) {
+                // 当前 JDK 没有该方法，尝试下一个
+            }
+        }
+        return -1;
+    }
+}
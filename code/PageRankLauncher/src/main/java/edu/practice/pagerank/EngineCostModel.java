@@ -0,0 +1,276 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 三个引擎的运行时间模型，每个引擎两项，均为边数的线性函数：
+ *   启动   固定开销 + 每条边开销（MapReduce 预处理 / Giraph 加载与初始化 / 内存引擎读入与建 CSR）
+ *   每轮   固定开销 + 每条边开销（MapReduce 一个迭代 Job / Giraph 一个超步 / 内存引擎一次幂迭代）
+ * 预计总耗时 = 启动 + 轮数 × 每轮 (+ 输入格式转换，按一次 MapReduce 预处理计)。
+ *
+ * 默认值按 README 的集群实测量级设定（MapReduce 单轮作业调度十余秒，LiveJournal 6900 万边单轮约 131 秒；
+ * Giraph 启动约 19 秒，超步约 17 秒），pagerank.launcher.calibrationDirs 指定历史输出目录时用实测值校准：
+ *   performance_report.txt（MapReduce）  Preprocess、Iteration_N_Total Iteraction Time、Graph Size
+ *   _timings.csv（Giraph）               Setup、Superstep_N、Graph_Edges
+ *   _timings.csv（内存引擎）             Setup、Iteration_N、Graph_Edges
+ * 目录本身或其下一层子目录即一次运行的输出。同一引擎有两种以上不同边数的运行时用最小二乘拟合两个系数；
+ * 只有一种边数时保留默认模型的形状、整体按实测与预测之比缩放。缺少图规模的旧输出不参与校准。
+ */
+public class EngineCostModel {
+
+    // 逗号分隔的历史输出目录
+    public static final String CONF_CALIBRATION_DIRS = "pagerank.launcher.calibrationDirs";
+
+    public enum Engine {
+        MAPREDUCE("mapreduce"), GIRAPH("giraph"), MEMORY(InMemoryPageRank.ENGINE);
+
+        public final String label;
+
+        Engine(String label) {
+            this.label = label;
+        }
+
+        public static Engine of(String label) {
+            for (Engine engine : values()) {
+                if (engine.label.equalsIgnoreCase(label)) return engine;
+            }
+            throw new IllegalArgumentException("未知引擎: " + label);
+        }
+    }
+
+    /**
+     * 固定开销 + 每条边开销（毫秒）。
+     */
+    public static class LinearCost {
+        public final double fixedMs;
+        public final double msPerEdge;
+
+        public LinearCost(double fixedMs, double msPerEdge) {
+            this.fixedMs = fixedMs;
+            this.msPerEdge = msPerEdge;
+        }
+
+        public double predict(long edges) {
+            return fixedMs + msPerEdge * edges;
+        }
+
+        public String describe() {
+            return String.format("%.0f ms + %.3g ms/边", fixedMs, msPerEdge);
+        }
+    }
+
+    // 一次历史运行：边数、启动耗时、平均每轮耗时
+    static class Observation {
+        final long edges;
+        final double setupMs;
+        final double iterationMs;
+
+        Observation(long edges, double setupMs, double iterationMs) {
+            this.edges = edges;
+            this.setupMs = setupMs;
+            this.iterationMs = iterationMs;
+        }
+    }
+
+    private static final Pattern REPORT_LINE = Pattern.compile("^(.+?)\\s*:\\s*(\\d+) ms .*?(?: - (.*))?$");
+    private static final Pattern EDGES_FIELD = Pattern.compile("edges=(\\d+)");
+
+    private final Map<Engine, LinearCost> setup = new EnumMap<>(Engine.class);
+    private final Map<Engine, LinearCost> iteration = new EnumMap<>(Engine.class);
+    private final Map<Engine, String> sources = new EnumMap<>(Engine.class);
+
+    public EngineCostModel() {
+        setup.put(Engine.MAPREDUCE, new LinearCost(15000, 1.3e-3));
+        iteration.put(Engine.MAPREDUCE, new LinearCost(15000, 1.7e-3));
+        setup.put(Engine.GIRAPH, new LinearCost(19000, 1.2e-3));
+        iteration.put(Engine.GIRAPH, new LinearCost(500, 2.4e-4));
+        setup.put(Engine.MEMORY, new LinearCost(200, 2.0e-4));
+        iteration.put(Engine.MEMORY, new LinearCost(0, 5.0e-6));
+        for (Engine engine : Engine.values()) {
+            sources.put(engine, "默认");
+        }
+    }
+
+    /**
+     * 默认模型，配置了历史输出目录时按实测值校准。
+     */
+    public static EngineCostModel load(Configuration conf) throws IOException {
+        EngineCostModel model = new EngineCostModel();
+        String dirs = conf.get(CONF_CALIBRATION_DIRS);
+        if (dirs == null || dirs.trim().isEmpty()) return model;
+
+        Map<Engine, List<Observation>> observations = new EnumMap<>(Engine.class);
+        for (String dir : dirs.split(",")) {
+            if (dir.trim().isEmpty()) continue;
+            Path path = new Path(dir.trim());
+            FileSystem fs = path.getFileSystem(conf);
+            if (!fs.exists(path)) {
+                System.err.println("警告: 校准目录不存在: " + path);
+                continue;
+            }
+            collect(fs, path, observations);
+            for (FileStatus child : fs.listStatus(path)) {
+                if (child.isDirectory()) collect(fs, child.getPath(), observations);
+            }
+        }
+        for (Map.Entry<Engine, List<Observation>> entry : observations.entrySet()) {
+            model.calibrate(entry.getKey(), entry.getValue());
+        }
+        return model;
+    }
+
+    public LinearCost setup(Engine engine) {
+        return setup.get(engine);
+    }
+
+    public LinearCost iteration(Engine engine) {
+        return iteration.get(engine);
+    }
+
+    public String describe(Engine engine) {
+        return String.format("启动 %s, 每轮 %s (%s)", setup.get(engine).describe(), iteration.get(engine).describe(), sources.get(engine));
+    }
+
+    void calibrate(Engine engine, List<Observation> runs) {
+        if (runs.isEmpty()) return;
+        List<double[]> setupSamples = new ArrayList<>();
+        List<double[]> iterationSamples = new ArrayList<>();
+        for (Observation run : runs) {
+            if (run.setupMs >= 0) setupSamples.add(new double[] {run.edges, run.setupMs});
+            if (run.iterationMs >= 0) iterationSamples.add(new double[] {run.edges, run.iterationMs});
+        }
+        setup.put(engine, fit(setup.get(engine), setupSamples));
+        iteration.put(engine, fit(iteration.get(engine), iterationSamples));
+        sources.put(engine, "按 " + runs.size() + " 次历史运行校准");
+    }
+
+    /**
+     * 最小二乘拟合 (边数, 毫秒)；边数不足两种或拟合出负系数时，按实测与先验预测之比缩放先验。
+     */
+    static LinearCost fit(LinearCost prior, List<double[]> samples) {
+        if (samples.isEmpty()) return prior;
+        int n = samples.size();
+        double meanX = 0, meanY = 0;
+        for (double[] s : samples) {
+            meanX += s[0] / n;
+            meanY += s[1] / n;
+        }
+        double sxx = 0, sxy = 0;
+        for (double[] s : samples) {
+            sxx += (s[0] - meanX) * (s[0] - meanX);
+            sxy += (s[0] - meanX) * (s[1] - meanY);
+        }
+        if (sxx > 0) {
+            double slope = sxy / sxx;
+            double intercept = meanY - slope * meanX;
+            if (slope >= 0 && intercept >= 0) return new LinearCost(intercept, slope);
+        }
+        double predicted = 0;
+        for (double[] s : samples) {
+            predicted += prior.predict((long) s[0]) / n;
+        }
+        double ratio = predicted > 0 ? meanY / predicted : 1.0;
+        return new LinearCost(prior.fixedMs * ratio, prior.msPerEdge * ratio);
+    }
+
+    // 一个输出目录中的报告，识别出引擎与图规模时加入观测
+    private static void collect(FileSystem fs, Path dir, Map<Engine, List<Observation>> observations) throws IOException {
+        Path report = new Path(dir, "performance_report.txt");
+        Path timings = new Path(dir, "_timings.csv");
+        Observation run = null;
+        Engine engine = null;
+        if (fs.exists(report)) {
+            engine = Engine.MAPREDUCE;
+            run = readReport(fs, report);
+        } else if (fs.exists(timings)) {
+            List<String[]> rows = readCsv(fs, timings);
+            engine = Engine.MEMORY;
+            for (String[] row : rows) {
+                if (row[0].startsWith("Superstep_")) engine = Engine.GIRAPH;
+            }
+            run = readTimings(rows, engine == Engine.GIRAPH ? "Superstep_" : "Iteration_");
+        }
+        if (engine == null) return;
+        if (run == null) {
+            System.err.println("警告: 历史输出缺少图规模，不参与校准: " + dir);
+            return;
+        }
+        observations.computeIfAbsent(engine, k -> new ArrayList<>()).add(run);
+    }
+
+    private static Observation readReport(FileSystem fs, Path report) throws IOException {
+        long edges = -1;
+        double setupMs = -1;
+        double iterationSum = 0;
+        int iterations = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(report), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = REPORT_LINE.matcher(line);
+                if (!matcher.matches()) continue;
+                String name = matcher.group(1).trim();
+                long ms = Long.parseLong(matcher.group(2));
+                if (name.equals("Preprocess")) {
+                    setupMs = ms;
+                } else if (name.startsWith("Iteration_") && name.endsWith("Total Iteraction Time")) {
+                    iterationSum += ms;
+                    iterations++;
+                } else if (name.equals("Graph Size") && matcher.group(3) != null) {
+                    Matcher edgesField = EDGES_FIELD.matcher(matcher.group(3));
+                    if (edgesField.find()) edges = Long.parseLong(edgesField.group(1));
+                }
+            }
+        }
+        if (edges <= 0) return null;
+        return new Observation(edges, setupMs, iterations > 0 ? iterationSum / iterations : -1);
+    }
+
+    private static Observation readTimings(List<String[]> rows, String iterationPrefix) {
+        long edges = -1;
+        double setupMs = -1;
+        double iterationSum = 0;
+        int iterations = 0;
+        for (String[] row : rows) {
+            if (row.length < 2) continue;
+            try {
+                if (row[0].equals("Setup")) {
+                    setupMs = Long.parseLong(row[1].trim());
+                } else if (row[0].startsWith(iterationPrefix)) {
+                    iterationSum += Long.parseLong(row[1].trim());
+                    iterations++;
+                } else if (row[0].equals("Graph_Edges")) {
+                    edges = Long.parseLong(row[1].trim());
+                }
+            } catch (NumberFormatException e) {
+                // 表头或格式不符的行
+            }
+        }
+        if (edges <= 0) return null;
+        return new Observation(edges, setupMs, iterations > 0 ? iterationSum / iterations : -1);
+    }
+
+    private static List<String[]> readCsv(FileSystem fs, Path file) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rows.add(line.split(","));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,239 @@
+package edu.practice.pagerank;
+
+import edu.practice.pagerank.EngineCostModel.Engine;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 统一启动器：用两个引擎共同的命令行参数运行 PageRank，按输入规模与可用内存自动选择
+ * MapReduce、Giraph 或单 JVM 内存引擎。
+ *
+ * 流程：抽样输入（InputProfile）→ 读取集群与本进程内存（ClusterResources）→ 按历史输出校准代价模型
+ * （EngineCostModel）→ 评估各引擎的可行性与预计耗时并选择（EngineSelector）→ 必要时转换输入格式
+ * （InputConverter）→ 运行。MapReduce 与 Giraph 以独立进程执行各自的 JAR（两个 JAR 中的类同名，
+ * 不能放进同一个类路径），内存引擎在本进程内执行。
+ *
+ * 命令行中的 -D 选项原样传给所选引擎（pagerank.launcher.* 除外），启动器为所选引擎确定的参数
+ * 只在命令行没有指定同名选项时加入。选择理由与预计 / 实际耗时打印到标准输出，并写入
+ * <输出目录>/_engine_choice.txt；该输出目录之后也可作为 pagerank.launcher.calibrationDirs 的一项。
+ */
+public class EngineLauncher extends Configured implements Tool {
+
+    public static final String CONF_PREFIX = "pagerank.launcher.";
+    // 两个引擎的 JAR（默认为本模块目录下运行时的相对路径）
+    public static final String CONF_MAPREDUCE_JAR = "pagerank.launcher.mapreduceJar";
+    public static final String CONF_GIRAPH_JAR = "pagerank.launcher.giraphJar";
+    public static final String DEFAULT_MAPREDUCE_JAR = "../PageRankMapReduce/target/pagerank-mapreduce-comparison-1.0.jar";
+    public static final String DEFAULT_GIRAPH_JAR = "../PageRankGiraph/target/pagerank-giraph-comparison-1.0.jar";
+    // 运行引擎 JAR 的命令（hadoop jar ...）
+    public static final String CONF_HADOOP_COMMAND = "pagerank.launcher.hadoopCommand";
+    // 只打印选择结果，不运行
+    public static final String CONF_DRY_RUN = "pagerank.launcher.dryRun";
+    // 保留格式转换后的输入
+    public static final String CONF_KEEP_CONVERTED = "pagerank.launcher.keepConverted";
+
+    public static final String DRIVER_CLASS = "edu.practice.pagerank.PageRankDriver";
+    public static final String CHOICE_FILE = "_engine_choice.txt";
+
+    // 命令行中的 -D 选项，原样传给引擎
+    private final List<String> definitions;
+
+    public EngineLauncher(List<String> definitions) {
+        this.definitions = definitions;
+    }
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("用法: EngineLauncher <input> <output> [maxIter] [damping] [threshold] [minIter]");
+            System.err.println("可选: -D" + EngineSelector.CONF_ENGINE + "=auto|mapreduce|giraph|memory -D" + CONF_DRY_RUN + "=true （只打印选择结果）");
+            System.err.println("可选: -D" + EngineCostModel.CONF_CALIBRATION_DIRS + "=<历史输出目录,...> （按实测耗时校准代价模型）");
+            System.err.println("可选: -D" + CONF_MAPREDUCE_JAR + "=<jar> -D" + CONF_GIRAPH_JAR + "=<jar> -D" + CONF_HADOOP_COMMAND + "=hadoop");
+            System.err.println("可选: -D" + ClusterResources.CONF_CLUSTER_MEMORY_MB + "=<MB> -D" + ClusterResources.CONF_CONTAINER_MB + "=<MB> （覆盖探测到的内存）");
+            return 1;
+        }
+        long runStart = System.currentTimeMillis();
+        Configuration conf = getConf();
+        Path input = new Path(args[0]);
+        Path output = new Path(args[1]);
+        int maxIterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        double damping = args.length > 3 ? Double.parseDouble(args[3]) : 0.85;
+        double threshold = args.length > 4 ? Double.parseDouble(args[4]) : 1.0e-6;
+        int minIterations = args.length > 5 ? Integer.parseInt(args[5]) : 5;
+
+        FileSystem fs = output.getFileSystem(conf);
+        if (!input.getFileSystem(conf).exists(input)) {
+            System.err.println("错误: 输入路径不存在: " + input);
+            return 1;
+        }
+        if (fs.exists(output)) {
+            System.err.println("错误: 输出目录已存在: " + output);
+            return 1;
+        }
+
+        // 1. 输入规模与可用内存
+        InputProfile profile = InputProfile.sample(conf, input);
+        ClusterResources resources = ClusterResources.detect(conf);
+        EngineCostModel model = EngineCostModel.load(conf);
+
+        // 2. 评估与选择
+        EngineSelector selector = new EngineSelector(conf, profile, resources, model);
+        List<EngineSelector.Candidate> candidates = selector.evaluate(maxIterations);
+        EngineSelector.Candidate chosen = selector.choose(candidates);
+
+        List<String> log = new ArrayList<>();
+        log.add("输入: " + input + " (" + profile.describe() + ")");
+        log.add("内存: " + resources.describe());
+        for (Engine engine : Engine.values()) {
+            log.add("代价模型 " + engine.label + ": " + model.describe(engine));
+        }
+        for (EngineSelector.Candidate candidate : candidates) {
+            log.add("候选 " + candidate.describe());
+        }
+        log.add("选择: " + chosen.engine.label + " —— " + selector.getReason());
+        if (!chosen.parameters.isEmpty()) {
+            log.add("参数: " + chosen.parameters);
+        }
+        System.out.println("=== 引擎选择 ===");
+        for (String line : log) {
+            System.out.println(line);
+        }
+        if (conf.getBoolean(CONF_DRY_RUN, false)) {
+            return 0;
+        }
+
+        // 3. 输入格式转换
+        Path engineInput = input;
+        Path converted = null;
+        if (selector.needsConversion(chosen.engine)) {
+            InputProfile.Format target = chosen.engine == Engine.GIRAPH ? InputProfile.Format.ADJACENCY : InputProfile.Format.EDGES;
+            converted = new Path(output.getParent(), output.getName() + "_input");
+            fs.delete(converted, true);
+            long convertStart = System.currentTimeMillis();
+            System.out.println("转换输入格式: " + input + " -> " + converted);
+            if (!InputConverter.convert(conf, input, converted, target)) {
+                System.err.println("错误: 输入格式转换失败");
+                return 2;
+            }
+            log.add(String.format("转换: %s (%d ms)", converted, System.currentTimeMillis() - convertStart));
+            engineInput = converted;
+        }
+
+        // 4. 运行
+        long engineStart = System.currentTimeMillis();
+        int exitCode;
+        if (chosen.engine == Engine.MEMORY) {
+            for (Map.Entry<String, String> parameter : chosen.parameters.entrySet()) {
+                if (conf.get(parameter.getKey()) == null) conf.set(parameter.getKey(), parameter.getValue());
+            }
+            exitCode = new InMemoryPageRank(conf).run(engineInput, output, maxIterations, damping, threshold, minIterations);
+        } else {
+            List<String> command = engineCommand(chosen, engineInput, output, args);
+            if (command == null) return 1;
+            log.add("命令: " + String.join(" ", command));
+            System.out.println("运行: " + String.join(" ", command));
+            Process process = new ProcessBuilder(command).inheritIO().start();
+            exitCode = process.waitFor();
+        }
+        long engineMs = System.currentTimeMillis() - engineStart;
+
+        if (converted != null && !conf.getBoolean(CONF_KEEP_CONVERTED, false)) {
+            fs.delete(converted, true);
+        }
+
+        // 5. 预计与实际耗时
+        log.add(String.format("结果: 退出码 %d，引擎耗时 %.1f 秒（预计 %.1f 秒，按 %d 轮上界），启动器总耗时 %.1f 秒",
+                exitCode, engineMs / 1000.0, (chosen.totalMs() - chosen.conversionMs) / 1000.0, chosen.iterations,
+                (System.currentTimeMillis() - runStart) / 1000.0));
+        System.out.println(log.get(log.size() - 1));
+        if (fs.exists(output)) {
+            writeChoice(fs, new Path(output, CHOICE_FILE), log);
+        }
+        return exitCode;
+    }
+
+    // hadoop jar <引擎 JAR> PageRankDriver -D... <input> <output> [位置参数]
+    private List<String> engineCommand(EngineSelector.Candidate chosen, Path input, Path output, String[] args) {
+        Configuration conf = getConf();
+        String jar = chosen.engine == Engine.GIRAPH
+                ? conf.get(CONF_GIRAPH_JAR, DEFAULT_GIRAPH_JAR)
+                : conf.get(CONF_MAPREDUCE_JAR, DEFAULT_MAPREDUCE_JAR);
+        if (!new File(jar).isFile()) {
+            System.err.println("错误: 引擎 JAR 不存在: " + jar + "（请先在对应模块运行 mvn package，或用 -D"
+                    + (chosen.engine == Engine.GIRAPH ? CONF_GIRAPH_JAR : CONF_MAPREDUCE_JAR) + " 指定）");
+            return null;
+        }
+        List<String> command = new ArrayList<>();
+        command.add(conf.get(CONF_HADOOP_COMMAND, "hadoop"));
+        command.add("jar");
+        command.add(jar);
+        command.add(DRIVER_CLASS);
+        List<String> keys = new ArrayList<>();
+        for (String definition : definitions) {
+            keys.add(definition.substring(0, definition.indexOf('=')));
+            command.add("-D" + definition);
+        }
+        for (Map.Entry<String, String> parameter : chosen.parameters.entrySet()) {
+            if (!keys.contains(parameter.getKey())) {
+                command.add("-D" + parameter.getKey() + "=" + parameter.getValue());
+            }
+        }
+        command.add(input.toString());
+        command.add(output.toString());
+        for (int i = 2; i < Math.min(args.length, 6); i++) {
+            command.add(args[i]);
+        }
+        return command;
+    }
+
+    private static void writeChoice(FileSystem fs, Path file, List<String> log) {
+        try (FSDataOutputStream out = fs.create(file, true);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (String line : log) {
+                writer.write(line);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            System.err.println("警告: 无法写入引擎选择记录: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 命令行中的 -D key=value 与 -Dkey=value，去掉启动器自己的选项。
+     */
+    static List<String> collectDefinitions(String[] args) {
+        List<String> definitions = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String definition = null;
+            if (args[i].equals("-D") && i + 1 < args.length) {
+                definition = args[++i];
+            } else if (args[i].startsWith("-D") && args[i].length() > 2) {
+                definition = args[i].substring(2);
+            }
+            if (definition != null && definition.indexOf('=') > 0 && !definition.startsWith(CONF_PREFIX)) {
+                definitions.add(definition);
+            }
+        }
+        return definitions;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Configuration conf = new Configuration();
+        int exitCode = ToolRunner.run(conf, new EngineLauncher(collectDefinitions(args)), args);
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,197 @@
+package edu.practice.pagerank;
+
+import edu.practice.pagerank.EngineCostModel.Engine;
+import org.apache.hadoop.conf.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 引擎选择：对每个引擎先判断内存是否放得下，再用 EngineCostModel 预计总耗时，在可行的引擎中选耗时最短的。
+ *
+ *   内存引擎   峰值堆（InMemoryPageRank.estimateBytes）不超过本进程最大堆的 USABLE_HEAP_SHARE
+ *   Giraph     按每顶点 / 每边字节估算全图堆占用，单个 Worker 堆取容器上限的 80%，扣除固定开销后
+ *              得到所需 Worker 数；Worker 与 Master 容器总内存不超过集群空闲内存
+ *   MapReduce  逐轮读写磁盘，总是可行，作为兜底
+ * 输入格式不是引擎所需格式时，预计耗时加上一次转换（按一次 MapReduce 预处理计）。
+ * 轮数取 pagerank.launcher.expectedIterations，默认为最大迭代次数（收敛判据可能提前停止，是上界）。
+ *
+ * 同时确定所选引擎的参数：Giraph 打开 MemoryPlanner 的自动定容并给出单 Worker 最大堆与最大 Worker 数，
+ * 内存引擎的线程数取 CPU 核数；MapReduce 的 Reducer 数等由其 ParallelismPlanner 按实际规模规划。
+ * pagerank.launcher.engine=mapreduce|giraph|memory 可强制指定引擎（auto 为自动选择）。
+ */
+public class EngineSelector {
+
+    public static final String CONF_ENGINE = "pagerank.launcher.engine";
+    public static final String CONF_EXPECTED_ITERATIONS = "pagerank.launcher.expectedIterations";
+    public static final String AUTO = "auto";
+
+    // 内存引擎：堆中只按该比例用于数据，其余留给 GC
+    public static final double USABLE_HEAP_SHARE = 0.7;
+
+    // Giraph 内存估算（与 Giraph 模块 MemoryPlanner 的默认配置一致）：
+    // 顶点对象 80 + DoubleWritable 16 + 出边容器 48；每条边 ByteArrayEdges 9 字节 + 收发两个消息存储各 8 字节
+    private static final int GIRAPH_BYTES_PER_VERTEX = 144;
+    private static final int GIRAPH_BYTES_PER_EDGE = 25;
+    private static final long GIRAPH_FIXED_MB = 300;
+    private static final double HEAP_SHARE_OF_CONTAINER = 0.8;
+    private static final long MB = 1L << 20;
+
+    /**
+     * 一个引擎的评估结果。
+     */
+    public static class Candidate {
+        public final Engine engine;
+        public boolean feasible = true;
+        public String memoryNote = "";
+        public int iterations;
+        public double setupMs;
+        public double iterationMs;
+        public double conversionMs;
+        public final Map<String, String> parameters = new LinkedHashMap<>();
+
+        Candidate(Engine engine) {
+            this.engine = engine;
+        }
+
+        public double totalMs() {
+            return conversionMs + setupMs + iterations * iterationMs;
+        }
+
+        public String describe() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%-9s ", engine.label));
+            if (!feasible) {
+                sb.append("不可行: ").append(memoryNote);
+                return sb.toString();
+            }
+            sb.append(String.format("预计 %.1f 秒 = ", totalMs() / 1000.0));
+            if (conversionMs > 0) {
+                sb.append(String.format("转换 %.1f + ", conversionMs / 1000.0));
+            }
+            sb.append(String.format("启动 %.1f + %d 轮 × %.2f; %s", setupMs / 1000.0, iterations, iterationMs / 1000.0, memoryNote));
+            return sb.toString();
+        }
+    }
+
+    private final Configuration conf;
+    private final InputProfile profile;
+    private final ClusterResources resources;
+    private final EngineCostModel model;
+    private String reason;
+
+    public EngineSelector(Configuration conf, InputProfile profile, ClusterResources resources, EngineCostModel model) {
+        this.conf = conf;
+        this.profile = profile;
+        this.resources = resources;
+        this.model = model;
+    }
+
+    public List<Candidate> evaluate(int maxIterations) {
+        int iterations = Math.max(1, conf.getInt(CONF_EXPECTED_ITERATIONS, maxIterations));
+        List<Candidate> candidates = new ArrayList<>();
+        for (Engine engine : Engine.values()) {
+            Candidate candidate = new Candidate(engine);
+            candidate.iterations = iterations;
+            candidate.setupMs = model.setup(engine).predict(profile.edges);
+            candidate.iterationMs = model.iteration(engine).predict(profile.edges);
+            if (needsConversion(engine)) {
+                candidate.conversionMs = model.setup(Engine.MAPREDUCE).predict(profile.edges);
+            }
+            switch (engine) {
+                case MEMORY: checkMemory(candidate); break;
+                case GIRAPH: checkGiraph(candidate); break;
+                default: candidate.memoryNote = "逐轮读写磁盘，不受内存限制"; break;
+            }
+            candidates.add(candidate);
+        }
+        return candidates;
+    }
+
+    /**
+     * 强制指定时返回该引擎，否则返回可行引擎中预计耗时最短的；选择理由见 getReason()。
+     */
+    public Candidate choose(List<Candidate> candidates) {
+        String forced = conf.get(CONF_ENGINE, AUTO).trim();
+        if (!AUTO.equalsIgnoreCase(forced)) {
+            Engine engine = Engine.of(forced);
+            for (Candidate candidate : candidates) {
+                if (candidate.engine != engine) continue;
+                reason = "由 -D" + CONF_ENGINE + "=" + engine.label + " 指定"
+                        + (candidate.feasible ? "" : "（警告: 预估不可行，" + candidate.memoryNote + "）");
+                return candidate;
+            }
+        }
+
+        Candidate best = null;
+        Candidate second = null;
+        for (Candidate candidate : candidates) {
+            if (!candidate.feasible) continue;
+            if (best == null || candidate.totalMs() < best.totalMs()) {
+                second = best;
+                best = candidate;
+            } else if (second == null || candidate.totalMs() < second.totalMs()) {
+                second = candidate;
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s 在可行引擎中预计耗时最短 (%.1f 秒)", best.engine.label, best.totalMs() / 1000.0));
+        if (second != null) {
+            sb.append(String.format("，次优 %s 预计 %.1f 秒 (%.1f 倍)", second.engine.label, second.totalMs() / 1000.0,
+                    second.totalMs() / Math.max(1.0, best.totalMs())));
+        }
+        for (Candidate candidate : candidates) {
+            if (!candidate.feasible) {
+                sb.append("；").append(candidate.engine.label).append(" 被排除: ").append(candidate.memoryNote);
+            }
+        }
+        reason = sb.toString();
+        return best;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public boolean needsConversion(Engine engine) {
+        switch (engine) {
+            case MAPREDUCE: return !profile.readableByMapReduce();
+            case GIRAPH: return !profile.readableByGiraph();
+            default: return false;
+        }
+    }
+
+    private void checkMemory(Candidate candidate) {
+        long neededMB = InMemoryPageRank.estimateBytes(profile.vertices, profile.edges) / MB + 1;
+        long usableMB = (long) (resources.localHeapMB * USABLE_HEAP_SHARE);
+        candidate.memoryNote = String.format("需堆 ~%d MB / 可用 %d MB", neededMB, usableMB);
+        candidate.feasible = neededMB <= usableMB;
+        candidate.parameters.put(InMemoryPageRank.CONF_THREADS, String.valueOf(Runtime.getRuntime().availableProcessors()));
+    }
+
+    private void checkGiraph(Candidate candidate) {
+        long heapMB = (long) (resources.containerMB * HEAP_SHARE_OF_CONTAINER);
+        long usablePerWorker = (long) (heapMB * USABLE_HEAP_SHARE) - GIRAPH_FIXED_MB;
+        long graphMB = (profile.vertices * GIRAPH_BYTES_PER_VERTEX + profile.edges * GIRAPH_BYTES_PER_EDGE) / MB + 1;
+        if (usablePerWorker <= 0) {
+            candidate.feasible = false;
+            candidate.memoryNote = String.format("单容器 %d MB 放不下 Worker 固定开销", resources.containerMB);
+            return;
+        }
+        // 哈希分区下最重 Worker 额外承担最大出度顶点的边
+        long maxDegreeMB = profile.maxDegree * GIRAPH_BYTES_PER_EDGE / MB;
+        long maxWorkers = Math.max(1, resources.availableMemoryMB / resources.containerMB - 1);
+        long workers = 1;
+        while (graphMB / workers + maxDegreeMB > usablePerWorker && workers < maxWorkers) workers++;
+        long containersMB = (workers + 1) * resources.containerMB;
+        candidate.memoryNote = String.format("图 ~%d MB，需 %d 个 Worker + Master，每个容器 %d MB，共 %d MB / 集群空闲 %d MB",
+                graphMB, workers, resources.containerMB, containersMB, resources.availableMemoryMB);
+        candidate.feasible = graphMB / workers + maxDegreeMB <= usablePerWorker
+                && containersMB <= resources.availableMemoryMB;
+        candidate.parameters.put("pagerank.memory.autoSize", "true");
+        candidate.parameters.put("pagerank.memory.maxHeapMB", String.valueOf(heapMB));
+        candidate.parameters.put("pagerank.memory.maxWorkers", String.valueOf(maxWorkers));
+    }
+}
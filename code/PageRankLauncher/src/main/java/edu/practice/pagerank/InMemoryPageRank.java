@@ -0,0 +1,322 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 单 JVM 内存引擎：图能放进启动器进程的堆时，省去 MapReduce 的逐轮作业调度与 Giraph 的容器启动。
+ *
+ * 读取边表或邻接表（# 开头为注释），节点 ID 映射为连续下标，同一源节点的重复出边去重（与 MapReduce 预处理一致），
+ * 建立入边 CSR 后做拉取式幂迭代：
+ *   PR_i = (1-d)/N + d * (Σ_{j→i} PR_j / deg_j + 悬挂质量 / N)
+ * 初值 1/N，平均 PR 变化（L1 / N）不超过阈值且达到最少迭代次数时停止，与两个分布式引擎的收敛判据相同。
+ * 每轮按入边数把顶点区间均分给各线程，高入度顶点不会让某个线程独占大部分工作。
+ *
+ * 输出与 MapReduce 引擎的 final_scores 相同（part-00000 与 pagerankTop_50.txt），
+ * 另写 _timings.csv（Setup、Iteration_N 与图规模），供 EngineCostModel 校准。
+ */
+public class InMemoryPageRank {
+
+    public static final String ENGINE = "memory";
+    // 计算线程数，默认取 CPU 核数
+    public static final String CONF_THREADS = "pagerank.inmemory.threads";
+
+    // 峰值内存估算：ID 表槽位 + ID 数组 + PR / 新 PR / 贡献值 + 出度 + 入边起点
+    public static final int BYTES_PER_VERTEX = 72;
+    // 加载时的源 / 目标下标 + 出边与入边 CSR
+    public static final int BYTES_PER_EDGE = 24;
+
+    private final Configuration conf;
+
+    private int size;
+    private long[] ids;
+    private int[] outDegree;
+    private int[] inStart;
+    private int[] inSources;
+
+    public InMemoryPageRank(Configuration conf) {
+        this.conf = conf;
+    }
+
+    /**
+     * 预估峰值堆占用（字节）。
+     */
+    public static long estimateBytes(long vertices, long edges) {
+        return vertices * BYTES_PER_VERTEX + edges * BYTES_PER_EDGE;
+    }
+
+    public int run(Path input, Path output, int maxIterations, double damping, double threshold, int minIterations)
+            throws IOException, InterruptedException {
+        List<String> timings = new ArrayList<>();
+        long loadStart = System.currentTimeMillis();
+        load(input);
+        long loadMs = System.currentTimeMillis() - loadStart;
+        timings.add("Setup," + loadMs);
+        long edges = inSources.length;
+        System.out.printf("内存引擎: 加载完成，节点数 N = %d，边数 = %d，耗时 %.3f 秒\n", size, edges, loadMs / 1000.0);
+        if (size == 0) {
+            System.err.println("错误: 输入中没有任何边");
+            return 3;
+        }
+
+        int threads = Math.max(1, conf.getInt(CONF_THREADS, Runtime.getRuntime().availableProcessors()));
+        int[] bounds = splitByInEdges(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(bounds.length - 1);
+        double[] rank = new double[size];
+        double[] next = new double[size];
+        double[] contribution = new double[size];
+        Arrays.fill(rank, 1.0 / size);
+
+        int iteration = 0;
+        try {
+            while (iteration < maxIterations) {
+                long iterStart = System.currentTimeMillis();
+                iteration++;
+                double dangling = 0.0;
+                for (int j = 0; j < size; j++) {
+                    if (outDegree[j] == 0) {
+                        dangling += rank[j];
+                        contribution[j] = 0.0;
+                    } else {
+                        contribution[j] = rank[j] / outDegree[j];
+                    }
+                }
+                double base = (1.0 - damping) / size + damping * dangling / size;
+                double diff = sweep(pool, bounds, rank, next, contribution, base, damping);
+                double[] swap = rank;
+                rank = next;
+                next = swap;
+
+                double avgDiff = diff / size;
+                long iterMs = System.currentTimeMillis() - iterStart;
+                timings.add("Iteration_" + iteration + "," + iterMs);
+                System.out.printf("   > 第 %d 次迭代平均 PR 变化: %.12e (%d ms)\n", iteration, avgDiff, iterMs);
+                if (iteration >= minIterations && avgDiff <= threshold) {
+                    System.out.println("平均 PR 变化低于阈值，迭代在第 " + iteration + " 轮收敛");
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        long writeStart = System.currentTimeMillis();
+        Path scores = new Path(output, "final_scores");
+        writeScores(new Path(scores, "part-00000"), rank);
+        writeTop(new Path(scores, "pagerankTop_50.txt"), rank, 50);
+        timings.add("Cleanup_And_Write," + (System.currentTimeMillis() - writeStart));
+        timings.add("Graph_Vertices," + size);
+        timings.add("Graph_Edges," + edges);
+        writeTimings(new Path(output, "_timings.csv"), timings);
+        System.out.println("内存引擎: 共 " + iteration + " 轮迭代，最终 PR 文件在: " + scores);
+        return 0;
+    }
+
+    // 按入边数把 [0, size) 均分为若干区间，返回区间边界
+    private int[] splitByInEdges(int threads) {
+        int parts = Math.max(1, Math.min(threads, size));
+        int[] bounds = new int[parts + 1];
+        long total = inSources.length + (long) size;
+        int vertex = 0;
+        for (int p = 1; p < parts; p++) {
+            long target = total * p / parts;
+            while (vertex < size && inStart[vertex] + (long) vertex < target) vertex++;
+            bounds[p] = vertex;
+        }
+        bounds[parts] = size;
+        return bounds;
+    }
+
+    // 各线程计算自己区间内顶点的新 PR，返回全图 L1 变化
+    private double sweep(ExecutorService pool, int[] bounds, double[] rank, double[] next, double[] contribution,
+                         double base, double damping) throws InterruptedException {
+        List<Future<Double>> parts = new ArrayList<>();
+        for (int p = 0; p + 1 < bounds.length; p++) {
+            int from = bounds[p];
+            int to = bounds[p + 1];
+            parts.add(pool.submit(() -> {
+                double diff = 0.0;
+                for (int i = from; i < to; i++) {
+                    double sum = 0.0;
+                    for (int k = inStart[i]; k < inStart[i + 1]; k++) {
+                        sum += contribution[inSources[k]];
+                    }
+                    double value = base + damping * sum;
+                    diff += Math.abs(value - rank[i]);
+                    next[i] = value;
+                }
+                return diff;
+            }));
+        }
+        double diff = 0.0;
+        for (Future<Double> part : parts) {
+            try {
+                diff += part.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("迭代线程失败", e.getCause());
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * 读取全部输入文件，建立去重后的出度与入边 CSR。
+     */
+    private void load(Path input) throws IOException {
+        FileSystem fs = input.getFileSystem(conf);
+        CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+        LongIntHashMap index = new LongIntHashMap(1 << 16, -1);
+        long[] idList = new long[1 << 16];
+        int[] sources = new int[1 << 16];
+        int[] targets = new int[1 << 16];
+        int vertices = 0;
+        int edges = 0;
+
+        for (FileStatus file : InputProfile.listInputFiles(fs, input)) {
+            CompressionCodec codec = codecs.getCodec(file.getPath());
+            InputStream in = codec != null ? codec.createInputStream(fs.open(file.getPath())) : fs.open(file.getPath());
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+                    String[] tokens = line.split("\\s+");
+                    long sourceId = parseId(tokens[0], line);
+                    int source = index.get(sourceId);
+                    if (source < 0) {
+                        if (vertices == idList.length) idList = Arrays.copyOf(idList, vertices * 2);
+                        source = vertices;
+                        idList[vertices++] = sourceId;
+                        index.put(sourceId, source);
+                    }
+                    for (int t = 1; t < tokens.length; t++) {
+                        long targetId = parseId(tokens[t], line);
+                        int target = index.get(targetId);
+                        if (target < 0) {
+                            if (vertices == idList.length) idList = Arrays.copyOf(idList, vertices * 2);
+                            target = vertices;
+                            idList[vertices++] = targetId;
+                            index.put(targetId, target);
+                        }
+                        if (edges == sources.length) {
+                            sources = Arrays.copyOf(sources, edges * 2);
+                            targets = Arrays.copyOf(targets, edges * 2);
+                        }
+                        sources[edges] = source;
+                        targets[edges] = target;
+                        edges++;
+                    }
+                }
+            }
+        }
+        size = vertices;
+        ids = Arrays.copyOf(idList, vertices);
+
+        // 出边 CSR：按源计数，填充后逐段排序去重
+        int[] outStart = new int[size + 1];
+        for (int e = 0; e < edges; e++) outStart[sources[e] + 1]++;
+        for (int i = 0; i < size; i++) outStart[i + 1] += outStart[i];
+        int[] outTargets = new int[edges];
+        int[] fill = Arrays.copyOf(outStart, size);
+        for (int e = 0; e < edges; e++) outTargets[fill[sources[e]]++] = targets[e];
+        sources = null;
+        targets = null;
+
+        outDegree = new int[size];
+        inStart = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            Arrays.sort(outTargets, outStart[i], outStart[i + 1]);
+            int previous = -1;
+            for (int k = outStart[i]; k < outStart[i + 1]; k++) {
+                if (outTargets[k] == previous) continue;
+                previous = outTargets[k];
+                outDegree[i]++;
+                inStart[previous + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++) inStart[i + 1] += inStart[i];
+
+        // 入边 CSR
+        inSources = new int[inStart[size]];
+        fill = Arrays.copyOf(inStart, size);
+        for (int i = 0; i < size; i++) {
+            int previous = -1;
+            for (int k = outStart[i]; k < outStart[i + 1]; k++) {
+                if (outTargets[k] == previous) continue;
+                previous = outTargets[k];
+                inSources[fill[previous]++] = i;
+            }
+        }
+    }
+
+    private static long parseId(String token, String line) throws IOException {
+        try {
+            return Long.parseLong(token);
+        } catch (NumberFormatException e) {
+            throw new IOException("内存引擎只支持数字节点 ID: " + line);
+        }
+    }
+
+    // 按节点 ID 升序写出全部 PR
+    private void writeScores(Path file, double[] rank) throws IOException {
+        Integer[] order = sortedOrder((a, b) -> Long.compare(ids[a], ids[b]));
+        try (BufferedWriter writer = create(file)) {
+            for (int i : order) {
+                writer.write(ids[i] + "\t" + rank[i]);
+                writer.newLine();
+            }
+        }
+    }
+
+    private void writeTop(Path file, double[] rank, int k) throws IOException {
+        Integer[] order = sortedOrder((a, b) -> Double.compare(rank[b], rank[a]));
+        try (BufferedWriter writer = create(file)) {
+            for (int n = 0; n < Math.min(k, order.length); n++) {
+                writer.write(ids[order[n]] + "\t" + rank[order[n]]);
+                writer.newLine();
+            }
+        }
+    }
+
+    private Integer[] sortedOrder(Comparator<Integer> comparator) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        Arrays.sort(order, comparator);
+        return order;
+    }
+
+    private void writeTimings(Path file, List<String> records) throws IOException {
+        try (BufferedWriter writer = create(file)) {
+            writer.write("Phase,Duration_ms\n");
+            for (String record : records) {
+                writer.write(record + "\n");
+            }
+        }
+    }
+
+    private BufferedWriter create(Path file) throws IOException {
+        FSDataOutputStream out = file.getFileSystem(conf).create(file, true);
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+}
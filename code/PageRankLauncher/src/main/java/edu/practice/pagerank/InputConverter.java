@@ -0,0 +1,94 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 输入格式转换：选中的引擎读不了原始输入时，先用一个 MapReduce Job 转换。
+ *   邻接表  Giraph 需要：按源顶点聚合出边（去重、去掉注释），每行 "顶点 邻居1 邻居2 ..."
+ *   边表    MapReduce 需要：邻接表每行拆成多条 "源\t目标"，只有 Map 阶段
+ * 两种转换的 Mapper 都同时接受边表与邻接表（每行首列为源，其余列为目标）。
+ * 邻接表中没有出边的顶点转换为边表后只能作为其他边的目标出现。
+ */
+public class InputConverter {
+
+    private static final String SEPARATOR = "\\s+";
+
+    // 每行的源与各目标
+    public static class EdgeMapper extends Mapper<LongWritable, Text, Text, Text> {
+        private final Text source = new Text();
+        private final Text target = new Text();
+
+        @Override
+        protected void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+            String line = value.toString().trim();
+            if (line.isEmpty() || line.startsWith("#")) return;
+            String[] tokens = line.split(SEPARATOR);
+            source.set(tokens[0]);
+            for (int i = 1; i < tokens.length; i++) {
+                target.set(tokens[i]);
+                context.write(source, target);
+            }
+        }
+    }
+
+    // 按源聚合为一行邻接表
+    public static class AdjacencyReducer extends Reducer<Text, Text, Text, NullWritable> {
+        private final Text line = new Text();
+
+        @Override
+        protected void reduce(Text key, Iterable<Text> values, Context context) throws IOException, InterruptedException {
+            Set<String> targets = new LinkedHashSet<>();
+            for (Text value : values) {
+                targets.add(value.toString());
+            }
+            StringBuilder sb = new StringBuilder(key.toString());
+            for (String target : targets) {
+                sb.append(' ').append(target);
+            }
+            line.set(sb.toString());
+            context.write(line, NullWritable.get());
+        }
+    }
+
+    /**
+     * 把 input 转换为 targetFormat 写到 output，返回是否成功。
+     */
+    public static boolean convert(Configuration conf, Path input, Path output, InputProfile.Format targetFormat)
+            throws IOException, ClassNotFoundException, InterruptedException {
+        boolean toAdjacency = targetFormat == InputProfile.Format.ADJACENCY;
+        Job job = Job.getInstance(conf, "PageRank Input Conversion (" + (toAdjacency ? "edges -> adjacency" : "adjacency -> edges") + ")");
+        job.setJarByClass(InputConverter.class);
+        job.setInputFormatClass(TextInputFormat.class);
+        job.setOutputFormatClass(TextOutputFormat.class);
+        job.setMapperClass(EdgeMapper.class);
+        job.setMapOutputKeyClass(Text.class);
+        job.setMapOutputValueClass(Text.class);
+        if (toAdjacency) {
+            job.setReducerClass(AdjacencyReducer.class);
+            job.setOutputKeyClass(Text.class);
+            job.setOutputValueClass(NullWritable.class);
+        } else {
+            job.setNumReduceTasks(0);
+            job.setOutputKeyClass(Text.class);
+            job.setOutputValueClass(Text.class);
+        }
+        FileInputFormat.addInputPath(job, input);
+        FileOutputFormat.setOutputPath(job, output);
+        return job.waitForCompletion(true);
+    }
+}
@@ -0,0 +1,174 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 输入画像：抽样读取输入开头的 sampleBytes 字节，判断输入格式并按抽样字节占比推算全图规模
+ * （与 Giraph 模块 MemoryPlanner 的抽样方式相同）。
+ *
+ * 两个引擎的输入格式不同：MapReduce 读取边表（"源 目标"，# 开头为注释），Giraph 读取邻接表
+ * （"顶点 邻居1 邻居2 ..."，不允许注释行）。抽样中出现词数不为 2 的数据行即判为邻接表；
+ * 全部为两列时按边表处理（每行一条边时两种读法等价）。
+ *
+ * 顶点数按抽样中源顶点的数目推算：边表按相邻行源顶点变化计数（SNAP 等数据集按源顶点分组），
+ * 只出现在目标端的顶点不计入，是下界。
+ */
+public class InputProfile {
+
+    // 抽样字节数
+    public static final String CONF_SAMPLE_BYTES = "pagerank.launcher.sampleBytes";
+    public static final long DEFAULT_SAMPLE_BYTES = 16L << 20;
+
+    public enum Format { EDGES, ADJACENCY }
+
+    public Format format = Format.EDGES;
+    public long totalBytes;
+    public long sampledBytes;
+    public long sampledVertices;
+    public long sampledEdges;
+    public long commentLines;
+    public long maxDegree;
+    public long vertices;
+    public long edges;
+    public boolean compressed;
+
+    // Giraph 需要不含注释的邻接表
+    public boolean readableByGiraph() {
+        return format == Format.ADJACENCY && commentLines == 0;
+    }
+
+    // MapReduce 预处理只取每行前两列
+    public boolean readableByMapReduce() {
+        return format == Format.EDGES;
+    }
+
+    public double meanDegree() {
+        return sampledVertices > 0 ? (double) sampledEdges / sampledVertices : 0.0;
+    }
+
+    public String describe() {
+        return String.format("格式 %s%s, 顶点 ~%d, 边 ~%d, 平均出度 %.2f, 最大出度 %d, 注释行 %d, 抽样 %d/%d 字节",
+                format == Format.EDGES ? "边表" : "邻接表", compressed ? " (压缩)" : "",
+                vertices, edges, meanDegree(), maxDegree, commentLines, sampledBytes, totalBytes);
+    }
+
+    /**
+     * 顺序读取输入（文件、目录或通配符）开头的抽样字节，按已消耗的文件字节推算全图规模。
+     */
+    public static InputProfile sample(Configuration conf, Path input) throws IOException {
+        InputProfile profile = new InputProfile();
+        long limit = conf.getLong(CONF_SAMPLE_BYTES, DEFAULT_SAMPLE_BYTES);
+        FileSystem fs = input.getFileSystem(conf);
+        List<FileStatus> files = listInputFiles(fs, input);
+        CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+        for (FileStatus file : files) {
+            profile.totalBytes += file.getLen();
+            if (codecs.getCodec(file.getPath()) != null) profile.compressed = true;
+        }
+
+        String lastSource = null;
+        long degree = 0;
+        for (FileStatus file : files) {
+            if (profile.sampledBytes >= limit) break;
+            // 压缩输入按已消耗的压缩字节计算占比
+            CountingInputStream counting = new CountingInputStream(fs.open(file.getPath()));
+            CompressionCodec codec = codecs.getCodec(file.getPath());
+            InputStream in = codec != null ? codec.createInputStream(counting) : counting;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                long fileStart = profile.sampledBytes;
+                String line = null;
+                while (fileStart + counting.count < limit && (line = reader.readLine()) != null) {
+                    String trimmed = line.trim();
+                    if (trimmed.isEmpty()) continue;
+                    if (trimmed.startsWith("#")) {
+                        profile.commentLines++;
+                        continue;
+                    }
+                    String[] tokens = trimmed.split("\\s+");
+                    if (tokens.length != 2) {
+                        profile.format = Format.ADJACENCY;
+                    }
+                    // 同一源顶点的连续行合并为一个顶点（邻接表每行即一个顶点）
+                    if (!tokens[0].equals(lastSource)) {
+                        profile.maxDegree = Math.max(profile.maxDegree, degree);
+                        profile.sampledVertices++;
+                        lastSource = tokens[0];
+                        degree = 0;
+                    }
+                    degree += tokens.length - 1;
+                    profile.sampledEdges += tokens.length - 1;
+                }
+                // 读到文件末尾时以文件长度为准，否则为已消耗的字节
+                profile.sampledBytes = fileStart + (line == null ? file.getLen() : counting.count);
+            }
+        }
+        profile.maxDegree = Math.max(profile.maxDegree, degree);
+
+        double scale = profile.sampledBytes > 0 ? (double) profile.totalBytes / profile.sampledBytes : 1.0;
+        profile.vertices = Math.round(profile.sampledVertices * Math.max(1.0, scale));
+        profile.edges = Math.round(profile.sampledEdges * Math.max(1.0, scale));
+        return profile;
+    }
+
+    // 输入路径下的数据文件，跳过 _ 与 . 开头的文件
+    static List<FileStatus> listInputFiles(FileSystem fs, Path input) throws IOException {
+        List<FileStatus> files = new ArrayList<>();
+        FileStatus[] matches = fs.globStatus(input);
+        if (matches == null) return files;
+        for (FileStatus status : matches) {
+            if (status.isDirectory()) {
+                for (FileStatus child : fs.listStatus(status.getPath())) {
+                    String name = child.getPath().getName();
+                    if (child.isFile() && !name.startsWith("_") && !name.startsWith(".")) files.add(child);
+                }
+            } else {
+                files.add(status);
+            }
+        }
+        return files;
+    }
+
+    // 统计从底层流读取的字节数
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package edu.practice.pagerank;
+
+import edu.practice.pagerank.EngineCostModel.Engine;
+import edu.practice.pagerank.EngineCostModel.LinearCost;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EngineCostModelTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void fitsLineThroughTwoSizes() {
+        LinearCost fitted = EngineCostModel.fit(new LinearCost(0, 1), samples(1_000_000, 2000, 2_000_000, 3000));
+        assertEquals(1000.0, fitted.fixedMs, 1e-6);
+        assertEquals(1e-3, fitted.msPerEdge, 1e-12);
+    }
+
+    @Test
+    public void scalesPriorWhenOnlyOneSize() {
+        LinearCost prior = new LinearCost(1000, 1e-3);
+        // 先验预测 2000 ms，实测平均 3000 ms
+        LinearCost fitted = EngineCostModel.fit(prior, samples(1_000_000, 2800, 1_000_000, 3200));
+        assertEquals(1500.0, fitted.fixedMs, 1e-9);
+        assertEquals(1.5e-3, fitted.msPerEdge, 1e-15);
+    }
+
+    @Test
+    public void scalesPriorWhenFitHasNegativeSlope() {
+        LinearCost prior = new LinearCost(1000, 1e-3);
+        LinearCost fitted = EngineCostModel.fit(prior, samples(1_000_000, 4000, 3_000_000, 2000));
+        // 先验平均预测 3000 ms，实测平均 3000 ms
+        assertEquals(1000.0, fitted.fixedMs, 1e-9);
+        assertEquals(1e-3, fitted.msPerEdge, 1e-15);
+    }
+
+    @Test
+    public void keepsPriorWithoutSamples() {
+        LinearCost prior = new LinearCost(1000, 1e-3);
+        assertSame(prior, EngineCostModel.fit(prior, new ArrayList<double[]>()));
+    }
+
+    @Test
+    public void engineLabels() {
+        assertEquals(Engine.GIRAPH, Engine.of("Giraph"));
+        assertEquals(Engine.MEMORY, Engine.of(InMemoryPageRank.ENGINE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownEngine() {
+        Engine.of("spark");
+    }
+
+    @Test
+    public void calibratesFromHistoricalOutputs() throws Exception {
+        File mapreduce = folder.newFolder("mr");
+        write(new File(mapreduce, "performance_report.txt"),
+                "Preprocess                              :       8000 ms (8.000 s) - Graph structure initialization",
+                "Graph Size                              :          0 ms (0.000 s) - nodes=2000, edges=10000",
+                "Iteration_1_Total Iteraction Time       :       3000 ms (3.000 s) - Job totaltime for iteration 1",
+                "Iteration_2_Total Iteraction Time       :       5000 ms (5.000 s) - Job totaltime for iteration 2");
+        // 目录下一层的子目录也作为一次运行
+        File giraphRoot = folder.newFolder("giraph");
+        File giraph = new File(giraphRoot, "run1");
+        assertTrue(giraph.mkdirs());
+        write(new File(giraph, "_timings.csv"), "Phase,Duration_ms", "Setup,4000", "Superstep_0,200", "Superstep_1,100",
+                "Graph_Edges,10000");
+        // 缺少图规模的旧输出不参与校准
+        File old = folder.newFolder("old");
+        write(new File(old, "_timings.csv"), "Phase,Duration_ms", "Setup,1", "Iteration_1,1");
+
+        Configuration conf = new Configuration();
+        conf.set("fs.defaultFS", "file:///");
+        conf.set(EngineCostModel.CONF_CALIBRATION_DIRS,
+                mapreduce.toURI() + "," + giraphRoot.toURI() + "," + old.toURI() + "," + new File(folder.getRoot(), "missing").toURI());
+        EngineCostModel model = EngineCostModel.load(conf);
+        EngineCostModel defaults = new EngineCostModel();
+
+        assertEquals(8000.0, model.setup(Engine.MAPREDUCE).predict(10000), 1e-6);
+        assertEquals(4000.0, model.iteration(Engine.MAPREDUCE).predict(10000), 1e-6);
+        assertEquals(4000.0, model.setup(Engine.GIRAPH).predict(10000), 1e-6);
+        assertEquals(150.0, model.iteration(Engine.GIRAPH).predict(10000), 1e-6);
+        assertTrue(model.describe(Engine.GIRAPH).contains("1 次历史运行校准"));
+        // 内存引擎没有可用的历史运行
+        assertEquals(defaults.setup(Engine.MEMORY).predict(10000), model.setup(Engine.MEMORY).predict(10000), 0.0);
+        assertTrue(model.describe(Engine.MEMORY).contains("默认"));
+    }
+
+    // 依次为 (边数, 毫秒) 对
+    private static List<double[]> samples(double... values) {
+        List<double[]> samples = new ArrayList<>();
+        for (int i = 0; i + 1 < values.length; i += 2) {
+            samples.add(new double[] {values[i], values[i + 1]});
+        }
+        return samples;
+    }
+
+    private static void write(File file, String... lines) throws IOException {
+        Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+}
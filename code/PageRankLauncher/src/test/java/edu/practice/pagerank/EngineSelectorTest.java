@@ -0,0 +1,136 @@
+package edu.practice.pagerank;
+
+import edu.practice.pagerank.EngineCostModel.Engine;
+import edu.practice.pagerank.EngineSelector.Candidate;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EngineSelectorTest {
+
+    @Test
+    public void smallGraphRunsInMemory() {
+        EngineSelector selector = selector(new Configuration(false), profile(10_000, 100_000, InputProfile.Format.EDGES),
+                resources(4096, 4096, 65536));
+        List<Candidate> candidates = selector.evaluate(20);
+        assertEquals(Engine.values().length, candidates.size());
+        for (Candidate candidate : candidates) {
+            assertTrue(candidate.engine.label, candidate.feasible);
+            assertEquals(20, candidate.iterations);
+        }
+
+        Candidate chosen = selector.choose(candidates);
+        assertEquals(Engine.MEMORY, chosen.engine);
+        assertTrue(chosen.parameters.containsKey(InMemoryPageRank.CONF_THREADS));
+        assertTrue(selector.getReason().startsWith("memory"));
+    }
+
+    @Test
+    public void conversionIsChargedOnlyWhenFormatDiffers() {
+        EngineCostModel model = new EngineCostModel();
+        EngineSelector edges = selector(new Configuration(false), profile(1000, 5000, InputProfile.Format.EDGES),
+                resources(4096, 4096, 65536));
+        assertFalse(edges.needsConversion(Engine.MAPREDUCE));
+        assertTrue(edges.needsConversion(Engine.GIRAPH));
+        assertFalse(edges.needsConversion(Engine.MEMORY));
+
+        Candidate giraph = find(edges.evaluate(10), Engine.GIRAPH);
+        assertEquals(model.setup(Engine.MAPREDUCE).predict(5000), giraph.conversionMs, 1e-9);
+
+        EngineSelector adjacency = selector(new Configuration(false), profile(1000, 5000, InputProfile.Format.ADJACENCY),
+                resources(4096, 4096, 65536));
+        assertTrue(adjacency.needsConversion(Engine.MAPREDUCE));
+        assertFalse(adjacency.needsConversion(Engine.GIRAPH));
+        assertEquals(0.0, find(adjacency.evaluate(10), Engine.GIRAPH).conversionMs, 0.0);
+    }
+
+    @Test
+    public void hugeGraphFallsBackToMapReduce() {
+        EngineSelector selector = selector(new Configuration(false),
+                profile(1_000_000_000L, 20_000_000_000L, InputProfile.Format.EDGES), resources(4096, 4096, 65536));
+        List<Candidate> candidates = selector.evaluate(20);
+        assertFalse(find(candidates, Engine.MEMORY).feasible);
+        assertFalse(find(candidates, Engine.GIRAPH).feasible);
+        assertTrue(find(candidates, Engine.MAPREDUCE).feasible);
+
+        assertEquals(Engine.MAPREDUCE, selector.choose(candidates).engine);
+        assertTrue(selector.getReason().contains("giraph 被排除"));
+        assertTrue(selector.getReason().contains("memory 被排除"));
+    }
+
+    @Test
+    public void giraphNeedsEnoughWorkersAndContainerMemory() {
+        // 约 2.3 GB 的图：单个 4 GB 容器放不下，需要多个 Worker
+        InputProfile profile = profile(10_000_000L, 40_000_000L, InputProfile.Format.ADJACENCY);
+        Candidate giraph = find(selector(new Configuration(false), profile, resources(1024, 4096, 65536)).evaluate(20),
+                Engine.GIRAPH);
+        assertTrue(giraph.memoryNote, giraph.feasible);
+        assertEquals("true", giraph.parameters.get("pagerank.memory.autoSize"));
+        assertEquals("3276", giraph.parameters.get("pagerank.memory.maxHeapMB"));
+        assertEquals("15", giraph.parameters.get("pagerank.memory.maxWorkers"));
+
+        // 集群空闲内存只够 Master 和一个 Worker
+        giraph = find(selector(new Configuration(false), profile, resources(1024, 4096, 8192)).evaluate(20), Engine.GIRAPH);
+        assertFalse(giraph.feasible);
+
+        // 容器放不下 Worker 固定开销
+        giraph = find(selector(new Configuration(false), profile, resources(1024, 256, 65536)).evaluate(20), Engine.GIRAPH);
+        assertFalse(giraph.feasible);
+        assertTrue(giraph.memoryNote.contains("固定开销"));
+    }
+
+    @Test
+    public void forcedEngineIsUsedEvenWhenInfeasible() {
+        Configuration conf = new Configuration(false);
+        conf.set(EngineSelector.CONF_ENGINE, "memory");
+        EngineSelector selector = selector(conf, profile(1_000_000_000L, 20_000_000_000L, InputProfile.Format.EDGES),
+                resources(1024, 4096, 65536));
+        Candidate chosen = selector.choose(selector.evaluate(20));
+        assertEquals(Engine.MEMORY, chosen.engine);
+        assertTrue(selector.getReason().contains("警告"));
+    }
+
+    @Test
+    public void expectedIterationsOverrideMaxIterations() {
+        Configuration conf = new Configuration(false);
+        conf.setInt(EngineSelector.CONF_EXPECTED_ITERATIONS, 7);
+        EngineSelector selector = selector(conf, profile(1000, 5000, InputProfile.Format.EDGES), resources(4096, 4096, 65536));
+        Candidate mapreduce = find(selector.evaluate(50), Engine.MAPREDUCE);
+        assertEquals(7, mapreduce.iterations);
+        assertEquals(mapreduce.setupMs + 7 * mapreduce.iterationMs, mapreduce.totalMs(), 1e-9);
+    }
+
+    private static EngineSelector selector(Configuration conf, InputProfile profile, ClusterResources resources) {
+        return new EngineSelector(conf, profile, resources, new EngineCostModel());
+    }
+
+    private static InputProfile profile(long vertices, long edges, InputProfile.Format format) {
+        InputProfile profile = new InputProfile();
+        profile.format = format;
+        profile.vertices = vertices;
+        profile.edges = edges;
+        profile.maxDegree = Math.max(1, edges / Math.max(1, vertices)) * 10;
+        return profile;
+    }
+
+    private static ClusterResources resources(long localHeapMB, long containerMB, long availableMemoryMB) {
+        ClusterResources resources = new ClusterResources();
+        resources.localHeapMB = localHeapMB;
+        resources.containerMB = containerMB;
+        resources.availableMemoryMB = availableMemoryMB;
+        resources.totalMemoryMB = availableMemoryMB;
+        return resources;
+    }
+
+    private static Candidate find(List<Candidate> candidates, Engine engine) {
+        for (Candidate candidate : candidates) {
+            if (candidate.engine == engine) return candidate;
+        }
+        throw new AssertionError("缺少引擎 " + engine);
+    }
+}
@@ -0,0 +1,195 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.mapreduce.Partitioner;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 预处理阶段的二次排序（secondary sort）支持。
+ *
+ * 开启后 GraphBuilderMapper 输出组合键 "节点\t目标"（占位符为 "节点\t!"），值为空。
+ * 节点 ID 中不含比 \t 更小的字符，Text 默认的字节序比较即可保证：
+ * 同一节点的组合键相邻、节点之间的先后与只用节点作键时一致、同一节点内目标按字节序排列（占位符 '!' 排在数字之前）。
+ * 分区与分组只看 \t 之前的节点部分，SortedGraphBuilderReducer 因而按序看到一个节点的全部目标，
+ * 与前一个目标比较即可去重，不再需要在内存中保存目标集合；
+ * 输出由 AdjacencyOutputFormat 逐个目标写入输出流，邻接表整行也不在内存中拼接。
+ */
+public class AdjacencySort {
+
+    // 是否启用二次排序的预处理
+    public static final String CONF_ENABLED = "pagerank.preprocess.secondarySort";
+
+    public static final byte KEY_SEPARATOR = '\t';
+    private static final byte[] SEPARATOR_BYTES = {KEY_SEPARATOR};
+    // 输出行中节点之后的初始 PR 字段，与 GraphBuilderReducer 相同
+    private static final byte[] INITIAL_PR = "1.0|".getBytes(StandardCharsets.UTF_8);
+
+    private AdjacencySort() {}
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getBoolean(CONF_ENABLED, false);
+    }
+
+    public static void setCompositeKey(Text key, String node, String target) {
+        key.clear();
+        byte[] nodeBytes = node.getBytes(StandardCharsets.UTF_8);
+        byte[] targetBytes = target.getBytes(StandardCharsets.UTF_8);
+        key.append(nodeBytes, 0, nodeBytes.length);
+        key.append(SEPARATOR_BYTES, 0, 1);
+        key.append(targetBytes, 0, targetBytes.length);
+    }
+
+    /**
+     * 组合键中节点部分的字节长度（没有分隔符时为整个键）。
+     */
+    public static int nodeLength(byte[] bytes, int start, int length) {
+        for (int i = 0; i < length; i++) {
+            if (bytes[start + i] == KEY_SEPARATOR) return i;
+        }
+        return length;
+    }
+
+    /**
+     * 只按节点部分分组，同一节点的所有组合键进入同一次 reduce 调用。
+     */
+    public static class NodeGroupingComparator extends WritableComparator {
+
+        public NodeGroupingComparator() {
+            super(Text.class);
+        }
+
+        @Override
+        public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+            int n1 = WritableUtils.decodeVIntSize(b1[s1]);
+            int n2 = WritableUtils.decodeVIntSize(b2[s2]);
+            return compareBytes(b1, s1 + n1, nodeLength(b1, s1 + n1, l1 - n1),
+                    b2, s2 + n2, nodeLength(b2, s2 + n2, l2 - n2));
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public int compare(WritableComparable a, WritableComparable b) {
+            Text t1 = (Text) a;
+            Text t2 = (Text) b;
+            return compareBytes(t1.getBytes(), 0, nodeLength(t1.getBytes(), 0, t1.getLength()),
+                    t2.getBytes(), 0, nodeLength(t2.getBytes(), 0, t2.getLength()));
+        }
+    }
+
+    /**
+     * 只按节点部分选择 Reducer，结果与普通模式相同（哈希或 GraphPartitionTool 映射）。
+     */
+    public static class NodePartitioner extends Partitioner<Text, Text> implements Configurable {
+
+        private Configuration conf;
+        private AssignmentPartitioner assignment;
+        private final Text node = new Text();
+
+        @Override
+        public void setConf(Configuration conf) {
+            this.conf = conf;
+            if (conf.get(GraphPartitionTool.CONF_ASSIGNMENT_PATH) != null) {
+                assignment = new AssignmentPartitioner();
+                assignment.setConf(conf);
+            }
+        }
+
+        @Override
+        public Configuration getConf() {
+            return conf;
+        }
+
+        @Override
+        public int getPartition(Text key, Text value, int numPartitions) {
+            node.set(key.getBytes(), 0, nodeLength(key.getBytes(), 0, key.getLength()));
+            if (assignment != null) {
+                return assignment.getPartition(node, value, numPartitions);
+            }
+            return (node.hashCode() & Integer.MAX_VALUE) % numPartitions;
+        }
+    }
+
+    /**
+     * 二次排序预处理的输出格式：同一节点连续写出的目标拼接为一行 "节点\t1.0|目标1,目标2,..."。
+     * Reducer 每个目标 write 一次（值为空时只写出行首，用于没有出链的节点），
+     * RecordWriter 只记住当前行的节点，目标直接写入输出流。压缩设置与 TextOutputFormat 相同。
+     */
+    public static class AdjacencyOutputFormat extends FileOutputFormat<Text, Text> {
+
+        @Override
+        public RecordWriter<Text, Text> getRecordWriter(TaskAttemptContext job) throws IOException {
+            Configuration conf = job.getConfiguration();
+            CompressionCodec codec = null;
+            String extension = "";
+            if (getCompressOutput(job)) {
+                Class<? extends CompressionCodec> codecClass = getOutputCompressorClass(job, GzipCodec.class);
+                codec = ReflectionUtils.newInstance(codecClass, conf);
+                extension = codec.getDefaultExtension();
+            }
+            Path file = getDefaultWorkFile(job, extension);
+            OutputStream out = file.getFileSystem(conf).create(file, false);
+            if (codec != null) {
+                out = codec.createOutputStream(out);
+            }
+            return new AdjacencyRecordWriter(new DataOutputStream(out));
+        }
+    }
+
+    static class AdjacencyRecordWriter extends RecordWriter<Text, Text> {
+
+        private final DataOutputStream out;
+        // 当前行的节点
+        private final Text node = new Text();
+        private boolean lineOpen;
+        private boolean hasLinks;
+
+        AdjacencyRecordWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public synchronized void write(Text key, Text value) throws IOException {
+            if (!lineOpen || !node.equals(key)) {
+                if (lineOpen) {
+                    out.write('\n');
+                }
+                node.set(key);
+                out.write(key.getBytes(), 0, key.getLength());
+                out.write(KEY_SEPARATOR);
+                out.write(INITIAL_PR);
+                lineOpen = true;
+                hasLinks = false;
+            }
+            if (value == null || value.getLength() == 0) return;
+            if (hasLinks) {
+                out.write(',');
+            }
+            out.write(value.getBytes(), 0, value.getLength());
+            hasLinks = true;
+        }
+
+        @Override
+        public synchronized void close(TaskAttemptContext context) throws IOException {
+            if (lineOpen) {
+                out.write('\n');
+            }
+            out.close();
+        }
+    }
+}
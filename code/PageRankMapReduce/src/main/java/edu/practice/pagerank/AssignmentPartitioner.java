@@ -0,0 +1,64 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Partitioner;
+
+import java.io.IOException;
+
+/**
+ * 按 GraphPartitionTool 生成的 节点 -> 分区 映射选择 Reducer。
+ * 同一分区内的节点落在同一个 Reducer，其输出文件又成为下一轮同一个 Map 任务的输入，
+ * 分区内部的贡献值因此大多在同一批任务间流动。
+ * 映射中不存在的节点以及热点拆分产生的加盐子键退回哈希划分。
+ */
+public class AssignmentPartitioner extends Partitioner<Text, Text> implements Configurable {
+
+    // 同一 JVM 内（如开启 JVM 重用）只加载一次映射
+    private static LongIntHashMap cachedAssignment;
+    private static String cachedPath;
+
+    private Configuration conf;
+    private LongIntHashMap assignment;
+
+    @Override
+    public void setConf(Configuration conf) {
+        this.conf = conf;
+        String path = conf.get(GraphPartitionTool.CONF_ASSIGNMENT_PATH);
+        if (path == null) return;
+        try {
+            assignment = load(conf, path);
+        } catch (IOException e) {
+            throw new RuntimeException("无法加载分区映射: " + path, e);
+        }
+    }
+
+    @Override
+    public Configuration getConf() {
+        return conf;
+    }
+
+    @Override
+    public int getPartition(Text key, Text value, int numPartitions) {
+        if (assignment != null) {
+            String node = key.toString();
+            if (!SkewedKeys.isSalted(node)) {
+                try {
+                    int part = assignment.get(Long.parseLong(node));
+                    if (part >= 0) return part % numPartitions;
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+        return (key.hashCode() & Integer.MAX_VALUE) % numPartitions;
+    }
+
+    private static synchronized LongIntHashMap load(Configuration conf, String path) throws IOException {
+        if (cachedAssignment == null || !path.equals(cachedPath)) {
+            cachedAssignment = GraphPartitionTool.readAssignment(conf, new Path(path));
+            cachedPath = path;
+        }
+        return cachedAssignment;
+    }
+}
@@ -0,0 +1,72 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+
+/**
+ * 广播模式准备阶段的 Map：读取归一化后的初始图（NodeID\tPR|Outlink1,Outlink2,...），
+ * 用分布式缓存中的 nodes.bin 把节点 ID 换成稠密下标，对每条出链 u -> v 输出 (v, u)。
+ * 每个节点另输出一条 (u, -1)，保证没有入链的节点也出现在入链表中。
+ */
+public class BroadcastInLinkMapper extends Mapper<LongWritable, Text, IntWritable, IntWritable> {
+
+    static final int SELF_MARKER = -1;
+
+    private long[] ids;
+    private final IntWritable outKey = new IntWritable();
+    private final IntWritable outVal = new IntWritable();
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        for (URI uri : context.getCacheFiles()) {
+            if (uri.getPath().endsWith(BroadcastRankRunner.NODES_FILE)) {
+                try (DataInputStream in = BroadcastRankRunner.openCacheFile(context.getConfiguration(), uri)) {
+                    ids = BroadcastRankRunner.readIds(in);
+                }
+            }
+        }
+        if (ids == null) {
+            throw new IOException("分布式缓存中缺少 " + BroadcastRankRunner.NODES_FILE);
+        }
+    }
+
+    @Override
+    protected void map(LongWritable offset, Text line, Context context) throws IOException, InterruptedException {
+        String record = line.toString();
+        int tab = record.indexOf('\t');
+        if (tab < 0) return;
+        int sep = record.indexOf('|', tab);
+        if (sep < 0) return;
+
+        int source = indexOf(record.substring(0, tab).trim(), context);
+        if (source < 0) return;
+        outVal.set(source);
+        outKey.set(source);
+        context.write(outKey, new IntWritable(SELF_MARKER));
+
+        String links = record.substring(sep + 1).trim();
+        if (links.isEmpty()) return;
+        for (String link : links.split(",")) {
+            int target = indexOf(link.trim(), context);
+            if (target < 0) continue;
+            outKey.set(target);
+            context.write(outKey, outVal);
+        }
+    }
+
+    private int indexOf(String node, Context context) {
+        try {
+            int index = Arrays.binarySearch(ids, Long.parseLong(node));
+            if (index >= 0) return index;
+        } catch (NumberFormatException ignored) {}
+        context.getCounter("DataQuality", "Broadcast_Unknown_Node").increment(1);
+        return -1;
+    }
+}
@@ -0,0 +1,29 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+import java.io.IOException;
+
+/**
+ * 广播模式准备阶段的 Reduce：汇总每个节点的入链下标，输出 下标\t入链下标,入链下标,...
+ * 没有入链的节点输出空列表。
+ */
+public class BroadcastInLinkReducer extends Reducer<IntWritable, IntWritable, IntWritable, Text> {
+
+    private final StringBuilder links = new StringBuilder();
+    private final Text outVal = new Text();
+
+    @Override
+    protected void reduce(IntWritable node, Iterable<IntWritable> sources, Context context) throws IOException, InterruptedException {
+        links.setLength(0);
+        for (IntWritable source : sources) {
+            if (source.get() == BroadcastInLinkMapper.SELF_MARKER) continue;
+            if (links.length() > 0) links.append(',');
+            links.append(source.get());
+        }
+        outVal.set(links.toString());
+        context.write(node, outVal);
+    }
+}
@@ -0,0 +1,143 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+
+/**
+ * 广播模式的迭代 Map（无 Reduce）：
+ * 1. setup 从分布式缓存读取出度表与上一轮全部 PR 切片，预先算出每个节点的贡献值 PR / 出度。
+ * 2. map 处理入链表的一行（下标\t入链下标,...），拉取入链贡献之和并按 PageRank 公式计算新 PR。
+ * 3. cleanup 把本 Mapper 负责节点的新 PR 写成二进制切片，作为下一轮的广播数据。
+ * 悬挂质量与 PR 变化的计数器与 PageRankReducer 的累加方式一致。
+ */
+public class BroadcastRankMapper extends Mapper<LongWritable, Text, NullWritable, NullWritable> {
+
+    // 节点资源采样（未开启时为 null）
+    private ResourceSampler sampler;
+
+    private double D;
+    private long N;
+    private double danglingPRSum;
+    private long wallStart;
+
+    private int[] outDegrees;
+    private double[] previousRanks;
+    // 上一轮 PR / 出度，悬挂节点为 0
+    private double[] contributions;
+
+    // 本 Mapper 计算出的 (下标, 新 PR)
+    private int[] indices = new int[1024];
+    private double[] ranks = new double[1024];
+    private int count;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        sampler = ResourceSampler.start(context.getConfiguration());
+        wallStart = System.currentTimeMillis();
+        D = context.getConfiguration().getDouble("DAMPING_FACTOR", 0.85);
+        N = context.getConfiguration().getLong(BroadcastRankRunner.CONF_TOTAL_NODES, 1);
+        danglingPRSum = context.getConfiguration().getDouble(PageRankDriver.DANGLING_PR_SUM_KEY, 0.0);
+        if (N <= 0) {
+            N = 1;
+        }
+
+        URI[] cacheFiles = context.getCacheFiles();
+        for (URI uri : cacheFiles) {
+            if (uri.getPath().endsWith(BroadcastRankRunner.NODES_FILE)) {
+                try (DataInputStream in = BroadcastRankRunner.openCacheFile(context.getConfiguration(), uri)) {
+                    long[] ids = BroadcastRankRunner.readIds(in);
+                    outDegrees = BroadcastRankRunner.readOutDegrees(in, ids.length);
+                }
+            }
+        }
+        if (outDegrees == null) {
+            throw new IOException("分布式缓存中缺少 " + BroadcastRankRunner.NODES_FILE);
+        }
+        previousRanks = new double[outDegrees.length];
+        for (URI uri : cacheFiles) {
+            if (new Path(uri).getName().startsWith(BroadcastRankRunner.SLICE_PREFIX)) {
+                try (DataInputStream in = BroadcastRankRunner.openCacheFile(context.getConfiguration(), uri)) {
+                    BroadcastRankRunner.readSlice(in, previousRanks);
+                }
+            }
+        }
+        contributions = new double[outDegrees.length];
+        for (int i = 0; i < contributions.length; i++) {
+            contributions[i] = outDegrees[i] > 0 ? previousRanks[i] / outDegrees[i] : 0.0;
+        }
+    }
+
+    @Override
+    protected void map(LongWritable offset, Text line, Context context) throws IOException, InterruptedException {
+        String record = line.toString();
+        int tab = record.indexOf('\t');
+        int node;
+        try {
+            node = Integer.parseInt(tab < 0 ? record.trim() : record.substring(0, tab));
+        } catch (NumberFormatException e) {
+            context.getCounter("DataQuality", "Broadcast_Parse_Error").increment(1);
+            return;
+        }
+
+        // S = Sum(PR(Pj) / L(Pj))，按入链逐个拉取
+        double linkContributionSum = 0.0;
+        int pos = tab + 1;
+        int length = record.length();
+        while (tab >= 0 && pos < length) {
+            int comma = record.indexOf(',', pos);
+            int end = comma < 0 ? length : comma;
+            if (end > pos) {
+                linkContributionSum += contributions[Integer.parseInt(record.substring(pos, end))];
+            }
+            pos = end + 1;
+        }
+
+        double previousPR = previousRanks[node];
+        double newPageRank = (1.0 - D) / N + D * (danglingPRSum / N) + D * linkContributionSum;
+        if (newPageRank < 0) {
+            newPageRank = 0.0;
+        }
+        append(node, newPageRank);
+
+        if (outDegrees[node] == 0) {
+            context.getCounter(PageRankDriver.PageRankCounter.DANGLING_PR_SUM).increment(
+                    Math.round(previousPR * PageRankDriver.SCALE_FACTOR_LONG));
+        }
+        long scaled = (long) Math.ceil(Math.abs(newPageRank - previousPR) * PageRankDriver.SCALE_FACTOR_LONG);
+        if (scaled > 0) {
+            context.getCounter(PageRankDriver.PageRankCounter.PR_DIFF_SUM).increment(scaled);
+        }
+    }
+
+    private void append(int node, double rank) {
+        if (count == indices.length) {
+            indices = Arrays.copyOf(indices, count * 2);
+            ranks = Arrays.copyOf(ranks, count * 2);
+        }
+        indices[count] = node;
+        ranks[count] = rank;
+        count++;
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        // 写入任务工作目录，随任务提交移动到本轮输出目录，推测执行的失败尝试不会留下切片
+        Path workPath = FileOutputFormat.getWorkOutputPath(context);
+        Path slice = new Path(workPath, BroadcastRankRunner.SLICE_PREFIX + "m-"
+                + String.format("%05d", context.getTaskAttemptID().getTaskID().getId()));
+        BroadcastRankRunner.writeSlice(slice.getFileSystem(context.getConfiguration()), slice, indices, ranks, count);
+        ResourceSampler.stop(sampler, context.getConfiguration(), context.getTaskAttemptID().toString());
+        try {
+            context.getCounter(PageRankDriver.PageRankCounter.MAP_WALL_MS).increment(System.currentTimeMillis() - wallStart);
+        } catch (Exception ignored) {}
+    }
+}
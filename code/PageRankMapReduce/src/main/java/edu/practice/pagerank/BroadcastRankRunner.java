@@ -0,0 +1,359 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 广播 PR 的纯 Map 迭代模式：适用于 PR 向量（每个节点约 20 字节）能放进单个 Mapper 内存的图。
+ *
+ * 常规迭代每轮都要把全部贡献值和图结构经过 shuffle 发给 Reducer；本模式改为：
+ *   1. 准备阶段（一次）：Driver 读取归一化后的初始图，按节点 ID 排序得到稠密下标，
+ *      写出 nodes.bin（节点 ID + 出度）与第 0 轮 PR 切片；再用一个带 shuffle 的 Job
+ *      把出链表反转为以下标表示的入链表 inlinks（文本：下标\t入链下标,入链下标,...）。
+ *   2. 每轮迭代为纯 Map Job：nodes.bin 与上一轮全部 PR 切片通过分布式缓存发给每个 Mapper，
+ *      Mapper 在内存中还原上一轮 PR 向量，对自己分到的入链表做拉取式计算，
+ *      新 PR 以二进制切片（slice-m-xxxxx）写出，作为下一轮的广播数据。
+ *   3. 结束时把最后一轮切片还原为 NodeID\tPR 文本，写到 iteration_<n>，后续流程与常规模式一致。
+ *
+ * 悬挂质量与收敛判定沿用 DANGLING_PR_SUM / PR_DIFF_SUM 计数器，语义与 PageRankReducer 相同
+ * （悬挂计数器累加的是本轮输入的 PR）。与常规模式的差别仅在于迭代之间保留完整的 double 精度，
+ * 而不是 %.10f 文本。
+ *
+ * 节点 ID 必须是整数；不满足时 prepare 返回 false，Driver 回退到常规迭代。
+ * 热点拆分、Aitken 外推与稀疏检查点只作用于常规迭代，本模式下忽略。
+ */
+public class BroadcastRankRunner {
+
+    // 是否启用广播 PR 的纯 Map 迭代
+    public static final String CONF_ENABLED = "pagerank.broadcast.enabled";
+    // 工作目录，默认 <输出路径>/_broadcast
+    public static final String CONF_DIR = "pagerank.broadcast.dir";
+
+    // 以下由 Runner 写入每轮 Job 的配置
+    static final String CONF_TOTAL_NODES = "pagerank.broadcast.totalNodes";
+
+    public static final String NODES_FILE = "nodes.bin";
+    public static final String SLICE_PREFIX = "slice-";
+    public static final String INLINKS_DIR = "inlinks";
+
+    private static final int IO_BUFFER = 1 << 16;
+
+    public static class Result {
+        public Path output;
+        public int iterations;
+        public boolean converged;
+        public int iterationsToThreshold = -1;
+    }
+
+    private final Configuration conf;
+    private final PerformanceMonitor perfMonitor;
+    private final Path workDir;
+    private long totalNodes;
+
+    public BroadcastRankRunner(Configuration conf, PerformanceMonitor perfMonitor, Path outputPath) {
+        this.conf = conf;
+        this.perfMonitor = perfMonitor;
+        String dir = conf.get(CONF_DIR);
+        this.workDir = dir != null ? new Path(dir) : new Path(outputPath, "_broadcast");
+    }
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getBoolean(CONF_ENABLED, false);
+    }
+
+    /**
+     * 由归一化后的初始图生成 nodes.bin、第 0 轮 PR 切片和入链表。节点 ID 不是整数时返回 false。
+     */
+    public boolean prepare(Path graphInput) throws Exception {
+        long start = System.currentTimeMillis();
+        FileSystem fs = workDir.getFileSystem(conf);
+        if (fs.exists(workDir)) fs.delete(workDir, true);
+
+        // 第一遍：按读取顺序收集节点 ID、出度与初始 PR
+        GrowableArrays nodes = new GrowableArrays();
+        boolean[] numeric = {true};
+        IterationIO.forEachRecord(conf, graphInput, "part", (node, value) -> {
+            if (!numeric[0]) return;
+            int sep = value.indexOf('|');
+            if (sep < 0) return;
+            try {
+                long id = Long.parseLong(node.trim());
+                double pr = Double.parseDouble(value.substring(0, sep).trim());
+                nodes.add(id, countLinks(value, sep + 1), pr);
+            } catch (NumberFormatException e) {
+                numeric[0] = false;
+            }
+        });
+        if (!numeric[0] || nodes.size == 0) {
+            System.err.println("警告: 节点 ID 不是整数或初始图为空，广播 PR 模式不可用，回退到常规迭代。");
+            return false;
+        }
+
+        // 按 ID 排序得到稠密下标
+        int n = nodes.size;
+        long[] ids = Arrays.copyOf(nodes.ids, n);
+        Arrays.sort(ids);
+        int[] outDegrees = new int[n];
+        double[] ranks = new double[n];
+        for (int i = 0; i < n; i++) {
+            int index = Arrays.binarySearch(ids, nodes.ids[i]);
+            outDegrees[index] = nodes.outDegrees[i];
+            ranks[index] = nodes.ranks[i];
+        }
+        totalNodes = n;
+        writeNodes(fs, new Path(workDir, NODES_FILE), ids, outDegrees);
+        writeSlice(fs, new Path(rankDir(0), SLICE_PREFIX + "initial"), null, ranks, n);
+        long nodesEnd = System.currentTimeMillis();
+        System.out.printf("广播 PR: 已写出 %d 个节点的下标表与初始 PR 切片，耗时 %s 秒\n",
+                n, PageRankDriver.formatSeconds(nodesEnd - start));
+
+        // 出链表反转为入链表
+        Job job = Job.getInstance(conf, "PageRank Broadcast InLinks");
+        job.setJarByClass(BroadcastRankRunner.class);
+        job.setMapperClass(BroadcastInLinkMapper.class);
+        job.setReducerClass(BroadcastInLinkReducer.class);
+        job.setInputFormatClass(TextInputFormat.class);
+        job.setMapOutputKeyClass(IntWritable.class);
+        job.setMapOutputValueClass(IntWritable.class);
+        job.setOutputKeyClass(IntWritable.class);
+        job.setOutputValueClass(Text.class);
+        job.addCacheFile(new Path(workDir, NODES_FILE).toUri());
+        FileInputFormat.addInputPath(job, graphInput);
+        FileOutputFormat.setOutputPath(job, new Path(workDir, INLINKS_DIR));
+        if (!job.waitForCompletion(true)) {
+            System.err.println("警告: 入链表 Job 失败，回退到常规迭代。");
+            return false;
+        }
+        long end = System.currentTimeMillis();
+        perfMonitor.record("Broadcast Prepare", end - start, "nodes=" + n + ", inlinks=" + (end - nodesEnd) + "ms");
+        return true;
+    }
+
+    /**
+     * 运行纯 Map 迭代，收敛判定与常规迭代一致。最终结果写到 outputPath/iteration_<n>。
+     */
+    public Result iterate(Path outputPath, int maxIterations, int minIterations, double dampingFactor,
+                          double convergenceThreshold) throws Exception {
+        Result result = new Result();
+        result.iterations = maxIterations;
+        FileSystem fs = workDir.getFileSystem(conf);
+        double danglingSum = conf.getDouble(PageRankDriver.DANGLING_PR_SUM_KEY, 0.0);
+
+        for (int i = 0; i < maxIterations; i++) {
+            System.out.println(">>> 正在运行 PageRank 广播迭代: " + (i + 1) + "/" + maxIterations);
+            long iterJobStart = System.currentTimeMillis();
+            Path previous = rankDir(i);
+            Path current = rankDir(i + 1);
+            if (fs.exists(current)) fs.delete(current, true);
+
+            Job job = Job.getInstance(conf, "PageRank Broadcast Iteration " + (i + 1));
+            job.setJarByClass(BroadcastRankRunner.class);
+            job.setMapperClass(BroadcastRankMapper.class);
+            job.setNumReduceTasks(0);
+            job.setInputFormatClass(TextInputFormat.class);
+            job.setOutputKeyClass(NullWritable.class);
+            job.setOutputValueClass(NullWritable.class);
+            // 只写二进制切片，不产生空的 part 文件
+            LazyOutputFormat.setOutputFormatClass(job, TextOutputFormat.class);
+            Configuration jobConf = job.getConfiguration();
+            jobConf.setDouble("DAMPING_FACTOR", dampingFactor);
+            jobConf.setDouble(PageRankDriver.DANGLING_PR_SUM_KEY, danglingSum);
+            jobConf.setLong(CONF_TOTAL_NODES, totalNodes);
+            jobConf.set(ResourceSampler.CONF_PHASE, "iteration_" + (i + 1));
+            job.addCacheFile(new Path(workDir, NODES_FILE).toUri());
+            int slices = 0;
+            for (FileStatus status : fs.listStatus(previous)) {
+                if (status.getPath().getName().startsWith(SLICE_PREFIX)) {
+                    job.addCacheFile(status.getPath().toUri());
+                    slices++;
+                }
+            }
+            FileInputFormat.addInputPath(job, new Path(workDir, INLINKS_DIR));
+            FileOutputFormat.setOutputPath(job, current);
+            long submitTime = System.currentTimeMillis();
+            long setupTime = submitTime - iterJobStart;
+
+            if (!job.waitForCompletion(true)) {
+                throw new IOException("PageRank 广播迭代失败: 第 " + (i + 1) + " 次。");
+            }
+            long totalIterationTime = System.currentTimeMillis() - iterJobStart;
+            System.out.printf("   > 第 %d 次迭代 Job 耗时: %s 秒（广播切片 %d 个）\n",
+                    (i + 1), PageRankDriver.formatSeconds(totalIterationTime), slices);
+
+            Counters counters = job.getCounters();
+            // 与 PageRankReducer 相同：计数器中是本轮输入的悬挂质量，交给下一轮使用
+            danglingSum = (double) counters.findCounter(PageRankDriver.PageRankCounter.DANGLING_PR_SUM).getValue()
+                    / PageRankDriver.SCALE_FACTOR_LONG;
+            conf.setDouble(PageRankDriver.DANGLING_PR_SUM_KEY, danglingSum);
+            double diffSum = (double) counters.findCounter(PageRankDriver.PageRankCounter.PR_DIFF_SUM).getValue()
+                    / PageRankDriver.SCALE_FACTOR_LONG;
+            double avgDiff = diffSum / (double) totalNodes;
+            System.out.printf("   > 第 %d 次迭代悬挂节点 PR 总和: %.15f\n", (i + 1), danglingSum);
+            System.out.printf("   > 第 %d 次迭代平均 PR 变化: %.12e\n", (i + 1), avgDiff);
+            fs.delete(previous, true);
+
+            long mapWallMs = counters.findCounter(PageRankDriver.PageRankCounter.MAP_WALL_MS).getValue();
+            perfMonitor.recordIterationDetails(i + 1, setupTime, mapWallMs, 0, totalIterationTime,
+                    String.format("Broadcast, Dangling PR Sum: %.15f, Avg Diff: %.12e", danglingSum, avgDiff));
+            IterationJobStats jobStats = IterationJobStats.collect(job, "Iteration_" + (i + 1));
+            jobStats.setupMs = setupTime;
+            jobStats.totalMs = totalIterationTime;
+            jobStats.submitTime = submitTime;
+            perfMonitor.recordJobStats(jobStats);
+            perfMonitor.recordSpan("Iteration " + (i + 1), iterJobStart, System.currentTimeMillis());
+
+            if (result.iterationsToThreshold < 0 && avgDiff <= convergenceThreshold) {
+                result.iterationsToThreshold = i + 1;
+            }
+            if ((i + 1) >= minIterations && avgDiff <= convergenceThreshold) {
+                result.converged = true;
+                result.iterations = i + 1;
+                System.out.println("   > 达到收敛阈值，提前停止。");
+                break;
+            }
+        }
+
+        result.output = new Path(outputPath, "iteration_" + result.iterations);
+        writeScores(fs, rankDir(result.iterations), result.output);
+        fs.delete(workDir, true);
+        return result;
+    }
+
+    private Path rankDir(int iteration) {
+        return new Path(workDir, "ranks_" + iteration);
+    }
+
+    // 把最后一轮切片还原为 NodeID\tPR 文本
+    private void writeScores(FileSystem fs, Path rankDir, Path target) throws IOException {
+        if (fs.exists(target)) fs.delete(target, true);
+        long[] ids;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(fs.open(new Path(workDir, NODES_FILE)), IO_BUFFER))) {
+            ids = readIds(in);
+        }
+        double[] ranks = new double[ids.length];
+        for (FileStatus status : fs.listStatus(rankDir)) {
+            if (!status.getPath().getName().startsWith(SLICE_PREFIX)) continue;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(fs.open(status.getPath()), IO_BUFFER))) {
+                readSlice(in, ranks);
+            }
+        }
+        try (FSDataOutputStream out = fs.create(new Path(target, "part-m-00000"), true);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (int i = 0; i < ids.length; i++) {
+                writer.write(ids[i] + "\t" + String.format("%.10f", ranks[i]) + "\n");
+            }
+        }
+    }
+
+    // 出链字段为空表示悬挂节点
+    private static int countLinks(String value, int from) {
+        if (from >= value.length() || value.substring(from).trim().isEmpty()) return 0;
+        int count = 1;
+        for (int i = from; i < value.length(); i++) {
+            if (value.charAt(i) == ',') count++;
+        }
+        return count;
+    }
+
+    // ---- 二进制格式 ----
+    // nodes.bin: int N, long[N] 升序节点 ID, int[N] 出度
+    // 切片:      int count, count 组 (int 下标, double PR)；indices 为 null 时下标为 0..count-1
+
+    static void writeNodes(FileSystem fs, Path file, long[] ids, int[] outDegrees) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fs.create(file, true), IO_BUFFER))) {
+            out.writeInt(ids.length);
+            for (long id : ids) out.writeLong(id);
+            for (int degree : outDegrees) out.writeInt(degree);
+        }
+    }
+
+    static long[] readIds(DataInputStream in) throws IOException {
+        long[] ids = new long[in.readInt()];
+        for (int i = 0; i < ids.length; i++) ids[i] = in.readLong();
+        return ids;
+    }
+
+    // 紧随 readIds 之后调用
+    static int[] readOutDegrees(DataInputStream in, int n) throws IOException {
+        int[] outDegrees = new int[n];
+        for (int i = 0; i < n; i++) outDegrees[i] = in.readInt();
+        return outDegrees;
+    }
+
+    static void writeSlice(FileSystem fs, Path file, int[] indices, double[] ranks, int count) throws IOException {
+        try (FSDataOutputStream raw = fs.create(file, true);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(raw, IO_BUFFER))) {
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeInt(indices != null ? indices[i] : i);
+                out.writeDouble(ranks[i]);
+            }
+        }
+    }
+
+    static void readSlice(DataInputStream in, double[] ranks) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int index = in.readInt();
+            ranks[index] = in.readDouble();
+        }
+    }
+
+    /**
+     * 打开分布式缓存文件：YARN 下优先读取工作目录中的本地化链接，本地模式下直接读原路径。
+     */
+    static DataInputStream openCacheFile(Configuration conf, URI uri) throws IOException {
+        Path path = new Path(uri);
+        File local = new File(path.getName());
+        InputStream in = local.isFile() ? new FileInputStream(local) : path.getFileSystem(conf).open(path);
+        return new DataInputStream(new BufferedInputStream(in, IO_BUFFER));
+    }
+
+    // 第一遍读取时按需扩容的并行数组
+    private static class GrowableArrays {
+        long[] ids = new long[1024];
+        int[] outDegrees = new int[1024];
+        double[] ranks = new double[1024];
+        int size;
+
+        void add(long id, int outDegree, double rank) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                outDegrees = Arrays.copyOf(outDegrees, capacity);
+                ranks = Arrays.copyOf(ranks, capacity);
+            }
+            ids[size] = id;
+            outDegrees[size] = outDegree;
+            ranks[size] = rank;
+            size++;
+        }
+    }
+}
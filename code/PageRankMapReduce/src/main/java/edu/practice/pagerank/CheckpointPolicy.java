@@ -0,0 +1,189 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 稀疏检查点策略。
+ *
+ * 中间迭代输出只会被下一轮读取一次随后删除，没必要按默认副本数写入。启用后：
+ *   - 普通迭代以 scratchReplication（默认 1）副本写入，可选放到单独的 scratch 目录
+ *     （例如设置了 LAZY_PERSIST 等存储策略的目录）；
+ *   - 每第 K 轮迭代以默认副本数写入 output/iteration_N，作为持久检查点，
+ *     同时写入 _checkpoint 标记文件，记录恢复所需的悬挂质量与热点修正量；
+ *   - 某一轮失败（Job 失败或输入丢失）时，Driver 从最近的持久检查点重新计算。
+ *
+ *   pagerank.checkpoint.interval            K，0 表示关闭（默认，保持每轮默认副本）
+ *   pagerank.checkpoint.scratchReplication  非检查点迭代的副本数，默认 1
+ *   pagerank.checkpoint.scratchDir          非检查点迭代的输出根目录，默认与最终输出目录相同
+ *   pagerank.checkpoint.scratchStoragePolicy scratch 目录的 HDFS 存储策略，如 LAZY_PERSIST
+ *   pagerank.checkpoint.maxRecoveries       最多从检查点恢复的次数，默认 2
+ */
+public class CheckpointPolicy {
+
+    public static final String CONF_INTERVAL = "pagerank.checkpoint.interval";
+    public static final String CONF_SCRATCH_REPLICATION = "pagerank.checkpoint.scratchReplication";
+    public static final String CONF_SCRATCH_DIR = "pagerank.checkpoint.scratchDir";
+    public static final String CONF_SCRATCH_STORAGE_POLICY = "pagerank.checkpoint.scratchStoragePolicy";
+    public static final String CONF_MAX_RECOVERIES = "pagerank.checkpoint.maxRecoveries";
+
+    // 检查点目录中的标记文件（以 _ 开头，FileInputFormat 与 IterationIO 均会忽略）
+    public static final String MARKER_FILE = "_checkpoint";
+
+    private static final String KEY_ITERATION = "iteration";
+    private static final String KEY_DANGLING_SUM = "danglingSum";
+    private static final String KEY_HOT_ADJUST = "hotAdjust";
+    private static final String KEY_RANK_SCALE = "rankScale";
+
+    private final int interval;
+    private final short scratchReplication;
+    private final Path scratchDir;
+    private final String scratchStoragePolicy;
+    private final int maxRecoveries;
+
+    public CheckpointPolicy(Configuration conf) {
+        this.interval = Math.max(0, conf.getInt(CONF_INTERVAL, 0));
+        this.scratchReplication = (short) Math.max(1, conf.getInt(CONF_SCRATCH_REPLICATION, 1));
+        String dir = conf.get(CONF_SCRATCH_DIR);
+        this.scratchDir = (dir == null || dir.trim().isEmpty()) ? null : new Path(dir.trim());
+        this.scratchStoragePolicy = conf.get(CONF_SCRATCH_STORAGE_POLICY);
+        this.maxRecoveries = Math.max(0, conf.getInt(CONF_MAX_RECOVERIES, 2));
+    }
+
+    public boolean isEnabled() {
+        return interval > 0;
+    }
+
+    public int getMaxRecoveries() {
+        return maxRecoveries;
+    }
+
+    // 第 iteration 轮的输出是否为持久检查点
+    public boolean isCheckpoint(int iteration) {
+        return isEnabled() && iteration % interval == 0;
+    }
+
+    // 第 iteration 轮输出的副本数；0 表示沿用集群默认值
+    public short replicationFor(int iteration) {
+        return (!isEnabled() || isCheckpoint(iteration)) ? 0 : scratchReplication;
+    }
+
+    /**
+     * 第 iteration 轮的输出目录：检查点写入最终输出目录，其余写入 scratch 目录（若配置）。
+     */
+    public Path iterationPath(Path outputPath, int iteration) {
+        Path base = (isEnabled() && scratchDir != null && !isCheckpoint(iteration)) ? scratchDir : outputPath;
+        return new Path(base, "iteration_" + iteration);
+    }
+
+    // 非检查点迭代可能落在 scratch 目录，清理时需要一并检查
+    public Path scratchPath(int iteration) {
+        return scratchDir == null ? null : new Path(scratchDir, "iteration_" + iteration);
+    }
+
+    /**
+     * 创建 scratch 目录并设置存储策略；文件系统不支持存储策略时仅打印警告。
+     */
+    public void prepareScratch(Configuration conf) throws IOException {
+        if (!isEnabled() || scratchDir == null) return;
+        FileSystem fs = scratchDir.getFileSystem(conf);
+        if (!fs.exists(scratchDir)) fs.mkdirs(scratchDir);
+        if (scratchStoragePolicy != null && !scratchStoragePolicy.trim().isEmpty()) {
+            try {
+                fs.setStoragePolicy(scratchDir, scratchStoragePolicy.trim());
+            } catch (UnsupportedOperationException | IOException e) {
+                System.err.println("警告: 无法为 " + scratchDir + " 设置存储策略 " + scratchStoragePolicy + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 为第 iteration 轮的 Job 设置输出副本数（Task 端创建输出文件时读取 dfs.replication）。
+     */
+    public void configureIterationJob(Job job, int iteration) {
+        short replication = replicationFor(iteration);
+        if (replication > 0) {
+            job.getConfiguration().setInt("dfs.replication", replication);
+        }
+    }
+
+    public String describe() {
+        if (!isEnabled()) return "disabled";
+        return "interval=" + interval + ", scratchReplication=" + scratchReplication
+                + ", scratchDir=" + (scratchDir == null ? "-" : scratchDir.toString())
+                + ", storagePolicy=" + (scratchStoragePolicy == null ? "-" : scratchStoragePolicy)
+                + ", maxRecoveries=" + maxRecoveries;
+    }
+
+    /**
+     * 写入检查点标记：恢复到该检查点时需要的迭代轮次与跨轮状态。
+     */
+    public static void writeMarker(Configuration conf, Path dir, State state) throws IOException {
+        FileSystem fs = dir.getFileSystem(conf);
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(fs.create(new Path(dir, MARKER_FILE), true), StandardCharsets.UTF_8))) {
+            writer.write(KEY_ITERATION + "=" + state.iteration);
+            writer.newLine();
+            writer.write(KEY_DANGLING_SUM + "=" + Double.toString(state.danglingSum));
+            writer.newLine();
+            writer.write(KEY_HOT_ADJUST + "=" + (state.hotAdjust == null ? "" : state.hotAdjust));
+            writer.newLine();
+            writer.write(KEY_RANK_SCALE + "=" + Double.toString(state.rankScale));
+            writer.newLine();
+        }
+    }
+
+    /**
+     * 读取检查点标记；目录或标记不存在时返回 null。
+     */
+    public static State readMarker(Configuration conf, Path dir) throws IOException {
+        FileSystem fs = dir.getFileSystem(conf);
+        Path marker = new Path(dir, MARKER_FILE);
+        if (!fs.exists(marker)) return null;
+        State state = new State();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(marker), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int eq = line.indexOf('=');
+                if (eq <= 0) continue;
+                String key = line.substring(0, eq);
+                String value = line.substring(eq + 1);
+                try {
+                    if (KEY_ITERATION.equals(key)) state.iteration = Integer.parseInt(value.trim());
+                    else if (KEY_DANGLING_SUM.equals(key)) state.danglingSum = Double.parseDouble(value.trim());
+                    else if (KEY_HOT_ADJUST.equals(key)) state.hotAdjust = value;
+                    else if (KEY_RANK_SCALE.equals(key)) state.rankScale = Double.parseDouble(value.trim());
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 检查点保存的跨轮状态：该目录是第 iteration 轮的输出，
+     * danglingSum、hotAdjust 与 rankScale 为读取它的下一轮所需的配置值。
+     */
+    public static class State {
+        public int iteration;
+        public double danglingSum;
+        public String hotAdjust = "";
+        public double rankScale = 1.0;
+
+        public State() {}
+
+        public State(int iteration, double danglingSum, String hotAdjust, double rankScale) {
+            this.iteration = iteration;
+            this.danglingSum = danglingSum;
+            this.hotAdjust = hotAdjust;
+            this.rankScale = rankScale;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileRecordReader;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileRecordReaderWrapper;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+import org.apache.hadoop.mapreduce.lib.input.KeyValueTextInputFormat;
+
+import java.io.IOException;
+
+/**
+ * KeyValueTextInputFormat 的合并版本：把多个小的迭代输出文件（part-r-*）按节点/机架就近
+ * 合并到同一个 InputSplit 中，由一个 Map 任务依次读取，键值对与 KeyValueTextInputFormat 一致。
+ * 切片大小由 IterationIO.configureSplitCombining 设置。
+ */
+public class CombineKeyValueTextInputFormat extends CombineFileInputFormat<Text, Text> {
+
+    @Override
+    public RecordReader<Text, Text> createRecordReader(InputSplit split, TaskAttemptContext context) throws IOException {
+        return new CombineFileRecordReader<>((CombineFileSplit) split, context, KeyValueReaderWrapper.class);
+    }
+
+    // 逐个文件委托给 KeyValueLineRecordReader
+    public static class KeyValueReaderWrapper extends CombineFileRecordReaderWrapper<Text, Text> {
+        public KeyValueReaderWrapper(CombineFileSplit split, TaskAttemptContext context, Integer index)
+                throws IOException, InterruptedException {
+            super(new KeyValueTextInputFormat(), split, context, index);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+import java.io.IOException;
+
+/**
+ * GraphBuilderCombiner: 预处理阶段的 Combiner，合并同一节点的占位符记录。
+ *
+ * 每条边都会为目标节点发射一条占位符，而 Reducer 只关心“该节点出现过”。
+ * GraphBuilderMapper 先用位图在 Map 端丢弃重复的占位符，剩余的由这里合并为一条：
+ *   普通模式：值 "!"，热点检测开启时为 "!入度"（入度仍需精确统计）；
+ *   二次排序模式：键 "节点\t!"，值为空，热点检测开启时值为入度。
+ * 二次排序模式下重复的边（相同的组合键）也在这里合并为一条。
+ */
+public class GraphBuilderCombiner extends Reducer<Text, Text, Text, Text> {
+
+    // 是否在 Map 端去重占位符并启用 Combiner
+    public static final String CONF_DEDUPE = "pagerank.preprocess.dedupePlaceholders";
+    // Map 端位图覆盖的节点 ID 范围 [0, bits)，超出范围或非数字的 ID 交给 Combiner 合并
+    public static final String CONF_BITMAP_BITS = "pagerank.preprocess.placeholderBitmapBits";
+    public static final int DEFAULT_BITMAP_BITS = 1 << 26;
+
+    public static final String PLACEHOLDER = "!";
+
+    private boolean secondarySort;
+    private boolean countInDegree;
+    private final Text outValue = new Text();
+    private final Text emptyValue = new Text();
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getBoolean(CONF_DEDUPE, true);
+    }
+
+    /**
+     * 普通模式的占位符值代表的入边数："!" 为 1，"!n" 为 n。
+     */
+    public static long placeholderCount(String value) {
+        return value.length() == 1 ? 1 : Long.parseLong(value.substring(1));
+    }
+
+    /**
+     * 二次排序模式的占位符值代表的入边数：空值为 1，否则为值本身。
+     */
+    public static long placeholderCount(Text value) {
+        return value.getLength() == 0 ? 1 : Long.parseLong(value.toString());
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        secondarySort = AdjacencySort.isEnabled(context.getConfiguration());
+        countInDegree = SkewedKeys.isEnabled(context.getConfiguration());
+    }
+
+    @Override
+    protected void reduce(Text key, Iterable<Text> values, Context context) throws IOException, InterruptedException {
+        if (secondarySort) {
+            // Combiner 按完整组合键分组，一组内的记录完全相同
+            long count = 0;
+            long records = 0;
+            for (Text value : values) {
+                count += placeholderCount(value);
+                records++;
+            }
+            int length = key.getLength();
+            boolean placeholder = length >= 2 && key.getBytes()[length - 1] == '!'
+                    && key.getBytes()[length - 2] == AdjacencySort.KEY_SEPARATOR;
+            if (placeholder) {
+                context.getCounter(PageRankDriver.PageRankCounter.PLACEHOLDERS_COMBINED).increment(records - 1);
+                if (countInDegree && count > 1) {
+                    outValue.set(Long.toString(count));
+                    context.write(key, outValue);
+                    return;
+                }
+            }
+            context.write(key, emptyValue);
+            return;
+        }
+
+        long count = 0;
+        long records = 0;
+        for (Text value : values) {
+            String node = value.toString();
+            if (node.startsWith(PLACEHOLDER)) {
+                count += placeholderCount(node);
+                records++;
+            } else {
+                context.write(key, value);
+            }
+        }
+        if (records > 0) {
+            context.getCounter(PageRankDriver.PageRankCounter.PLACEHOLDERS_COMBINED).increment(records - 1);
+            outValue.set(countInDegree && count > 1 ? PLACEHOLDER + count : PLACEHOLDER);
+            context.write(key, outValue);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
 import java.io.IOException;
+import java.util.BitSet;
 
 /**
  * GraphBuilderMapper: 预处理阶段的 Mapper。
@@ -13,10 +14,33 @@ import java.io.IOException;
  */
 public class GraphBuilderMapper extends Mapper<LongWritable, Text, Text, Text> {
 
+    // 节点资源采样（未开启时为 null）
+    private ResourceSampler sampler;
+
     // 使用 \t 分隔符，以便处理原始数据中的空格或制表符
     private static final String SEPARATOR = "\\s+";
     private final Text outKey = new Text();
     private final Text outVal = new Text();
+    private final Text emptyVal = new Text();
+    // 二次排序模式：目标并入组合键，值为空（见 AdjacencySort）
+    private boolean secondarySort;
+    // 已发射过占位符的数字节点 ID；为 null 时不在 Map 端去重（热点检测需要完整的入度）
+    private BitSet seenPlaceholders;
+    private int bitmapBits;
+    private long placeholdersEmitted;
+    private long placeholdersSuppressed;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        sampler = ResourceSampler.start(context.getConfiguration());
+        secondarySort = AdjacencySort.isEnabled(context.getConfiguration());
+        if (GraphBuilderCombiner.isEnabled(context.getConfiguration())
+                && !SkewedKeys.isEnabled(context.getConfiguration())) {
+            bitmapBits = context.getConfiguration().getInt(GraphBuilderCombiner.CONF_BITMAP_BITS,
+                    GraphBuilderCombiner.DEFAULT_BITMAP_BITS);
+            seenPlaceholders = new BitSet();
+        }
+    }
 
     @Override
     protected void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
@@ -31,6 +55,17 @@ public class GraphBuilderMapper extends Mapper<LongWritable, Text, Text, Text> {
         if (parts.length >= 2) {
             String sourceNode = parts[0];
             String destinationNode = parts[1];
+            boolean emitPlaceholder = !isPlaceholderSeen(destinationNode);
+
+            if (secondarySort) {
+                AdjacencySort.setCompositeKey(outKey, sourceNode, destinationNode);
+                context.write(outKey, emptyVal);
+                if (emitPlaceholder) {
+                    AdjacencySort.setCompositeKey(outKey, destinationNode, GraphBuilderCombiner.PLACEHOLDER);
+                    context.write(outKey, emptyVal);
+                }
+                return;
+            }
 
             // 输出格式: (SourceNode, DestinationNode)
             outKey.set(sourceNode);
@@ -38,9 +73,36 @@ public class GraphBuilderMapper extends Mapper<LongWritable, Text, Text, Text> {
             context.write(outKey, outVal);
 
             // 发射占位符，确保 Reducer 能看到仅出现在目标端的节点
-            outKey.set(destinationNode);
-            outVal.set("!");
-            context.write(outKey, outVal);
+            if (emitPlaceholder) {
+                outKey.set(destinationNode);
+                outVal.set(GraphBuilderCombiner.PLACEHOLDER);
+                context.write(outKey, outVal);
+            }
         }
     }
+
+    // 位图范围内的数字 ID 只发射第一次出现的占位符，其余的由 Combiner 合并
+    private boolean isPlaceholderSeen(String node) {
+        if (seenPlaceholders != null) {
+            try {
+                long id = Long.parseLong(node);
+                if (id >= 0 && id < bitmapBits) {
+                    if (seenPlaceholders.get((int) id)) {
+                        placeholdersSuppressed++;
+                        return true;
+                    }
+                    seenPlaceholders.set((int) id);
+                }
+            } catch (NumberFormatException ignored) {}
+        }
+        placeholdersEmitted++;
+        return false;
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        ResourceSampler.stop(sampler, context.getConfiguration(), context.getTaskAttemptID().toString());
+        context.getCounter(PageRankDriver.PageRankCounter.PLACEHOLDERS_EMITTED).increment(placeholdersEmitted);
+        context.getCounter(PageRankDriver.PageRankCounter.PLACEHOLDERS_SUPPRESSED).increment(placeholdersSuppressed);
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package edu.practice.pagerank;
 
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
 import java.io.IOException;
 import java.util.LinkedHashSet;
 
@@ -11,25 +12,56 @@ import java.util.LinkedHashSet;
  */
 public class GraphBuilderReducer extends Reducer<Text, Text, Text, Text> {
 
+    // 节点资源采样（未开启时为 null）
+    private ResourceSampler sampler;
+
+    private boolean detectHotKeys;
+    private long inDegreeThreshold;
+    private MultipleOutputs<Text, Text> multipleOutputs;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        sampler = ResourceSampler.start(context.getConfiguration());
+        detectHotKeys = SkewedKeys.isEnabled(context.getConfiguration());
+        inDegreeThreshold = context.getConfiguration().getLong(SkewedKeys.CONF_IN_DEGREE_THRESHOLD,
+                SkewedKeys.DEFAULT_IN_DEGREE_THRESHOLD);
+        if (detectHotKeys) {
+            multipleOutputs = new MultipleOutputs<>(context);
+        }
+    }
+
     @Override
     protected void reduce(Text key, Iterable<Text> values, Context context) throws IOException, InterruptedException {
         // 使用 LinkedHashSet 存储目标节点，按输入顺序保留且去重
         LinkedHashSet<String> targets = new LinkedHashSet<>();
         boolean hasValue = false;
+        // 每条入边对应一个占位符，占位符数量即入度（仅热点检测开启时完整保留）
+        long inDegree = 0;
 
         for (Text val : values) {
             String node = val.toString().trim();
             if (!node.isEmpty()) {
                 hasValue = true;
-                if (!"!".equals(node)) {
+                if (!node.startsWith(GraphBuilderCombiner.PLACEHOLDER)) {
                     targets.add(node);
+                } else {
+                    // Combiner 合并后的占位符为 "!入度"
+                    inDegree += GraphBuilderCombiner.placeholderCount(node);
                 }
             }
         }
 
+        // 热点检测：入度超过阈值的节点写入 hotkeys 侧输出
+        if (detectHotKeys && inDegree >= inDegreeThreshold) {
+            context.getCounter(PageRankDriver.PageRankCounter.HOT_KEYS_COUNT).increment(1);
+            multipleOutputs.write(SkewedKeys.HOT_KEYS_OUTPUT, key, new Text(Long.toString(inDegree)),
+                    SkewedKeys.HOT_KEYS_BASE_PATH);
+        }
+
         if (hasValue) {
             // 统计总节点数 N
             context.getCounter(PageRankDriver.PageRankCounter.TOTAL_NODES_COUNT).increment(1);
+            context.getCounter(PageRankDriver.PageRankCounter.TOTAL_EDGES_COUNT).increment(targets.size());
 
             // 初始 PR 默认 1.0
             String initialPR = "1.0";
@@ -37,4 +69,12 @@ public class GraphBuilderReducer extends Reducer<Text, Text, Text, Text> {
             context.write(key, new Text(initialPR + "|" + links));
         }
     }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        ResourceSampler.stop(sampler, context.getConfiguration(), context.getTaskAttemptID().toString());
+        if (multipleOutputs != null) {
+            multipleOutputs.close();
+        }
+    }
 }
\ No newline at end of file
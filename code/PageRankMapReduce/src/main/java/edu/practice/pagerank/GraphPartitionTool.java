@@ -0,0 +1,338 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 图分区预处理工具：对原始边表 (Src Dst) 做流式 LDG (Linear Deterministic Greedy) 划分，
+ * 生成保持局部性的 节点 -> 分区 映射，并持久化到 HDFS，供 Giraph 分区器与 MapReduce Partitioner 共用。
+ *
+ * 输出文件格式：
+ *   #parts      K
+ *   #edgeCut    本划分的跨分区边比例
+ *   #hashEdgeCut 同样 K 个分区下哈希划分的跨分区边比例（对照）
+ *   NodeID\tPartition
+ *
+ * 首遍划分之后再做若干遍重流式 (restreaming) 细化：每个源节点依据邻居的最新分区重新打分，
+ * 单遍流式划分对节点到达顺序敏感，重流式可以显著降低跨分区边比例。
+ *
+ * 用法: GraphPartitionTool <原始输入路径> <映射输出文件> <分区数K> [容量松弛系数，默认 0.05] [细化遍数，默认 2]
+ */
+public class GraphPartitionTool implements Tool {
+
+    // Driver 与 AssignmentPartitioner 使用的配置键：映射文件路径
+    public static final String CONF_ASSIGNMENT_PATH = "pagerank.partition.assignment";
+    public static final String HEADER_PARTS = "#parts";
+    public static final String HEADER_EDGE_CUT = "#edgeCut";
+    public static final String HEADER_HASH_EDGE_CUT = "#hashEdgeCut";
+
+    private static final int UNASSIGNED = -1;
+    private static final int MISSING = -2;
+
+    private Configuration conf;
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("用法: GraphPartitionTool <原始输入路径> <映射输出文件> <分区数K> [容量松弛系数] [细化遍数]");
+            return 1;
+        }
+        Path inputPath = new Path(args[0]);
+        Path assignmentPath = new Path(args[1]);
+        int parts = Integer.parseInt(args[2]);
+        double slack = args.length > 3 ? Double.parseDouble(args[3]) : 0.05;
+        int refinePasses = args.length > 4 ? Integer.parseInt(args[4]) : 2;
+        if (parts <= 0) {
+            System.err.println("错误: 分区数必须为正数");
+            return 1;
+        }
+
+        List<Path> files = listInputFiles(inputPath);
+        if (files.isEmpty()) {
+            System.err.println("错误: 原始输入路径不存在或为空: " + inputPath);
+            return 1;
+        }
+
+        long start = System.currentTimeMillis();
+
+        // 第 1 遍：收集所有节点，确定 N 与每个分区的容量
+        LongIntHashMap assignment = new LongIntHashMap(1 << 20, MISSING);
+        for (Path file : files) {
+            try (BufferedReader reader = open(file)) {
+                String line;
+                long[] edge = new long[2];
+                while ((line = reader.readLine()) != null) {
+                    if (!parseEdge(line, edge)) continue;
+                    if (!assignment.containsKey(edge[0])) assignment.put(edge[0], UNASSIGNED);
+                    if (!assignment.containsKey(edge[1])) assignment.put(edge[1], UNASSIGNED);
+                }
+            }
+        }
+        long totalNodes = assignment.size();
+        double capacity = Math.max(1.0, (1.0 + slack) * totalNodes / parts);
+        System.out.printf("分区预处理: 节点数 %d, 分区数 %d, 每分区容量 %.0f\n", totalNodes, parts, capacity);
+
+        // 第 2 遍：按源节点分组流式 LDG 划分
+        long[] sizes = new long[parts];
+        int[] neighborCounts = new int[parts];
+        streamSourceGroups(files, (source, neighbors, neighborSize) ->
+                assignGroup(assignment, source, neighbors, neighborSize, sizes, neighborCounts, capacity));
+        // 容量已满时未能被“拉入”的节点，放到当前最小的分区
+        assignment.forEach((node, part) -> {
+            if (part == UNASSIGNED) {
+                int smallest = smallestPartition(sizes);
+                assignment.put(node, smallest);
+                sizes[smallest]++;
+            }
+        });
+
+        // 重流式细化：源节点离开原分区后按 LDG 重新选择
+        for (int pass = 0; pass < refinePasses; pass++) {
+            streamSourceGroups(files, (source, neighbors, neighborSize) ->
+                    reassignGroup(assignment, source, neighbors, neighborSize, sizes, neighborCounts, capacity));
+        }
+
+        // 统计跨分区边比例，并与哈希划分对照
+        long totalEdges = 0;
+        long cutEdges = 0;
+        long hashCutEdges = 0;
+        for (Path file : files) {
+            try (BufferedReader reader = open(file)) {
+                String line;
+                long[] edge = new long[2];
+                while ((line = reader.readLine()) != null) {
+                    if (!parseEdge(line, edge)) continue;
+                    totalEdges++;
+                    if (assignment.get(edge[0]) != assignment.get(edge[1])) cutEdges++;
+                    if (hashPartition(edge[0], parts) != hashPartition(edge[1], parts)) hashCutEdges++;
+                }
+            }
+        }
+        double edgeCut = totalEdges == 0 ? 0.0 : (double) cutEdges / totalEdges;
+        double hashEdgeCut = totalEdges == 0 ? 0.0 : (double) hashCutEdges / totalEdges;
+
+        writeAssignment(assignmentPath, assignment, parts, edgeCut, hashEdgeCut);
+
+        long maxSize = 0;
+        for (long size : sizes) maxSize = Math.max(maxSize, size);
+        System.out.printf("分区预处理完成，耗时 %.3f 秒\n", (System.currentTimeMillis() - start) / 1000.0);
+        System.out.printf("  边数: %d, 跨分区边比例 (LDG): %.4f, 哈希划分对照: %.4f\n", totalEdges, edgeCut, hashEdgeCut);
+        System.out.printf("  最大分区节点数: %d (平均 %.0f)\n", maxSize, (double) totalNodes / parts);
+        System.out.println("  映射文件: " + assignmentPath);
+        return 0;
+    }
+
+    // 源节点若尚未分配则按 LDG 打分选择分区，再把尚未分配的邻居拉入同一分区（容量允许时）
+    private static void assignGroup(LongIntHashMap assignment, long source, long[] neighbors, int neighborSize,
+                                    long[] sizes, int[] neighborCounts, double capacity) {
+        int part = assignment.get(source);
+        if (part < 0) {
+            part = chooseLdgPartition(assignment, neighbors, neighborSize, sizes, neighborCounts, capacity);
+            assignment.put(source, part);
+            sizes[part]++;
+        }
+        for (int i = 0; i < neighborSize; i++) {
+            if (sizes[part] >= capacity) break;
+            if (assignment.get(neighbors[i]) == UNASSIGNED) {
+                assignment.put(neighbors[i], part);
+                sizes[part]++;
+            }
+        }
+    }
+
+    private static void reassignGroup(LongIntHashMap assignment, long source, long[] neighbors, int neighborSize,
+                                      long[] sizes, int[] neighborCounts, double capacity) {
+        int oldPart = assignment.get(source);
+        sizes[oldPart]--;
+        int part = chooseLdgPartition(assignment, neighbors, neighborSize, sizes, neighborCounts, capacity);
+        assignment.put(source, part);
+        sizes[part]++;
+    }
+
+    // LDG 打分: |N(v) ∩ P_i| * (1 - |P_i| / C)，已满分区不参与；全部为 0 时选最小分区
+    private static int chooseLdgPartition(LongIntHashMap assignment, long[] neighbors, int neighborSize,
+                                          long[] sizes, int[] neighborCounts, double capacity) {
+        Arrays.fill(neighborCounts, 0);
+        for (int i = 0; i < neighborSize; i++) {
+            int p = assignment.get(neighbors[i]);
+            if (p >= 0) neighborCounts[p]++;
+        }
+        int best = -1;
+        double bestScore = 0.0;
+        for (int p = 0; p < sizes.length; p++) {
+            if (sizes[p] >= capacity || neighborCounts[p] == 0) continue;
+            double score = neighborCounts[p] * (1.0 - sizes[p] / capacity);
+            if (best < 0 || score > bestScore || (score == bestScore && sizes[p] < sizes[best])) {
+                best = p;
+                bestScore = score;
+            }
+        }
+        return best >= 0 ? best : smallestPartition(sizes);
+    }
+
+    private static int smallestPartition(long[] sizes) {
+        int smallest = 0;
+        for (int p = 1; p < sizes.length; p++) {
+            if (sizes[p] < sizes[smallest]) smallest = p;
+        }
+        return smallest;
+    }
+
+    // 与 Giraph HashPartitionerFactory 相同的哈希划分，作为对照
+    private static int hashPartition(long node, int parts) {
+        return Math.abs(Long.hashCode(node) % parts);
+    }
+
+    // 顺序读取边表，把相邻的同源边合并为一组 (源节点, 邻居列表) 交给 handler
+    private void streamSourceGroups(List<Path> files, GroupHandler handler) throws IOException {
+        long[] edge = new long[2];
+        long[] neighbors = new long[64];
+        for (Path file : files) {
+            try (BufferedReader reader = open(file)) {
+                String line;
+                long currentSource = Long.MIN_VALUE;
+                int neighborSize = 0;
+                while ((line = reader.readLine()) != null) {
+                    if (!parseEdge(line, edge)) continue;
+                    if (edge[0] != currentSource && neighborSize > 0) {
+                        handler.handle(currentSource, neighbors, neighborSize);
+                        neighborSize = 0;
+                    }
+                    currentSource = edge[0];
+                    if (neighborSize == neighbors.length) neighbors = Arrays.copyOf(neighbors, neighborSize * 2);
+                    neighbors[neighborSize++] = edge[1];
+                }
+                if (neighborSize > 0) {
+                    handler.handle(currentSource, neighbors, neighborSize);
+                }
+            }
+        }
+    }
+
+    private interface GroupHandler {
+        void handle(long source, long[] neighbors, int neighborSize);
+    }
+
+    private static boolean parseEdge(String line, long[] edge) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) return false;
+        String[] parts = trimmed.split("\\s+");
+        if (parts.length < 2) return false;
+        try {
+            edge[0] = Long.parseLong(parts[0]);
+            edge[1] = Long.parseLong(parts[1]);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void writeAssignment(Path path, LongIntHashMap assignment, int parts,
+                                 double edgeCut, double hashEdgeCut) throws IOException {
+        FileSystem fs = path.getFileSystem(getConf());
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(fs.create(path, true), StandardCharsets.UTF_8))) {
+            writer.write(HEADER_PARTS + "\t" + parts + "\n");
+            writer.write(HEADER_EDGE_CUT + "\t" + edgeCut + "\n");
+            writer.write(HEADER_HASH_EDGE_CUT + "\t" + hashEdgeCut + "\n");
+            IOException[] failure = new IOException[1];
+            assignment.forEach((node, part) -> {
+                if (failure[0] != null) return;
+                try {
+                    writer.write(Long.toString(node));
+                    writer.write('\t');
+                    writer.write(Integer.toString(part));
+                    writer.newLine();
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+        }
+    }
+
+    /**
+     * 读取映射文件。返回的表中不存在的节点取值为 -1。
+     */
+    public static LongIntHashMap readAssignment(Configuration conf, Path path) throws IOException {
+        FileSystem fs = path.getFileSystem(conf);
+        LongIntHashMap assignment = new LongIntHashMap(1 << 20, -1);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(path), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                int tab = line.indexOf('\t');
+                if (tab <= 0) continue;
+                try {
+                    assignment.put(Long.parseLong(line.substring(0, tab)), Integer.parseInt(line.substring(tab + 1).trim()));
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * 读取映射文件头部的统计信息（分区数与跨分区边比例）。
+     */
+    public static String readHeader(Configuration conf, Path path, String header) throws IOException {
+        FileSystem fs = path.getFileSystem(conf);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(path), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null && line.startsWith("#")) {
+                String[] parts = line.split("\t", 2);
+                if (parts.length == 2 && parts[0].equals(header)) return parts[1].trim();
+            }
+        }
+        return null;
+    }
+
+    private List<Path> listInputFiles(Path inputPath) throws IOException {
+        List<Path> files = new ArrayList<>();
+        FileSystem fs = inputPath.getFileSystem(getConf());
+        if (!fs.exists(inputPath)) return files;
+        for (FileStatus status : fs.listStatus(inputPath)) {
+            String name = status.getPath().getName();
+            if (status.isFile() && !name.startsWith("_") && !name.startsWith(".")) {
+                files.add(status.getPath());
+            }
+        }
+        return files;
+    }
+
+    // 按扩展名自动解压（如 .gz / .bz2）
+    private BufferedReader open(Path file) throws IOException {
+        FileSystem fs = file.getFileSystem(getConf());
+        CompressionCodec codec = new CompressionCodecFactory(getConf()).getCodec(file);
+        InputStream in = fs.open(file);
+        if (codec != null) in = codec.createInputStream(in);
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Configuration getConf() { return conf; }
+
+    @Override
+    public void setConf(Configuration conf) { this.conf = conf; }
+
+    public static void main(String[] args) throws Exception {
+        Configuration conf = new Configuration();
+        int exitCode = ToolRunner.run(conf, new GraphPartitionTool(), args);
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,244 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.CombineSequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.KeyValueTextInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 迭代数据的读写格式与压缩配置。
+ *
+ * Map 输出（shuffle/溢写）与迭代输出（iteration_N 目录）的压缩编码分别配置：
+ *   pagerank.compress.mapOutput       none | deflate | gzip | bzip2 | 编码器类全名
+ *   pagerank.compress.iterationOutput none | deflate | gzip | bzip2 | 编码器类全名
+ *   pagerank.iteration.format         text（默认）| sequence（块压缩 SequenceFile）
+ *
+ * 迭代输入统一按 (NodeID, "PR|Outlinks") 键值对读取，文本与 SequenceFile 两种格式对 Mapper 透明。
+ *
+ * 切片合并（默认开启）：上一轮有多少个 Reducer 就有多少个 part 文件，小图或 Reducer 较多时
+ * 每个小文件各占一个 Map 任务，任务启动开销占据迭代的大部分时间。开启后改用合并输入格式，
+ * 按节点/机架就近把多个文件打包进同一切片，切片大小按本轮输入总字节数自动确定：
+ *   切片字节 = clamp(总字节 / 目标 Map 数, minSplitBytes, maxSplitBytes)
+ *   pagerank.iteration.combineSplits   true（默认）| false
+ *   pagerank.iteration.targetMapTasks  目标 Map 数，默认与 mapreduce.job.reduces 相同
+ *   pagerank.iteration.minSplitBytes   默认 32MB
+ *   pagerank.iteration.maxSplitBytes   默认 dfs.blocksize（128MB）
+ */
+public class IterationIO {
+
+    public static final String CONF_MAP_OUTPUT_CODEC = "pagerank.compress.mapOutput";
+    public static final String CONF_OUTPUT_CODEC = "pagerank.compress.iterationOutput";
+    public static final String CONF_ITERATION_FORMAT = "pagerank.iteration.format";
+    public static final String CONF_COMBINE_SPLITS = "pagerank.iteration.combineSplits";
+    public static final String CONF_TARGET_MAP_TASKS = "pagerank.iteration.targetMapTasks";
+    public static final String CONF_MIN_SPLIT_BYTES = "pagerank.iteration.minSplitBytes";
+    public static final String CONF_MAX_SPLIT_BYTES = "pagerank.iteration.maxSplitBytes";
+
+    public static final long DEFAULT_MIN_SPLIT_BYTES = 32L << 20;
+    public static final long DEFAULT_BLOCK_BYTES = 128L << 20;
+
+    public static final String FORMAT_TEXT = "text";
+    public static final String FORMAT_SEQUENCE = "sequence";
+
+    private static final byte[] SEQUENCE_FILE_MAGIC = {'S', 'E', 'Q'};
+
+    private IterationIO() {}
+
+    /**
+     * 将编码名称解析为编码器类；none / 空值返回 null。两个引擎共用，实现见 InputRechunker。
+     */
+    public static Class<? extends CompressionCodec> resolveCodec(Configuration conf, String name) {
+        return InputRechunker.resolveCodec(conf, name);
+    }
+
+    public static boolean isSequenceFormat(Configuration conf) {
+        return FORMAT_SEQUENCE.equalsIgnoreCase(conf.get(CONF_ITERATION_FORMAT, FORMAT_TEXT));
+    }
+
+    // 描述当前压缩配置，写入性能报告
+    public static String describe(Configuration conf) {
+        return "mapOutput=" + conf.get(CONF_MAP_OUTPUT_CODEC, "none")
+                + ", iterationOutput=" + conf.get(CONF_OUTPUT_CODEC, "none")
+                + ", format=" + conf.get(CONF_ITERATION_FORMAT, FORMAT_TEXT);
+    }
+
+    /**
+     * Map 输出（溢写与 shuffle）压缩。
+     */
+    public static void configureMapOutput(Job job) {
+        Configuration jobConf = job.getConfiguration();
+        Class<? extends CompressionCodec> codec = resolveCodec(jobConf, jobConf.get(CONF_MAP_OUTPUT_CODEC));
+        if (codec != null) {
+            jobConf.setBoolean("mapreduce.map.output.compress", true);
+            jobConf.setClass("mapreduce.map.output.compress.codec", codec, CompressionCodec.class);
+        }
+    }
+
+    /**
+     * 迭代输出格式与压缩。
+     */
+    public static void configureIterationOutput(Job job) {
+        Configuration jobConf = job.getConfiguration();
+        Class<? extends CompressionCodec> codec = resolveCodec(jobConf, jobConf.get(CONF_OUTPUT_CODEC));
+        if (isSequenceFormat(jobConf)) {
+            job.setOutputFormatClass(SequenceFileOutputFormat.class);
+            if (codec != null) {
+                FileOutputFormat.setCompressOutput(job, true);
+                FileOutputFormat.setOutputCompressorClass(job, codec);
+                SequenceFileOutputFormat.setOutputCompressionType(job, SequenceFile.CompressionType.BLOCK);
+            }
+        } else {
+            job.setOutputFormatClass(TextOutputFormat.class);
+            if (codec != null) {
+                FileOutputFormat.setCompressOutput(job, true);
+                FileOutputFormat.setOutputCompressorClass(job, codec);
+            }
+        }
+    }
+
+    /**
+     * 迭代输入格式：预处理及归一化产生的目录始终是文本，其余迭代目录与输出格式一致。
+     */
+    public static void configureIterationInput(Job job, boolean textInput) {
+        if (!textInput && isSequenceFormat(job.getConfiguration())) {
+            job.setInputFormatClass(SequenceFileInputFormat.class);
+        } else {
+            job.setInputFormatClass(KeyValueTextInputFormat.class);
+        }
+    }
+
+    /**
+     * 本轮迭代输入的切片规划。uncombinedSplits 为不合并时 FileInputFormat 会产生的切片数。
+     */
+    public static class SplitPlan {
+        public long inputBytes;
+        public int files;
+        public int uncombinedSplits;
+        public long splitBytes;
+
+        public String describe() {
+            return String.format("%d files, %d bytes, split %d bytes, uncombined splits %d",
+                    files, inputBytes, splitBytes, uncombinedSplits);
+        }
+    }
+
+    /**
+     * 开启切片合并时把迭代输入格式换成对应的合并格式，并按输入目录总字节数设置切片大小。
+     * 需在 configureIterationInput 之后调用；未开启时返回 null。
+     */
+    public static SplitPlan configureSplitCombining(Job job, boolean textInput, Path inputDir) throws IOException {
+        Configuration jobConf = job.getConfiguration();
+        if (!jobConf.getBoolean(CONF_COMBINE_SPLITS, true)) return null;
+
+        SplitPlan plan = new SplitPlan();
+        FileSystem fs = inputDir.getFileSystem(jobConf);
+        CompressionCodecFactory codecs = new CompressionCodecFactory(jobConf);
+        for (FileStatus status : fs.listStatus(inputDir)) {
+            String name = status.getPath().getName();
+            // 与 FileInputFormat 一致，跳过 _SUCCESS 等隐藏文件
+            if (!status.isFile() || name.startsWith("_") || name.startsWith(".")) continue;
+            plan.files++;
+            plan.inputBytes += status.getLen();
+            CompressionCodec codec = codecs.getCodec(status.getPath());
+            long blockSize = Math.max(1, status.getBlockSize());
+            if (codec != null && !(codec instanceof SplittableCompressionCodec)) {
+                plan.uncombinedSplits++;
+            } else {
+                plan.uncombinedSplits += (int) Math.max(1, (status.getLen() + blockSize - 1) / blockSize);
+            }
+        }
+
+        int targetTasks = Math.max(1, jobConf.getInt(CONF_TARGET_MAP_TASKS, jobConf.getInt("mapreduce.job.reduces", 1)));
+        long minBytes = jobConf.getLong(CONF_MIN_SPLIT_BYTES, DEFAULT_MIN_SPLIT_BYTES);
+        long maxBytes = Math.max(minBytes, jobConf.getLong(CONF_MAX_SPLIT_BYTES, jobConf.getLong("dfs.blocksize", DEFAULT_BLOCK_BYTES)));
+        plan.splitBytes = Math.min(maxBytes, Math.max(minBytes, (plan.inputBytes + targetTasks - 1) / targetTasks));
+
+        if (!textInput && isSequenceFormat(jobConf)) {
+            job.setInputFormatClass(CombineSequenceFileInputFormat.class);
+        } else {
+            job.setInputFormatClass(CombineKeyValueTextInputFormat.class);
+        }
+        jobConf.setLong(FileInputFormat.SPLIT_MAXSIZE, plan.splitBytes);
+        // 单个节点上凑不满一个切片的剩余块先在机架内合并，再跨机架合并
+        jobConf.setLong(CombineFileInputFormat.SPLIT_MINSIZE_PERNODE, plan.splitBytes / 2);
+        jobConf.setLong(CombineFileInputFormat.SPLIT_MINSIZE_PERRACK, plan.splitBytes / 2);
+        return plan;
+    }
+
+    /**
+     * 逐条读取目录中以 prefix 开头的文件，自动识别 SequenceFile 与（压缩）文本格式。
+     * 文本行按第一个制表符拆分为键和值。
+     */
+    public static void forEachRecord(Configuration conf, Path dir, String prefix, RecordHandler handler) throws IOException {
+        FileSystem fs = dir.getFileSystem(conf);
+        if (!fs.exists(dir)) return;
+        CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+        for (FileStatus status : fs.listStatus(dir)) {
+            if (!status.isFile() || !status.getPath().getName().startsWith(prefix)) continue;
+            Path file = status.getPath();
+            if (isSequenceFile(fs, file)) {
+                try (SequenceFile.Reader reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(file))) {
+                    Text key = new Text();
+                    Text value = new Text();
+                    while (reader.next(key, value)) {
+                        handler.handle(key.toString(), value.toString());
+                    }
+                }
+            } else {
+                CompressionCodec codec = codecs.getCodec(file);
+                InputStream in = fs.open(file);
+                if (codec != null) in = codec.createInputStream(in);
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.trim().isEmpty()) continue;
+                        int tab = line.indexOf('\t');
+                        if (tab < 0) continue;
+                        handler.handle(line.substring(0, tab), line.substring(tab + 1));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isSequenceFile(FileSystem fs, Path file) throws IOException {
+        byte[] header = new byte[SEQUENCE_FILE_MAGIC.length];
+        try (FSDataInputStream in = fs.open(file)) {
+            int read = 0;
+            while (read < header.length) {
+                int n = in.read(header, read, header.length - read);
+                if (n < 0) return false;
+                read += n;
+            }
+        }
+        for (int i = 0; i < header.length; i++) {
+            if (header[i] != SEQUENCE_FILE_MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    public interface RecordHandler {
+        void handle(String key, String value) throws IOException;
+    }
+}
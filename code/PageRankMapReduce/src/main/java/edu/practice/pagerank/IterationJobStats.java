@@ -0,0 +1,394 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.TaskReport;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.jobhistory.JobHistoryParser;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormatCounter;
+import org.apache.hadoop.mapreduce.v2.jobhistory.JobHistoryUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个 MapReduce Job 的任务级统计。
+ * 从 Hadoop 内置的 TaskCounter 与每个 Task 的 TaskReport 中提取：
+ * shuffle 字节数、溢写记录数、Map 输出物化字节数、GC/CPU 时间、最慢与中位任务耗时，
+ * 以及 Reduce 任务内部 shuffle / merge / reduce 三段耗时的拆分。
+ * 同时保留 Job 与每个任务的起止时间，供 JobTraceRecorder 画出时间线。
+ */
+public class IterationJobStats {
+
+    // 瓶颈判定阈值
+    private static final double STRAGGLER_RATIO = 2.0;      // 最慢任务 / 中位任务
+    private static final double SPILL_RATIO = 2.0;          // 溢写记录 / Map 输出记录（超过 map 侧与 reduce 侧各落盘一次）
+    private static final double SHUFFLE_SHARE = 0.5;        // shuffle 时间占 Reduce 任务时间的比例
+    // Job 结束后等待 AM 把历史文件移入 intermediate-done 目录的最长时间与轮询间隔
+    private static final long HISTORY_WAIT_MS = 2000;
+    private static final long HISTORY_POLL_MS = 250;
+
+    // 本地模式没有历史文件，回退提示只打印一次
+    private static boolean localFallbackReported;
+
+    public final String label;
+
+    public long setupMs;
+    public long totalMs;
+
+    public int mapTasks;
+    public int reduceTasks;
+
+    // Job 级内置计数器（所有任务累计）
+    public long mapOutputRecords;
+    public long mapOutputBytes;
+    public long mapOutputMaterializedBytes;
+    public long shuffleBytes;
+    public long spilledRecords;
+    public long gcMs;
+    public long cpuMs;
+    // 输出实际写出字节（压缩后）与等效未压缩文本字节
+    public long outputBytesWritten;
+    public long outputRawBytes;
+    // 输出文件副本数（稀疏检查点下非检查点迭代为低副本）
+    public int outputReplication;
+
+    // 任务耗时分布（毫秒）
+    public long maxMapMs;
+    public long medianMapMs;
+    public String slowestMapTask = "";
+    public long maxReduceMs;
+    public long medianReduceMs;
+    public String slowestReduceTask = "";
+
+    // Reduce 任务内部三段耗时（所有 Reduce 任务平均值）；mergeMs 为 -1 表示无法从历史文件中拆分
+    public long avgShuffleMs;
+    public long avgMergeMs = -1;
+    public long avgReduceMs;
+    public boolean phaseSplitFromHistory;
+
+    // Map 任务启动开销（任务耗时减去 Mapper 自身记录的 MAP_WALL_MS，所有 Map 任务平均值）
+    public long avgMapStartupMs;
+    // 切片合并：不合并时的切片数（未合并时为 0），以及按启动开销估算的节省时间
+    public int uncombinedSplits;
+    public long setupSavedMs;
+
+    // 时间线：客户端提交时间（由调用方在 waitForCompletion 前记录，未记录时为 -1）、Job 起止时间、每个任务的起止
+    public long submitTime = -1;
+    public long jobStartTime;
+    public long jobFinishTime;
+    public final List<TaskTimeline> tasks = new ArrayList<>();
+
+    /**
+     * 一个任务的起止时间；Reduce 任务的 shuffle / merge 结束时间只在历史文件可用时有值，否则为 -1。
+     */
+    public static class TaskTimeline {
+        public final String taskId;
+        public final boolean map;
+        public final long start;
+        public final long finish;
+        public long shuffleEnd = -1;
+        public long mergeEnd = -1;
+
+        TaskTimeline(String taskId, boolean map, long start, long finish) {
+            this.taskId = taskId;
+            this.map = map;
+            this.start = start;
+            this.finish = finish;
+        }
+    }
+
+    public IterationJobStats(String label) {
+        this.label = label;
+    }
+
+    /**
+     * 在 Job 成功结束后采集统计。任何获取失败的部分都保持默认值，不影响主流程。
+     */
+    public static IterationJobStats collect(Job job, String label) {
+        IterationJobStats stats = new IterationJobStats(label);
+        try {
+            Counters counters = job.getCounters();
+            stats.mapOutputRecords = valueOf(counters, TaskCounter.MAP_OUTPUT_RECORDS);
+            stats.mapOutputBytes = valueOf(counters, TaskCounter.MAP_OUTPUT_BYTES);
+            stats.mapOutputMaterializedBytes = valueOf(counters, TaskCounter.MAP_OUTPUT_MATERIALIZED_BYTES);
+            stats.shuffleBytes = valueOf(counters, TaskCounter.REDUCE_SHUFFLE_BYTES);
+            stats.spilledRecords = valueOf(counters, TaskCounter.SPILLED_RECORDS);
+            stats.gcMs = valueOf(counters, TaskCounter.GC_TIME_MILLIS);
+            stats.cpuMs = valueOf(counters, TaskCounter.CPU_MILLISECONDS);
+            stats.outputBytesWritten = valueOf(counters, FileOutputFormatCounter.BYTES_WRITTEN);
+            stats.outputRawBytes = valueOf(counters, PageRankDriver.PageRankCounter.OUTPUT_RAW_BYTES);
+        } catch (Exception e) {
+            System.err.println("警告: 无法读取 Job 计数器: " + e.getMessage());
+        }
+
+        try {
+            TaskReport[] maps = job.getTaskReports(TaskType.MAP);
+            TaskReport[] reduces = job.getTaskReports(TaskType.REDUCE);
+            stats.mapTasks = maps.length;
+            stats.reduceTasks = reduces.length;
+            stats.jobStartTime = job.getStartTime();
+            stats.jobFinishTime = job.getFinishTime();
+            for (TaskReport report : maps) {
+                stats.tasks.add(new TaskTimeline(report.getTaskId(), true, report.getStartTime(), report.getFinishTime()));
+            }
+            for (TaskReport report : reduces) {
+                stats.tasks.add(new TaskTimeline(report.getTaskId(), false, report.getStartTime(), report.getFinishTime()));
+            }
+
+            long[] mapDurations = durations(maps);
+            stats.maxMapMs = max(mapDurations);
+            stats.medianMapMs = median(mapDurations);
+            stats.slowestMapTask = slowest(maps, mapDurations);
+            long startupSum = 0;
+            for (int i = 0; i < maps.length; i++) {
+                long mapWall = valueOf(maps[i].getTaskCounters(), PageRankDriver.PageRankCounter.MAP_WALL_MS);
+                startupSum += Math.max(0, mapDurations[i] - mapWall);
+            }
+            if (maps.length > 0) {
+                stats.avgMapStartupMs = startupSum / maps.length;
+            }
+
+            long[] reduceDurations = durations(reduces);
+            stats.maxReduceMs = max(reduceDurations);
+            stats.medianReduceMs = median(reduceDurations);
+            stats.slowestReduceTask = slowest(reduces, reduceDurations);
+
+            // 回退方案：Reducer 自身记录的 REDUCE_WALL_MS 即 reduce 段耗时，
+            // 任务总耗时减去它得到 shuffle+merge 合计
+            long shuffleMergeSum = 0;
+            long reduceSum = 0;
+            for (int i = 0; i < reduces.length; i++) {
+                long reduceWall = valueOf(reduces[i].getTaskCounters(), PageRankDriver.PageRankCounter.REDUCE_WALL_MS);
+                reduceSum += reduceWall;
+                shuffleMergeSum += Math.max(0, reduceDurations[i] - reduceWall);
+            }
+            if (reduces.length > 0) {
+                stats.avgShuffleMs = shuffleMergeSum / reduces.length;
+                stats.avgReduceMs = reduceSum / reduces.length;
+            }
+        } catch (Exception e) {
+            System.err.println("警告: 无法读取任务报告: " + e.getMessage());
+        }
+
+        stats.splitReducePhasesFromHistory(job);
+        return stats;
+    }
+
+    /**
+     * 记录切片合并的效果：少启动的 Map 任务数乘以平均启动开销，即为本轮估算节省的时间。
+     */
+    public void applySplitPlan(IterationIO.SplitPlan plan) {
+        if (plan == null) return;
+        uncombinedSplits = plan.uncombinedSplits;
+        setupSavedMs = Math.max(0, uncombinedSplits - mapTasks) * avgMapStartupMs;
+    }
+
+    // 尝试解析 Job 历史文件，得到每个成功 Reduce 尝试的 shuffle/merge/reduce 精确拆分；找不到或无法解析时回退到计数器近似
+    private void splitReducePhasesFromHistory(Job job) {
+        Configuration conf = job.getConfiguration();
+        if ("local".equals(conf.get("mapreduce.framework.name", "local"))) {
+            if (!localFallbackReported) {
+                localFallbackReported = true;
+                System.err.println("提示: 本地模式没有作业历史文件，Reduce 的 shuffle/merge/reduce 拆分使用计数器近似");
+            }
+            return;
+        }
+        // 只有 Map 的 Job 无需拆分
+        if (reduceTasks == 0) return;
+        try {
+            Path historyFile = findHistoryFile(conf, job.getJobID(), jobFinishTime);
+            if (historyFile == null) {
+                System.err.println("警告: 未找到作业 " + job.getJobID() + " 的历史文件 (.jhist)，"
+                        + "Reduce 的 shuffle/merge/reduce 拆分使用计数器近似");
+                return;
+            }
+            FileSystem fs = historyFile.getFileSystem(conf);
+            JobHistoryParser.JobInfo info = new JobHistoryParser(fs, historyFile).parse();
+            long shuffle = 0, merge = 0, reduce = 0;
+            int count = 0;
+            for (JobHistoryParser.TaskInfo task : info.getAllTasks().values()) {
+                if (task.getTaskType() != TaskType.REDUCE) continue;
+                for (Map.Entry<?, JobHistoryParser.TaskAttemptInfo> entry : task.getAllTaskAttempts().entrySet()) {
+                    JobHistoryParser.TaskAttemptInfo attempt = entry.getValue();
+                    if (!"SUCCEEDED".equals(attempt.getTaskStatus())) continue;
+                    if (attempt.getShuffleFinishTime() <= 0 || attempt.getSortFinishTime() <= 0) continue;
+                    shuffle += attempt.getShuffleFinishTime() - attempt.getStartTime();
+                    merge += attempt.getSortFinishTime() - attempt.getShuffleFinishTime();
+                    reduce += attempt.getFinishTime() - attempt.getSortFinishTime();
+                    count++;
+                    String taskId = attempt.getAttemptId().getTaskID().toString();
+                    for (TaskTimeline timeline : tasks) {
+                        if (timeline.taskId.equals(taskId)) {
+                            timeline.shuffleEnd = attempt.getShuffleFinishTime();
+                            timeline.mergeEnd = attempt.getSortFinishTime();
+                        }
+                    }
+                }
+            }
+            if (count > 0) {
+                avgShuffleMs = shuffle / count;
+                avgMergeMs = merge / count;
+                avgReduceMs = reduce / count;
+                phaseSplitFromHistory = true;
+            }
+        } catch (Exception e) {
+            System.err.println("警告: 无法解析作业 " + job.getJobID() + " 的历史文件，"
+                    + "Reduce 的 shuffle/merge/reduce 拆分使用计数器近似: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查找 Job 的历史文件。job.getHistoryUrl() 是 JobHistoryServer 的网页地址，不是文件路径：
+     * AM 结束时把 .jhist 写到按用户划分的 intermediate-done 目录（mapreduce.jobhistory.intermediate-done-dir），
+     * JobHistoryServer 随后把它移到 done 目录（mapreduce.jobhistory.done-dir）的 yyyy/mm/dd/序号 子目录。
+     * 两处都按文件名前缀（Job ID）匹配；AM 落盘可能略晚于客户端看到 Job 结束，短暂轮询。找不到时返回 null。
+     */
+    static Path findHistoryFile(Configuration conf, JobID jobId, long finishTime) throws IOException, InterruptedException {
+        String fileName = jobId + "*" + JobHistoryUtils.JOB_HISTORY_FILE_EXTENSION;
+        Path intermediate = new Path(JobHistoryUtils.getHistoryIntermediateDoneDirForUser(conf), fileName);
+        String day = JobHistoryUtils.timestampDirectoryComponent(finishTime > 0 ? finishTime : System.currentTimeMillis());
+        Path done = new Path(new Path(JobHistoryUtils.getConfiguredHistoryServerDoneDirPrefix(conf), day), "*/" + fileName);
+
+        long deadline = System.currentTimeMillis() + HISTORY_WAIT_MS;
+        while (true) {
+            for (Path pattern : new Path[] {intermediate, done}) {
+                FileStatus[] matches = pattern.getFileSystem(conf).globStatus(pattern);
+                if (matches != null && matches.length > 0) return matches[0].getPath();
+            }
+            if (System.currentTimeMillis() >= deadline) return null;
+            Thread.sleep(HISTORY_POLL_MS);
+        }
+    }
+
+    /**
+     * 根据计数器粗略判断本轮的主要瓶颈。
+     */
+    public String diagnose() {
+        if (medianReduceMs > 0 && maxReduceMs >= STRAGGLER_RATIO * medianReduceMs
+                || medianMapMs > 0 && maxMapMs >= STRAGGLER_RATIO * medianMapMs) {
+            return "STRAGGLER";
+        }
+        if (mapOutputRecords > 0 && spilledRecords > SPILL_RATIO * mapOutputRecords) {
+            return "SPILL";
+        }
+        long reduceTaskMs = avgShuffleMs + Math.max(0, avgMergeMs) + avgReduceMs;
+        if (reduceTaskMs > 0 && avgShuffleMs >= SHUFFLE_SHARE * reduceTaskMs) {
+            return "SHUFFLE";
+        }
+        return "BALANCED";
+    }
+
+    public static String csvHeader() {
+        return "label,setup_ms,total_ms,map_tasks,reduce_tasks,map_output_records,map_output_bytes,"
+                + "map_output_materialized_bytes,shuffle_bytes,spilled_records,gc_ms,cpu_ms,output_bytes_written,output_raw_bytes,output_replication,"
+                + "max_map_ms,median_map_ms,slowest_map_task,max_reduce_ms,median_reduce_ms,slowest_reduce_task,"
+                + "avg_shuffle_ms,avg_merge_ms,avg_reduce_ms,phase_split_source,"
+                + "avg_map_startup_ms,uncombined_splits,setup_saved_ms,diagnosis";
+    }
+
+    public String toCsvRow() {
+        return String.join(",", Arrays.asList(
+                label, String.valueOf(setupMs), String.valueOf(totalMs),
+                String.valueOf(mapTasks), String.valueOf(reduceTasks),
+                String.valueOf(mapOutputRecords), String.valueOf(mapOutputBytes),
+                String.valueOf(mapOutputMaterializedBytes), String.valueOf(shuffleBytes),
+                String.valueOf(spilledRecords), String.valueOf(gcMs), String.valueOf(cpuMs),
+                String.valueOf(outputBytesWritten), String.valueOf(outputRawBytes), String.valueOf(outputReplication),
+                String.valueOf(maxMapMs), String.valueOf(medianMapMs), slowestMapTask,
+                String.valueOf(maxReduceMs), String.valueOf(medianReduceMs), slowestReduceTask,
+                String.valueOf(avgShuffleMs), String.valueOf(avgMergeMs), String.valueOf(avgReduceMs),
+                phaseSplitFromHistory ? "history" : "counters",
+                String.valueOf(avgMapStartupMs), String.valueOf(uncombinedSplits), String.valueOf(setupSavedMs),
+                diagnose()));
+    }
+
+    public String toJson() {
+        return "{\"label\":\"" + TraceRecorder.escapeJson(label) + "\""
+                + ",\"setupMs\":" + setupMs
+                + ",\"totalMs\":" + totalMs
+                + ",\"mapTasks\":" + mapTasks
+                + ",\"reduceTasks\":" + reduceTasks
+                + ",\"mapOutputRecords\":" + mapOutputRecords
+                + ",\"mapOutputBytes\":" + mapOutputBytes
+                + ",\"mapOutputMaterializedBytes\":" + mapOutputMaterializedBytes
+                + ",\"shuffleBytes\":" + shuffleBytes
+                + ",\"spilledRecords\":" + spilledRecords
+                + ",\"gcMs\":" + gcMs
+                + ",\"cpuMs\":" + cpuMs
+                + ",\"outputBytesWritten\":" + outputBytesWritten
+                + ",\"outputRawBytes\":" + outputRawBytes
+                + ",\"outputReplication\":" + outputReplication
+                + ",\"maxMapMs\":" + maxMapMs
+                + ",\"medianMapMs\":" + medianMapMs
+                + ",\"slowestMapTask\":\"" + TraceRecorder.escapeJson(slowestMapTask) + "\""
+                + ",\"maxReduceMs\":" + maxReduceMs
+                + ",\"medianReduceMs\":" + medianReduceMs
+                + ",\"slowestReduceTask\":\"" + TraceRecorder.escapeJson(slowestReduceTask) + "\""
+                + ",\"avgShuffleMs\":" + avgShuffleMs
+                + ",\"avgMergeMs\":" + avgMergeMs
+                + ",\"avgReduceMs\":" + avgReduceMs
+                + ",\"phaseSplitSource\":\"" + (phaseSplitFromHistory ? "history" : "counters") + "\""
+                + ",\"avgMapStartupMs\":" + avgMapStartupMs
+                + ",\"uncombinedSplits\":" + uncombinedSplits
+                + ",\"setupSavedMs\":" + setupSavedMs
+                + ",\"diagnosis\":\"" + diagnose() + "\"}";
+    }
+
+    // --- 辅助方法 ---
+
+    private static long valueOf(Counters counters, Enum<?> key) {
+        if (counters == null) return 0;
+        Counter counter = counters.findCounter(key);
+        return counter == null ? 0 : counter.getValue();
+    }
+
+    private static long[] durations(TaskReport[] reports) {
+        long[] result = new long[reports.length];
+        for (int i = 0; i < reports.length; i++) {
+            long start = reports[i].getStartTime();
+            long finish = reports[i].getFinishTime();
+            result[i] = (start > 0 && finish >= start) ? finish - start : 0;
+        }
+        return result;
+    }
+
+    private static long max(long[] values) {
+        long m = 0;
+        for (long v : values) m = Math.max(m, v);
+        return m;
+    }
+
+    private static long median(long[] values) {
+        if (values.length == 0) return 0;
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static String slowest(TaskReport[] reports, long[] durations) {
+        int idx = -1;
+        for (int i = 0; i < durations.length; i++) {
+            if (idx < 0 || durations[i] > durations[idx]) idx = i;
+        }
+        return idx < 0 ? "" : reports[idx].getTaskId();
+    }
+
+    // 生成带表头的 CSV 行
+    public static List<String> toCsvRows(List<IterationJobStats> statsList) {
+        List<String> rows = new ArrayList<>();
+        rows.add(csvHeader());
+        for (IterationJobStats s : statsList) rows.add(s.toCsvRow());
+        return rows;
+    }
+}
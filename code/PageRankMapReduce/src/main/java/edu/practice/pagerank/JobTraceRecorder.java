@@ -0,0 +1,117 @@
+package edu.practice.pagerank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MapReduce 引擎的运行时间线（Chrome trace-event JSON，见 TraceRecorder）。
+ *
+ * 三个进程（时间线中的分组）：
+ *   driver  客户端主线程，run → preprocess → iteration N → 作业提交 / 等待 → finalize，
+ *           同一行内按时间包含关系自动嵌套，区间之间的空白即客户端空闲或未计时的工作
+ *   job     每个 Job 的阶段汇总，map / shuffle / merge / reduce 各占一行（阶段之间可能重叠）
+ *   tasks   每个任务一个区间，互不重叠的任务复用同一行（近似任务槽）；Reduce 任务在历史文件可用时
+ *           细分为 shuffle / merge / reduce 三段
+ * 时间戳以最早区间的开始为零点。任务时间来自集群各节点的时钟，与客户端时钟存在偏差时会整体错位。
+ */
+public class JobTraceRecorder extends TraceRecorder {
+
+    private static final int PID_JOB = 2;
+    private static final int PID_TASKS = 3;
+    private static final String[] JOB_PHASES = {"map", "shuffle", "merge", "reduce"};
+
+    // tasks 进程中每一行最后一个任务的结束时间
+    private final List<Long> laneEnds = new ArrayList<>();
+
+    public JobTraceRecorder() {
+        processName(PID_DRIVER, "driver");
+        processName(PID_JOB, "job phases");
+        processName(PID_TASKS, "tasks");
+        for (int i = 0; i < JOB_PHASES.length; i++) {
+            threadName(PID_JOB, i + 1, JOB_PHASES[i]);
+        }
+    }
+
+    /**
+     * 客户端主线程上的一个区间；结束时间早于开始时间（未完成）的区间忽略。
+     */
+    public void span(String name, String category, long startMs, long endMs) {
+        span(name, category, startMs, endMs, null);
+    }
+
+    public void span(String name, String category, long startMs, long endMs, Map<String, Object> args) {
+        span(name, category, PID_DRIVER, 1, startMs, endMs, args);
+    }
+
+    /**
+     * 一个 Job 的提交、阶段汇总与各任务区间。
+     */
+    public void job(IterationJobStats stats) {
+        List<IterationJobStats.TaskTimeline> tasks = stats.tasks;
+        long firstTask = Long.MAX_VALUE;
+        for (IterationJobStats.TaskTimeline task : tasks) {
+            if (task.start > 0) firstTask = Math.min(firstTask, task.start);
+        }
+        // 本地模式下 Job 没有开始时间，以第一个任务的开始代替
+        long jobStart = stats.jobStartTime > 0 ? stats.jobStartTime : firstTask;
+        if (stats.submitTime > 0 && jobStart != Long.MAX_VALUE) {
+            span(stats.label + " submit", "job", stats.submitTime, jobStart);
+        }
+
+        // 阶段汇总：每个阶段取所有任务中该段的最早开始与最晚结束
+        long[] phaseStart = new long[JOB_PHASES.length];
+        long[] phaseEnd = new long[JOB_PHASES.length];
+        Arrays.fill(phaseStart, Long.MAX_VALUE);
+        for (IterationJobStats.TaskTimeline task : tasks) {
+            if (task.start <= 0 || task.finish < task.start) continue;
+            if (task.map) {
+                extend(phaseStart, phaseEnd, 0, task.start, task.finish);
+            } else if (task.shuffleEnd > 0 && task.mergeEnd > 0) {
+                extend(phaseStart, phaseEnd, 1, task.start, task.shuffleEnd);
+                extend(phaseStart, phaseEnd, 2, task.shuffleEnd, task.mergeEnd);
+                extend(phaseStart, phaseEnd, 3, task.mergeEnd, task.finish);
+            } else {
+                // 无法拆分时整个 Reduce 任务记为 reduce（含 shuffle 与 merge）
+                extend(phaseStart, phaseEnd, 3, task.start, task.finish);
+            }
+        }
+        for (int i = 0; i < JOB_PHASES.length; i++) {
+            if (phaseStart[i] == Long.MAX_VALUE) continue;
+            span(stats.label + " " + JOB_PHASES[i], "phase", PID_JOB, i + 1, phaseStart[i], phaseEnd[i], null);
+        }
+
+        // 任务：按开始时间放入第一个已空闲的行
+        List<IterationJobStats.TaskTimeline> sorted = new ArrayList<>(tasks);
+        sorted.sort((a, b) -> Long.compare(a.start, b.start));
+        for (IterationJobStats.TaskTimeline task : sorted) {
+            if (task.start <= 0 || task.finish < task.start) continue;
+            int lane = 0;
+            while (lane < laneEnds.size() && laneEnds.get(lane) > task.start) lane++;
+            if (lane == laneEnds.size()) {
+                laneEnds.add(task.finish);
+                threadName(PID_TASKS, lane + 1, "slot " + (lane + 1));
+            } else {
+                laneEnds.set(lane, task.finish);
+            }
+
+            Map<String, Object> args = new LinkedHashMap<>();
+            args.put("job", stats.label);
+            args.put("task", task.taskId);
+            span(stats.label + (task.map ? " map" : " reduce"), task.map ? "map" : "reduce",
+                    PID_TASKS, lane + 1, task.start, task.finish, args);
+            if (!task.map && task.shuffleEnd > 0 && task.mergeEnd > 0) {
+                span("shuffle", "reduce", PID_TASKS, lane + 1, task.start, task.shuffleEnd, null);
+                span("merge", "reduce", PID_TASKS, lane + 1, task.shuffleEnd, task.mergeEnd, null);
+                span("reduce", "reduce", PID_TASKS, lane + 1, task.mergeEnd, task.finish, null);
+            }
+        }
+    }
+
+    private static void extend(long[] start, long[] end, int phase, long from, long to) {
+        start[phase] = Math.min(start[phase], from);
+        end[phase] = Math.max(end[phase], to);
+    }
+}
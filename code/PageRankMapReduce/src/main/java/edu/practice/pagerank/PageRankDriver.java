@@ -6,6 +6,8 @@ import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.mapreduce.Counters;
@@ -24,6 +26,8 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * PageRankMapReduce 主驱动类。
@@ -43,21 +47,48 @@ public class PageRankDriver implements Tool {
         TOTAL_NODES_COUNT,
         PR_DIFF_SUM,
         MAP_WALL_MS,
-        REDUCE_WALL_MS
+        REDUCE_WALL_MS,
+        HOT_KEYS_COUNT,
+        OUTPUT_RAW_BYTES,
+        EXTRAPOLATED_NODES,
+        // 外推轮 Reducer 写出的 PR 总和（不含热点节点的部分和修正量），用于下一轮重新归一化
+        EXTRAPOLATED_PR_SUM,
+        PLACEHOLDERS_EMITTED,
+        PLACEHOLDERS_SUPPRESSED,
+        PLACEHOLDERS_COMBINED,
+        TOTAL_EDGES_COUNT
     }
 
     private Configuration conf;
     // 性能监视器
     private PerformanceMonitor perfMonitor;
+    // 并行度规划
+    private ParallelismPlanner planner;
+    // 预处理得到的总边数（去重后）
+    private long totalEdges;
+    // 平均 PR 变化首次低于阈值的轮次（不受最少迭代次数限制），用于对比外推前后所需迭代数；从检查点恢复时随之回退
+    private int iterationsToThreshold = -1;
+    // 已从检查点恢复的次数
+    private int recoveries;
 
     @Override
     public int run(String[] args) throws Exception {
+        long runStart = System.currentTimeMillis();
         perfMonitor = new PerformanceMonitor();
         
         // 获取并验证输入参数
         if (args.length < 2) {
             System.err.println("用法: PageRankDriver <原始输入路径> <最终输出目录> [最大迭代次数] [阻尼系数] [收敛阈值]");
             System.err.println("示例: PageRankDriver /input/raw_graph /output 20 0.85 1e-6");
+            System.err.println("可选: -D" + SkewedKeys.CONF_ENABLED + "=true -D" + SkewedKeys.CONF_IN_DEGREE_THRESHOLD + "=10000 -D" + SkewedKeys.CONF_SALTS + "=8");
+            System.err.println("可选: -D" + Extrapolation.CONF_ENABLED + "=true -D" + Extrapolation.CONF_PERIOD + "=10 （Aitken 外推加速）");
+            System.err.println("可选: -D" + InputRechunker.CONF_ENABLED + "=true -D" + InputRechunker.CONF_CHUNK_BYTES + "=134217728 （.gz 输入重分块后并行预处理）");
+            System.err.println("可选: -D" + AdjacencySort.CONF_ENABLED + "=true （预处理二次排序，Reducer 内存与出度无关）");
+            System.err.println("可选: -D" + ResourceSampler.CONF_ENABLED + "=true -D" + ResourceSampler.CONF_INTERVAL_MS + "=1000 （节点资源采样）");
+            System.err.println("可选: -D" + RunHistory.CONF_DIR + "=/perf/history -D" + RunHistory.CONF_DATASET + "=<名称> （追加运行历史，配合 RegressionDetector）");
+            System.err.println("可选: -D" + ParallelismPlanner.CONF_REDUCERS + "=<n> -D" + ParallelismPlanner.CONF_REDUCE_SLOTS + "=<n> -D" + ParallelismPlanner.CONF_ENABLED + "=false （并行度规划覆盖/关闭）");
+            System.err.println("可选: -D" + TopKStability.CONF_TOP_K + "=100 -D" + TopKStability.CONF_STABLE_ITERATIONS + "=3 （Top-K 排名连续稳定即停止）");
+            System.err.println("可选: -D" + TraceRecorder.CONF_ENABLED + "=false （不导出 performance_trace.json 时间线）");
             return 1;
         }
 
@@ -77,17 +108,59 @@ public class PageRankDriver implements Tool {
             return 1;
         }
 
+        // 可选：使用 GraphPartitionTool 生成的局部性分区映射来划分 Reducer
+        String assignmentPath = getConf().get(GraphPartitionTool.CONF_ASSIGNMENT_PATH);
+        if (assignmentPath != null) {
+            String parts = GraphPartitionTool.readHeader(getConf(), new Path(assignmentPath), GraphPartitionTool.HEADER_PARTS);
+            String edgeCut = GraphPartitionTool.readHeader(getConf(), new Path(assignmentPath), GraphPartitionTool.HEADER_EDGE_CUT);
+            String hashEdgeCut = GraphPartitionTool.readHeader(getConf(), new Path(assignmentPath), GraphPartitionTool.HEADER_HASH_EDGE_CUT);
+            // 未显式指定 Reducer 数时，每个分区对应一个 Reducer
+            if (getConf().get("mapreduce.job.reduces") == null && parts != null) {
+                getConf().setInt("mapreduce.job.reduces", Integer.parseInt(parts));
+            }
+            System.out.println("使用分区映射: " + assignmentPath + " (分区数 " + parts + ", 跨分区边比例 " + edgeCut
+                    + ", 哈希对照 " + hashEdgeCut + ")");
+            perfMonitor.record("Partition Assignment", 0,
+                    "parts=" + parts + ", edgeCut=" + edgeCut + ", hashEdgeCut=" + hashEdgeCut);
+        }
+
+        perfMonitor.record("Compression", 0, IterationIO.describe(getConf()));
+
+        // 按数据规模与集群容量规划 Reducer 数、排序缓冲区与切片大小
+        planner = new ParallelismPlanner(getConf());
+        if (planner.isEnabled()) {
+            System.out.println("并行度规划已启用，集群容量: " + planner.describeCapacity());
+            perfMonitor.record("Cluster Capacity", 0, planner.describeCapacity());
+        }
+
+        // 可选：任务内的节点资源采样，时间序列写到 <输出目录>/_resources
+        boolean sampleResources = getConf().getBoolean(ResourceSampler.CONF_ENABLED, false);
+        if (sampleResources) {
+            if (getConf().get(ResourceSampler.CONF_DIR) == null) {
+                getConf().set(ResourceSampler.CONF_DIR, new Path(outputPath, "_resources").toString());
+            }
+            deleteQuietly(new Path(getConf().get(ResourceSampler.CONF_DIR)));
+        }
+
         // --- Step 1: 预处理和图结构初始化 ---
         // 使用与迭代一致的命名规则：将预处理输出放在 output/iteration_0
         Path graphInput = new Path(outputPath, "iteration_0");
 
+        // 可选：把不可切分的压缩输入（.gz）重分块，使预处理 Mapper 数随块数扩展
+        List<Path> preprocessInputs = Collections.singletonList(inputPath);
+        if (getConf().getBoolean(InputRechunker.CONF_ENABLED, false)) {
+            long ingestStart = System.currentTimeMillis();
+            preprocessInputs = InputRechunker.prepare(getConf(), inputPath);
+            perfMonitor.recordInterval("Input Rechunk", ingestStart, System.currentTimeMillis(), "inputs=" + preprocessInputs);
+        }
+
         // 预处理操作
         long preprocessStart = System.currentTimeMillis();
-        long totalNodes = runPreprocessJob(inputPath, graphInput);
+        long totalNodes = runPreprocessJob(preprocessInputs, graphInput);
         long preprocessEnd = System.currentTimeMillis();
         
         System.out.printf("预处理耗时: %s 秒\n", formatSeconds(preprocessEnd - preprocessStart));
-        perfMonitor.record(PerformanceMonitor.PREPROCESS, preprocessEnd - preprocessStart, "Graph structure initialization");
+        perfMonitor.recordInterval(PerformanceMonitor.PREPROCESS, preprocessStart, preprocessEnd, "Graph structure initialization");
         
         if (totalNodes <= 0) {
             System.err.println("错误: 无法在预处理阶段计算出总节点数 N。");
@@ -96,9 +169,28 @@ public class PageRankDriver implements Tool {
 
         // 将总节点数 N 存入配置，供所有迭代使用
         getConf().setLong(TOTAL_NODES_KEY, totalNodes);
-        System.out.println("成功初始化，总节点数 N = " + totalNodes);
+        System.out.println("成功初始化，总节点数 N = " + totalNodes + "，总边数 = " + totalEdges);
+        // 图规模随报告保存，供 PageRankLauncher 按历史运行校准代价模型
+        perfMonitor.record(PerformanceMonitor.GRAPH_SIZE, 0, "nodes=" + totalNodes + ", edges=" + totalEdges);
+
+        ParallelismPlanner.Plan iterationPlan = planner.planIteration(totalNodes, totalEdges);
+        if (planner.isEnabled()) {
+            System.out.println("迭代并行度规划: " + iterationPlan.describe());
+            perfMonitor.record("Parallelism Plan (Iteration)", 0, iterationPlan.describe());
+        }
+
+        // 热点拆分：读取预处理阶段检测出的高入度节点
+        boolean skewEnabled = SkewedKeys.isEnabled(getConf());
+        if (skewEnabled) {
+            String hotKeys = SkewedKeys.readHotKeys(getConf(), graphInput);
+            getConf().set(SkewedKeys.CONF_HOT_KEYS, hotKeys);
+            getConf().set(SkewedKeys.CONF_HOT_ADJUST, "");
+            int hotCount = hotKeys.isEmpty() ? 0 : hotKeys.split(",").length;
+            System.out.println("热点拆分已启用，检测到高入度节点数: " + hotCount);
+        }
 
         // 将初始 PR 归一化为 1/N（生成 iteration_0_uniform）
+        long normalizeStart = System.currentTimeMillis();
         Path normalizedGraphInput = normalizeInitialPRToUniform(graphInput, totalNodes);
         if (normalizedGraphInput != null) {
             graphInput = normalizedGraphInput;
@@ -112,14 +204,53 @@ public class PageRankDriver implements Tool {
         double initialDanglingSum = computeInitialDanglingSum(graphInput);
         getConf().setDouble(DANGLING_PR_SUM_KEY, initialDanglingSum);
         System.out.printf("初始化悬挂质量 DanglingSum(迭代前): %.15f\n", initialDanglingSum);
+        // 归一化与悬挂质量都在客户端单线程读写，图较大时是迭代前的一段明显空档
+        perfMonitor.recordSpan("Initial PR Normalization", normalizeStart, System.currentTimeMillis());
+
+        // 稀疏检查点：归一化后的初始图即第 0 个持久检查点
+        CheckpointPolicy checkpoints = new CheckpointPolicy(getConf());
+        Path lastCheckpoint = null;
+        recoveries = 0;
+        if (checkpoints.isEnabled()) {
+            checkpoints.prepareScratch(getConf());
+            CheckpointPolicy.writeMarker(getConf(), graphInput, new CheckpointPolicy.State(0, initialDanglingSum, "", 1.0));
+            lastCheckpoint = graphInput;
+            System.out.println("稀疏检查点已启用: " + checkpoints.describe());
+        }
+        perfMonitor.record("Checkpoint Policy", 0, checkpoints.describe());
+
+        // Aitken 外推加速（默认关闭）
+        Extrapolation extrapolation = new Extrapolation(getConf(), maxIterations);
+        iterationsToThreshold = -1;
+        // Top-K 排名稳定性停止判据（默认关闭）
+        TopKStability topKStability = TopKStability.isEnabled(getConf()) ? new TopKStability(getConf(), "轮") : null;
 
         long iterStartTime = System.currentTimeMillis();
         int finalIteration = maxIterations;
         boolean converged = false;
+        Path currentInput = graphInput;
+        Path lastOutput = graphInput;
+
+        // 广播 PR 的纯 Map 迭代：准备成功时替代下面的常规迭代
+        boolean broadcast = false;
+        if (BroadcastRankRunner.isEnabled(getConf())) {
+            if (skewEnabled || Extrapolation.isEnabled(getConf()) || checkpoints.isEnabled() || topKStability != null) {
+                System.out.println("警告: 广播 PR 模式下忽略热点拆分、Aitken 外推、稀疏检查点与 Top-K 稳定性设置。");
+            }
+            BroadcastRankRunner runner = new BroadcastRankRunner(getConf(), perfMonitor, outputPath);
+            if (runner.prepare(graphInput)) {
+                BroadcastRankRunner.Result result = runner.iterate(outputPath, maxIterations, minIterations,
+                        dampingFactor, convergenceThreshold);
+                broadcast = true;
+                lastOutput = result.output;
+                converged = result.converged;
+                finalIteration = result.iterations;
+                iterationsToThreshold = result.iterationsToThreshold;
+            }
+        }
 
-        for (int i = 0; i < maxIterations; i++) {
-            Path currentInput = (i == 0) ? graphInput : new Path(outputPath, "iteration_" + i);
-            Path currentOutput = new Path(outputPath, "iteration_" + (i + 1));
+        for (int i = 0; i < maxIterations && !broadcast; i++) {
+            Path currentOutput = checkpoints.iterationPath(outputPath, i + 1);
 
             System.out.println("\n[DEBUG] 迭代 " + (i+1) + ": 输入=" + currentInput);
 
@@ -136,10 +267,14 @@ public class PageRankDriver implements Tool {
             long jobSetupStart = System.currentTimeMillis();
             Job job = Job.getInstance(getConf(), "PageRank Iteration " + (i + 1));
             job.setJarByClass(PageRankDriver.class);
+            planner.apply(iterationPlan, job);
 
             // 2. Mapper 和 Reducer 配置
             job.setMapperClass(PageRankMapper.class);
             job.setReducerClass(PageRankReducer.class);
+            if (assignmentPath != null) {
+                job.setPartitionerClass(AssignmentPartitioner.class);
+            }
 
             // 3. 设置输入输出类型
             job.setMapOutputKeyClass(Text.class);
@@ -150,40 +285,62 @@ public class PageRankDriver implements Tool {
             // 4. 设置配置参数
             Configuration jobConf = job.getConfiguration();
             jobConf.setDouble("DAMPING_FACTOR", dampingFactor);
+            boolean extrapolate = extrapolation.shouldApply(i + 1);
+            jobConf.setBoolean(Extrapolation.CONF_APPLY, extrapolate);
+            jobConf.set(ResourceSampler.CONF_PHASE, "iteration_" + (i + 1));
 
             // 5. 设置输入输出路径
             // 在提交 Job 前确保输入路径存在
             if (!currentInput.getFileSystem(getConf()).exists(currentInput)) {
-                System.err.println("错误: 迭代输入路径不存在: " + currentInput + "，停止于第 " + (i+1) + " 次迭代。");
+                System.err.println("错误: 迭代输入路径不存在: " + currentInput);
+                CheckpointPolicy.State restored = restoreCheckpoint(checkpoints, lastCheckpoint, extrapolation, topKStability);
+                if (restored != null) {
+                    currentInput = lastCheckpoint;
+                    i = restored.iteration - 1;
+                    continue;
+                }
+                System.err.println("停止于第 " + (i+1) + " 次迭代。");
                 return 4;
             }
             FileInputFormat.addInputPath(job, currentInput);
             FileOutputFormat.setOutputPath(job, currentOutput);
+            // 输入输出格式与压缩：第 1 轮读取归一化后的文本目录
+            IterationIO.configureIterationInput(job, i == 0);
+            // 小文件合并为少量切片，切片大小按本轮输入总字节数确定
+            IterationIO.SplitPlan splitPlan = IterationIO.configureSplitCombining(job, i == 0, currentInput);
+            IterationIO.configureIterationOutput(job);
+            IterationIO.configureMapOutput(job);
+            // 非检查点迭代以低副本数写出
+            checkpoints.configureIterationJob(job, i + 1);
+            if (skewEnabled) {
+                MultipleOutputs.addNamedOutput(job, SkewedKeys.HOT_PARTIAL_OUTPUT, TextOutputFormat.class, Text.class, Text.class);
+            }
 
 
             long jobSetupEnd = System.currentTimeMillis();
             long setupTime = jobSetupEnd - jobSetupStart;
+            perfMonitor.recordSpan("Iteration " + (i + 1) + " setup", jobSetupStart, jobSetupEnd);
 
             // 6. 运行 Job
             long computeStart = System.currentTimeMillis();
             boolean jobSuccess = job.waitForCompletion(true);
             long computeEnd = System.currentTimeMillis();
             long computeTime = computeEnd - computeStart;
+            perfMonitor.recordSpan("Iteration " + (i + 1) + " job", computeStart, computeEnd);
 
             if (!jobSuccess) {
-                System.err.println("PageRank 迭代失败，停止于第 " + (i + 1) + " 次。");
-                return 2;
-            }
-            // 清理本轮输入目录以节省存储（确保结果已成功写入 currentOutput）
-            try {
-                FileSystem cleanupFs = currentInput.getFileSystem(getConf());
-                if (cleanupFs.exists(currentInput)) {
-                    cleanupFs.delete(currentInput, true);
+                System.err.println("PageRank 迭代失败: 第 " + (i + 1) + " 次。");
+                // 从最近的持久检查点重新计算
+                CheckpointPolicy.State restored = restoreCheckpoint(checkpoints, lastCheckpoint, extrapolation, topKStability);
+                if (restored != null) {
+                    currentInput = lastCheckpoint;
+                    i = restored.iteration - 1;
+                    continue;
                 }
-            } catch (IOException e) {
-                System.err.println("警告: 无法删除迭代输入目录 " + currentInput + ": " + e.getMessage());
+                System.err.println("停止于第 " + (i + 1) + " 次。");
+                return 2;
             }
-            
+
             long iterJobEnd = System.currentTimeMillis();
             long totalIterationTime = iterJobEnd - iterJobStart;
             System.out.printf("   > 第 %d 次迭代 Job 耗时: %s 秒\n", (i + 1), formatSeconds(totalIterationTime));
@@ -206,27 +363,131 @@ public class PageRankDriver implements Tool {
             }
             // 检查收敛
             long scaledDiffSum = counters.findCounter(PageRankCounter.PR_DIFF_SUM).getValue();
-            double avgDiff = (double) scaledDiffSum / SCALE_FACTOR_LONG / (double) totalNodes;
+            double diffSum = (double) scaledDiffSum / SCALE_FACTOR_LONG;
+            Map<String, Double> hotAdjustments = Collections.emptyMap();
+            if (skewEnabled) {
+                // 合并热点节点的加盐部分和：补上它们的精确 diff，并把修正量交给下一轮 Mapper
+                SkewedKeys.Recombined recombined = SkewedKeys.recombine(getConf(), currentOutput, dampingFactor);
+                diffSum += recombined.diffSum;
+                getConf().set(SkewedKeys.CONF_HOT_ADJUST, SkewedKeys.formatAdjustments(recombined.adjustments));
+                hotAdjustments = recombined.adjustments;
+            }
+
+            // 外推后各节点 PR 之和不再为 1，下一轮 Mapper 读入时按总和重新归一化
+            double rankScale = 1.0;
+            if (extrapolate) {
+                double rankSum = (double) counters.findCounter(PageRankCounter.EXTRAPOLATED_PR_SUM).getValue() / SCALE_FACTOR_LONG;
+                for (double adjustment : hotAdjustments.values()) {
+                    rankSum += adjustment;
+                }
+                if (rankSum > 0) {
+                    rankScale = 1.0 / rankSum;
+                }
+                System.out.printf("   > 第 %d 次迭代已执行 Aitken 外推，外推节点数: %d，PR 总和 %.12f，下一轮重新归一化\n", (i + 1),
+                        counters.findCounter(PageRankCounter.EXTRAPOLATED_NODES).getValue(), rankSum);
+            }
+            getConf().setDouble(Extrapolation.CONF_RANK_SCALE, rankScale);
+
+            // 本轮为检查点时记录恢复所需状态，并替换上一个检查点
+            Path previousCheckpoint = lastCheckpoint;
+            if (checkpoints.isCheckpoint(i + 1)) {
+                CheckpointPolicy.writeMarker(getConf(), currentOutput, new CheckpointPolicy.State(
+                        i + 1, currentIterationDanglingSum, getConf().get(SkewedKeys.CONF_HOT_ADJUST, ""), rankScale));
+                lastCheckpoint = currentOutput;
+                System.out.println("   > 第 " + (i + 1) + " 次迭代输出已作为持久检查点: " + currentOutput);
+                if (previousCheckpoint != null && !previousCheckpoint.equals(currentInput)) {
+                    deleteQuietly(previousCheckpoint);
+                }
+            }
+            // 清理本轮输入目录以节省存储（确保结果已成功写入 currentOutput）；仍作为检查点的输入保留
+            if (!currentInput.equals(lastCheckpoint)) {
+                deleteQuietly(currentInput);
+            }
+            lastOutput = currentOutput;
+            currentInput = currentOutput;
+
+            double avgDiff = diffSum / (double) totalNodes;
             System.out.printf("   > 第 %d 次迭代平均 PR 变化: %.12e\n", (i+1), avgDiff);
-            if ((i + 1) >= minIterations && avgDiff <= convergenceThreshold) {
-                converged = true;
-                finalIteration = i + 1;
-                System.out.println("   > 达到收敛阈值，提前停止。");
-                break;
+            extrapolation.onIterationFinished(i + 1, avgDiff, extrapolate);
+            if (iterationsToThreshold < 0 && avgDiff <= convergenceThreshold) {
+                iterationsToThreshold = i + 1;
+            }
+            // 合并本轮各 Reducer 的 Top-K 候选，与上一轮比较
+            boolean topKStable = false;
+            if (topKStability != null) {
+                topKStable = topKStability.observe(
+                        TopKCandidates.read(getConf(), currentOutput, hotAdjustments, topKStability.getK()), avgDiff);
+                System.out.printf("   > 第 %d 次迭代 %s\n", (i + 1), topKStability.describeLast());
             }
+
             // 从自定义计数器获取每轮 Map/Reduce 墙钟时间（所有任务累计）
             long mapWallMs = counters.findCounter(PageRankCounter.MAP_WALL_MS).getValue();
             long reduceWallMs = counters.findCounter(PageRankCounter.REDUCE_WALL_MS).getValue();
             // 输入迭代轮次、迭代一轮启动时间、map时间、reduce时间、迭代总时间
             perfMonitor.recordIterationDetails(i + 1, setupTime, mapWallMs, reduceWallMs, totalIterationTime,
             String.format("Dangling PR Sum: %.15f, Avg Diff: %.12e", currentIterationDanglingSum, avgDiff));
+
+            // 任务级内置计数器与每个任务的耗时分布（用于区分 shuffle / 溢写 / 长尾任务瓶颈）
+            IterationJobStats jobStats = IterationJobStats.collect(job, "Iteration_" + (i + 1));
+            jobStats.setupMs = setupTime;
+            jobStats.totalMs = totalIterationTime;
+            short replication = checkpoints.replicationFor(i + 1);
+            jobStats.outputReplication = replication > 0 ? replication : getConf().getInt("dfs.replication", 3);
+            jobStats.applySplitPlan(splitPlan);
+            jobStats.submitTime = computeStart;
+            perfMonitor.recordJobStats(jobStats);
+            if (splitPlan != null) {
+                System.out.printf("   > 第 %d 次迭代切片合并: %s -> %d map, 估算节省启动 %d ms\n",
+                        (i + 1), splitPlan.describe(), jobStats.mapTasks, jobStats.setupSavedMs);
+            }
+            System.out.printf("   > 第 %d 次迭代任务统计: %d map / %d reduce, shuffle %d 字节, 溢写 %d 条, 瓶颈判定: %s\n",
+                    (i + 1), jobStats.mapTasks, jobStats.reduceTasks, jobStats.shuffleBytes,
+                    jobStats.spilledRecords, jobStats.diagnose());
+
+            // 时间线：本轮从设置 Job 到收敛判断之前；Job 结束之后的部分是客户端的计数器读取、热点合并、检查点与清理
+            long iterBodyEnd = System.currentTimeMillis();
+            perfMonitor.recordSpan("Iteration " + (i + 1) + " post-process", computeEnd, iterBodyEnd);
+            Map<String, Object> iterationArgs = new LinkedHashMap<>();
+            iterationArgs.put("avgDiff", avgDiff);
+            iterationArgs.put("danglingSum", currentIterationDanglingSum);
+            iterationArgs.put("diagnosis", jobStats.diagnose());
+            perfMonitor.recordSpan("Iteration " + (i + 1), iterJobStart, iterBodyEnd, iterationArgs);
+
+            // 外推轮的输出尚未归一化，不在此停止
+            if ((i + 1) >= minIterations && avgDiff <= convergenceThreshold && !extrapolate) {
+                converged = true;
+                finalIteration = i + 1;
+                System.out.println("   > 达到收敛阈值，提前停止。");
+                break;
+            }
+            if (topKStable && (i + 1) >= minIterations && !extrapolate) {
+                converged = true;
+                finalIteration = i + 1;
+                topKStability.markStopped(i + 1);
+                System.out.println("   > Top-K 排名已连续稳定，提前停止。");
+                break;
+            }
         }
         
         long iterEndTime = System.currentTimeMillis();
         long elapsedMs = iterEndTime - iterStartTime;
+        perfMonitor.recordSpan("Iterations", iterStartTime, iterEndTime);
 
         int usedIteration = converged ? finalIteration : maxIterations;
-        Path finalOutputPath = new Path(outputPath, "iteration_" + usedIteration);
+        Path finalOutputPath = lastOutput;
+        perfMonitor.record("Extrapolation", 0, extrapolation.describe());
+        perfMonitor.record("Convergence", 0, "iterationsToThreshold=" + iterationsToThreshold
+                + ", threshold=" + convergenceThreshold
+                + ", extrapolation=" + (Extrapolation.isEnabled(getConf()) ? "on" : "off"));
+        System.out.println("平均 PR 变化首次低于阈值的迭代轮次: " + (iterationsToThreshold > 0 ? iterationsToThreshold : "未达到"));
+        if (topKStability != null && !broadcast) {
+            String topKSummary = topKStability.describe(iterationsToThreshold, convergenceThreshold, minIterations, maxIterations);
+            perfMonitor.record("TopK Stability", 0, topKSummary);
+            System.out.println("Top-K 稳定性判据: " + topKSummary);
+        }
+        if (checkpoints.isEnabled()) {
+            perfMonitor.record("Checkpoint Recovery", 0, "recoveries=" + recoveries);
+        }
 
         System.out.println("\nPageRank 计算完成. 总耗时: " + (elapsedMs / 1000.0) + " 秒");
 
@@ -234,17 +495,14 @@ public class PageRankDriver implements Tool {
         System.out.println("\n正在清理中间输出文件...");
         long cleanupStartTime = System.currentTimeMillis();
         for (int i = 0; i < usedIteration; i++) {
-            Path iterPath = new Path(outputPath, "iteration_" + i);
-            try {
-                if (fs.exists(iterPath)) {
-                    fs.delete(iterPath, true);
-                }
-            } catch (IOException e) {
-                System.err.println("警告: 无法删除 " + iterPath + e.getMessage());
-            }
+            deleteQuietly(new Path(outputPath, "iteration_" + i));
+            Path scratchPath = checkpoints.scratchPath(i);
+            if (scratchPath != null) deleteQuietly(scratchPath);
         }
+        // 保留为检查点的归一化初始图
+        if (!graphInput.equals(finalOutputPath)) deleteQuietly(graphInput);
         long cleanupEndTime = System.currentTimeMillis();
-        perfMonitor.record("Middle Output Cleanup", cleanupEndTime - cleanupStartTime, "Clean up intermediate output");
+        perfMonitor.recordInterval("Middle Output Cleanup", cleanupStartTime, cleanupEndTime, "Clean up intermediate output");
 
         // 最终结果处理
         try {
@@ -253,27 +511,74 @@ public class PageRankDriver implements Tool {
             writeFinalScores(finalOutputPath, cleaned);
             long finalizeEnd = System.currentTimeMillis();
             System.out.println("清理后的最终 PR 文件在: " + cleaned);
-            perfMonitor.record(PerformanceMonitor.FINALIZE, finalizeEnd - finalizeStart, "Clean and format result");
+            perfMonitor.recordInterval(PerformanceMonitor.FINALIZE, finalizeStart, finalizeEnd, "Clean and format result");
 
             Path topFile = new Path(cleaned, "pagerankTop_50.txt");
             Path mergedPart = new Path(cleaned, "part-00000");
             writeTopK(mergedPart, topFile, 50);
             System.out.println("Top50 文件在: " + topFile);
+
+            // 按 PR 排序的排名存储，供点查 / 任意 Top-K / 名次区间查询
+            if (getConf().getBoolean(RankStoreTool.CONF_EXPORT, false)) {
+                long storeStart = System.currentTimeMillis();
+                Path storeFile = new Path(outputPath, RankStoreTool.STORE_FILE_NAME);
+                long nodes = RankStoreTool.export(getConf(), mergedPart, storeFile);
+                perfMonitor.recordInterval("Rank Store Export", storeStart, System.currentTimeMillis(), nodes + " nodes -> " + storeFile);
+                System.out.println("排名存储在: " + storeFile);
+            }
         } catch (IOException e) {
             System.err.println("警告: 无法生成最终文件: " + e.getMessage());
         }
 
+        // 资源采样汇总：按节点与按 阶段 x 节点，与性能报告放在同一目录
+        if (sampleResources) {
+            try {
+                int samples = ResourceSampler.summarize(getConf(), new Path(getConf().get(ResourceSampler.CONF_DIR)),
+                        new Path(outputPath, "resource_summary.csv"), new Path(outputPath, "resource_phases.csv"));
+                perfMonitor.record("Resource Sampling", 0, samples + " samples -> resource_summary.csv, resource_phases.csv");
+            } catch (IOException e) {
+                System.err.println("警告: 无法汇总资源采样: " + e.getMessage());
+            }
+        }
+
         // 保存性能报告
         try {
             perfMonitor.saveToHDFS(getConf(), outputPath, "performance_report.txt");
+            perfMonitor.saveStructuredToHDFS(getConf(), outputPath, "performance_report");
+            if (TraceRecorder.isEnabled(getConf())) {
+                perfMonitor.recordSpan("PageRank Run", runStart, System.currentTimeMillis());
+                perfMonitor.saveTraceToHDFS(getConf(), outputPath, "performance_trace.json");
+            }
         } catch (IOException e) {
             System.err.println("警告: 无法保存性能报告: " + e.getMessage());
         }
 
+        // 追加运行历史，供 RegressionDetector 跨版本比较
+        if (RunHistory.isEnabled(getConf())) {
+            RunHistory history = RunHistory.create(getConf(), "mapreduce", inputPath)
+                    .param("maxIterations", maxIterations)
+                    .param("damping", dampingFactor)
+                    .param("threshold", convergenceThreshold)
+                    .param("reducers", getConf().get("mapreduce.job.reduces", "default"))
+                    .param("skew", SkewedKeys.isEnabled(getConf()))
+                    .param("extrapolation", Extrapolation.isEnabled(getConf()))
+                    .add(RunHistory.METRIC_SETUP, perfMonitor.getTiming(PerformanceMonitor.PREPROCESS))
+                    .add(RunHistory.METRIC_TOTAL, System.currentTimeMillis() - runStart);
+            for (int i = 1; i <= usedIteration; i++) {
+                long ms = perfMonitor.getTiming(String.format("Iteration_%d_%s", i, PerformanceMonitor.TOTAL_ITERACTION_TIME));
+                if (ms >= 0) history.add(RunHistory.METRIC_ITERATION, ms);
+            }
+            try {
+                System.out.println("运行历史已追加: " + history.save(getConf()));
+            } catch (IOException e) {
+                System.err.println("警告: 无法写入运行历史: " + e.getMessage());
+            }
+        }
+
         return 0;
     }
 
-    private long runPreprocessJob(Path inputPath, Path outputPath) throws Exception {
+    private long runPreprocessJob(List<Path> inputPaths, Path outputPath) throws Exception {
         System.out.println("--- 正在运行预处理 Job，初始化图结构... ---");
 
         // 自动清理输出目录
@@ -283,25 +588,72 @@ public class PageRankDriver implements Tool {
 
 
         Job job = Job.getInstance(getConf(), "PageRank Preprocess: Graph Builder");
+        job.getConfiguration().set(ResourceSampler.CONF_PHASE, "preprocess");
         job.setJarByClass(PageRankDriver.class);
+        if (planner.isEnabled()) {
+            long inputBytes = 0;
+            for (Path inputPath : inputPaths) {
+                inputBytes += inputPath.getFileSystem(getConf()).getContentSummary(inputPath).getLength();
+            }
+            ParallelismPlanner.Plan plan = planner.planPreprocess(inputBytes);
+            planner.apply(plan, job);
+            System.out.println("预处理并行度规划: " + plan.describe());
+            perfMonitor.record("Parallelism Plan (Preprocess)", 0, plan.describe());
+        }
         // Mapper 和 Reducer 配置
         job.setMapperClass(GraphBuilderMapper.class);
         job.setReducerClass(GraphBuilderReducer.class);
+        if (getConf().get(GraphPartitionTool.CONF_ASSIGNMENT_PATH) != null) {
+            job.setPartitionerClass(AssignmentPartitioner.class);
+        }
+        // 二次排序：目标按序到达 Reducer，流式去重，由输出格式逐个目标写出，Reducer 内存与出度无关
+        if (AdjacencySort.isEnabled(getConf())) {
+            job.setReducerClass(SortedGraphBuilderReducer.class);
+            job.setOutputFormatClass(AdjacencySort.AdjacencyOutputFormat.class);
+            job.setPartitionerClass(AdjacencySort.NodePartitioner.class);
+            job.setGroupingComparatorClass(AdjacencySort.NodeGroupingComparator.class);
+        }
+        // 占位符去重：Map 端位图 + Combiner，预处理 Shuffle 量接近减半
+        boolean dedupePlaceholders = GraphBuilderCombiner.isEnabled(getConf());
+        if (dedupePlaceholders) {
+            job.setCombinerClass(GraphBuilderCombiner.class);
+        }
         
         // 输出类型
         job.setOutputKeyClass(Text.class);
         job.setOutputValueClass(Text.class);
+        if (SkewedKeys.isEnabled(getConf())) {
+            MultipleOutputs.addNamedOutput(job, SkewedKeys.HOT_KEYS_OUTPUT, TextOutputFormat.class, Text.class, Text.class);
+        }
 
         // 输入输出路径
-        FileInputFormat.addInputPath(job, inputPath);
+        for (Path inputPath : inputPaths) {
+            FileInputFormat.addInputPath(job, inputPath);
+        }
         FileOutputFormat.setOutputPath(job, outputPath);
 
+        long submitTime = System.currentTimeMillis();
         if (!job.waitForCompletion(true)) {
             throw new RuntimeException("预处理 Job 失败!");
         }
+        perfMonitor.recordSpan("Preprocess job", submitTime, System.currentTimeMillis());
+        IterationJobStats stats = IterationJobStats.collect(job, "Preprocess");
+        stats.submitTime = submitTime;
+        perfMonitor.recordJobStats(stats);
         
         // 从计数器中获取总节点数 N
         Counters counters = job.getCounters();
+        if (dedupePlaceholders) {
+            long emitted = counters.findCounter(PageRankCounter.PLACEHOLDERS_EMITTED).getValue();
+            long suppressed = counters.findCounter(PageRankCounter.PLACEHOLDERS_SUPPRESSED).getValue();
+            long combined = counters.findCounter(PageRankCounter.PLACEHOLDERS_COMBINED).getValue();
+            long total = emitted + suppressed;
+            System.out.printf("占位符: 发射 %d, Map 端去重 %d (%.1f%%), Combiner 合并 %d\n", emitted, suppressed,
+                    total > 0 ? 100.0 * suppressed / total : 0.0, combined);
+            perfMonitor.record("Placeholder Dedupe", 0,
+                    "emitted=" + emitted + ", suppressed=" + suppressed + ", combined=" + combined);
+        }
+        totalEdges = counters.findCounter(PageRankCounter.TOTAL_EDGES_COUNT).getValue();
         Counter totalNodesCounter = counters.findCounter(PageRankCounter.TOTAL_NODES_COUNT);
         return totalNodesCounter.getValue();
     }
@@ -320,32 +672,72 @@ public class PageRankDriver implements Tool {
 
     // --- 辅助工具方法 ---
 
+    private void deleteQuietly(Path dir) {
+        try {
+            FileSystem fs = dir.getFileSystem(getConf());
+            if (fs.exists(dir)) {
+                fs.delete(dir, true);
+            }
+        } catch (IOException e) {
+            System.err.println("警告: 无法删除 " + dir + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * 将跨轮状态恢复到检查点保存时的值；没有可用检查点时返回 null。
+     */
+    /**
+     * 从最近的持久检查点恢复：读取标记并恢复下一轮所需的配置，同时回退由被回滚轮次累积的运行状态
+     * （外推调度与安全检查、Top-K 比较历史、首次达到阈值的轮次）。
+     * 未启用检查点、恢复次数已用完或检查点不可用时返回 null，状态不变。
+     */
+    private CheckpointPolicy.State restoreCheckpoint(CheckpointPolicy checkpoints, Path checkpoint,
+            Extrapolation extrapolation, TopKStability topKStability) throws IOException {
+        if (checkpoint == null || recoveries >= checkpoints.getMaxRecoveries()) return null;
+        CheckpointPolicy.State state = CheckpointPolicy.readMarker(getConf(), checkpoint);
+        if (state == null) {
+            System.err.println("错误: 检查点不可用: " + checkpoint);
+            return null;
+        }
+        getConf().setDouble(DANGLING_PR_SUM_KEY, state.danglingSum);
+        getConf().set(SkewedKeys.CONF_HOT_ADJUST, state.hotAdjust);
+        getConf().setDouble(Extrapolation.CONF_RANK_SCALE, state.rankScale);
+        extrapolation.rewind(state.iteration);
+        if (topKStability != null) {
+            topKStability.reset();
+        }
+        if (iterationsToThreshold > state.iteration) {
+            iterationsToThreshold = -1;
+        }
+        recoveries++;
+        System.out.println(">>> 从检查点恢复: " + checkpoint + "（第 " + state.iteration + " 次迭代之后），重新计算后续迭代");
+        return state;
+    }
+
     private void writeFinalScores(Path sourceDir, Path destDir) throws IOException {
         FileSystem fs = sourceDir.getFileSystem(getConf());
+        // 热点节点最后一轮的输出只含基础值，需补上加盐部分和的修正量
+        Map<String, Double> hotAdjustments = SkewedKeys.parseAdjustments(getConf());
         if (!fs.exists(destDir)) fs.mkdirs(destDir);
 
-        FileStatus[] statuses = fs.listStatus(sourceDir);
         try (FSDataOutputStream out = fs.create(new Path(destDir, "part-00000"));
              BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, java.nio.charset.StandardCharsets.UTF_8))) {
 
-            for (FileStatus status : statuses) {
-                if (!status.isFile() || !status.getPath().getName().startsWith("part")) continue;
-                try (FSDataInputStream in = fs.open(status.getPath());
-                     BufferedReader reader = new BufferedReader(new InputStreamReader(in, java.nio.charset.StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        if (line.trim().isEmpty()) continue;
-                        String[] parts = line.split("\t", 2);
-                        if (parts.length < 2) continue;
-                        // 提取 PR 值，去掉 | 后的链接部分
-                        String val = parts[1];
-                        int sep = val.indexOf("|");
-                        String pr = (sep >= 0) ? val.substring(0, sep) : val;
-                        writer.write(parts[0] + "\t" + pr);
-                        writer.newLine();
-                    }
+            // 迭代输出可能是压缩文本或 SequenceFile，统一按键值对读取
+            IterationIO.forEachRecord(getConf(), sourceDir, "part", (node, val) -> {
+                // 提取 PR 值，去掉 | 后的链接部分
+                int sep = val.indexOf("|");
+                String pr = Extrapolation.currentValue((sep >= 0) ? val.substring(0, sep) : val);
+                Double adjustment = hotAdjustments.get(node);
+                if (adjustment != null) {
+                    pr = String.format("%.10f", Double.parseDouble(pr.trim()) + adjustment);
+                } else if (Extrapolation.isEnabled(getConf())) {
+                    // 外推模式下迭代输出保留完整精度，最终结果与普通模式保持相同格式
+                    pr = String.format("%.10f", Double.parseDouble(pr.trim()));
                 }
-            }
+                writer.write(node + "\t" + pr);
+                writer.newLine();
+            });
         }
     }
 
@@ -383,7 +775,7 @@ public class PageRankDriver implements Tool {
         }
     }
 
-    private String formatSeconds(long elapsedMs) {
+    static String formatSeconds(long elapsedMs) {
         return String.format("%.3f", elapsedMs / 1000.0);
     }
 
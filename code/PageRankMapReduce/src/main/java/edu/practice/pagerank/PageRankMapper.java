@@ -1,18 +1,23 @@
 package edu.practice.pagerank;
 
-import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * PageRank Map 阶段:
- * 1. 解析输入状态 (NodeID, PR|Outlinks)。
+ * 1. 解析输入状态 (NodeID, PR|Outlinks)，输入由 KeyValueTextInputFormat 或 SequenceFileInputFormat 提供。
  * 2. 将 PR 贡献值分发给所有出链目标节点。
  * 3. 传递节点结构信息 (Outlinks) 给 Reducer。
  * 4. 准确处理悬挂节点和孤立节点。
  */
-public class PageRankMapper extends Mapper<LongWritable, Text, Text, Text> {
+public class PageRankMapper extends Mapper<Text, Text, Text, Text> {
+
+    // 节点资源采样（未开启时为 null）
+    private ResourceSampler sampler;
 
     // 分隔符用于区分 PageRank 值和出链列表
     private static final String SEPARATOR = "|";
@@ -24,32 +29,46 @@ public class PageRankMapper extends Mapper<LongWritable, Text, Text, Text> {
     private final Text outVal = new Text();
     private long wallStart;
 
+    // 热点拆分：发往热点节点的贡献值分散到加盐子键
+    private Set<String> hotKeys = Collections.emptySet();
+    private Map<String, Double> hotAdjustments = Collections.emptyMap();
+    private int salts;
+    private int saltCursor;
+    // 外推：PR 字段携带上一轮的值，需原样传给 Reducer，并保留完整精度
+    private boolean extrapolation;
+    // 上一轮外推后的归一化系数，其余轮次为 1
+    private double rankScale;
+
     @Override
     protected void setup(Context context) throws IOException, InterruptedException {
+        sampler = ResourceSampler.start(context.getConfiguration());
         wallStart = System.currentTimeMillis();
+        extrapolation = Extrapolation.isEnabled(context.getConfiguration());
+        rankScale = context.getConfiguration().getDouble(Extrapolation.CONF_RANK_SCALE, 1.0);
+        if (SkewedKeys.isEnabled(context.getConfiguration())) {
+            hotKeys = SkewedKeys.parseHotKeys(context.getConfiguration());
+            hotAdjustments = SkewedKeys.parseAdjustments(context.getConfiguration());
+            salts = context.getConfiguration().getInt(SkewedKeys.CONF_SALTS, 0);
+            if (salts <= 0) {
+                salts = Math.max(1, context.getNumReduceTasks());
+            }
+        }
     }
     @Override
-    public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
-        String line = value.toString().trim();
-        if (line.isEmpty() || line.startsWith("#")) {
+    public void map(Text key, Text value, Context context) throws IOException, InterruptedException {
+        // 输入格式: Key = NodeID, Value = PageRank|Outlink1,Outlink2,...
+        String nodeIdStr = key.toString().trim();
+        if (nodeIdStr.isEmpty() || nodeIdStr.startsWith("#")) {
             return;
         }
         
-        // 输入格式: NodeID\tPageRank|Outlink1,Outlink2,...
-        String[] parts = line.split("\t");
-        if (parts.length != 2) {
+        Text nodeId = new Text(nodeIdStr);
+        String prAndLinks = value.toString().trim();
+        if (prAndLinks.indexOf('\t') >= 0) {
             // 跳过格式错误的行
             return;
         }
 
-        String nodeIdStr = parts[0].trim();
-        if (nodeIdStr.isEmpty()) {
-            return;
-        }
-        
-        Text nodeId = new Text(nodeIdStr);
-        String prAndLinks = parts[1].trim();
-
         // 查找 PageRank 值和出链列表的分隔符 '|'
         int separatorIndex = prAndLinks.indexOf(SEPARATOR);
         if (separatorIndex == -1) {
@@ -58,18 +77,34 @@ public class PageRankMapper extends Mapper<LongWritable, Text, Text, Text> {
         }
 
         // 1. 解析当前 PageRank (PR_current) 和出链列表 (Outlinks)
+        String prField = prAndLinks.substring(0, separatorIndex).trim();
         double currentPageRank;
         try {
-            currentPageRank = Double.parseDouble(prAndLinks.substring(0, separatorIndex).trim());
+            currentPageRank = Double.parseDouble(Extrapolation.currentValue(prField).trim());
         } catch (NumberFormatException e) {
             return;
         }
+        // 热点节点上一轮只写出了不含加盐部分和的基础值，此处补上 Driver 合并得到的修正量
+        Double adjustment = hotAdjustments.get(nodeIdStr);
+        if (adjustment != null) {
+            currentPageRank += adjustment;
+        }
+        currentPageRank *= rankScale;
         
         String outlinksStr = prAndLinks.substring(separatorIndex + 1).trim();
         String[] outlinks = outlinksStr.isEmpty() ? new String[0] : outlinksStr.split(",");
         
         // 2. 传递节点结构信息（包含当前 PageRank），格式: STRUCT|<PR>|Outlink1,Outlink2,...
-        String nodeStructure = STRUCTURE_PREFIX + String.format("%.10f", currentPageRank) + SEPARATOR + outlinksStr;
+        String nodeStructure;
+        if (extrapolation) {
+            // 外推模式: STRUCT|<PR>;<PrevPR>|Outlink1,...
+            double previous = Extrapolation.previousValue(prField);
+            nodeStructure = STRUCTURE_PREFIX + currentPageRank
+                    + (Double.isNaN(previous) ? "" : Extrapolation.HISTORY_SEPARATOR + Double.toString(previous))
+                    + SEPARATOR + outlinksStr;
+        } else {
+            nodeStructure = STRUCTURE_PREFIX + String.format("%.10f", currentPageRank) + SEPARATOR + outlinksStr;
+        }
         outKey.set(nodeId);
         outVal.set(nodeStructure);
         
@@ -89,7 +124,13 @@ public class PageRankMapper extends Mapper<LongWritable, Text, Text, Text> {
             for (String targetId : outlinks) {
                 String cleanTargetId = targetId.trim();
                 if (!cleanTargetId.isEmpty()) {
-                    outKey.set(cleanTargetId);
+                    if (hotKeys.contains(cleanTargetId)) {
+                        // 轮转选择子键，使热点节点的贡献值均匀分布到各个 Reducer
+                        outKey.set(SkewedKeys.saltedKey(cleanTargetId, saltCursor++ % salts));
+                        if (saltCursor == Integer.MAX_VALUE) saltCursor = 0;
+                    } else {
+                        outKey.set(cleanTargetId);
+                    }
                     context.write(outKey, outVal);
                 }
             }
@@ -102,6 +143,7 @@ public class PageRankMapper extends Mapper<LongWritable, Text, Text, Text> {
 
     @Override
     protected void cleanup(Context context) throws IOException, InterruptedException {
+        ResourceSampler.stop(sampler, context.getConfiguration(), context.getTaskAttemptID().toString());
         long duration = System.currentTimeMillis() - wallStart;
         try {
             context.getCounter(PageRankDriver.PageRankCounter.MAP_WALL_MS).increment(duration);
@@ -2,7 +2,10 @@ package edu.practice.pagerank;
 
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
 
 /**
  * PageRank Reduce 阶段:
@@ -13,13 +16,25 @@ import java.io.IOException;
  */
 public class PageRankReducer extends Reducer<Text, Text, Text, Text> {
 
+    // 节点资源采样（未开启时为 null）
+    private ResourceSampler sampler;
+
     private double D; // 阻尼系数 (Damping Factor)
     private long N; // 总节点数 (Total Nodes)
     private double danglingPRSum; // 悬挂节点 PR 总和 (来自上一轮迭代的计数器)
     private long wallStart;
+    // 热点拆分：加盐子键只求部分和，热点节点的 diff 由 Driver 合并后精确计算
+    private Set<String> hotKeys = Collections.emptySet();
+    private MultipleOutputs<Text, Text> multipleOutputs;
+    // 外推：输出携带上一轮 PR；apply 为 true 的轮次对每个节点做 Aitken 外推
+    private boolean extrapolation;
+    private boolean applyExtrapolation;
+    // Top-K 稳定性判据的本分区候选（未启用时为 null）
+    private TopKCandidates topK;
 
     @Override
     protected void setup(Context context) throws IOException, InterruptedException {
+        sampler = ResourceSampler.start(context.getConfiguration());
         // 从配置中获取全局参数
         D = context.getConfiguration().getDouble("DAMPING_FACTOR", 0.85);
         N = context.getConfiguration().getLong(PageRankDriver.TOTAL_NODES_KEY, 1);
@@ -28,15 +43,30 @@ public class PageRankReducer extends Reducer<Text, Text, Text, Text> {
         if (N <= 0) {
             N = 1; // 防止除以零
         }
+        if (SkewedKeys.isEnabled(context.getConfiguration())) {
+            hotKeys = SkewedKeys.parseHotKeys(context.getConfiguration());
+            multipleOutputs = new MultipleOutputs<>(context);
+        }
+        extrapolation = Extrapolation.isEnabled(context.getConfiguration());
+        applyExtrapolation = extrapolation && context.getConfiguration().getBoolean(Extrapolation.CONF_APPLY, false);
+        if (TopKStability.isEnabled(context.getConfiguration())) {
+            topK = new TopKCandidates(context.getConfiguration().getInt(TopKStability.CONF_TOP_K, 0));
+        }
         wallStart = System.currentTimeMillis();
     }
 
     @Override
     public void reduce(Text nodeId, Iterable<Text> values, Context context) throws IOException, InterruptedException {
+        if (multipleOutputs != null && SkewedKeys.isSalted(nodeId.toString())) {
+            reduceSaltedKey(nodeId, values);
+            return;
+        }
+
         // S = Sum(PR(Pj) / L(Pj))
         double linkContributionSum = 0.0;
         String outlinksStr = "";
         double previousPR = 0.0;
+        double olderPR = Double.NaN;
         boolean isDanglingNode = false;
         boolean hasStructure = false;
         int valueCount = 0;
@@ -58,8 +88,10 @@ public class PageRankReducer extends Reducer<Text, Text, Text, Text> {
                 int sepIdx = rest.indexOf("|");
                 if (sepIdx >= 0) {
                     try {
-                        String prStr = rest.substring(0, sepIdx).trim();
+                        String prField = rest.substring(0, sepIdx).trim();
+                        String prStr = Extrapolation.currentValue(prField).trim();
                         previousPR = prStr.isEmpty() ? 0.0 : Double.parseDouble(prStr);
+                        olderPR = Extrapolation.previousValue(prField);
                     } catch (NumberFormatException e) {
                         context.getCounter("DataQuality", "PR_Parse_Error").increment(1);
                         System.err.println("ERROR: Invalid PR value in structure for node " + nodeId + ": " + rest.substring(0, sepIdx));
@@ -116,7 +148,51 @@ public class PageRankReducer extends Reducer<Text, Text, Text, Text> {
 
         // 5. 输出节点的新状态 (PageRank|Outlinks)
         // Key: NodeID, Value: NewPageRank|Outlinks
-        context.write(nodeId, new Text(String.format("%.10f", newPageRank) + "|" + outlinksStr));
+        Text outValue;
+        double outputPR = newPageRank;
+        boolean hot = hotKeys.contains(nodeId.toString());
+        if (extrapolation) {
+            // 外推模式: NewPageRank;PrevPR|Outlinks，保留完整精度以便计算差分
+            String prField;
+            if (applyExtrapolation && !hot && !Double.isNaN(olderPR)) {
+                double extrapolated = Extrapolation.aitken(olderPR, previousPR, newPageRank, D);
+                if (extrapolated != newPageRank) {
+                    context.getCounter(PageRankDriver.PageRankCounter.EXTRAPOLATED_NODES).increment(1);
+                }
+                // 外推值与之前的迭代值不再构成幂迭代序列，不保留历史
+                prField = Double.toString(extrapolated);
+                outputPR = extrapolated;
+            } else {
+                prField = Double.toString(newPageRank) + Extrapolation.HISTORY_SEPARATOR + Double.toString(previousPR);
+            }
+            if (applyExtrapolation) {
+                // 外推轮的 PR 总和，Driver 据此在下一轮重新归一化（热点节点此处为基础值）
+                context.getCounter(PageRankDriver.PageRankCounter.EXTRAPOLATED_PR_SUM).increment(
+                        Math.round(outputPR * PageRankDriver.SCALE_FACTOR_LONG));
+            }
+            outValue = new Text(prField + "|" + outlinksStr);
+        } else {
+            outValue = new Text(String.format("%.10f", newPageRank) + "|" + outlinksStr);
+        }
+        context.write(nodeId, outValue);
+        // 未压缩时的等效文本字节数（键 + 制表符 + 值 + 换行），与实际写出字节对比压缩率
+        context.getCounter(PageRankDriver.PageRankCounter.OUTPUT_RAW_BYTES).increment(nodeId.getLength() + outValue.getLength() + 2);
+
+        if (topK != null) {
+            if (hot) {
+                topK.offerUnranked(nodeId.toString(), outputPR);
+            } else {
+                topK.offer(nodeId.toString(), outputPR);
+            }
+        }
+
+        if (hot) {
+            // 热点节点：此处只有基础值，记录上一轮 PR 与基础值，由 Driver 合并部分和后计算 diff
+            multipleOutputs.write(SkewedKeys.HOT_PARTIAL_OUTPUT, nodeId,
+                    new Text(SkewedKeys.BASE_RECORD + "\t" + previousPR + "\t" + newPageRank),
+                    SkewedKeys.HOT_PARTIAL_BASE_PATH);
+            return;
+        }
 
         // 6. 计算本节点的 PR 变化并累加到全局计数器，用于收敛检测
         double diff = Math.abs(newPageRank - previousPR);
@@ -129,8 +205,27 @@ public class PageRankReducer extends Reducer<Text, Text, Text, Text> {
         }
     }
 
+    // 加盐子键只累加贡献值，部分和写入 hotpartial 侧输出
+    private void reduceSaltedKey(Text saltedKey, Iterable<Text> values) throws IOException, InterruptedException {
+        double partialSum = 0.0;
+        for (Text value : values) {
+            try {
+                partialSum += Double.parseDouble(value.toString().trim());
+            } catch (NumberFormatException ignored) {}
+        }
+        multipleOutputs.write(SkewedKeys.HOT_PARTIAL_OUTPUT, new Text(SkewedKeys.baseKey(saltedKey.toString())),
+                new Text(SkewedKeys.PARTIAL_RECORD + "\t" + partialSum), SkewedKeys.HOT_PARTIAL_BASE_PATH);
+    }
+
     @Override
     protected void cleanup(Context context) throws IOException, InterruptedException {
+        ResourceSampler.stop(sampler, context.getConfiguration(), context.getTaskAttemptID().toString());
+        if (multipleOutputs != null) {
+            multipleOutputs.close();
+        }
+        if (topK != null) {
+            topK.write(context);
+        }
         long duration = System.currentTimeMillis() - wallStart;
         try {
             context.getCounter(PageRankDriver.PageRankCounter.REDUCE_WALL_MS).increment(duration);
@@ -0,0 +1,191 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Cluster;
+import org.apache.hadoop.mapreduce.ClusterMetrics;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+
+/**
+ * 并行度规划：按数据规模与集群容量为每个 Job 设置 Reducer 数、排序缓冲区与切片大小，
+ * 避免所有 Job 都落到集群默认的单个 Reducer 上。
+ *
+ * 数据规模按 shuffle 字节估算：
+ *   预处理  ≈ 2 × 原始输入字节（每条边发射一次目标、一次占位符）
+ *   迭代    ≈ 边数 × 每条贡献值字节 + 节点数 × 结构记录固定字节 + 边数 × 每条出链文本字节
+ *           （节点数与边数来自预处理计数器 TOTAL_NODES_COUNT / TOTAL_EDGES_COUNT）
+ * Reducer 数 = clamp(shuffle 字节 / bytesPerReducer, 1, 0.95 × Reduce 容量)，一波完成；
+ * 排序缓冲区按每个 Map 任务的输出量设置，并以 Map 容器内存的 40% 为上限；
+ * 迭代的目标 Map 数取 Map 容量，交给 IterationIO 的切片合并确定切片大小。
+ *
+ * 集群容量取自 ClusterMetrics，也可以用 pagerank.plan.mapSlots / reduceSlots 指定。
+ * 命令行或代码中显式设置过的 mapreduce.job.reduces、mapreduce.task.io.sort.mb、
+ * pagerank.iteration.targetMapTasks 保持不变；pagerank.plan.reducers / sortMb 可直接覆盖规划结果。
+ */
+public class ParallelismPlanner {
+
+    // 是否启用规划（默认开启）
+    public static final String CONF_ENABLED = "pagerank.plan.enabled";
+    // 直接指定 Reducer 数 / 排序缓冲区（MB），覆盖规划结果
+    public static final String CONF_REDUCERS = "pagerank.plan.reducers";
+    public static final String CONF_SORT_MB = "pagerank.plan.sortMb";
+    // 每个 Reducer 处理的目标 shuffle 字节数
+    public static final String CONF_BYTES_PER_REDUCER = "pagerank.plan.bytesPerReducer";
+    // 集群容量，未设置时从 ClusterMetrics 读取
+    public static final String CONF_MAP_SLOTS = "pagerank.plan.mapSlots";
+    public static final String CONF_REDUCE_SLOTS = "pagerank.plan.reduceSlots";
+
+    public static final long DEFAULT_BYTES_PER_REDUCER = 256L << 20;
+
+    // shuffle 字节估算系数
+    private static final int BYTES_PER_CONTRIBUTION = 28;   // 节点 ID + 贡献值文本 + 序列化开销
+    private static final int BYTES_PER_LINK = 8;            // 结构记录中的一条出链
+    private static final int BYTES_PER_NODE = 40;           // 结构记录的键、前缀与 PR
+    private static final int PREPROCESS_SHUFFLE_FACTOR = 2;
+
+    private static final double REDUCE_SLOT_SHARE = 0.95;
+    private static final int MIN_SORT_MB = 100;
+    private static final double SORT_SHARE_OF_CONTAINER = 0.4;
+    private static final double SORT_HEADROOM = 1.2;
+    private static final long MIN_SPLIT_BYTES = 32L << 20;
+
+    public static class Plan {
+        public final String job;
+        public long shuffleBytes;
+        public int mapTasks;
+        public int reducers;
+        public int sortMb;
+        public long splitBytes;
+        public String reducersSource = "planned";
+        public String sortSource = "planned";
+
+        Plan(String job) {
+            this.job = job;
+        }
+
+        public String describe() {
+            return String.format("shuffle~%d bytes, reducers=%d (%s), sortMb=%d (%s), mapTasks=%d, splitBytes=%d",
+                    shuffleBytes, reducers, reducersSource, sortMb, sortSource, mapTasks, splitBytes);
+        }
+    }
+
+    private final Configuration conf;
+    private final boolean enabled;
+    private final int mapSlots;
+    private final int reduceSlots;
+    private final String capacitySource;
+
+    public ParallelismPlanner(Configuration conf) {
+        this.conf = conf;
+        this.enabled = conf.getBoolean(CONF_ENABLED, true);
+        int maps = conf.getInt(CONF_MAP_SLOTS, -1);
+        int reduces = conf.getInt(CONF_REDUCE_SLOTS, -1);
+        String source = "configured";
+        if (enabled && (maps <= 0 || reduces <= 0)) {
+            source = "cluster";
+            try {
+                Cluster cluster = new Cluster(conf);
+                try {
+                    ClusterMetrics metrics = cluster.getClusterStatus();
+                    if (maps <= 0) maps = metrics.getMapSlotCapacity();
+                    if (reduces <= 0) reduces = metrics.getReduceSlotCapacity();
+                } finally {
+                    cluster.close();
+                }
+            } catch (Exception e) {
+                System.err.println("警告: 无法读取集群容量，按单个任务槽规划: " + e.getMessage());
+                source = "default";
+            }
+        }
+        this.mapSlots = Math.max(1, maps);
+        this.reduceSlots = Math.max(1, reduces);
+        this.capacitySource = source;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String describeCapacity() {
+        return "mapSlots=" + mapSlots + ", reduceSlots=" + reduceSlots + " (" + capacitySource + ")";
+    }
+
+    /**
+     * 预处理 Job：按原始输入字节数规划，切片不超过块大小，Map 数尽量铺满 Map 容量。
+     */
+    public Plan planPreprocess(long inputBytes) {
+        Plan plan = new Plan("Preprocess");
+        plan.shuffleBytes = inputBytes * PREPROCESS_SHUFFLE_FACTOR;
+        long blockBytes = conf.getLong("dfs.blocksize", IterationIO.DEFAULT_BLOCK_BYTES);
+        plan.splitBytes = Math.min(blockBytes, Math.max(MIN_SPLIT_BYTES, ceilDiv(inputBytes, mapSlots)));
+        plan.mapTasks = (int) Math.max(1, ceilDiv(inputBytes, plan.splitBytes));
+        finish(plan);
+        return plan;
+    }
+
+    /**
+     * 迭代 Job：按预处理得到的节点数与边数规划，所有迭代共用同一份规划。
+     */
+    public Plan planIteration(long nodes, long edges) {
+        Plan plan = new Plan("Iteration");
+        plan.shuffleBytes = edges * (BYTES_PER_CONTRIBUTION + BYTES_PER_LINK) + nodes * BYTES_PER_NODE;
+        plan.mapTasks = mapSlots;
+        finish(plan);
+        return plan;
+    }
+
+    private void finish(Plan plan) {
+        int capacity = Math.max(1, (int) (reduceSlots * REDUCE_SLOT_SHARE));
+        long bytesPerReducer = Math.max(1, conf.getLong(CONF_BYTES_PER_REDUCER, DEFAULT_BYTES_PER_REDUCER));
+        plan.reducers = (int) Math.min(capacity, Math.max(1, ceilDiv(plan.shuffleBytes, bytesPerReducer)));
+        if (conf.get(CONF_REDUCERS) != null) {
+            plan.reducers = conf.getInt(CONF_REDUCERS, plan.reducers);
+            plan.reducersSource = "override";
+        } else if (isExplicit(MRJobConfig.NUM_REDUCES)) {
+            plan.reducers = conf.getInt(MRJobConfig.NUM_REDUCES, plan.reducers);
+            plan.reducersSource = "explicit";
+        }
+
+        long perMapMb = ceilDiv((long) (plan.shuffleBytes / plan.mapTasks * SORT_HEADROOM), 1L << 20);
+        int maxSortMb = Math.max(MIN_SORT_MB, (int) (conf.getInt(MRJobConfig.MAP_MEMORY_MB, 1024) * SORT_SHARE_OF_CONTAINER));
+        plan.sortMb = (int) Math.min(maxSortMb, Math.max(MIN_SORT_MB, perMapMb));
+        if (conf.get(CONF_SORT_MB) != null) {
+            plan.sortMb = conf.getInt(CONF_SORT_MB, plan.sortMb);
+            plan.sortSource = "override";
+        } else if (isExplicit(MRJobConfig.IO_SORT_MB)) {
+            plan.sortMb = conf.getInt(MRJobConfig.IO_SORT_MB, plan.sortMb);
+            plan.sortSource = "explicit";
+        }
+    }
+
+    /**
+     * 把规划写入 Job 配置；未启用规划时不做任何修改。
+     */
+    public void apply(Plan plan, Job job) {
+        if (!enabled || plan == null) return;
+        Configuration jobConf = job.getConfiguration();
+        job.setNumReduceTasks(plan.reducers);
+        jobConf.setInt(MRJobConfig.IO_SORT_MB, plan.sortMb);
+        if (plan.splitBytes > 0 && !isExplicit(FileInputFormat.SPLIT_MAXSIZE)) {
+            jobConf.setLong(FileInputFormat.SPLIT_MAXSIZE, plan.splitBytes);
+        }
+        if ("Iteration".equals(plan.job) && !isExplicit(IterationIO.CONF_TARGET_MAP_TASKS)) {
+            jobConf.setInt(IterationIO.CONF_TARGET_MAP_TASKS, plan.mapTasks);
+        }
+    }
+
+    // 配置项来自命令行或代码，而不是 *-default.xml
+    private boolean isExplicit(String key) {
+        String[] sources = conf.getPropertySources(key);
+        if (sources == null || sources.length == 0) return false;
+        for (String source : sources) {
+            if (source.endsWith("-default.xml")) return false;
+        }
+        return true;
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
@@ -9,12 +9,16 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * 性能监控工具类
+ * 耗时之外另有一条带起止时间的时间线（JobTraceRecorder），recordInterval / recordSpan 的区间与
+ * recordJobStats 的 Job 阶段、任务区间都记入其中，由 saveTraceToHDFS 导出为 Chrome trace-event JSON。
 */
 public class PerformanceMonitor {
 
@@ -25,13 +29,17 @@ public class PerformanceMonitor {
     public static final String TOTAL_ITERACTION_TIME = "Total Iteraction Time";
     public static final String PREPROCESS = "Preprocess";
     public static final String FINALIZE = "Finalize";
+    public static final String GRAPH_SIZE = "Graph Size";
 
     private Map<String, Long> timings;          // 时间统计（毫秒）
     private Map<String, String> descriptions;   // 与 timings 同步的描述信息
+    private List<IterationJobStats> jobStats;   // 每个 Job 的任务级统计
+    private final JobTraceRecorder trace = new JobTraceRecorder();
 
     public PerformanceMonitor() {
         this.timings = new LinkedHashMap<>();
         this.descriptions = new LinkedHashMap<>();
+        this.jobStats = new ArrayList<>();
     }
 
     // 记录单个时间点
@@ -40,9 +48,19 @@ public class PerformanceMonitor {
         descriptions.put(key, description);
     }
 
-    // 记录开始和结束时间段
+    // 记录开始和结束时间段（同时记入时间线）
     public void recordInterval(String key, long startMs, long endMs, String description) {
         record(key, endMs - startMs, description);
+        trace.span(key, "driver", startMs, endMs);
+    }
+
+    // 只记入时间线的区间（不计入耗时汇总，避免与外层区间重复累加）
+    public void recordSpan(String name, long startMs, long endMs) {
+        trace.span(name, "driver", startMs, endMs);
+    }
+
+    public void recordSpan(String name, long startMs, long endMs, Map<String, Object> args) {
+        trace.span(name, "driver", startMs, endMs, args);
     }
 
     // 记录迭代的详细时间数据
@@ -60,6 +78,20 @@ public class PerformanceMonitor {
         }
     }
 
+    // 记录单个 Job 的任务级计数器统计
+    public void recordJobStats(IterationJobStats stats) {
+        if (stats != null) {
+            jobStats.add(stats);
+            trace.job(stats);
+        }
+    }
+
+    // 获取某一项记录的时间，未记录时返回 -1
+    public long getTiming(String key) {
+        Long time = timings.get(key);
+        return time != null ? time : -1L;
+    }
+
     // 获取总记录时间
     public long getTotalTime() {
         long total = 0;
@@ -98,6 +130,35 @@ public class PerformanceMonitor {
         System.out.println("✓ 性能报告已保存到 HDFS: " + reportPath);
     }
 
+    // 将时间线保存为 Chrome trace-event JSON
+    public void saveTraceToHDFS(Configuration conf, Path outputDir, String filename) throws IOException {
+        trace.save(conf, new Path(outputDir, filename));
+    }
+
+    // 将时间数据与任务级统计以 CSV / JSON 形式保存到 HDFS（<baseName>.csv 与 <baseName>.json）
+    public void saveStructuredToHDFS(Configuration conf, Path outputDir, String baseName) throws IOException {
+        FileSystem fs = FileSystem.get(conf);
+
+        if (!fs.exists(outputDir)) {
+            fs.mkdirs(outputDir);
+        }
+
+        Path csvPath = new Path(outputDir, baseName + ".csv");
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(fs.create(csvPath, true), StandardCharsets.UTF_8))) {
+            for (String row : IterationJobStats.toCsvRows(jobStats)) {
+                writer.write(row);
+                writer.newLine();
+            }
+        }
+
+        Path jsonPath = new Path(outputDir, baseName + ".json");
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(fs.create(jsonPath, true), StandardCharsets.UTF_8))) {
+            writeJsonContent(writer);
+        }
+
+        System.out.println("✓ 结构化性能报告已保存到 HDFS: " + csvPath + ", " + jsonPath);
+    }
+
     
     
     // 将时间数据保存到本地文件 
@@ -132,5 +193,61 @@ public class PerformanceMonitor {
         writer.write("----------------------------------------\n");
         writer.write(String.format("%-40s: %10d ms (%.3f s)\n", "TOTAL RECORDED TIME", totalMs, totalMs / 1000.0));
         writer.write("========================================\n");
+
+        if (!jobStats.isEmpty()) {
+            writer.write("\nTask-level Counters:\n");
+            writer.write("----------------------------------------\n");
+            for (IterationJobStats s : jobStats) {
+                writer.write(String.format("%s [%s]\n", s.label, s.diagnose()));
+                writer.write(String.format("  tasks            : %d map / %d reduce\n", s.mapTasks, s.reduceTasks));
+                writer.write(String.format("  shuffle bytes    : %d (map output materialized: %d)\n",
+                        s.shuffleBytes, s.mapOutputMaterializedBytes));
+                writer.write(String.format("  spilled records  : %d (map output records: %d)\n",
+                        s.spilledRecords, s.mapOutputRecords));
+                writer.write(String.format("  gc / cpu         : %d ms / %d ms\n", s.gcMs, s.cpuMs));
+                writer.write(String.format("  map output       : %d raw -> %d materialized bytes\n",
+                        s.mapOutputBytes, s.mapOutputMaterializedBytes));
+                if (s.outputRawBytes > 0) {
+                    writer.write(String.format("  job output       : %d raw -> %d written bytes x %d replicas\n",
+                            s.outputRawBytes, s.outputBytesWritten, s.outputReplication));
+                }
+                writer.write(String.format("  map task         : max %d ms (%s), median %d ms, startup avg %d ms\n",
+                        s.maxMapMs, s.slowestMapTask, s.medianMapMs, s.avgMapStartupMs));
+                if (s.uncombinedSplits > 0) {
+                    writer.write(String.format("  split combining  : %d splits -> %d map tasks, est. setup saved %d ms\n",
+                            s.uncombinedSplits, s.mapTasks, s.setupSavedMs));
+                }
+                writer.write(String.format("  reduce task      : max %d ms (%s), median %d ms\n",
+                        s.maxReduceMs, s.slowestReduceTask, s.medianReduceMs));
+                if (s.phaseSplitFromHistory) {
+                    writer.write(String.format("  reduce split avg : shuffle %d ms, merge %d ms, reduce %d ms\n",
+                            s.avgShuffleMs, s.avgMergeMs, s.avgReduceMs));
+                } else {
+                    writer.write(String.format("  reduce split avg : shuffle+merge %d ms, reduce %d ms\n",
+                            s.avgShuffleMs, s.avgReduceMs));
+                }
+            }
+            writer.write("========================================\n");
+        }
+    }
+
+    // 写入 JSON 内容：timings 列表与每个 Job 的任务级统计
+    private void writeJsonContent(BufferedWriter writer) throws IOException {
+        writer.write("{\n  \"timings\": [");
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : timings.entrySet()) {
+            writer.write(first ? "\n    " : ",\n    ");
+            first = false;
+            writer.write("{\"key\":\"" + TraceRecorder.escapeJson(entry.getKey()) + "\",\"ms\":" + entry.getValue()
+                    + ",\"description\":\"" + TraceRecorder.escapeJson(descriptions.getOrDefault(entry.getKey(), "")) + "\"}");
+        }
+        writer.write("\n  ],\n  \"jobs\": [");
+        first = true;
+        for (IterationJobStats s : jobStats) {
+            writer.write(first ? "\n    " : ",\n    ");
+            first = false;
+            writer.write(s.toJson());
+        }
+        writer.write("\n  ]\n}\n");
     }
 }
\ No newline at end of file
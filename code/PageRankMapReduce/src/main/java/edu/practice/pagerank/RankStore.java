@@ -0,0 +1,198 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 按 PR 降序排列的只读排名存储，以内存映射方式查询，避免每次扫描文本结果。
+ *
+ * 文件格式（大端序）：
+ *   头部 32 字节: 魔数 "PRSTORE1" | 节点数 N (long) | PR 总和 (double) | 保留 (long)
+ *   排名区:   N 个 long  节点 ID，按 PR 降序（PR 相同按 ID 升序），下标即名次 - 1
+ *             N 个 double 对应的 PR
+ *   索引区:   N 个 long  节点 ID 升序
+ *             N 个 int   该 ID 在排名区中的下标
+ * 点查在索引区二分查找（log2 N 次访问），Top-K 与名次区间直接读取排名区的连续片段。
+ * 单个区段通过一个 MappedByteBuffer 映射，N 上限约为 2.6 亿。
+ */
+public class RankStore implements Closeable {
+
+    public static final byte[] MAGIC = {'P', 'R', 'S', 'T', 'O', 'R', 'E', '1'};
+    public static final int HEADER_BYTES = 32;
+
+    private final FileChannel channel;
+    private final long count;
+    private final double totalScore;
+    private final LongBuffer rankedIds;
+    private final DoubleBuffer rankedScores;
+    private final LongBuffer sortedIds;
+    private final IntBuffer positions;
+
+    private RankStore(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        for (byte b : MAGIC) {
+            if (header.get() != b) throw new IOException("不是排名存储文件（魔数不匹配）");
+        }
+        this.count = header.getLong();
+        this.totalScore = header.getDouble();
+        if (count > Integer.MAX_VALUE / Long.BYTES) {
+            throw new IOException("节点数超出单段映射上限: " + count);
+        }
+        int n = (int) count;
+        long offset = HEADER_BYTES;
+        this.rankedIds = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) n * Long.BYTES).asLongBuffer();
+        offset += (long) n * Long.BYTES;
+        this.rankedScores = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) n * Double.BYTES).asDoubleBuffer();
+        offset += (long) n * Double.BYTES;
+        this.sortedIds = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) n * Long.BYTES).asLongBuffer();
+        offset += (long) n * Long.BYTES;
+        this.positions = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) n * Integer.BYTES).asIntBuffer();
+    }
+
+    /**
+     * 内存映射本地文件（HDFS 上的存储需先复制到本地）。
+     */
+    public static RankStore open(java.nio.file.Path file) throws IOException {
+        return new RankStore(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    public long size() {
+        return count;
+    }
+
+    public double getTotalScore() {
+        return totalScore;
+    }
+
+    /**
+     * 节点在排名区中的下标（名次 - 1），不存在时返回 -1。
+     */
+    public int positionOf(long id) {
+        int lo = 0;
+        int hi = (int) count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long value = sortedIds.get(mid);
+            if (value < id) {
+                lo = mid + 1;
+            } else if (value > id) {
+                hi = mid - 1;
+            } else {
+                return positions.get(mid);
+            }
+        }
+        return -1;
+    }
+
+    public long idAt(int position) {
+        return rankedIds.get(position);
+    }
+
+    public double scoreAt(int position) {
+        return rankedScores.get(position);
+    }
+
+    /**
+     * 百分位：PR 不高于该名次的节点所占百分比，第 1 名为 100。
+     */
+    public double percentileAt(int position) {
+        return 100.0 * (count - position) / count;
+    }
+
+    /**
+     * 名次区间 [from, to)（下标从 0 开始），逐条回调。
+     */
+    public void forEachInRange(int from, int to, EntryConsumer consumer) {
+        int end = (int) Math.min(to, count);
+        for (int i = Math.max(0, from); i < end; i++) {
+            consumer.accept(i, rankedIds.get(i), rankedScores.get(i));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public interface EntryConsumer {
+        void accept(int position, long id, double score);
+    }
+
+    /**
+     * 由内存中前 n 个 (ID, PR) 生成存储文件，数组内容不被修改。
+     */
+    public static void write(Configuration conf, Path file, long[] ids, double[] scores, int n) throws IOException {
+        int[] byScore = sortedIndex(n, (a, b) -> {
+            int c = Double.compare(scores[b], scores[a]);
+            return c != 0 ? c : Long.compare(ids[a], ids[b]);
+        });
+        // byScore[position] = 原下标；rankOf[原下标] = position
+        int[] rankOf = new int[n];
+        for (int p = 0; p < n; p++) {
+            rankOf[byScore[p]] = p;
+        }
+        int[] byId = sortedIndex(n, (a, b) -> Long.compare(ids[a], ids[b]));
+
+        double total = 0.0;
+        for (int i = 0; i < n; i++) {
+            total += scores[i];
+        }
+
+        FileSystem fs = file.getFileSystem(conf);
+        try (FSDataOutputStream raw = fs.create(file, true);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(raw, 1 << 20))) {
+            out.write(MAGIC);
+            out.writeLong(n);
+            out.writeDouble(total);
+            out.writeLong(0L);
+            for (int p = 0; p < n; p++) out.writeLong(ids[byScore[p]]);
+            for (int p = 0; p < n; p++) out.writeDouble(scores[byScore[p]]);
+            for (int q = 0; q < n; q++) {
+                if (q > 0 && ids[byId[q]] == ids[byId[q - 1]]) {
+                    throw new IOException("节点 ID 重复: " + ids[byId[q]]);
+                }
+                out.writeLong(ids[byId[q]]);
+            }
+            for (int q = 0; q < n; q++) out.writeInt(rankOf[byId[q]]);
+        }
+    }
+
+    private interface IndexComparator {
+        int compare(int a, int b);
+    }
+
+    // 对下标数组做归并排序，避免装箱
+    private static int[] sortedIndex(int n, IndexComparator comparator) {
+        int[] index = new int[n];
+        for (int i = 0; i < n; i++) index[i] = i;
+        int[] buffer = new int[n];
+        for (int width = 1; width < n; width <<= 1) {
+            for (int lo = 0; lo < n - width; lo += width << 1) {
+                int mid = lo + width;
+                int hi = Math.min(lo + (width << 1), n);
+                int i = lo, j = mid, k = lo;
+                while (i < mid && j < hi) {
+                    buffer[k++] = comparator.compare(index[i], index[j]) <= 0 ? index[i++] : index[j++];
+                }
+                while (i < mid) buffer[k++] = index[i++];
+                while (j < hi) buffer[k++] = index[j++];
+                System.arraycopy(buffer, lo, index, lo, hi - lo);
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,192 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 排名存储的导出与查询命令行。
+ *
+ * 导出：读取两个引擎的最终结果（MapReduce 的 final_scores/part-00000、Giraph 的 part-m-*，
+ * 每行 NodeID\tPR，PR 后若带 |链接 或 ;历史值 会被去掉），生成 RankStore 文件。
+ * 给出的目录下如果有 final_scores 子目录则读取该子目录。
+ *
+ * 用法:
+ *   RankStoreTool export <结果目录或文件> <存储文件>
+ *   RankStoreTool info   <本地存储文件>
+ *   RankStoreTool get    <本地存储文件> <NodeID>...
+ *   RankStoreTool top    <本地存储文件> <K>
+ *   RankStoreTool range  <本地存储文件> <起始名次> <结束名次>     (名次从 1 开始，含两端)
+ */
+public class RankStoreTool implements Tool {
+
+    // Driver 结束时是否自动导出 <输出目录>/ranks.store
+    public static final String CONF_EXPORT = "pagerank.rankstore.export";
+    public static final String STORE_FILE_NAME = "ranks.store";
+
+    private Configuration conf;
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 2) {
+            printUsage();
+            return 1;
+        }
+        String command = args[0];
+        if ("export".equals(command)) {
+            if (args.length < 3) {
+                printUsage();
+                return 1;
+            }
+            long start = System.currentTimeMillis();
+            long n = export(getConf(), new Path(args[1]), new Path(args[2]));
+            System.out.printf("排名存储已生成: %s (%d 个节点, 耗时 %d ms)\n", args[2], n, System.currentTimeMillis() - start);
+            return 0;
+        }
+
+        long openStart = System.nanoTime();
+        try (RankStore store = RankStore.open(Paths.get(args[1]))) {
+            System.out.printf("打开存储: %d 个节点 (%d µs)\n", store.size(), (System.nanoTime() - openStart) / 1000);
+            switch (command) {
+                case "info":
+                    System.out.printf("PR 总和: %.10f\n", store.getTotalScore());
+                    if (store.size() > 0) {
+                        System.out.printf("最高 PR: %d\t%.10e\n", store.idAt(0), store.scoreAt(0));
+                        int last = (int) store.size() - 1;
+                        System.out.printf("最低 PR: %d\t%.10e\n", store.idAt(last), store.scoreAt(last));
+                    }
+                    return 0;
+                case "get":
+                    for (int i = 2; i < args.length; i++) {
+                        long id = Long.parseLong(args[i]);
+                        long t0 = System.nanoTime();
+                        int position = store.positionOf(id);
+                        long micros = (System.nanoTime() - t0) / 1000;
+                        if (position < 0) {
+                            System.out.printf("%d\t不存在 (%d µs)\n", id, micros);
+                        } else {
+                            System.out.printf("%d\t名次 %d\tPR %.10e\t百分位 %.4f (%d µs)\n", id, position + 1,
+                                    store.scoreAt(position), store.percentileAt(position), micros);
+                        }
+                    }
+                    return 0;
+                case "top":
+                    if (args.length < 3) break;
+                    printRange(store, 0, Integer.parseInt(args[2]));
+                    return 0;
+                case "range":
+                    if (args.length < 4) break;
+                    printRange(store, Integer.parseInt(args[2]) - 1, Integer.parseInt(args[3]));
+                    return 0;
+                default:
+                    break;
+            }
+        }
+        printUsage();
+        return 1;
+    }
+
+    private static void printRange(RankStore store, int from, int to) {
+        long t0 = System.nanoTime();
+        StringBuilder sb = new StringBuilder();
+        store.forEachInRange(from, to, (position, id, score) ->
+                sb.append(position + 1).append('\t').append(id).append('\t').append(score).append('\n'));
+        long micros = (System.nanoTime() - t0) / 1000;
+        System.out.print(sb);
+        System.out.printf("(%d µs)\n", micros);
+    }
+
+    /**
+     * 读取结果目录（或单个文件）中的 NodeID\tPR 并写出排名存储，返回节点数。
+     */
+    public static long export(Configuration conf, Path input, Path store) throws IOException {
+        List<Path> files = listResultFiles(conf, input);
+        if (files.isEmpty()) {
+            throw new IOException("结果路径不存在或不含 part 文件: " + input);
+        }
+        long[] ids = new long[1 << 16];
+        double[] scores = new double[1 << 16];
+        int n = 0;
+        CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+        for (Path file : files) {
+            FileSystem fs = file.getFileSystem(conf);
+            CompressionCodec codec = codecs.getCodec(file);
+            InputStream in = fs.open(file);
+            if (codec != null) in = codec.createInputStream(in);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int tab = line.indexOf('\t');
+                    if (tab <= 0) continue;
+                    String value = line.substring(tab + 1);
+                    int sep = value.indexOf('|');
+                    if (sep >= 0) value = value.substring(0, sep);
+                    value = Extrapolation.currentValue(value);
+                    try {
+                        long id = Long.parseLong(line.substring(0, tab).trim());
+                        double score = Double.parseDouble(value.trim());
+                        if (n == ids.length) {
+                            ids = Arrays.copyOf(ids, n << 1);
+                            scores = Arrays.copyOf(scores, n << 1);
+                        }
+                        ids[n] = id;
+                        scores[n] = score;
+                        n++;
+                    } catch (NumberFormatException ignored) {}
+                }
+            }
+        }
+        RankStore.write(conf, store, ids, scores, n);
+        return n;
+    }
+
+    private static List<Path> listResultFiles(Configuration conf, Path input) throws IOException {
+        List<Path> files = new ArrayList<>();
+        FileSystem fs = input.getFileSystem(conf);
+        if (!fs.exists(input)) return files;
+        if (fs.isFile(input)) {
+            files.add(input);
+            return files;
+        }
+        Path finalScores = new Path(input, "final_scores");
+        Path dir = fs.exists(finalScores) ? finalScores : input;
+        for (FileStatus status : fs.listStatus(dir)) {
+            if (status.isFile() && status.getPath().getName().startsWith("part")) {
+                files.add(status.getPath());
+            }
+        }
+        return files;
+    }
+
+    private static void printUsage() {
+        System.err.println("用法: RankStoreTool export <结果目录或文件> <存储文件>");
+        System.err.println("      RankStoreTool info|get|top|range <本地存储文件> [NodeID... | K | 起始名次 结束名次]");
+    }
+
+    @Override
+    public Configuration getConf() { return conf; }
+
+    @Override
+    public void setConf(Configuration conf) { this.conf = conf; }
+
+    public static void main(String[] args) throws Exception {
+        Configuration conf = new Configuration();
+        int exitCode = ToolRunner.run(conf, new RankStoreTool(), args);
+        System.exit(exitCode);
+    }
+}
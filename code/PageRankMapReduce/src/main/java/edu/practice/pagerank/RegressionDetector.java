@@ -0,0 +1,288 @@
+package edu.practice.pagerank;
+
+import org.apache.commons.math3.stat.inference.TTest;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 性能回归检测：读取 RunHistory 目录，把同一 引擎+数据集+参数 的运行分为基线版本与候选版本，
+ * 对每个指标（setup / iteration / total）的毫秒样本做 Welch t 检验。
+ * 候选均值比基线慢超过 minChange 且 p < alpha 判为回归，快超过 minChange 且显著判为改进。
+ * iteration 的样本是每轮 / 每个超步的耗时，单次运行即有多个样本；setup 与 total 每次运行一个样本，
+ * 两边各需至少 2 次运行才能检验。
+ *
+ * 输出 <报告目录>/regressions.csv，以及每组一张趋势图 trend_<序号>.svg（按时间排列的各次运行，
+ * 折线为 total、setup 与迭代平均耗时，横轴标注版本）。存在回归时退出码为 2，便于接入 CI。
+ *
+ * 用法: RegressionDetector <历史目录> [报告目录]
+ * 可选: -D pagerank.regression.candidate=<版本>   默认为最近一次运行的版本
+ *       -D pagerank.regression.baseline=<版本>    默认为候选版本之外的全部版本
+ *       -D pagerank.regression.filter=<子串>      只比较键（引擎 数据集 参数）包含该子串的组
+ *       -D pagerank.regression.alpha=0.05 -D pagerank.regression.minChange=0.05
+ */
+public class RegressionDetector implements Tool {
+
+    public static final String CONF_CANDIDATE = "pagerank.regression.candidate";
+    public static final String CONF_BASELINE = "pagerank.regression.baseline";
+    public static final String CONF_FILTER = "pagerank.regression.filter";
+    public static final String CONF_ALPHA = "pagerank.regression.alpha";
+    public static final String CONF_MIN_CHANGE = "pagerank.regression.minChange";
+
+    public static final String VERDICT_REGRESSION = "REGRESSION";
+    public static final String VERDICT_IMPROVEMENT = "IMPROVEMENT";
+    public static final String VERDICT_UNCHANGED = "unchanged";
+    public static final String VERDICT_INSUFFICIENT = "insufficient samples";
+
+    private Configuration conf;
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("用法: RegressionDetector <历史目录> [报告目录]");
+            return 1;
+        }
+        Path historyDir = new Path(args[0]);
+        Path reportDir = args.length > 1 ? new Path(args[1]) : null;
+        double alpha = getConf().getDouble(CONF_ALPHA, 0.05);
+        double minChange = getConf().getDouble(CONF_MIN_CHANGE, 0.05);
+        String filter = getConf().get(CONF_FILTER);
+
+        List<RunHistory> runs = RunHistory.load(getConf(), historyDir);
+        if (runs.isEmpty()) {
+            System.err.println("错误: 历史目录为空: " + historyDir);
+            return 1;
+        }
+        String candidate = getConf().get(CONF_CANDIDATE, runs.get(runs.size() - 1).revision);
+        String baseline = getConf().get(CONF_BASELINE);
+        System.out.printf("候选版本: %s, 基线版本: %s, alpha=%.3f, minChange=%.1f%%\n",
+                candidate, baseline != null ? baseline : "其他全部版本", alpha, minChange * 100);
+
+        // 按 引擎+数据集+参数 分组，保持时间顺序
+        Map<String, List<RunHistory>> groups = new LinkedHashMap<>();
+        for (RunHistory run : runs) {
+            if (filter != null && !run.key().contains(filter)) continue;
+            groups.computeIfAbsent(run.key(), k -> new ArrayList<>()).add(run);
+        }
+
+        List<Comparison> comparisons = new ArrayList<>();
+        int chart = 0;
+        for (Map.Entry<String, List<RunHistory>> group : groups.entrySet()) {
+            List<RunHistory> base = new ArrayList<>();
+            List<RunHistory> cand = new ArrayList<>();
+            for (RunHistory run : group.getValue()) {
+                if (candidate.equals(run.revision)) {
+                    cand.add(run);
+                } else if (baseline == null || baseline.equals(run.revision)) {
+                    base.add(run);
+                }
+            }
+            if (reportDir != null) {
+                writeTrendChart(getConf(), new Path(reportDir, "trend_" + chart++ + ".svg"), group.getKey(), group.getValue());
+            }
+            if (cand.isEmpty() || base.isEmpty()) continue;
+            System.out.printf("\n[%s] 基线 %d 次运行, 候选 %d 次运行\n", group.getKey(), base.size(), cand.size());
+            for (String metric : metricNames(group.getValue())) {
+                Comparison c = compare(group.getKey(), metric, base, cand, alpha, minChange);
+                comparisons.add(c);
+                System.out.printf("  %-10s %12.1f ms -> %12.1f ms  %+7.1f%%  p=%-8s %s\n", metric, c.baselineMean,
+                        c.candidateMean, c.change * 100, Double.isNaN(c.pValue) ? "-" : String.format("%.4f", c.pValue), c.verdict);
+            }
+        }
+
+        if (reportDir != null) {
+            writeCsv(getConf(), new Path(reportDir, "regressions.csv"), comparisons);
+            System.out.println("\n报告已写入: " + reportDir);
+        }
+        int regressions = 0;
+        for (Comparison c : comparisons) {
+            if (VERDICT_REGRESSION.equals(c.verdict)) regressions++;
+        }
+        System.out.printf("\n共比较 %d 项指标，检测到 %d 项显著回归\n", comparisons.size(), regressions);
+        return regressions > 0 ? 2 : 0;
+    }
+
+    private static List<String> metricNames(List<RunHistory> runs) {
+        List<String> names = new ArrayList<>();
+        for (RunHistory run : runs) {
+            for (String name : run.metrics.keySet()) {
+                if (!names.contains(name)) names.add(name);
+            }
+        }
+        return names;
+    }
+
+    static Comparison compare(String key, String metric, List<RunHistory> base, List<RunHistory> cand,
+                              double alpha, double minChange) {
+        double[] b = samples(base, metric);
+        double[] c = samples(cand, metric);
+        Comparison result = new Comparison(key, metric, base.size(), cand.size());
+        result.baselineMean = mean(b);
+        result.candidateMean = mean(c);
+        result.change = result.baselineMean > 0 ? result.candidateMean / result.baselineMean - 1.0 : 0.0;
+        result.pValue = Double.NaN;
+        if (b.length >= 2 && c.length >= 2 && (variance(b) > 0 || variance(c) > 0)) {
+            result.pValue = new TTest().tTest(b, c);
+        }
+        if (Double.isNaN(result.pValue)) {
+            result.verdict = VERDICT_INSUFFICIENT;
+        } else if (result.pValue < alpha && result.change > minChange) {
+            result.verdict = VERDICT_REGRESSION;
+        } else if (result.pValue < alpha && result.change < -minChange) {
+            result.verdict = VERDICT_IMPROVEMENT;
+        } else {
+            result.verdict = VERDICT_UNCHANGED;
+        }
+        return result;
+    }
+
+    private static double[] samples(List<RunHistory> runs, String metric) {
+        List<Long> values = new ArrayList<>();
+        for (RunHistory run : runs) {
+            List<Long> ms = run.metrics.get(metric);
+            if (ms != null) values.addAll(ms);
+        }
+        double[] result = new double[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    private static double mean(double[] values) {
+        if (values.length == 0) return 0.0;
+        double sum = 0.0;
+        for (double v : values) sum += v;
+        return sum / values.length;
+    }
+
+    private static double variance(double[] values) {
+        double m = mean(values);
+        double sum = 0.0;
+        for (double v : values) sum += (v - m) * (v - m);
+        return values.length > 1 ? sum / (values.length - 1) : 0.0;
+    }
+
+    private static void writeCsv(Configuration conf, Path file, List<Comparison> comparisons) throws IOException {
+        FileSystem fs = file.getFileSystem(conf);
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(fs.create(file, true), StandardCharsets.UTF_8))) {
+            writer.write("Key,Metric,Baseline_runs,Candidate_runs,Baseline_mean_ms,Candidate_mean_ms,Change(%),p_value,Verdict\n");
+            for (Comparison c : comparisons) {
+                writer.write(String.format(Locale.ROOT, "\"%s\",%s,%d,%d,%.1f,%.1f,%.2f,%s,%s\n", c.key, c.metric,
+                        c.baselineRuns, c.candidateRuns, c.baselineMean, c.candidateMean, c.change * 100,
+                        Double.isNaN(c.pValue) ? "" : String.format(Locale.ROOT, "%.6f", c.pValue), c.verdict));
+            }
+        }
+    }
+
+    // 简单的 SVG 折线图：每次运行一个横轴位置，纵轴为毫秒
+    private static void writeTrendChart(Configuration conf, Path file, String key, List<RunHistory> runs) throws IOException {
+        int width = 800;
+        int height = 400;
+        int left = 70;
+        int right = 20;
+        int top = 40;
+        int bottom = 80;
+        String[] series = {RunHistory.METRIC_TOTAL, RunHistory.METRIC_SETUP, RunHistory.METRIC_ITERATION};
+        String[] colors = {"#d62728", "#1f77b4", "#2ca02c"};
+        double[][] values = new double[series.length][runs.size()];
+        double max = 1.0;
+        for (int s = 0; s < series.length; s++) {
+            for (int i = 0; i < runs.size(); i++) {
+                List<Long> ms = runs.get(i).metrics.get(series[s]);
+                double v = 0.0;
+                if (ms != null && !ms.isEmpty()) {
+                    for (long m : ms) v += m;
+                    v /= ms.size();
+                }
+                values[s][i] = v;
+                max = Math.max(max, v);
+            }
+        }
+        double plotWidth = width - left - right;
+        double plotHeight = height - top - bottom;
+        double step = runs.size() > 1 ? plotWidth / (runs.size() - 1) : 0.0;
+
+        StringBuilder svg = new StringBuilder();
+        svg.append(String.format("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" font-family=\"sans-serif\" font-size=\"11\">\n", width, height));
+        svg.append(String.format("<text x=\"%d\" y=\"20\" font-size=\"13\">%s</text>\n", left, escapeXml(key)));
+        svg.append(String.format("<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"black\"/>\n", left, top, left, height - bottom));
+        svg.append(String.format("<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"black\"/>\n", left, height - bottom, width - right, height - bottom));
+        for (int t = 0; t <= 4; t++) {
+            double y = height - bottom - plotHeight * t / 4;
+            svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%.1f\" text-anchor=\"end\">%.0f ms</text>\n", left - 5, y + 4, max * t / 4));
+        }
+        for (int i = 0; i < runs.size(); i++) {
+            double x = left + step * i;
+            svg.append(String.format(Locale.ROOT, "<text x=\"%.1f\" y=\"%d\" text-anchor=\"end\" transform=\"rotate(-45 %.1f %d)\">%s</text>\n",
+                    x, height - bottom + 15, x, height - bottom + 15, escapeXml(runs.get(i).revision)));
+        }
+        for (int s = 0; s < series.length; s++) {
+            StringBuilder points = new StringBuilder();
+            for (int i = 0; i < runs.size(); i++) {
+                double x = left + step * i;
+                double y = height - bottom - plotHeight * values[s][i] / max;
+                points.append(String.format(Locale.ROOT, "%.1f,%.1f ", x, y));
+                svg.append(String.format(Locale.ROOT, "<circle cx=\"%.1f\" cy=\"%.1f\" r=\"3\" fill=\"%s\"/>\n", x, y, colors[s]));
+            }
+            svg.append(String.format("<polyline points=\"%s\" fill=\"none\" stroke=\"%s\"/>\n", points.toString().trim(), colors[s]));
+            svg.append(String.format("<text x=\"%d\" y=\"%d\" fill=\"%s\">%s</text>\n", width - right - 200 + s * 65, 20, colors[s], series[s]));
+        }
+        svg.append("</svg>\n");
+
+        FileSystem fs = file.getFileSystem(conf);
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(fs.create(file, true), StandardCharsets.UTF_8))) {
+            writer.write(svg.toString());
+        }
+    }
+
+    private static String escapeXml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /**
+     * 单个指标的比较结果。
+     */
+    static class Comparison {
+        final String key;
+        final String metric;
+        final int baselineRuns;
+        final int candidateRuns;
+        double baselineMean;
+        double candidateMean;
+        double change;
+        double pValue;
+        String verdict;
+
+        Comparison(String key, String metric, int baselineRuns, int candidateRuns) {
+            this.key = key;
+            this.metric = metric;
+            this.baselineRuns = baselineRuns;
+            this.candidateRuns = candidateRuns;
+        }
+    }
+
+    @Override
+    public Configuration getConf() { return conf; }
+
+    @Override
+    public void setConf(Configuration conf) { this.conf = conf; }
+
+    public static void main(String[] args) throws Exception {
+        Configuration conf = new Configuration();
+        int exitCode = ToolRunner.run(conf, new RegressionDetector(), args);
+        System.exit(exitCode);
+    }
+}
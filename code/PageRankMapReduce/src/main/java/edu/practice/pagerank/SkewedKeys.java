@@ -0,0 +1,174 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 超级热点节点（入度极高）的加盐拆分工具。
+ *
+ * 预处理阶段由 GraphBuilderReducer 统计入度并把超过阈值的节点写入 hotkeys 侧输出；
+ * 迭代阶段 Mapper 将发往热点节点的贡献值分散到 "节点#盐" 子键上，由多个 Reducer 分别求部分和，
+ * 部分和写入 hotpartial 侧输出。Driver 在每轮结束后读取这份很小的侧输出并合并，
+ * 得到热点节点的精确新 PR 与精确的 diff；合并后的修正量通过配置传给下一轮 Mapper 和最终输出。
+ *
+ * 两种侧输出都写在作业输出目录下以 "_" 开头的子目录（_hotkeys/、_hotpartial/）中：输出目录同时是
+ * 下一个 Job 的输入，FileInputFormat 按隐藏文件跳过它们，与 _topk- 候选文件相同；
+ * 否则 SequenceFile 迭代格式下下一轮会把文本侧输出当作 SequenceFile 读取而失败。
+ */
+public class SkewedKeys {
+
+    // 是否启用热点拆分
+    public static final String CONF_ENABLED = "pagerank.skew.enabled";
+    // 入度阈值：入度不小于该值的节点视为热点
+    public static final String CONF_IN_DEGREE_THRESHOLD = "pagerank.skew.inDegreeThreshold";
+    // 每个热点节点拆分的子键数量，0 表示与 Reducer 数相同
+    public static final String CONF_SALTS = "pagerank.skew.salts";
+    // 热点节点列表（逗号分隔），由 Driver 在预处理后写入
+    public static final String CONF_HOT_KEYS = "pagerank.skew.hotKeys";
+    // 上一轮热点节点的 PR 修正量，格式 node=delta,node=delta
+    public static final String CONF_HOT_ADJUST = "pagerank.skew.hotAdjust";
+
+    public static final long DEFAULT_IN_DEGREE_THRESHOLD = 10000L;
+
+    // 侧输出名称（MultipleOutputs 命名输出只允许字母和数字）
+    public static final String HOT_KEYS_OUTPUT = "hotkeys";
+    public static final String HOT_PARTIAL_OUTPUT = "hotpartial";
+    // 侧输出所在的子目录，以及传给 MultipleOutputs.write 的 baseOutputPath（相对作业输出目录）
+    public static final String HOT_KEYS_DIR = "_hotkeys";
+    public static final String HOT_PARTIAL_DIR = "_hotpartial";
+    public static final String HOT_KEYS_BASE_PATH = HOT_KEYS_DIR + "/part";
+    public static final String HOT_PARTIAL_BASE_PATH = HOT_PARTIAL_DIR + "/part";
+
+    // 子键分隔符，节点 ID 为数字，不会与之冲突
+    public static final char SALT_SEPARATOR = '#';
+    // hotpartial 记录类型：P = 加盐子键的部分和，B = 热点节点自身 Reducer 的基础值
+    public static final String PARTIAL_RECORD = "P";
+    public static final String BASE_RECORD = "B";
+
+    private SkewedKeys() {}
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getBoolean(CONF_ENABLED, false);
+    }
+
+    public static Set<String> parseHotKeys(Configuration conf) {
+        Set<String> hotKeys = new HashSet<>();
+        String raw = conf.get(CONF_HOT_KEYS, "");
+        for (String key : raw.split(",")) {
+            String trimmed = key.trim();
+            if (!trimmed.isEmpty()) hotKeys.add(trimmed);
+        }
+        return hotKeys;
+    }
+
+    public static Map<String, Double> parseAdjustments(Configuration conf) {
+        Map<String, Double> adjust = new HashMap<>();
+        String raw = conf.get(CONF_HOT_ADJUST, "");
+        for (String entry : raw.split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0) continue;
+            try {
+                adjust.put(entry.substring(0, eq).trim(), Double.parseDouble(entry.substring(eq + 1).trim()));
+            } catch (NumberFormatException ignored) {}
+        }
+        return adjust;
+    }
+
+    public static String formatAdjustments(Map<String, Double> adjust) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Double> entry : adjust.entrySet()) {
+            if (sb.length() > 0) sb.append(',');
+            // 使用 Double.toString 保留完整精度
+            sb.append(entry.getKey()).append('=').append(Double.toString(entry.getValue()));
+        }
+        return sb.toString();
+    }
+
+    public static String saltedKey(String node, int salt) {
+        return node + SALT_SEPARATOR + salt;
+    }
+
+    public static boolean isSalted(String key) {
+        return key.indexOf(SALT_SEPARATOR) >= 0;
+    }
+
+    public static String baseKey(String saltedKey) {
+        int idx = saltedKey.indexOf(SALT_SEPARATOR);
+        return idx < 0 ? saltedKey : saltedKey.substring(0, idx);
+    }
+
+    /**
+     * 读取预处理输出目录中的 hotkeys 侧输出（_hotkeys/part-r-*），返回逗号分隔的热点节点列表。
+     */
+    public static String readHotKeys(Configuration conf, Path dir) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        Path sideDir = new Path(dir, HOT_KEYS_DIR);
+        FileSystem fs = sideDir.getFileSystem(conf);
+        if (!fs.exists(sideDir)) return "";
+        for (FileStatus status : fs.listStatus(sideDir)) {
+            if (!status.isFile() || !status.getPath().getName().startsWith("part")) continue;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(status.getPath()), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split("\t", 2);
+                    if (parts[0].trim().isEmpty()) continue;
+                    if (sb.length() > 0) sb.append(',');
+                    sb.append(parts[0].trim());
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 合并一轮迭代输出中的 hotpartial 侧输出（_hotpartial/part-r-*）。
+     * 对每个热点节点: newPR = base + D * Σpartial，diff = |newPR - prevPR|，修正量 = D * Σpartial。
+     */
+    public static Recombined recombine(Configuration conf, Path dir, double damping) throws IOException {
+        Map<String, Double> partialSums = new HashMap<>();
+        Map<String, double[]> bases = new HashMap<>();   // node -> {prevPR, baseNewPR}
+
+        // 侧输出与迭代输出使用相同的压缩设置，统一经 IterationIO 读取
+        IterationIO.forEachRecord(conf, new Path(dir, HOT_PARTIAL_DIR), "part", (node, value) -> {
+            String[] parts = value.split("\t");
+            if (parts.length < 2) return;
+            try {
+                if (PARTIAL_RECORD.equals(parts[0])) {
+                    partialSums.merge(node, Double.parseDouble(parts[1]), Double::sum);
+                } else if (BASE_RECORD.equals(parts[0]) && parts.length >= 3) {
+                    bases.put(node, new double[]{Double.parseDouble(parts[1]), Double.parseDouble(parts[2])});
+                }
+            } catch (NumberFormatException ignored) {}
+        });
+
+        Recombined result = new Recombined();
+        for (Map.Entry<String, double[]> entry : bases.entrySet()) {
+            String node = entry.getKey();
+            double prevPR = entry.getValue()[0];
+            double baseNewPR = entry.getValue()[1];
+            double delta = damping * partialSums.getOrDefault(node, 0.0);
+            result.adjustments.put(node, delta);
+            result.diffSum += Math.abs(baseNewPR + delta - prevPR);
+        }
+        return result;
+    }
+
+    /**
+     * 一轮合并结果：热点节点的 PR 修正量与它们的精确 diff 之和。
+     */
+    public static class Recombined {
+        public final Map<String, Double> adjustments = new HashMap<>();
+        public double diffSum;
+    }
+}
@@ -0,0 +1,103 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import java.io.IOException;
+
+/**
+ * SortedGraphBuilderReducer: 二次排序模式下预处理阶段的 Reducer（见 AdjacencySort）。
+ * 同一节点的目标按字节序依次到达，与前一个目标比较即可去重，每个目标单独写给 AdjacencySort.AdjacencyOutputFormat，
+ * 由它拼接成一行写入输出流；不为目标创建 String 和集合节点，堆上也不保存整行，内存与出度无关。
+ * 输出格式、节点计数与热点检测与 GraphBuilderReducer 相同，只是链接按字节序排列。
+ */
+public class SortedGraphBuilderReducer extends Reducer<Text, Text, Text, Text> {
+
+    // 节点资源采样（未开启时为 null）
+    private ResourceSampler sampler;
+
+    private static final byte PLACEHOLDER = '!';
+    // 只有入链的节点写出的空目标
+    private static final Text NO_LINKS = new Text();
+
+    private boolean detectHotKeys;
+    private long inDegreeThreshold;
+    private MultipleOutputs<Text, Text> multipleOutputs;
+
+    // 复用的输出键（节点）、输出值（单个目标）与上一个目标
+    private final Text outKey = new Text();
+    private final Text outValue = new Text();
+    private byte[] previous = new byte[32];
+    private int previousLength;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        sampler = ResourceSampler.start(context.getConfiguration());
+        detectHotKeys = SkewedKeys.isEnabled(context.getConfiguration());
+        inDegreeThreshold = context.getConfiguration().getLong(SkewedKeys.CONF_IN_DEGREE_THRESHOLD,
+                SkewedKeys.DEFAULT_IN_DEGREE_THRESHOLD);
+        if (detectHotKeys) {
+            multipleOutputs = new MultipleOutputs<>(context);
+        }
+    }
+
+    @Override
+    protected void reduce(Text key, Iterable<Text> values, Context context) throws IOException, InterruptedException {
+        // 进入 reduce 时 key 为该节点的第一个组合键，遍历 values 时框架会原地更新 key
+        int nodeLength = AdjacencySort.nodeLength(key.getBytes(), 0, key.getLength());
+        outKey.set(key.getBytes(), 0, nodeLength);
+        previousLength = -1;
+        long targets = 0;
+        // 每条入边对应一个占位符，占位符数量即入度（仅热点检测开启时完整保留）
+        long inDegree = 0;
+
+        for (Text value : values) {
+            byte[] bytes = key.getBytes();
+            int start = AdjacencySort.nodeLength(bytes, 0, key.getLength()) + 1;
+            int length = key.getLength() - start;
+            if (length <= 0) continue;
+            if (length == 1 && bytes[start] == PLACEHOLDER) {
+                inDegree += GraphBuilderCombiner.placeholderCount(value);
+                continue;
+            }
+            if (length == previousLength
+                    && WritableComparator.compareBytes(previous, 0, length, bytes, start, length) == 0) {
+                continue;
+            }
+            outValue.set(bytes, start, length);
+            context.write(outKey, outValue);
+            targets++;
+            if (previous.length < length) {
+                previous = new byte[Math.max(length, previous.length << 1)];
+            }
+            System.arraycopy(bytes, start, previous, 0, length);
+            previousLength = length;
+        }
+
+        // 热点检测：入度超过阈值的节点写入 hotkeys 侧输出
+        if (detectHotKeys && inDegree >= inDegreeThreshold) {
+            context.getCounter(PageRankDriver.PageRankCounter.HOT_KEYS_COUNT).increment(1);
+            multipleOutputs.write(SkewedKeys.HOT_KEYS_OUTPUT, outKey, new Text(Long.toString(inDegree)),
+                    SkewedKeys.HOT_KEYS_BASE_PATH);
+        }
+
+        if (targets > 0 || inDegree > 0) {
+            // 统计总节点数 N
+            context.getCounter(PageRankDriver.PageRankCounter.TOTAL_NODES_COUNT).increment(1);
+            context.getCounter(PageRankDriver.PageRankCounter.TOTAL_EDGES_COUNT).increment(targets);
+            if (targets == 0) {
+                // 只有入链的节点：输出没有链接的一行
+                context.write(outKey, NO_LINKS);
+            }
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        ResourceSampler.stop(sampler, context.getConfiguration(), context.getTaskAttemptID().toString());
+        if (multipleOutputs != null) {
+            multipleOutputs.close();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * TopKStability 在 MapReduce 中的候选收集。
+ *
+ * 每个 Reducer 用大小为 K 的小顶堆保留本分区的候选，写到本轮输出目录下的 _topk-r-xxxxx
+ * （以 _ 开头，下一轮的输入格式会忽略）；Driver 调用 read 合并候选得到全局 Top-K。
+ * 热点节点在 Reducer 内只有基础值，单独保留，由 Driver 补上部分和修正量后再参与排名。
+ */
+public class TopKCandidates {
+
+    public static final String CANDIDATE_PREFIX = "_topk-";
+
+    // 名次顺序：PR 降序，PR 相同时按节点 ID 升序，保证各轮排序确定
+    private static final Comparator<Entry> RANK_ORDER = (a, b) -> {
+        int c = Double.compare(b.rank, a.rank);
+        return c != 0 ? c : a.node.compareTo(b.node);
+    };
+
+    static class Entry {
+        final String node;
+        final double rank;
+
+        Entry(String node, double rank) {
+            this.node = node;
+            this.rank = rank;
+        }
+    }
+
+    private final int k;
+    // 有界小顶堆，堆顶为当前第 K 名
+    private final PriorityQueue<Entry> heap;
+    private final List<Entry> unranked = new ArrayList<>();
+
+    public TopKCandidates(int k) {
+        this.k = k;
+        this.heap = new PriorityQueue<>(k + 1, RANK_ORDER.reversed());
+    }
+
+    public void offer(String node, double rank) {
+        if (heap.size() >= k && rank < heap.peek().rank) return;
+        heap.offer(new Entry(node, rank));
+        if (heap.size() > k) heap.poll();
+    }
+
+    public void offerUnranked(String node, double rank) {
+        unranked.add(new Entry(node, rank));
+    }
+
+    /**
+     * 写入任务工作目录，随任务提交移动到本轮输出目录。
+     */
+    public void write(TaskInputOutputContext<?, ?, ?, ?> context) throws IOException, InterruptedException {
+        Path file = new Path(FileOutputFormat.getWorkOutputPath(context), CANDIDATE_PREFIX + "r-"
+                + String.format("%05d", context.getTaskAttemptID().getTaskID().getId()));
+        StringBuilder text = new StringBuilder();
+        for (Entry entry : heap) text.append(entry.node).append('\t').append(entry.rank).append('\n');
+        for (Entry entry : unranked) text.append(entry.node).append('\t').append(entry.rank).append('\n');
+        try (FSDataOutputStream out = file.getFileSystem(context.getConfiguration()).create(file, true)) {
+            out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 合并一轮迭代输出目录中的候选，返回按名次排列的前 k 个节点。
+     * adjustments 为热点节点的部分和修正量（未启用热点拆分时为空）。
+     */
+    public static List<String> read(Configuration conf, Path iterationOutput, Map<String, Double> adjustments, int k)
+            throws IOException {
+        Map<String, Double> ranks = new HashMap<>();
+        IterationIO.forEachRecord(conf, iterationOutput, CANDIDATE_PREFIX, (node, value) -> {
+            try {
+                ranks.put(node, Double.parseDouble(value.trim()) + adjustments.getOrDefault(node, 0.0));
+            } catch (NumberFormatException ignored) {}
+        });
+        List<Entry> entries = new ArrayList<>(ranks.size());
+        for (Map.Entry<String, Double> rank : ranks.entrySet()) {
+            entries.add(new Entry(rank.getKey(), rank.getValue()));
+        }
+        Collections.sort(entries, RANK_ORDER);
+        List<String> top = new ArrayList<>(Math.min(k, entries.size()));
+        for (int i = 0; i < k && i < entries.size(); i++) {
+            top.add(entries.get(i).node);
+        }
+        return top;
+    }
+}
@@ -0,0 +1,43 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdjacencySortTest {
+
+    @Test
+    public void writerJoinsTargetsOfOneNodeIntoOneLine() throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        AdjacencySort.AdjacencyRecordWriter writer =
+                new AdjacencySort.AdjacencyRecordWriter(new DataOutputStream(buffer));
+        writer.write(new Text("1"), new Text("2"));
+        writer.write(new Text("1"), new Text("3"));
+        // 只有入链的节点
+        writer.write(new Text("2"), new Text());
+        writer.write(new Text("3"), new Text("1"));
+        writer.close(null);
+
+        assertEquals("1\t1.0|2,3\n2\t1.0|\n3\t1.0|1\n", new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void writerWithoutRecordsWritesNothing() throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new AdjacencySort.AdjacencyRecordWriter(new DataOutputStream(buffer)).close(null);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void nodeLengthStopsAtSeparator() {
+        Text key = new Text();
+        AdjacencySort.setCompositeKey(key, "42", "7");
+        assertEquals(2, AdjacencySort.nodeLength(key.getBytes(), 0, key.getLength()));
+        assertEquals(3, AdjacencySort.nodeLength("abc".getBytes(StandardCharsets.UTF_8), 0, 3));
+    }
+}
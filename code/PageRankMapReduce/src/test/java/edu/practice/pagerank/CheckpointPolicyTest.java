@@ -0,0 +1,93 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CheckpointPolicyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void markerRoundTrip() throws Exception {
+        Configuration conf = localConf();
+        Path dir = new Path(folder.newFolder("iteration_5").toURI());
+        Map<String, Double> adjustments = new LinkedHashMap<>();
+        adjustments.put("0", 1.0 / 3.0);
+        adjustments.put("42", -2.5e-9);
+        String hotAdjust = SkewedKeys.formatAdjustments(adjustments);
+
+        CheckpointPolicy.writeMarker(conf, dir, new CheckpointPolicy.State(5, 0.123456789012345678, hotAdjust, 1.0 / 0.97));
+        CheckpointPolicy.State state = CheckpointPolicy.readMarker(conf, dir);
+
+        assertEquals(5, state.iteration);
+        assertEquals(0.123456789012345678, state.danglingSum, 0.0);
+        assertEquals(hotAdjust, state.hotAdjust);
+        assertEquals(1.0 / 0.97, state.rankScale, 0.0);
+    }
+
+    @Test
+    public void markerWithoutHotAdjustments() throws Exception {
+        Configuration conf = localConf();
+        Path dir = new Path(folder.newFolder("iteration_0").toURI());
+        CheckpointPolicy.writeMarker(conf, dir, new CheckpointPolicy.State(0, 0.5, null, 1.0));
+        CheckpointPolicy.State state = CheckpointPolicy.readMarker(conf, dir);
+        assertEquals(0, state.iteration);
+        assertEquals("", state.hotAdjust);
+        assertEquals(1.0, state.rankScale, 0.0);
+    }
+
+    @Test
+    public void readMarkerIgnoresMalformedLinesAndMissingFiles() throws Exception {
+        Configuration conf = localConf();
+        File dir = folder.newFolder("iteration_3");
+        assertNull(CheckpointPolicy.readMarker(conf, new Path(dir.toURI())));
+
+        Files.write(new File(dir, CheckpointPolicy.MARKER_FILE).toPath(),
+                "iteration=3\ndanglingSum=abc\nno separator\nrankScale=2.0\n".getBytes(StandardCharsets.UTF_8));
+        CheckpointPolicy.State state = CheckpointPolicy.readMarker(conf, new Path(dir.toURI()));
+        assertEquals(3, state.iteration);
+        assertEquals(0.0, state.danglingSum, 0.0);
+        assertEquals(2.0, state.rankScale, 0.0);
+    }
+
+    @Test
+    public void checkpointScheduleAndPaths() {
+        Configuration conf = new Configuration(false);
+        conf.setInt(CheckpointPolicy.CONF_INTERVAL, 3);
+        conf.set(CheckpointPolicy.CONF_SCRATCH_DIR, "/scratch");
+        CheckpointPolicy policy = new CheckpointPolicy(conf);
+        Path output = new Path("/out");
+
+        assertTrue(policy.isCheckpoint(3));
+        assertFalse(policy.isCheckpoint(4));
+        assertEquals(0, policy.replicationFor(6));
+        assertEquals(1, policy.replicationFor(5));
+        assertEquals(new Path("/out/iteration_6"), policy.iterationPath(output, 6));
+        assertEquals(new Path("/scratch/iteration_5"), policy.iterationPath(output, 5));
+
+        CheckpointPolicy disabled = new CheckpointPolicy(new Configuration(false));
+        assertFalse(disabled.isCheckpoint(3));
+        assertEquals(new Path("/out/iteration_5"), disabled.iterationPath(output, 5));
+    }
+
+    private static Configuration localConf() {
+        Configuration conf = new Configuration();
+        conf.set("fs.defaultFS", "file:///");
+        return conf;
+    }
+}
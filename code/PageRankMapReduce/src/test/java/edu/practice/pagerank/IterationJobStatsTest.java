@@ -0,0 +1,75 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.v2.jobhistory.JobHistoryUtils;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IterationJobStatsTest {
+
+    private static final JobID JOB = new JobID("1700000000000", 7);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void findsHistoryFileInIntermediateDoneDir() throws Exception {
+        Configuration conf = historyConf();
+        File userDir = new File(new Path(JobHistoryUtils.getHistoryIntermediateDoneDirForUser(conf)).toUri().getPath());
+        assertTrue(userDir.mkdirs());
+        File jhist = new File(userDir, JOB + "-1700000000100-user-PageRank-1700000009000-2-2-SUCCEEDED-default-1700000000200.jhist");
+        assertTrue(jhist.createNewFile());
+        // 同一目录下的配置与摘要文件不应被当作历史文件
+        assertTrue(new File(userDir, JOB + "_conf.xml").createNewFile());
+
+        Path found = IterationJobStats.findHistoryFile(conf, JOB, 1700000009000L);
+        assertEquals(jhist.getName(), found.getName());
+    }
+
+    @Test
+    public void findsHistoryFileInDoneDirOfFinishDay() throws Exception {
+        Configuration conf = historyConf();
+        long finish = 1700000009000L;
+        String day = JobHistoryUtils.timestampDirectoryComponent(finish);
+        File serialDir = new File(folder.getRoot(), "done/" + day + "/000000");
+        assertTrue(serialDir.mkdirs());
+        File jhist = new File(serialDir, JOB + "-1700000000100-user-PageRank-1700000009000-2-2-SUCCEEDED-default-1700000000200.jhist");
+        assertTrue(jhist.createNewFile());
+
+        Path found = IterationJobStats.findHistoryFile(conf, JOB, finish);
+        assertEquals(jhist.getName(), found.getName());
+    }
+
+    @Test
+    public void returnsNullWhenHistoryIsMissing() throws Exception {
+        assertNull(IterationJobStats.findHistoryFile(historyConf(), JOB, 1700000009000L));
+    }
+
+    @Test
+    public void jsonEscapesQuotesAndControlCharacters() throws Exception {
+        IterationJobStats stats = new IterationJobStats("Iteration \"1\"\n\tC:\\tmp\u0001");
+        stats.slowestMapTask = "task_\r1";
+        JsonNode node = new ObjectMapper().readTree(stats.toJson());
+        assertEquals("Iteration \"1\"\n\tC:\\tmp\u0001", node.get("label").getTextValue());
+        assertEquals("task_\r1", node.get("slowestMapTask").getTextValue());
+    }
+
+    private Configuration historyConf() {
+        Configuration conf = new Configuration(false);
+        conf.set("fs.defaultFS", "file:///");
+        conf.set("mapreduce.jobhistory.intermediate-done-dir", new File(folder.getRoot(), "intermediate").toURI().toString());
+        conf.set("mapreduce.jobhistory.done-dir", new File(folder.getRoot(), "done").toURI().toString());
+        return conf;
+    }
+}
@@ -0,0 +1,103 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ParallelismPlannerTest {
+
+    private static final long MB = 1L << 20;
+
+    @Test
+    public void iterationReducersFollowShuffleBytes() {
+        ParallelismPlanner planner = new ParallelismPlanner(capacityConf(10, 20));
+        // 1e8 × (28 + 8) + 1e6 × 40 = 3.64e9 字节，按 256 MB 每 Reducer 为 14 个
+        ParallelismPlanner.Plan plan = planner.planIteration(1_000_000L, 100_000_000L);
+        assertEquals(3_640_000_000L, plan.shuffleBytes);
+        assertEquals(14, plan.reducers);
+        assertEquals(10, plan.mapTasks);
+        // 每个 Map 约 417 MB，受 Map 容器 1024 MB 的 40% 限制
+        assertEquals(409, plan.sortMb);
+        assertEquals("planned", plan.reducersSource);
+    }
+
+    @Test
+    public void smallGraphUsesOneReducerAndMinimumSortBuffer() {
+        ParallelismPlanner.Plan plan = new ParallelismPlanner(capacityConf(4, 4)).planIteration(100, 1000);
+        assertEquals(1, plan.reducers);
+        assertEquals(100, plan.sortMb);
+    }
+
+    @Test
+    public void reducersAreCappedBelowReduceCapacity() {
+        ParallelismPlanner.Plan plan = new ParallelismPlanner(capacityConf(10, 20)).planIteration(1L << 30, 1L << 36);
+        assertEquals(19, plan.reducers);
+    }
+
+    @Test
+    public void preprocessSplitsInputAcrossMapSlots() {
+        Configuration conf = capacityConf(10, 20);
+        conf.setLong("dfs.blocksize", 128 * MB);
+        ParallelismPlanner.Plan plan = new ParallelismPlanner(conf).planPreprocess(1L << 30);
+        assertEquals(2L << 30, plan.shuffleBytes);
+        assertEquals(8, plan.reducers);
+        assertEquals(((1L << 30) + 9) / 10, plan.splitBytes);
+        assertEquals(10, plan.mapTasks);
+
+        // 切片不超过块大小，也不小于 32 MB
+        assertEquals(128 * MB, new ParallelismPlanner(capacityConf(2, 2)).planPreprocess(1L << 30).splitBytes);
+        assertEquals(32 * MB, new ParallelismPlanner(conf).planPreprocess(64 * MB).splitBytes);
+    }
+
+    @Test
+    public void overridesAndExplicitSettingsWin() {
+        Configuration conf = capacityConf(10, 20);
+        conf.setInt(ParallelismPlanner.CONF_REDUCERS, 5);
+        conf.setInt(MRJobConfig.IO_SORT_MB, 256);
+        ParallelismPlanner.Plan plan = new ParallelismPlanner(conf).planIteration(1_000_000L, 100_000_000L);
+        assertEquals(5, plan.reducers);
+        assertEquals("override", plan.reducersSource);
+        assertEquals(256, plan.sortMb);
+        assertEquals("explicit", plan.sortSource);
+
+        conf = capacityConf(10, 20);
+        conf.setInt(MRJobConfig.NUM_REDUCES, 3);
+        plan = new ParallelismPlanner(conf).planIteration(1_000_000L, 100_000_000L);
+        assertEquals(3, plan.reducers);
+        assertEquals("explicit", plan.reducersSource);
+    }
+
+    @Test
+    public void applyWritesPlanIntoJob() throws Exception {
+        ParallelismPlanner planner = new ParallelismPlanner(capacityConf(10, 20));
+        Job job = Job.getInstance(new Configuration(false));
+        planner.apply(planner.planIteration(1_000_000L, 100_000_000L), job);
+        assertEquals(14, job.getNumReduceTasks());
+        assertEquals(409, job.getConfiguration().getInt(MRJobConfig.IO_SORT_MB, -1));
+        assertEquals(10, job.getConfiguration().getInt(IterationIO.CONF_TARGET_MAP_TASKS, -1));
+        assertNull(job.getConfiguration().get(FileInputFormat.SPLIT_MAXSIZE));
+    }
+
+    @Test
+    public void disabledPlannerLeavesJobUntouched() throws Exception {
+        Configuration conf = capacityConf(10, 20);
+        conf.setBoolean(ParallelismPlanner.CONF_ENABLED, false);
+        ParallelismPlanner planner = new ParallelismPlanner(conf);
+        Job job = Job.getInstance(new Configuration(false));
+        planner.apply(planner.planIteration(1_000_000L, 100_000_000L), job);
+        assertNull(job.getConfiguration().get(MRJobConfig.IO_SORT_MB));
+        assertNull(job.getConfiguration().get(IterationIO.CONF_TARGET_MAP_TASKS));
+    }
+
+    private static Configuration capacityConf(int mapSlots, int reduceSlots) {
+        Configuration conf = new Configuration(false);
+        conf.setInt(ParallelismPlanner.CONF_MAP_SLOTS, mapSlots);
+        conf.setInt(ParallelismPlanner.CONF_REDUCE_SLOTS, reduceSlots);
+        return conf;
+    }
+}
@@ -0,0 +1,109 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RankStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void ranksByScoreThenIdAndLooksUpPositions() throws Exception {
+        long[] ids = {40, 7, 19, 3, 25};
+        double[] scores = {0.1, 0.3, 0.1, 0.2, 0.3};
+        try (RankStore store = RankStore.open(write(ids, scores, ids.length))) {
+            assertEquals(5, store.size());
+            assertEquals(1.0, store.getTotalScore(), 1e-12);
+            // PR 相同按 ID 升序
+            long[] expected = {7, 25, 3, 19, 40};
+            for (int p = 0; p < expected.length; p++) {
+                assertEquals(expected[p], store.idAt(p));
+                assertEquals(p, store.positionOf(expected[p]));
+            }
+            assertEquals(0.3, store.scoreAt(0), 0.0);
+            assertEquals(0.1, store.scoreAt(4), 0.0);
+            assertEquals(-1, store.positionOf(8));
+            assertEquals(-1, store.positionOf(1000));
+            assertEquals(100.0, store.percentileAt(0), 0.0);
+            assertEquals(20.0, store.percentileAt(4), 0.0);
+        }
+    }
+
+    @Test
+    public void writesOnlyFirstEntriesAndIteratesRange() throws Exception {
+        long[] ids = {1, 2, 3, 4, 99};
+        double[] scores = {0.4, 0.3, 0.2, 0.1, 1.0};
+        try (RankStore store = RankStore.open(write(ids, scores, 4))) {
+            assertEquals(4, store.size());
+            assertEquals(-1, store.positionOf(99));
+
+            List<Long> visited = new ArrayList<>();
+            store.forEachInRange(1, 10, (position, id, score) -> visited.add(id));
+            assertEquals(3, visited.size());
+            assertEquals(Long.valueOf(2), visited.get(0));
+            assertEquals(Long.valueOf(4), visited.get(2));
+        }
+    }
+
+    @Test
+    public void lookupMatchesLargeRandomInput() throws Exception {
+        int n = 5000;
+        Random random = new Random(7);
+        long[] ids = new long[n];
+        double[] scores = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = (long) i * 1_000_003L + random.nextInt(1000);
+            scores[i] = random.nextDouble();
+        }
+        try (RankStore store = RankStore.open(write(ids, scores, n))) {
+            for (int i = 0; i < n; i++) {
+                int position = store.positionOf(ids[i]);
+                assertEquals(ids[i], store.idAt(position));
+                assertEquals(scores[i], store.scoreAt(position), 0.0);
+            }
+            for (int p = 1; p < n; p++) {
+                assertTrue(store.scoreAt(p - 1) >= store.scoreAt(p));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsDuplicateIds() throws Exception {
+        try {
+            write(new long[] {5, 5}, new double[] {0.5, 0.5}, 2);
+            fail("重复 ID 应当报错");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("5"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFileWithoutMagic() throws Exception {
+        File file = folder.newFile("bogus.store");
+        Files.write(file.toPath(), new byte[RankStore.HEADER_BYTES]);
+        RankStore.open(file.toPath()).close();
+    }
+
+    private java.nio.file.Path write(long[] ids, double[] scores, int n) throws IOException {
+        File file = new File(folder.getRoot(), "ranks-" + System.nanoTime() + ".store");
+        Configuration conf = new Configuration();
+        conf.set("fs.defaultFS", "file:///");
+        RankStore.write(conf, new Path(file.toURI()), ids, scores, n);
+        return file.toPath();
+    }
+}
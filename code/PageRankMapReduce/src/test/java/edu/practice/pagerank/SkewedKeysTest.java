@@ -0,0 +1,116 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SkewedKeysTest {
+
+    private static final double DAMPING = 0.85;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recombineSumsPartialsAcrossReducers() throws Exception {
+        File dir = folder.newFolder("iteration_1");
+        File side = new File(dir, SkewedKeys.HOT_PARTIAL_DIR);
+        assertTrue(side.mkdirs());
+        // 节点 0 拆到两个 Reducer，基础值来自第三个
+        writeText(new File(side, "part-r-00000"), "0\tP\t0.2\n7\tP\t0.05\n");
+        writeText(new File(side, "part-r-00001"), "0\tP\t0.1\n0\tB\t0.4\t0.03\n");
+        writeText(new File(side, "part-r-00002"), "7\tB\t0.1\t0.02\n");
+        // 非 part 文件与格式不符的行被忽略
+        writeText(new File(side, "_SUCCESS"), "0\tP\t100\n");
+        writeText(new File(side, "part-r-00003"), "9\tP\tabc\n9\tB\t0.1\n");
+
+        SkewedKeys.Recombined result = SkewedKeys.recombine(localConf(), new Path(dir.toURI()), DAMPING);
+
+        assertEquals(2, result.adjustments.size());
+        assertEquals(DAMPING * 0.3, result.adjustments.get("0"), 1e-15);
+        assertEquals(DAMPING * 0.05, result.adjustments.get("7"), 1e-15);
+        double expectedDiff = Math.abs(0.03 + DAMPING * 0.3 - 0.4) + Math.abs(0.02 + DAMPING * 0.05 - 0.1);
+        assertEquals(expectedDiff, result.diffSum, 1e-15);
+    }
+
+    @Test
+    public void recombineReadsSequenceFiles() throws Exception {
+        Configuration conf = localConf();
+        File dir = folder.newFolder("iteration_2");
+        Path side = new Path(new Path(dir.toURI()), SkewedKeys.HOT_PARTIAL_DIR);
+        try (SequenceFile.Writer writer = SequenceFile.createWriter(conf,
+                SequenceFile.Writer.file(new Path(side, "part-r-00000")),
+                SequenceFile.Writer.keyClass(Text.class), SequenceFile.Writer.valueClass(Text.class))) {
+            writer.append(new Text("5"), new Text("P\t0.5"));
+            writer.append(new Text("5"), new Text("B\t0.2\t0.1"));
+        }
+
+        SkewedKeys.Recombined result = SkewedKeys.recombine(conf, new Path(dir.toURI()), DAMPING);
+        assertEquals(DAMPING * 0.5, result.adjustments.get("5"), 1e-15);
+        assertEquals(Math.abs(0.1 + DAMPING * 0.5 - 0.2), result.diffSum, 1e-15);
+    }
+
+    @Test
+    public void hotNodeWithoutPartialsKeepsBaseValue() throws Exception {
+        File dir = folder.newFolder("iteration_3");
+        File side = new File(dir, SkewedKeys.HOT_PARTIAL_DIR);
+        assertTrue(side.mkdirs());
+        writeText(new File(side, "part-r-00000"), "4\tB\t0.3\t0.25\n");
+
+        SkewedKeys.Recombined result = SkewedKeys.recombine(localConf(), new Path(dir.toURI()), DAMPING);
+        assertEquals(0.0, result.adjustments.get("4"), 0.0);
+        assertEquals(0.05, result.diffSum, 1e-15);
+    }
+
+    @Test
+    public void recombineWithoutSideOutputIsEmpty() throws Exception {
+        File dir = folder.newFolder("iteration_4");
+        SkewedKeys.Recombined result = SkewedKeys.recombine(localConf(), new Path(dir.toURI()), DAMPING);
+        assertTrue(result.adjustments.isEmpty());
+        assertEquals(0.0, result.diffSum, 0.0);
+    }
+
+    @Test
+    public void adjustmentsRoundTripThroughConfiguration() {
+        Map<String, Double> adjust = new LinkedHashMap<>();
+        adjust.put("0", 1.0 / 3.0);
+        adjust.put("42", -2.5e-9);
+        Configuration conf = new Configuration(false);
+        conf.set(SkewedKeys.CONF_HOT_ADJUST, SkewedKeys.formatAdjustments(adjust));
+        assertEquals(adjust, SkewedKeys.parseAdjustments(conf));
+    }
+
+    @Test
+    public void saltedKeys() {
+        String salted = SkewedKeys.saltedKey("17", 3);
+        assertTrue(SkewedKeys.isSalted(salted));
+        assertFalse(SkewedKeys.isSalted("17"));
+        assertEquals("17", SkewedKeys.baseKey(salted));
+        assertEquals("17", SkewedKeys.baseKey("17"));
+    }
+
+    private static Configuration localConf() {
+        Configuration conf = new Configuration();
+        conf.set("fs.defaultFS", "file:///");
+        return conf;
+    }
+
+    private static void writeText(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,103 @@
+package edu.practice.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.ToolRunner;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 本地模式回归：SequenceFile 迭代格式 + 热点拆分。
+ * hotpartial 侧输出曾与 part 文件写在同一目录，下一轮把它当作 SequenceFile 读取而失败。
+ */
+public class SkewedSequenceFormatTest {
+
+    private static final int NODES = 60;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sequenceFormatWithHotKeysMatchesPlainRun() throws Exception {
+        File input = writeGraph();
+
+        Configuration skewed = localConf();
+        skewed.set(IterationIO.CONF_ITERATION_FORMAT, IterationIO.FORMAT_SEQUENCE);
+        skewed.setBoolean(SkewedKeys.CONF_ENABLED, true);
+        skewed.setLong(SkewedKeys.CONF_IN_DEGREE_THRESHOLD, 10);
+        File skewedOutput = new File(folder.getRoot(), "skewed");
+        assertEquals(0, run(skewed, input, skewedOutput));
+
+        File iteration = new File(skewedOutput, "iteration_3");
+        assertTrue("侧输出应写在隐藏子目录中", new File(iteration, SkewedKeys.HOT_PARTIAL_DIR).isDirectory());
+        String[] names = iteration.list();
+        assertNotNull(names);
+        for (String name : names) {
+            assertFalse(name, name.startsWith(SkewedKeys.HOT_PARTIAL_OUTPUT));
+        }
+
+        File plainOutput = new File(folder.getRoot(), "plain");
+        assertEquals(0, run(localConf(), input, plainOutput));
+
+        Map<String, Double> expected = readScores(plainOutput);
+        Map<String, Double> actual = readScores(skewedOutput);
+        assertEquals(NODES, expected.size());
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, Double> entry : expected.entrySet()) {
+            // 两次运行的 PR 均以 %.10f 写出
+            assertEquals(entry.getKey(), entry.getValue(), actual.get(entry.getKey()), 1e-9);
+        }
+    }
+
+    private Configuration localConf() {
+        Configuration conf = new Configuration();
+        conf.set("mapreduce.framework.name", "local");
+        conf.set("fs.defaultFS", "file:///");
+        conf.setInt("mapreduce.job.reduces", 2);
+        conf.setBoolean(TraceRecorder.CONF_ENABLED, false);
+        return conf;
+    }
+
+    private static int run(Configuration conf, File input, File output) throws Exception {
+        return ToolRunner.run(conf, new PageRankDriver(),
+                new String[] {input.getAbsolutePath(), output.getAbsolutePath(), "3", "0.85", "1e-12"});
+    }
+
+    // 每个节点链向下一个节点和节点 0，节点 0 的入度为 NODES - 1，是唯一的热点
+    private File writeGraph() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < NODES; i++) {
+            sb.append(i).append('\t').append((i + 1) % NODES).append('\n');
+            if (i != 0 && (i + 1) % NODES != 0) {
+                sb.append(i).append('\t').append(0).append('\n');
+            }
+        }
+        File input = folder.newFile("graph.txt");
+        Files.write(input.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        return input;
+    }
+
+    private static Map<String, Double> readScores(File output) throws IOException {
+        Map<String, Double> scores = new HashMap<>();
+        List<String> lines = Files.readAllLines(new File(output, "final_scores/part-00000").toPath(), StandardCharsets.UTF_8);
+        for (String line : lines) {
+            String[] parts = line.split("\t");
+            if (parts.length < 2) continue;
+            scores.put(parts[0], Double.parseDouble(parts[1].split("\\|")[0]));
+        }
+        return scores;
+    }
+}